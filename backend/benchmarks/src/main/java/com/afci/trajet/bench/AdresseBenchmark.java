@@ -0,0 +1,72 @@
+package com.afci.trajet.bench;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.web.client.RestTemplate;
+
+import com.afci.trajet.service.GeocodingService;
+import com.afci.trajet.service.geocodage.AdresseCsvBatchClient;
+import com.afci.trajet.service.geocodage.ApiAdresseGarde;
+import com.afci.trajet.service.geocodage.ApiAdresseGeocodingProvider;
+import com.afci.trajet.service.geocodage.GazetteerGeocodingProvider;
+import com.afci.trajet.service.geocodage.GeocodageCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Construction de l'adresse complète (clé de géocodage et de cache),
+ * pour 1 000 adresses synthétiques.
+ *
+ * Aucun appel réseau ni base : seul buildAdresseComplete est mesuré.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class AdresseBenchmark {
+
+    private static final int NB_ADRESSES = 1000;
+
+    private GeocodingService geocodingService;
+    private String[][] adresses;
+
+    @Setup
+    public void preparer() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        String url = "http://127.0.0.1:9";
+        ApiAdresseGarde garde = new ApiAdresseGarde(registry,
+                10, Duration.ofMillis(200), 20, 10, 0.5, Duration.ofSeconds(30));
+        geocodingService = new GeocodingService(
+                new ApiAdresseGeocodingProvider(new RestTemplate(), garde, registry, url),
+                new GazetteerGeocodingProvider(GazetteerGeocodingProvider.Mode.DISABLED,
+                        "classpath:geocodage/communes-centroides.csv", "inutilise.idx",
+                        new DefaultResourceLoader(), registry),
+                new GeocodageCache(null, registry, 10, Duration.ofHours(1), Duration.ofHours(1), Duration.ofHours(1)),
+                new AdresseCsvBatchClient(new RestTemplate(), garde, url),
+                registry,
+                500);
+        adresses = DonneesSynthetiques.adresses(NB_ADRESSES);
+    }
+
+    @Benchmark
+    public void buildAdresseComplete(Blackhole bh) {
+        for (String[] a : adresses) {
+            bh.consume(geocodingService.buildAdresseComplete(a[0], a[1], a[2], a[3], a[4]));
+        }
+    }
+}
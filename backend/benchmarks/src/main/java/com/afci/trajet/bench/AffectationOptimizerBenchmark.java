@@ -0,0 +1,51 @@
+package com.afci.trajet.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.afci.trajet.service.om.affectation.AffectationOptimizer;
+
+/**
+ * Affectation globale (AffectationOptimizer) d'un lot d'OM sur 5 000
+ * formateurs, avec les paramètres par défaut d'application.yml :
+ * 100 OM => hongrois, 1 000 OM => glouton + recherche locale.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class AffectationOptimizerBenchmark {
+
+    @Param({ "100", "1000" })
+    int ordres;
+
+    @Param({ "5000" })
+    int formateurs;
+
+    private AffectationOptimizer optimizer;
+    private AffectationOptimizer.Probleme probleme;
+
+    @Setup
+    public void preparer() {
+        optimizer = new AffectationOptimizer(150, 30, 30, 20);
+        probleme = DonneesSynthetiques.problemeAffectation(ordres, formateurs, 50, 30, 2_000);
+    }
+
+    @Benchmark
+    public AffectationOptimizer.Resultat optimiser() {
+        return optimizer.optimiser(probleme);
+    }
+}
@@ -0,0 +1,58 @@
+package com.afci.trajet.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.afci.trajet.service.om.candidat.CandidatContexte;
+import com.afci.trajet.service.om.candidat.CandidatScoringConfig;
+import com.afci.trajet.service.om.candidat.CandidateRanker;
+
+/**
+ * Classement top-K des candidats (CandidateRanker) sur un vivier synthétique,
+ * avec les critères et poids par défaut d'application.yml.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class CandidateRankingBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    int n;
+
+    @Param({ "50" })
+    int k;
+
+    private CandidateRanker ranker;
+    private List<CandidatContexte> vivier;
+
+    @Setup
+    public void preparer() {
+        CandidatScoringConfig config = new CandidatScoringConfig();
+        ranker = new CandidateRanker(List.of(
+                config.scoreDistance(1.0, 500),
+                config.scoreZone(1.0),
+                config.scoreVehiculePerso(0.2),
+                config.scorePermis(0.2)));
+        vivier = DonneesSynthetiques.candidats(n);
+    }
+
+    @Benchmark
+    public CandidateRanker.Classement classerPremierePage() {
+        return ranker.classer(vivier, k, null, null);
+    }
+}
@@ -0,0 +1,111 @@
+package com.afci.trajet.bench;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.afci.trajet.service.geo.DistanceEngine;
+import com.afci.trajet.util.GeoUtils;
+
+/**
+ * Distances un-vers-plusieurs (école -> N formateurs).
+ *
+ *  - bigDecimalParPaire : ancienne implémentation (GeoUtils / DistanceService
+ *                         avant DistanceEngine), recopiée ici comme référence ;
+ *  - geoUtilsParPaire   : GeoUtils.distanceKm actuel (BigDecimal, délègue au moteur) ;
+ *  - scalaire           : DistanceEngine, colonnes + cos(lat) précalculé ;
+ *  - vectoriel          : DistanceEngine avec le noyau jdk.incubator.vector.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class DistanceBenchmark {
+
+    private static final double RAYON_TERRE_KM = 6371.0;
+
+    @Param({ "1000", "10000", "100000" })
+    int n;
+
+    private BigDecimal ecoleLat;
+    private BigDecimal ecoleLon;
+    private BigDecimal[] lats;
+    private BigDecimal[] lons;
+    private DistanceEngine.Points points;
+    private double[] sortie;
+
+    @Setup
+    public void preparer() {
+        double[][] coords = DonneesSynthetiques.coordonnees(n);
+        lats = DonneesSynthetiques.enDecimal(coords[0]);
+        lons = DonneesSynthetiques.enDecimal(coords[1]);
+        ecoleLat = BigDecimal.valueOf(DonneesSynthetiques.ECOLE_LAT);
+        ecoleLon = BigDecimal.valueOf(DonneesSynthetiques.ECOLE_LON);
+        points = DistanceEngine.Points.depuisDegres(coords[0], coords[1]);
+        sortie = new double[n];
+    }
+
+    @Benchmark
+    public void bigDecimalParPaire(Blackhole bh) {
+        for (int i = 0; i < n; i++) {
+            bh.consume(haversineBigDecimal(ecoleLat, ecoleLon, lats[i], lons[i]));
+        }
+    }
+
+    /**
+     * API publique actuelle (BigDecimal, un appel par paire) : GeoUtils.distanceKm.
+     */
+    @Benchmark
+    public void geoUtilsParPaire(Blackhole bh) {
+        for (int i = 0; i < n; i++) {
+            bh.consume(GeoUtils.distanceKm(ecoleLat, ecoleLon, lats[i], lons[i]));
+        }
+    }
+
+    @Benchmark
+    public double[] scalaire() {
+        return DistanceEngine.distancesKmScalaire(DonneesSynthetiques.ECOLE_LAT, DonneesSynthetiques.ECOLE_LON, points);
+    }
+
+    @Benchmark
+    public double[] vectoriel() {
+        DistanceEngine.distancesKm(DonneesSynthetiques.ECOLE_LAT, DonneesSynthetiques.ECOLE_LON, points, sortie);
+        return sortie;
+    }
+
+    /**
+     * Copie conforme de l'ancien GeoUtils.distanceKm (référence de comparaison).
+     */
+    private static double haversineBigDecimal(BigDecimal lat1, BigDecimal lon1,
+                                              BigDecimal lat2, BigDecimal lon2) {
+        double lat1Rad = Math.toRadians(lat1.doubleValue());
+        double lon1Rad = Math.toRadians(lon1.doubleValue());
+        double lat2Rad = Math.toRadians(lat2.doubleValue());
+        double lon2Rad = Math.toRadians(lon2.doubleValue());
+
+        double dLat = lat2Rad - lat1Rad;
+        double dLon = lon2Rad - lon1Rad;
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1Rad) * Math.cos(lat2Rad)
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return RAYON_TERRE_KM * c;
+    }
+}
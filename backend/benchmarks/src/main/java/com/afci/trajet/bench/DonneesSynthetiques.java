@@ -0,0 +1,178 @@
+package com.afci.trajet.bench;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import com.afci.trajet.entity.OrdreMission;
+import com.afci.trajet.service.geo.DistanceEngine;
+import com.afci.trajet.service.geo.DistanceMatrix;
+import com.afci.trajet.service.om.affectation.AffectationOptimizer;
+import com.afci.trajet.service.om.candidat.CandidatContexte;
+
+/**
+ * Générateur de données synthétiques pour les bancs d'essai.
+ *
+ * Déterministe (graine fixe) : deux exécutions mesurent exactement
+ * les mêmes données, ce qui rend la ligne de base comparable.
+ *
+ * Les ordres de grandeur imitent la production : formateurs répartis sur
+ * les Hauts-de-France, zones de mobilité de 10 à 150 km, coordonnées
+ * NUMERIC(9,6).
+ */
+public final class DonneesSynthetiques {
+
+    public static final long GRAINE = 42L;
+
+    /** École de référence : Amiens. */
+    public static final double ECOLE_LAT = 49.8941;
+    public static final double ECOLE_LON = 2.2958;
+
+    private static final String[] STATUTS = { "BROUILLON", "PROPOSE", "VALIDE", "REFUSE", "ANNULE" };
+    private static final String[] VILLES = { "Amiens", "Lille", "Arras", "Beauvais", "Compiègne", "Saint-Quentin" };
+    private static final String[] CODES_POSTAUX = { "80000", "59000", "62000", "60000", "60200", "02100" };
+
+    private DonneesSynthetiques() {
+    }
+
+    /**
+     * Coordonnées en degrés : [0] = latitudes, [1] = longitudes.
+     */
+    public static double[][] coordonnees(int n) {
+        SplittableRandom rnd = new SplittableRandom(GRAINE);
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = arrondi(49.0 + rnd.nextDouble() * 2.0);
+            lons[i] = arrondi(1.5 + rnd.nextDouble() * 2.7);
+        }
+        return new double[][] { lats, lons };
+    }
+
+    public static BigDecimal[] enDecimal(double[] valeurs) {
+        BigDecimal[] resultat = new BigDecimal[valeurs.length];
+        for (int i = 0; i < valeurs.length; i++) {
+            resultat[i] = BigDecimal.valueOf(valeurs[i]).setScale(6, RoundingMode.HALF_UP);
+        }
+        return resultat;
+    }
+
+    /**
+     * Vivier de candidats déjà positionnés (distance à vol d'oiseau calculée,
+     * pas de durée routière).
+     */
+    public static List<CandidatContexte> candidats(int n) {
+        SplittableRandom rnd = new SplittableRandom(GRAINE);
+        double[][] domiciles = coordonnees(n);
+        List<CandidatContexte> candidats = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            candidats.add(new CandidatContexte(
+                    i + 1,
+                    100_000 + i,
+                    rnd.nextDouble() * 300.0,
+                    (short) (10 + rnd.nextInt(141)),
+                    rnd.nextInt(4) != 0,
+                    rnd.nextInt(10) != 0,
+                    domiciles[0][i],
+                    domiciles[1][i],
+                    Double.NaN));
+        }
+        return candidats;
+    }
+
+    public static List<OrdreMission> ordresMission(int n) {
+        SplittableRandom rnd = new SplittableRandom(GRAINE);
+        OffsetDateTime creation = OffsetDateTime.of(2025, 1, 6, 9, 0, 0, 0, ZoneOffset.UTC);
+        List<OrdreMission> ordres = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            OrdreMission om = new OrdreMission();
+            om.setIdOrdreMission(i + 1);
+            om.setCodeOrdre(String.format("OM-2025-%04d", i + 1));
+            om.setIdEcole(1 + rnd.nextInt(200));
+            om.setIdUserCreateur(1 + rnd.nextInt(500));
+            om.setIdFormateur(rnd.nextBoolean() ? 1 + rnd.nextInt(2000) : null);
+            LocalDate debut = LocalDate.of(2025, 1, 1).plusDays(rnd.nextInt(365));
+            om.setDateDebut(debut);
+            om.setDateFin(debut.plusDays(rnd.nextInt(10)));
+            om.setStatut(STATUTS[rnd.nextInt(STATUTS.length)]);
+            om.setCoutTotalEstime(BigDecimal.valueOf(rnd.nextInt(200_000), 2));
+            om.setCommentaire(rnd.nextInt(3) == 0 ? null : "Session de formation n°" + i + " – salle B" + rnd.nextInt(20));
+            om.setCreatedAt(creation.plusMinutes(i));
+            om.setUpdatedAt(creation.plusMinutes(i + rnd.nextInt(1000)));
+            ordres.add(om);
+        }
+        return ordres;
+    }
+
+    /**
+     * Lot d'affectation : écoles et formateurs tirés sur la France
+     * métropolitaine (zones de 50 à 450 km), OM de 1 à 5 jours sur "jours"
+     * jours, "nbEngagements" créneaux déjà engagés répartis au hasard.
+     */
+    public static AffectationOptimizer.Probleme problemeAffectation(int nbOrdres, int nbFormateurs, int nbEcoles,
+                                                                    int jours, int nbEngagements) {
+        SplittableRandom rnd = new SplittableRandom(GRAINE);
+        double[] latsEcoles = new double[nbEcoles];
+        double[] lonsEcoles = new double[nbEcoles];
+        for (int e = 0; e < nbEcoles; e++) {
+            latsEcoles[e] = 43.0 + rnd.nextDouble() * 7.0;
+            lonsEcoles[e] = -1.0 + rnd.nextDouble() * 8.0;
+        }
+        double[] lats = new double[nbFormateurs];
+        double[] lons = new double[nbFormateurs];
+        List<AffectationOptimizer.Formateur> formateurs = new ArrayList<>(nbFormateurs);
+        for (int f = 0; f < nbFormateurs; f++) {
+            lats[f] = 43.0 + rnd.nextDouble() * 7.0;
+            lons[f] = -1.0 + rnd.nextDouble() * 8.0;
+            formateurs.add(new AffectationOptimizer.Formateur(100_000 + f, (short) (50 + rnd.nextInt(400)),
+                    rnd.nextInt(5) != 0, rnd.nextInt(20) > 2));
+        }
+        double[][] distances = DistanceMatrix.calculer(latsEcoles, lonsEcoles,
+                DistanceEngine.Points.depuisDegres(lats, lons));
+
+        List<AffectationOptimizer.Ordre> ordres = new ArrayList<>(nbOrdres);
+        for (int o = 0; o < nbOrdres; o++) {
+            long debut = rnd.nextInt(jours);
+            ordres.add(new AffectationOptimizer.Ordre(o + 1, rnd.nextInt(nbEcoles), debut, debut + rnd.nextInt(5)));
+        }
+
+        Map<Integer, List<AffectationOptimizer.Creneau>> engagements = new HashMap<>();
+        for (int i = 0; i < nbEngagements; i++) {
+            long debut = rnd.nextInt(jours);
+            engagements.computeIfAbsent(rnd.nextInt(nbFormateurs), k -> new ArrayList<>())
+                    .add(new AffectationOptimizer.Creneau(debut, debut + rnd.nextInt(5)));
+        }
+        return new AffectationOptimizer.Probleme(ordres, formateurs, distances, engagements,
+                AffectationOptimizer.Disponibilites.TOUJOURS);
+    }
+
+    /**
+     * Champs d'adresse : [i] = { l1, l2, codePostal, ville, pays }.
+     */
+    public static String[][] adresses(int n) {
+        SplittableRandom rnd = new SplittableRandom(GRAINE);
+        String[][] adresses = new String[n][];
+        for (int i = 0; i < n; i++) {
+            int v = rnd.nextInt(VILLES.length);
+            adresses[i] = new String[] {
+                    (1 + rnd.nextInt(200)) + " rue Jules Barni",
+                    rnd.nextInt(4) == 0 ? "Bâtiment " + (char) ('A' + rnd.nextInt(6)) : null,
+                    CODES_POSTAUX[v],
+                    VILLES[v],
+                    "FR"
+            };
+        }
+        return adresses;
+    }
+
+    private static double arrondi(double degres) {
+        return Math.round(degres * 1_000_000d) / 1_000_000d;
+    }
+}
@@ -0,0 +1,74 @@
+package com.afci.trajet.bench;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.afci.trajet.security.jwt.JwtService;
+import com.afci.trajet.security.jwt.VerifiedToken;
+
+/**
+ * Coût du JWT sur CHAQUE requête authentifiée (JwtAuthenticationFilter).
+ *
+ *  - extractUsername / isTokenValid : API historique ;
+ *  - verifySansCache : une vérification complète (HMAC + parsing) ;
+ *  - verifyCache     : même token déjà vérifié (cas d'une SPA).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final String SECRET = "change-me-super-secret-key-change-me-1234567890";
+
+    private JwtService jwtService;
+    private JwtService jwtServiceSansCache;
+    private UserDetails utilisateur;
+    private String token;
+
+    @Setup
+    public void preparer() {
+        jwtService = new JwtService(SECRET, 3_600_000L, 10_000);
+        jwtServiceSansCache = new JwtService(SECRET, 3_600_000L, 0);
+        utilisateur = User.withUsername("formateur.bench@trajet.fr")
+                .password("{noop}x")
+                .roles("FORMATEUR")
+                .build();
+        token = jwtService.generateToken(utilisateur, 42, 0);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, utilisateur);
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verifySansCache() {
+        return jwtServiceSansCache.verify(token);
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verifyCache() {
+        return jwtService.verify(token);
+    }
+}
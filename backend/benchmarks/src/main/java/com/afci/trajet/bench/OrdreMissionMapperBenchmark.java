@@ -0,0 +1,47 @@
+package com.afci.trajet.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.afci.trajet.dto.om.OrdreMissionResponse;
+import com.afci.trajet.entity.OrdreMission;
+import com.afci.trajet.mapper.OrdreMissionMapper;
+
+/**
+ * Entités -> DTO de réponse (une page de liste d'OM).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class OrdreMissionMapperBenchmark {
+
+    @Param({ "20", "1000" })
+    int n;
+
+    private List<OrdreMission> ordres;
+
+    @Setup
+    public void preparer() {
+        ordres = DonneesSynthetiques.ordresMission(n);
+    }
+
+    @Benchmark
+    public List<OrdreMissionResponse> toResponseList() {
+        return OrdreMissionMapper.toResponseList(ordres);
+    }
+}
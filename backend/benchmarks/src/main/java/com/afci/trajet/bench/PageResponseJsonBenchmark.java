@@ -0,0 +1,55 @@
+package com.afci.trajet.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.afci.trajet.dto.common.PageResponse;
+import com.afci.trajet.dto.om.OrdreMissionResponse;
+import com.afci.trajet.mapper.OrdreMissionMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sérialisation JSON d'une page de liste d'OM, avec un ObjectMapper
+ * configuré comme celui de Spring MVC (dates ISO-8601).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class PageResponseJsonBenchmark {
+
+    @Param({ "20", "200" })
+    int taillePage;
+
+    private ObjectMapper objectMapper;
+    private PageResponse<OrdreMissionResponse> page;
+
+    @Setup
+    public void preparer() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<OrdreMissionResponse> items =
+                OrdreMissionMapper.toResponseList(DonneesSynthetiques.ordresMission(taillePage));
+        page = new PageResponse<>(items, 0, taillePage, 10_000L, 10_000 / taillePage, true, false);
+    }
+
+    @Benchmark
+    public byte[] serialiser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,155 @@
+package com.afci.trajet.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.afci.trajet.service.geo.DistanceEngine;
+import com.afci.trajet.service.geo.route.RoadGraph;
+import com.afci.trajet.service.geo.route.RoadGraphBuilder;
+import com.afci.trajet.service.geo.route.RoutingEngine;
+
+/**
+ * Moteur de routage local (RoutingEngine) sur une grille routière de
+ * cote × cote nœuds (1 M par défaut) : 30 à 130 km/h, 10 % de sens
+ * uniques, 5 % de tronçons absents, 16 repères.
+ *
+ *  - itineraire       : point à point (A* + repères), 200 couples en boucle ;
+ *  - plusieursVersUn  : 500 domiciles -> 1 école ;
+ *  - pretraiter       : construction du graphe et choix des repères (un coup).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules=jdk.incubator.vector", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    private static final double PAS_DEG = 0.01;
+    private static final int NB_COUPLES = 200;
+    private static final int NB_DOMICILES = 500;
+
+    @Param({ "1000" })
+    int cote;
+
+    private RoadGraphBuilder builder;
+    private RoutingEngine moteur;
+    private Path fichier;
+
+    private double[][] couples;
+    private int suivant;
+    private double[] latsDomiciles;
+    private double[] lonsDomiciles;
+
+    @Setup
+    public void preparer() throws IOException {
+        builder = grille(cote, new SplittableRandom(DonneesSynthetiques.GRAINE));
+        fichier = Files.createTempFile("bench-routage", ".tfrg");
+        builder.construire(RoadGraphBuilder.REPERES_PAR_DEFAUT).ecrire(fichier);
+        moteur = new RoutingEngine("", 2, 5, Duration.ofDays(1), 4);
+        moteur.charger(fichier);
+
+        SplittableRandom rnd = new SplittableRandom(DonneesSynthetiques.GRAINE + 1);
+        int n = cote * cote;
+        couples = new double[NB_COUPLES][];
+        for (int i = 0; i < NB_COUPLES; i++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            couples[i] = new double[] { lat(a), lon(a), lat(b), lon(b) };
+        }
+        latsDomiciles = new double[NB_DOMICILES];
+        lonsDomiciles = new double[NB_DOMICILES];
+        for (int i = 0; i < NB_DOMICILES; i++) {
+            int v = rnd.nextInt(n);
+            latsDomiciles[i] = lat(v);
+            lonsDomiciles[i] = lon(v);
+        }
+    }
+
+    @TearDown
+    public void nettoyer() throws IOException {
+        Files.deleteIfExists(fichier);
+    }
+
+    @Benchmark
+    public Optional<RoutingEngine.Itineraire> itineraire() {
+        double[] c = couples[suivant++ % NB_COUPLES];
+        return moteur.itineraire(c[0], c[1], c[2], c[3]);
+    }
+
+    @Benchmark
+    public RoutingEngine.Trajets plusieursVersUn() {
+        int ecole = cote * cote / 2;
+        return moteur.plusieursVersUn(latsDomiciles, lonsDomiciles, lat(ecole), lon(ecole));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public RoadGraph pretraiter() {
+        return builder.construire(RoadGraphBuilder.REPERES_PAR_DEFAUT);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------
+
+    private double lat(int v) {
+        return 45.0 + (v / cote) * PAS_DEG;
+    }
+
+    private double lon(int v) {
+        return 3.0 + (v % cote) * PAS_DEG;
+    }
+
+    /**
+     * Rues vers les voisins droite / bas, autour de (45°, 3°).
+     */
+    private RoadGraphBuilder grille(int cote, SplittableRandom rnd) {
+        RoadGraphBuilder b = new RoadGraphBuilder();
+        int n = cote * cote;
+        for (int v = 0; v < n; v++) {
+            b.ajouterNoeud(lat(v), lon(v));
+        }
+        for (int v = 0; v < n; v++) {
+            if (v % cote + 1 < cote) {
+                route(b, v, v + 1, rnd);
+            }
+            if (v / cote + 1 < cote) {
+                route(b, v, v + cote, rnd);
+            }
+        }
+        return b;
+    }
+
+    private void route(RoadGraphBuilder b, int de, int vers, SplittableRandom rnd) {
+        if (rnd.nextDouble() < 0.05) {
+            return;
+        }
+        double metres = DistanceEngine.distanceKm(lat(de), lon(de), lat(vers), lon(vers)) * 1000;
+        double secondes = metres / ((30 + rnd.nextInt(100)) / 3.6);
+        b.ajouterArc(de, vers, metres, secondes);
+        if (rnd.nextDouble() >= 0.1) {
+            b.ajouterArc(vers, de, metres, secondes);
+        }
+    }
+}
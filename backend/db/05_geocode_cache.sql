@@ -0,0 +1,27 @@
+-- ============================================================
+-- 05_geocode_cache.sql
+-- Cache persistant du géocodage (API Adresse data.gouv.fr)
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- TABLE : geocode_cache
+--  - cle     : adresse normalisée (minuscules, sans accents ni ponctuation)
+--  - adresse : adresse telle qu'envoyée à l'API (buildAdresseComplete)
+--  - trouve  : FALSE = l'API n'a rien trouvé (résultat négatif, TTL court)
+-- ============================================================
+CREATE TABLE IF NOT EXISTS geocode_cache (
+    cle         VARCHAR(512)   PRIMARY KEY,
+    adresse     VARCHAR(512)   NOT NULL,
+    trouve      BOOLEAN        NOT NULL,
+    lat         NUMERIC(9,6),
+    lon         NUMERIC(9,6),
+    created_at  TIMESTAMPTZ    NOT NULL DEFAULT now(),
+    updated_at  TIMESTAMPTZ    NOT NULL DEFAULT now(),
+
+    CHECK (trouve = FALSE OR (lat IS NOT NULL AND lon IS NOT NULL))
+);
+
+-- Purge / expiration des entrées anciennes
+CREATE INDEX IF NOT EXISTS idx_geocode_cache_updated_at
+    ON geocode_cache (updated_at);
@@ -0,0 +1,39 @@
+-- ============================================================
+-- 06_geocodage_outbox.sql
+-- File d'attente (outbox) des géocodages asynchrones
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- TABLE : geocodage_outbox
+--  - une ligne = "lat/lon à recalculer" pour un UTILISATEUR ou une ECOLE
+--  - écrite dans la même transaction que la modification d'adresse,
+--    traitée ensuite par GeocodageOutboxWorker (hors transaction HTTP)
+--  - statut : EN_ATTENTE -> TRAITE | ECHEC (après N tentatives)
+-- ============================================================
+CREATE TABLE IF NOT EXISTS geocodage_outbox (
+    id_outbox              BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    type_cible             VARCHAR(20)    NOT NULL,
+    id_cible               INTEGER        NOT NULL,
+    adresse                VARCHAR(512)   NOT NULL,
+    statut                 VARCHAR(20)    NOT NULL DEFAULT 'EN_ATTENTE',
+    tentatives             SMALLINT       NOT NULL DEFAULT 0,
+    prochaine_tentative_at TIMESTAMPTZ    NOT NULL DEFAULT now(),
+    derniere_erreur        TEXT,
+    created_at             TIMESTAMPTZ    NOT NULL DEFAULT now(),
+    updated_at             TIMESTAMPTZ    NOT NULL DEFAULT now(),
+
+    CHECK (type_cible IN ('UTILISATEUR', 'ECOLE')),
+    CHECK (statut IN ('EN_ATTENTE', 'TRAITE', 'ECHEC'))
+);
+
+-- Idempotence : au plus UNE demande en attente par cible
+-- (une nouvelle adresse remplace la demande précédente, cf. ON CONFLICT)
+CREATE UNIQUE INDEX IF NOT EXISTS uq_geocodage_outbox_cible_en_attente
+    ON geocodage_outbox (type_cible, id_cible)
+    WHERE statut = 'EN_ATTENTE';
+
+-- Sélection des demandes à traiter par le worker
+CREATE INDEX IF NOT EXISTS idx_geocodage_outbox_a_traiter
+    ON geocodage_outbox (prochaine_tentative_at)
+    WHERE statut = 'EN_ATTENTE';
@@ -0,0 +1,13 @@
+-- ============================================================
+-- 07_geocode_cache_precision.sql
+-- Précision des coordonnées mises en cache
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- geocode_cache.precision_geo
+--  - ADRESSE | RUE | COMMUNE | CODE_POSTAL (GeocodingService.Precision)
+--  - NULL pour les lignes antérieures : lues comme ADRESSE
+-- ============================================================
+ALTER TABLE geocode_cache
+    ADD COLUMN IF NOT EXISTS precision_geo VARCHAR(12);
@@ -0,0 +1,15 @@
+-- ============================================================
+-- 08_utilisateur_security_version.sql
+-- Version de sécurité des comptes (JWT sans état)
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- utilisateur.security_version
+--  - recopiée dans le claim "sv" du JWT à la connexion ;
+--  - incrémentée à chaque changement de mot de passe, de rôle
+--    ou désactivation du compte (SecurityVersionRegistry.revoquer) :
+--    les JWT émis avant deviennent invalides.
+-- ============================================================
+ALTER TABLE utilisateur
+    ADD COLUMN IF NOT EXISTS security_version INTEGER NOT NULL DEFAULT 0;
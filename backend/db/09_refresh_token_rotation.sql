@@ -0,0 +1,39 @@
+-- ============================================================
+-- 09_refresh_token_rotation.sql
+-- Refresh tokens : empreinte, rotation, purge
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- refresh_token.token
+--  - contient désormais l'empreinte SHA-256 (hex, 64 car.) du token
+--    remis au navigateur, jamais le token lui-même ;
+--  - la recherche passe par l'index unique existant uq_refresh_token_token.
+-- Aucun token n'était émis jusqu'ici : on repart d'une table vide.
+-- ============================================================
+DELETE FROM refresh_token;
+
+-- ============================================================
+-- Rotation avec détection de réutilisation
+--  - id_famille       : tous les tokens issus d'une même connexion
+--                       (un appareil / navigateur) ;
+--  - remplace_par     : token émis lors de la rotation de celui-ci ;
+--    un token déjà remplacé qui revient = vol probable -> la famille
+--    entière est révoquée ;
+--  - security_version : utilisateur.security_version à l'émission
+--    (mot de passe changé / compte désactivé => refresh refusé).
+-- ============================================================
+ALTER TABLE refresh_token
+    ADD COLUMN IF NOT EXISTS id_famille UUID,
+    ADD COLUMN IF NOT EXISTS remplace_par UUID,
+    ADD COLUMN IF NOT EXISTS security_version INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE refresh_token
+    ALTER COLUMN id_famille SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_refresh_token_famille
+    ON refresh_token (id_famille);
+
+-- Purge planifiée des tokens expirés (RefreshTokenService.purger)
+CREATE INDEX IF NOT EXISTS idx_refresh_token_expires_at
+    ON refresh_token (expires_at);
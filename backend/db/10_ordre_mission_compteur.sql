@@ -0,0 +1,29 @@
+-- ============================================================
+-- 10_ordre_mission_compteur.sql
+-- Compteur annuel des codes d'ordre de mission (OM-AAAA-NNNN)
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- ordre_mission_compteur
+--  - une ligne par année : dernier numéro attribué ;
+--  - réservé par blocs (UPDATE ... RETURNING, verrou de ligne
+--    le temps d'une mini-transaction) par CodeOrdreAllocator ;
+--  - remplace le count(*) de ordre_mission à chaque création
+--    (parcours complet + doublons sous concurrence).
+-- ============================================================
+CREATE TABLE IF NOT EXISTS ordre_mission_compteur (
+    annee    SMALLINT PRIMARY KEY,
+    dernier  INTEGER  NOT NULL CHECK (dernier >= 0)
+);
+
+-- Reprise de l'existant : on repart du plus grand numéro déjà attribué
+-- pour chaque année (les anciens codes suivaient le nombre total d'OM).
+INSERT INTO ordre_mission_compteur (annee, dernier)
+SELECT CAST(split_part(code_ordre, '-', 2) AS SMALLINT),
+       MAX(CAST(split_part(code_ordre, '-', 3) AS INTEGER))
+  FROM ordre_mission
+ WHERE code_ordre ~ '^OM-[0-9]{4}-[0-9]+$'
+ GROUP BY 1
+ON CONFLICT (annee) DO UPDATE
+   SET dernier = GREATEST(ordre_mission_compteur.dernier, EXCLUDED.dernier);
@@ -0,0 +1,23 @@
+-- ============================================================
+-- 11_ordre_mission_keyset.sql
+-- Pagination par curseur des OM côté ECOLE
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- Liste des OM d'une école, du plus récent au plus ancien :
+--   WHERE id_ecole = ? [AND statut = ?]
+--     AND created_at <= ? AND (created_at < ? OR id_ordre_mission < ?)
+--   ORDER BY created_at DESC, id_ordre_mission DESC
+--   LIMIT ?
+-- Le parcours d'index démarre directement au curseur : le coût d'une
+-- page ne dépend plus de sa profondeur (plus d'OFFSET ni de COUNT(*)).
+-- ============================================================
+CREATE INDEX IF NOT EXISTS idx_ordre_mission_ecole_created
+    ON ordre_mission (id_ecole, created_at DESC, id_ordre_mission DESC);
+
+CREATE INDEX IF NOT EXISTS idx_ordre_mission_ecole_statut_created
+    ON ordre_mission (id_ecole, statut, created_at DESC, id_ordre_mission DESC);
+
+-- Couvert par les deux index ci-dessus (même préfixe id_ecole)
+DROP INDEX IF EXISTS idx_ordre_mission_id_ecole;
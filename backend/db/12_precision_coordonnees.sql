@@ -0,0 +1,18 @@
+-- ============================================================
+-- 12_precision_coordonnees.sql
+-- Précision des coordonnées des utilisateurs et des écoles
+-- Projet : Trajet Formateur (PostgreSQL)
+-- ============================================================
+
+-- ============================================================
+-- utilisateur.precision_geo / ecole.precision_geo
+--  - ADRESSE | RUE | COMMUNE | CODE_POSTAL (GeocodingService.Precision)
+--  - COMMUNE / CODE_POSTAL : centroïde approximatif, de nouveau proposé
+--    à l'API Adresse par le rattrapage (GeocodageBatchService)
+--  - NULL pour les lignes antérieures : lues comme ADRESSE
+-- ============================================================
+ALTER TABLE utilisateur
+    ADD COLUMN IF NOT EXISTS precision_geo VARCHAR(12);
+
+ALTER TABLE ecole
+    ADD COLUMN IF NOT EXISTS precision_geo VARCHAR(12);
@@ -0,0 +1,80 @@
+package com.afci.trajet.config;
+
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Client HTTP dédié à l'API Adresse (géocodage unitaire et CSV en masse).
+ *
+ *  - pool de connexions keep-alive (geocodage.http.max-connexions) :
+ *    pas de poignée de main TCP/TLS à chaque appel ;
+ *  - timeouts stricts : connexion, lecture, et attente d'une connexion du pool ;
+ *  - aucune relance automatique (c'est la file de géocodage qui réessaie).
+ *
+ * Deux RestTemplate sur le même pool : geocodageRestTemplate (unitaire,
+ * timeout-lecture) et geocodageCsvRestTemplate (lots CSV, geocodage.batch.timeout).
+ * ApiAdresseGeocodingProvider et AdresseCsvBatchClient ajoutent cloisonnement
+ * (bulkhead) et disjoncteur communs (ApiAdresseGarde).
+ */
+@Configuration
+public class GeocodageHttpConfig {
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient geocodageHttpClient(
+            @Value("${geocodage.http.max-connexions:20}") int maxConnexions,
+            @Value("${geocodage.http.timeout-connexion:PT2S}") Duration timeoutConnexion,
+            @Value("${geocodage.http.timeout-lecture:PT3S}") Duration timeoutLecture,
+            @Value("${geocodage.http.timeout-pool:PT1S}") Duration timeoutPool,
+            @Value("${geocodage.http.duree-vie-connexion:PT5M}") Duration dureeVie) {
+
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnexions)
+                .setMaxConnPerRoute(maxConnexions)   // une seule route : l'API Adresse
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(timeoutConnexion))
+                        .setSocketTimeout(Timeout.of(timeoutLecture))
+                        .setTimeToLive(TimeValue.of(dureeVie))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(timeoutPool))
+                        .setResponseTimeout(Timeout.of(timeoutLecture))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .evictExpiredConnections()
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public RestTemplate geocodageRestTemplate(@Qualifier("geocodageHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    @Bean
+    public RestTemplate geocodageCsvRestTemplate(@Qualifier("geocodageHttpClient") CloseableHttpClient httpClient,
+                                                 @Value("${geocodage.batch.timeout:PT2M}") Duration timeoutLot) {
+        // Un lot de plusieurs centaines d'adresses dépasse largement timeout-lecture
+        HttpComponentsClientHttpRequestFactory fabrique = new HttpComponentsClientHttpRequestFactory(httpClient);
+        fabrique.setReadTimeout(timeoutLot);
+        return new RestTemplate(fabrique);
+    }
+}
@@ -0,0 +1,16 @@
+package com.afci.trajet.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches planifiées (@Scheduled).
+ *
+ * Utilisé par :
+ *  - GeocodageOutboxWorker : traitement périodique de la file de géocodage ;
+ *  - GeocodageBatchService : rattrapage nocturne des coordonnées approximatives.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,7 +1,12 @@
 package com.afci.trajet.config;
 
+import java.time.Duration;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -22,6 +27,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.afci.trajet.security.PasswordHashingService;
+import com.afci.trajet.security.RateLimitFilter;
 import com.afci.trajet.security.jwt.JwtAuthenticationFilter;
 
 /**
@@ -29,7 +36,7 @@ import com.afci.trajet.security.jwt.JwtAuthenticationFilter;
  *
  * Rôles principaux :
  *  - déclarer les URL publiques vs protégées ;
- *  - brancher le filtre JWT dans la chaîne de filtres ;
+ *  - brancher le filtre JWT (puis la limitation de débit) dans la chaîne de filtres ;
  *  - configurer CORS pour permettre à un front (React) sur un autre port d’appeler l’API ;
  *  - désactiver la gestion de session côté serveur (mode 100 % stateless).
  */
@@ -38,12 +45,17 @@ import com.afci.trajet.security.jwt.JwtAuthenticationFilter;
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final UserDetailsService userDetailsService;
 
     public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+                          RateLimitFilter rateLimitFilter,
                           UserDetailsService userDetailsService) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
         this.userDetailsService = userDetailsService;
     }
 
@@ -77,10 +89,14 @@ public class SecurityConfig {
                 // Health checks (pour monitoring / tests simples).
                 .requestMatchers("/actuator/health/**", "/api/health/**").permitAll()
 
-                // Authentification : login et refresh sont publics.
+                // Métriques internes (latences, pools, caches) : administrateurs uniquement.
+                .requestMatchers("/actuator/metrics", "/actuator/metrics/**").hasRole("ADMIN")
+
+                // Authentification : login, refresh et logout sont publics.
                 // - /api/auth/login   : l'utilisateur envoie email + password
                 // - /api/auth/refresh : le navigateur envoie automatiquement le refresh token
-                .requestMatchers("/api/auth/login", "/api/auth/refresh").permitAll()
+                // - /api/auth/logout  : doit marcher même avec un JWT expiré (cookie seul)
+                .requestMatchers("/api/auth/login", "/api/auth/refresh", "/api/auth/logout").permitAll()
 
                 // Préflight CORS (OPTIONS) : toujours autorisé.
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
@@ -93,22 +109,34 @@ public class SecurityConfig {
             .userDetailsService(userDetailsService)
 
             // 7) Insertion du filtre JWT AVANT le filtre standard UsernamePasswordAuthenticationFilter.
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+
+            // 8) Limitation de débit juste après : la clé (id_user) vient du JWT déjà vérifié.
+            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
     /**
      * Encoder de mot de passe : BCrypt (recommandé pour les mots de passe utilisateurs).
+     *
+     * Coût : security.password.bcrypt-cout, ou 0 = calibré au démarrage
+     * (le plus élevé entre 10 et 14 qui tient dans security.password.cible-hash
+     * sur cette machine). Les hash d'un coût inférieur sont recalculés au
+     * login suivant (PasswordHashingService.rehacherSiBesoin).
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${security.password.bcrypt-cout:0}") int cout,
+            @Value("${security.password.cible-hash:PT0.1S}") Duration cible) {
+        int effectif = (cout > 0) ? cout : PasswordHashingService.calibrerCout(cible, 10, 14);
+        log.info("BCrypt : coût {}", effectif);
+        return new BCryptPasswordEncoder(effectif);
     }
 
     /**
-     * AuthenticationManager utilisé dans AuthService/AuthController pour déclencher
-     * l'authentification avec email + mot de passe.
+     * AuthenticationManager standard (email + mot de passe via UserDetailsService).
+     * Le login de l'API passe par AuthService (pool de hachage, anti force brute).
      */
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration configuration)
@@ -130,7 +158,7 @@ public class SecurityConfig {
         config.setAllowedOriginPatterns(List.of("*"));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setExposedHeaders(List.of("Authorization", "X-Next-Cursor"));
         // Autorise l'envoi de cookies (pour le refresh token HttpOnly)
         config.setAllowCredentials(true);
 
@@ -1,5 +1,12 @@
 package com.afci.trajet.controller;
 
+import java.time.Duration;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -7,12 +14,19 @@ import org.springframework.web.bind.annotation.*;
 import com.afci.trajet.dto.AuthRequest;
 import com.afci.trajet.dto.AuthResponse;
 import com.afci.trajet.service.AuthService;
+import com.afci.trajet.service.RefreshTokenService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 /**
  * Contrôleur REST dédié à l'authentification (login, refresh, etc.).
  *
- * Pour l'instant, on expose :
- *   POST /api/auth/login
+ * On expose :
+ *   POST /api/auth/login   : JWT dans le JSON + refresh token en cookie HttpOnly
+ *   POST /api/auth/refresh : nouveau JWT à partir du cookie (rotation du refresh token)
+ *   POST /api/auth/logout  : révocation du refresh token de cet appareil
+ *
+ * Le cookie n'est envoyé que sur /api/auth (path) et n'est pas lisible en JS.
  */
 @RestController
 @RequestMapping("/api/auth")
@@ -21,19 +35,89 @@ import com.afci.trajet.service.AuthService;
 public class AuthController {
 
     private final AuthService authService;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthController(AuthService authService) {
+    private final String nomCookie;
+    private final boolean cookieSecure;
+    private final String cookieSameSite;
+
+    public AuthController(AuthService authService,
+                          RefreshTokenService refreshTokenService,
+                          @Value("${security.refresh.cookie.nom:refresh_token}") String nomCookie,
+                          @Value("${security.refresh.cookie.secure:true}") boolean cookieSecure,
+                          @Value("${security.refresh.cookie.same-site:Strict}") String cookieSameSite) {
         this.authService = authService;
+        this.refreshTokenService = refreshTokenService;
+        this.nomCookie = nomCookie;
+        this.cookieSecure = cookieSecure;
+        this.cookieSameSite = cookieSameSite;
     }
 
     /**
      * Endpoint de connexion :
      * - Reçoit email / password
      * - Retourne un JWT + infos de l'utilisateur
+     * - Pose le refresh token en cookie HttpOnly
      */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
-        AuthResponse response = authService.login(request);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request,
+                                              HttpServletRequest httpRequest) {
+        AuthService.Connexion connexion = authService.login(request,
+                httpRequest.getHeader(HttpHeaders.USER_AGENT), httpRequest.getRemoteAddr());
+        return avecCookie(connexion);
+    }
+
+    /**
+     * Endpoint de rafraîchissement :
+     * - Lit le refresh token dans le cookie
+     * - Retourne un nouveau JWT (même format que /login) + nouveau cookie
+     * - 401 si le cookie est absent, expiré, révoqué ou déjà utilisé
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@CookieValue(name = "${security.refresh.cookie.nom:refresh_token}",
+                                                             required = false) String refreshToken,
+                                                HttpServletRequest httpRequest) {
+        Optional<AuthService.Connexion> connexion = authService.refresh(refreshToken,
+                httpRequest.getHeader(HttpHeaders.USER_AGENT), httpRequest.getRemoteAddr());
+        if (connexion.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.SET_COOKIE, cookie("", Duration.ZERO).toString())
+                    .build();
+        }
+        return avecCookie(connexion.get());
+    }
+
+    /**
+     * Endpoint de déconnexion : révoque le refresh token et efface le cookie.
+     * (le JWT en cours reste valide jusqu'à son expiration, d'où une durée courte)
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@CookieValue(name = "${security.refresh.cookie.nom:refresh_token}",
+                                                    required = false) String refreshToken) {
+        authService.logout(refreshToken);
+        return ResponseEntity.noContent()
+                .header(HttpHeaders.SET_COOKIE, cookie("", Duration.ZERO).toString())
+                .build();
+    }
+
+    // ---------------------------------------------------------------------
+    // Cookie HttpOnly du refresh token
+    // ---------------------------------------------------------------------
+
+    private ResponseEntity<AuthResponse> avecCookie(AuthService.Connexion connexion) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE,
+                        cookie(connexion.refresh().token(), refreshTokenService.duree()).toString())
+                .body(connexion.reponse());
+    }
+
+    private ResponseCookie cookie(String valeur, Duration maxAge) {
+        return ResponseCookie.from(nomCookie, valeur)
+                .httpOnly(true)
+                .secure(cookieSecure)
+                .sameSite(cookieSameSite)
+                .path("/api/auth")
+                .maxAge(maxAge)
+                .build();
     }
 }
@@ -3,8 +3,6 @@ package com.afci.trajet.controller;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import com.afci.trajet.dto.ecole.MonEtablissementResponse;
@@ -21,8 +19,8 @@ import com.afci.trajet.service.EcoleMonCompteService;
  * Toutes les routes sont préfixées par /api/ecole et nécessitent
  * le rôle ROLE_ECOLE.
  *
- * On se base sur l'utilisateur actuellement authentifié (Spring Security),
- * via SecurityContextHolder.
+ * On se base sur l'utilisateur actuellement authentifié : le service lit
+ * le compte et l'école dans CurrentActor (résolu par le filtre JWT).
  */
 @RestController
 @RequestMapping("/api/ecole")
@@ -35,22 +33,6 @@ public class EcoleMonCompteController {
         this.ecoleMonCompteService = ecoleMonCompteService;
     }
 
-    // ---------------------------------------------------------------------
-    // Méthode utilitaire : récupérer l'email de l'utilisateur connecté
-    // ---------------------------------------------------------------------
-
-    /**
-     * Récupère l'email (username) de l'utilisateur actuellement authentifié.
-     * Dans ta config de sécurité, le "username" est l'email.
-     */
-    private String getConnectedEmail() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !auth.isAuthenticated()) {
-            throw new IllegalStateException("Aucun utilisateur authentifié.");
-        }
-        return auth.getName();
-    }
-
     // ---------------------------------------------------------------------
     // 1️⃣ GET /api/ecole/mon-etablissement
     // ---------------------------------------------------------------------
@@ -64,8 +46,7 @@ public class EcoleMonCompteController {
      */
     @GetMapping("/mon-etablissement")
     public ResponseEntity<MonEtablissementResponse> getMonEtablissement() {
-        String email = getConnectedEmail();
-        MonEtablissementResponse dto = ecoleMonCompteService.getMonEtablissement(email);
+        MonEtablissementResponse dto = ecoleMonCompteService.getMonEtablissement();
         return ResponseEntity.ok(dto);
     }
 
@@ -86,8 +67,7 @@ public class EcoleMonCompteController {
     public ResponseEntity<MonEtablissementResponse> updateMonProfil(
             @RequestBody MonProfilUpdateRequest request) {
 
-        String email = getConnectedEmail();
-        MonEtablissementResponse dto = ecoleMonCompteService.updateMonProfil(email, request);
+        MonEtablissementResponse dto = ecoleMonCompteService.updateMonProfil(request);
         return ResponseEntity.ok(dto);
     }
 
@@ -107,8 +87,7 @@ public class EcoleMonCompteController {
     public ResponseEntity<MonEtablissementResponse> updateMonEtablissement(
             @RequestBody MonEtablissementUpdateRequest request) {
 
-        String email = getConnectedEmail();
-        MonEtablissementResponse dto = ecoleMonCompteService.updateMonEtablissement(email, request);
+        MonEtablissementResponse dto = ecoleMonCompteService.updateMonEtablissement(request);
         return ResponseEntity.ok(dto);
     }
 
@@ -133,8 +112,7 @@ public class EcoleMonCompteController {
     public ResponseEntity<Void> changeMonMotDePasse(
             @RequestBody MonMotDePasseUpdateRequest request) {
 
-        String email = getConnectedEmail();
-        ecoleMonCompteService.changeMonMotDePasse(email, request);
+        ecoleMonCompteService.changeMonMotDePasse(request);
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
 
@@ -153,8 +131,7 @@ public class EcoleMonCompteController {
      */
     @GetMapping("/mon-responsable-accessibilite")
     public ResponseEntity<ResponsableAccessibiliteDto> getMonResponsableAccessibilite() {
-        String email = getConnectedEmail();
-        ResponsableAccessibiliteDto dto = ecoleMonCompteService.getMonResponsableAccessibilite(email);
+        ResponsableAccessibiliteDto dto = ecoleMonCompteService.getMonResponsableAccessibilite();
 
         if (dto == null) {
             // Pas encore de responsable enregistré pour cette école
@@ -177,9 +154,8 @@ public class EcoleMonCompteController {
     public ResponseEntity<ResponsableAccessibiliteDto> upsertMonResponsableAccessibilite(
             @RequestBody ResponsableAccessibiliteUpsertRequest request) {
 
-        String email = getConnectedEmail();
         ResponsableAccessibiliteDto dto =
-                ecoleMonCompteService.upsertMonResponsableAccessibilite(email, request);
+                ecoleMonCompteService.upsertMonResponsableAccessibilite(request);
 
         return ResponseEntity.ok(dto);
     }
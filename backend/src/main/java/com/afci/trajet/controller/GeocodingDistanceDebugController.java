@@ -7,6 +7,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import com.afci.trajet.service.DistanceService;
+import com.afci.trajet.service.geo.DistanceEngine;
 
 /**
  * Contrôleur DEBUG permettant de tester la distance entre deux points GPS.
@@ -33,7 +34,7 @@ public class GeocodingDistanceDebugController {
      * @param lon1 longitude du point 1
      * @param lat2 latitude du point 2
      * @param lon2 longitude du point 2
-     * @return JSON { distanceKm, point1, point2 }
+     * @return JSON { distanceKm, point1, point2, noyau }
      */
     @GetMapping("/distance")
     @PreAuthorize("hasRole('ADMIN')")
@@ -49,7 +50,8 @@ public class GeocodingDistanceDebugController {
         return Map.of(
             "point1", Map.of("lat", lat1, "lon", lon1),
             "point2", Map.of("lat", lat2, "lon", lon2),
-            "distanceKm", distanceKm
+            "distanceKm", distanceKm,
+            "noyau", DistanceEngine.estVectoriel() ? "vectoriel" : "scalaire"
         );
     }
 }
@@ -0,0 +1,38 @@
+package com.afci.trajet.controller.admin;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.afci.trajet.dto.geocodage.GeocodageBatchResponse;
+import com.afci.trajet.service.geocodage.GeocodageBatchService;
+
+/**
+ * Contrôleur REST des opérations de géocodage côté ADMIN.
+ *
+ * Toutes les routes sont préfixées par /api/admin/geocodage
+ * et nécessitent le rôle ROLE_ADMIN.
+ */
+@RestController
+@RequestMapping("/api/admin/geocodage")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminGeocodageController {
+
+    private final GeocodageBatchService geocodageBatchService;
+
+    public AdminGeocodageController(GeocodageBatchService geocodageBatchService) {
+        this.geocodageBatchService = geocodageBatchService;
+    }
+
+    /**
+     * Géocode en masse tous les utilisateurs et écoles sans coordonnées, ou
+     * avec un simple centroïde de commune
+     * (endpoint CSV de l'API Adresse, écriture JDBC par lots).
+     *
+     * Exemple : POST /api/admin/geocodage/coordonnees-manquantes
+     */
+    @PostMapping("/coordonnees-manquantes")
+    public ResponseEntity<GeocodageBatchResponse> regeocoderCoordonneesManquantes() {
+        return ResponseEntity.ok(geocodageBatchService.regeocoderCoordonneesManquantes());
+    }
+}
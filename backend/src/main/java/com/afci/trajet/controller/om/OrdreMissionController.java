@@ -1,21 +1,27 @@
 package com.afci.trajet.controller.om;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import com.afci.trajet.dto.common.CursorPageResponse;
 import com.afci.trajet.dto.common.PageResponse;
 import com.afci.trajet.dto.om.OrdreMissionAssignFormateurRequest;
 import com.afci.trajet.dto.om.OrdreMissionCreateRequest;
+import com.afci.trajet.dto.om.OrdreMissionLightResponse;
 import com.afci.trajet.dto.om.OrdreMissionResponse;
 import com.afci.trajet.dto.om.OrdreMissionUpdateRequest;
+import com.afci.trajet.dto.om.ecole.OmAffectationPlanResponse;
+import com.afci.trajet.dto.om.ecole.OmAffectationProposee;
+import com.afci.trajet.dto.om.ecole.OmCandidatsPageResponse;
 import com.afci.trajet.dto.om.ecole.OmFormateurCandidatResponse;
 import com.afci.trajet.dto.om.ecole.OmAffectationFormateurRequest;
+import com.afci.trajet.mapper.OrdreMissionMapper;
 import com.afci.trajet.service.om.OrdreMissionService;
 
 /**
@@ -23,30 +29,24 @@ import com.afci.trajet.service.om.OrdreMissionService;
  *
  * Toutes les routes sont préfixées par /api/ecole/om et
  * nécessitent le rôle ROLE_ECOLE.
+ *
+ * L'école connectée est résolue par la couche sécurité (CurrentActor),
+ * directement dans le service.
  */
 @RestController
 @RequestMapping("/api/ecole/om")
 @PreAuthorize("hasRole('ECOLE')")
 public class OrdreMissionController {
 
+    /** En-tête portant le curseur de la page suivante de candidats. */
+    public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+
     private final OrdreMissionService ordreMissionService;
 
     public OrdreMissionController(OrdreMissionService ordreMissionService) {
         this.ordreMissionService = ordreMissionService;
     }
 
-    // ---------------------------------------------------------------------
-    // Utilitaire : récupérer l'email de l'utilisateur connecté
-    // ---------------------------------------------------------------------
-
-    private String getConnectedEmail() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !auth.isAuthenticated()) {
-            throw new IllegalStateException("Aucun utilisateur authentifié.");
-        }
-        return auth.getName(); // username = email
-    }
-
     // ---------------------------------------------------------------------
     // 1️⃣ POST /api/ecole/om  → création OM BROUILLON
     // ---------------------------------------------------------------------
@@ -55,9 +55,8 @@ public class OrdreMissionController {
     public ResponseEntity<OrdreMissionResponse> createOrdreMission(
             @RequestBody OrdreMissionCreateRequest request
     ) {
-        String email = getConnectedEmail();
         OrdreMissionResponse created =
-                ordreMissionService.createOrdreMissionPourEcole(email, request);
+                ordreMissionService.createOrdreMissionPourEcole(request);
 
         return ResponseEntity
                 .status(HttpStatus.CREATED)
@@ -73,16 +72,15 @@ public class OrdreMissionController {
             @PathVariable Integer idOrdreMission,
             @RequestBody OrdreMissionUpdateRequest request
     ) {
-        String email = getConnectedEmail();
         OrdreMissionResponse updated =
-                ordreMissionService.updateOrdreMissionBrouillonPourEcole(email, idOrdreMission, request);
+                ordreMissionService.updateOrdreMissionBrouillonPourEcole(idOrdreMission, request);
 
         return ResponseEntity.ok(updated);
     }
 
     // ---------------------------------------------------------------------
     // 3️⃣ PUT /api/ecole/om/{id}/assign-formateur
-    //     (ancienne version avec email contexte)
+    //     (ancienne version, sans classement des candidats)
     // ---------------------------------------------------------------------
 
     @PutMapping("/{idOrdreMission}/assign-formateur")
@@ -90,9 +88,8 @@ public class OrdreMissionController {
             @PathVariable Integer idOrdreMission,
             @RequestBody OrdreMissionAssignFormateurRequest request
     ) {
-        String email = getConnectedEmail();
         OrdreMissionResponse updated =
-                ordreMissionService.assignerFormateurPourOrdreMission(email, idOrdreMission, request);
+                ordreMissionService.assignerFormateurPourOrdreMission(idOrdreMission, request);
 
         return ResponseEntity.ok(updated);
     }
@@ -105,20 +102,71 @@ public class OrdreMissionController {
      * Exemples :
      *   GET /api/ecole/om?page=0&size=10
      *   GET /api/ecole/om?statut=BROUILLON&page=1&size=5
+     *
+     * Pagination par curseur (recommandée : coût constant quelle que soit la
+     * profondeur, pas de COUNT(*)) :
+     *   GET /api/ecole/om?pagination=curseur&size=20
+     *   GET /api/ecole/om?pagination=curseur&size=20&withTotal=true
+     *   GET /api/ecole/om?cursor=...&size=20
+     * => CursorPageResponse (items légers, nextCursor, totalElements si demandé).
+     * Sans ces paramètres : PageResponse (page / totalPages), comme avant.
+     *
+     * Vue légère (projection SQL, sans commentaire ni chargement d'entités) :
+     *   GET /api/ecole/om?vue=light&page=0&size=50
+     *   GET /api/ecole/om?fields=codeOrdre,statut,dateDebut&page=0&size=50
+     *   GET /api/ecole/om?pagination=curseur&fields=idOrdreMission,codeOrdre
+     * Sans vue ni fields, la pagination par page renvoie les OM complets
+     * (le tableau de l'espace école affiche le commentaire).
      */
     @GetMapping
-    public ResponseEntity<PageResponse<OrdreMissionResponse>> listOrdresMission(
+    public ResponseEntity<?> listOrdresMission(
             @RequestParam(name = "statut", required = false) String statut,
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "10") int size
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            @RequestParam(name = "pagination", required = false) String pagination,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "withTotal", defaultValue = "false") boolean withTotal,
+            @RequestParam(name = "vue", required = false) String vue,
+            @RequestParam(name = "fields", required = false) String fields
     ) {
         // Sécurisation basique des bornes
         if (page < 0) page = 0;
         if (size <= 0) size = 10;
 
-        String email = getConnectedEmail();
+        // Validé avant toute requête (champ inconnu => IllegalArgumentException)
+        Set<String> champs = OrdreMissionMapper.parseChampsLight(fields);
+
+        if (cursor != null || "curseur".equalsIgnoreCase(pagination)) {
+            CursorPageResponse<OrdreMissionLightResponse> result =
+                    ordreMissionService.listerOrdresMissionPourEcoleParCurseur(statut, cursor, size, withTotal);
+            if (champs == null) {
+                return ResponseEntity.ok(result);
+            }
+            return ResponseEntity.ok(new CursorPageResponse<>(
+                    OrdreMissionMapper.toChampsLight(result.getItems(), champs),
+                    result.getSize(),
+                    result.getNextCursor(),
+                    result.getTotalElements()));
+        }
+
+        if (champs != null || "light".equalsIgnoreCase(vue)) {
+            PageResponse<OrdreMissionLightResponse> result =
+                    ordreMissionService.listerOrdresMissionLightPourEcole(statut, page, size);
+            if (champs == null) {
+                return ResponseEntity.ok(result);
+            }
+            return ResponseEntity.ok(new PageResponse<>(
+                    OrdreMissionMapper.toChampsLight(result.getItems(), champs),
+                    result.getPage(),
+                    result.getSize(),
+                    result.getTotalElements(),
+                    result.getTotalPages(),
+                    result.isFirst(),
+                    result.isLast()));
+        }
+
         PageResponse<OrdreMissionResponse> result =
-                ordreMissionService.listerOrdresMissionPourEcole(email, statut, page, size);
+                ordreMissionService.listerOrdresMissionPourEcole(statut, page, size);
 
         return ResponseEntity.ok(result);
     }
@@ -131,26 +179,64 @@ public class OrdreMissionController {
     public ResponseEntity<OrdreMissionResponse> getOrdreMissionDetail(
             @PathVariable Integer idOrdreMission
     ) {
-        String email = getConnectedEmail();
         OrdreMissionResponse dto =
-                ordreMissionService.getOrdreMissionDetailPourEcole(email, idOrdreMission);
+                ordreMissionService.getOrdreMissionDetailPourEcole(idOrdreMission);
 
         return ResponseEntity.ok(dto);
     }
 
     // ---------------------------------------------------------------------
     // 6️⃣ GET /api/ecole/om/{idOm}/candidats-formateurs
-    //     → liste des formateurs triés du plus proche au plus loin
+    //     → liste des formateurs classés du plus pertinent au moins pertinent
     // ---------------------------------------------------------------------
 
+    /**
+     * Exemples :
+     *   GET /api/ecole/om/12/candidats-formateurs
+     *   GET /api/ecole/om/12/candidats-formateurs?limit=20&maxDistanceKm=80
+     *   GET /api/ecole/om/12/candidats-formateurs?limit=20&cursor=...
+     *
+     * Le corps reste une liste (compatibilité front) ; le curseur de la page
+     * suivante est renvoyé dans l'en-tête X-Next-Cursor (absent sur la dernière page).
+     */
     @GetMapping("/{idOm}/candidats-formateurs")
     public ResponseEntity<List<OmFormateurCandidatResponse>> getCandidats(
-            @PathVariable("idOm") Integer idOm) {
+            @PathVariable("idOm") Integer idOm,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "maxDistanceKm", required = false) Double maxDistanceKm,
+            @RequestParam(name = "cursor", required = false) String cursor) {
+
+        OmCandidatsPageResponse page =
+                ordreMissionService.classerCandidatsPourOrdre(idOm, limit, maxDistanceKm, cursor);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(HEADER_NEXT_CURSOR, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
 
-        List<OmFormateurCandidatResponse> candidats =
-                ordreMissionService.findCandidatsPourOrdre(idOm);
+    // ---------------------------------------------------------------------
+    // 6️⃣ bis POST /api/ecole/om/candidats-formateurs
+    //     → candidats de plusieurs OM en un seul appel
+    // ---------------------------------------------------------------------
 
-        return ResponseEntity.ok(candidats);
+    /**
+     * Exemple (ex : tous les BROUILLON d'une session) :
+     *   POST /api/ecole/om/candidats-formateurs?limit=20&maxDistanceKm=80
+     *   [12, 13, 14]
+     *
+     * Réponse : { "12": [...], "13": [...], "14": [...] }, première page du
+     * classement de chaque OM (la suite se pagine OM par OM, route 6️⃣).
+     */
+    @PostMapping("/candidats-formateurs")
+    public ResponseEntity<Map<Integer, List<OmFormateurCandidatResponse>>> getCandidatsPourOrdres(
+            @RequestBody List<Integer> idsOrdreMission,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "maxDistanceKm", required = false) Double maxDistanceKm) {
+
+        return ResponseEntity.ok(
+                ordreMissionService.classerCandidatsPourOrdres(idsOrdreMission, limit, maxDistanceKm));
     }
 
     // ---------------------------------------------------------------------
@@ -168,4 +254,42 @@ public class OrdreMissionController {
 
         return ResponseEntity.ok(updated);
     }
+
+    // ---------------------------------------------------------------------
+    // 8️⃣ POST /api/ecole/om/affectations/optimisation
+    //     → plan d'affectation à coût minimal pour un lot d'OM BROUILLON
+    // ---------------------------------------------------------------------
+
+    /**
+     * Exemple :
+     *   POST /api/ecole/om/affectations/optimisation
+     *   [12, 13, 14, 15]
+     *
+     * Rien n'est enregistré : le plan renvoyé (affectations + OM non pourvus)
+     * s'applique ensuite tel quel, ou retouché, via la route 9️⃣.
+     */
+    @PostMapping("/affectations/optimisation")
+    public ResponseEntity<OmAffectationPlanResponse> optimiserAffectations(
+            @RequestBody List<Integer> idsOrdreMission) {
+
+        return ResponseEntity.ok(ordreMissionService.optimiserAffectations(idsOrdreMission));
+    }
+
+    // ---------------------------------------------------------------------
+    // 9️⃣ POST /api/ecole/om/affectations
+    //     → applique un plan d'affectation (tout ou rien, BROUILLON -> PROPOSE)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Exemple :
+     *   POST /api/ecole/om/affectations
+     *   [ { "idOrdreMission": 12, "idFormateur": 7 },
+     *     { "idOrdreMission": 13, "idFormateur": 4 } ]
+     */
+    @PostMapping("/affectations")
+    public ResponseEntity<List<OrdreMissionResponse>> appliquerAffectations(
+            @RequestBody List<OmAffectationProposee> affectations) {
+
+        return ResponseEntity.ok(ordreMissionService.appliquerAffectations(affectations));
+    }
 }
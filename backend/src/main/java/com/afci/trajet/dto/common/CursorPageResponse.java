@@ -0,0 +1,64 @@
+package com.afci.trajet.dto.common;
+
+import java.util.List;
+
+/**
+ * Page d'une liste parcourue par curseur (pagination "keyset").
+ *
+ * nextCursor est opaque : il suffit de le renvoyer tel quel (paramètre cursor)
+ * pour obtenir la page suivante. Il vaut null sur la dernière page.
+ *
+ * totalElements n'est renseigné que sur demande (withTotal=true) ; il peut
+ * avoir quelques secondes de retard (compte mis en cache).
+ */
+public class CursorPageResponse<T> {
+
+    private List<T> items;
+    private int size;
+    private String nextCursor;
+    private Long totalElements;
+
+    public CursorPageResponse() {
+    }
+
+    public CursorPageResponse(List<T> items, int size, String nextCursor, Long totalElements) {
+        this.items = items;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    // --- Getters / Setters ---
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(Long totalElements) {
+        this.totalElements = totalElements;
+    }
+}
@@ -0,0 +1,71 @@
+package com.afci.trajet.dto.geocodage;
+
+/**
+ * Bilan d'un géocodage en masse des coordonnées manquantes (ADMIN).
+ *
+ *  - utilisateursATraiter / ecolesATraiter : lignes sans lat/lon avec une adresse
+ *  - utilisateursGeocodes / ecolesGeocodees : lignes effectivement mises à jour
+ */
+public class GeocodageBatchResponse {
+
+    private int utilisateursATraiter;
+    private int utilisateursGeocodes;
+    private int ecolesATraiter;
+    private int ecolesGeocodees;
+    private long dureeMs;
+
+    public GeocodageBatchResponse() {
+    }
+
+    public GeocodageBatchResponse(int utilisateursATraiter,
+                                  int utilisateursGeocodes,
+                                  int ecolesATraiter,
+                                  int ecolesGeocodees,
+                                  long dureeMs) {
+        this.utilisateursATraiter = utilisateursATraiter;
+        this.utilisateursGeocodes = utilisateursGeocodes;
+        this.ecolesATraiter = ecolesATraiter;
+        this.ecolesGeocodees = ecolesGeocodees;
+        this.dureeMs = dureeMs;
+    }
+
+    public int getUtilisateursATraiter() {
+        return utilisateursATraiter;
+    }
+
+    public void setUtilisateursATraiter(int utilisateursATraiter) {
+        this.utilisateursATraiter = utilisateursATraiter;
+    }
+
+    public int getUtilisateursGeocodes() {
+        return utilisateursGeocodes;
+    }
+
+    public void setUtilisateursGeocodes(int utilisateursGeocodes) {
+        this.utilisateursGeocodes = utilisateursGeocodes;
+    }
+
+    public int getEcolesATraiter() {
+        return ecolesATraiter;
+    }
+
+    public void setEcolesATraiter(int ecolesATraiter) {
+        this.ecolesATraiter = ecolesATraiter;
+    }
+
+    public int getEcolesGeocodees() {
+        return ecolesGeocodees;
+    }
+
+    public void setEcolesGeocodees(int ecolesGeocodees) {
+        this.ecolesGeocodees = ecolesGeocodees;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    public void setDureeMs(long dureeMs) {
+        this.dureeMs = dureeMs;
+    }
+}
@@ -3,6 +3,7 @@ package com.afci.trajet.dto.om;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 
 /**
  * DTO "léger" pour afficher une liste d'Ordres de Mission
@@ -15,6 +16,10 @@ import java.time.LocalDate;
  *  - dates
  *  - coût estimé
  *  - nom/prénom du formateur (pré-formaté côté service)
+ *  - date de création (ordre de la liste, curseur de pagination)
+ *
+ * Rempli directement par une projection JPQL (OrdreMissionRepository,
+ * "SELECT new ...") : pas d'entité chargée, pas de colonne commentaire.
  */
 public class OrdreMissionLightResponse {
 
@@ -31,6 +36,8 @@ public class OrdreMissionLightResponse {
      */
     private String formateurNomPrenom;
 
+    private OffsetDateTime createdAt;
+
     // --------------------------------------------------------
     // Constructeurs
     // --------------------------------------------------------
@@ -54,6 +61,21 @@ public class OrdreMissionLightResponse {
         this.formateurNomPrenom = formateurNomPrenom;
     }
 
+    /**
+     * Constructeur utilisé par les projections JPQL de OrdreMissionRepository.
+     */
+    public OrdreMissionLightResponse(Integer idOrdreMission,
+                                     String codeOrdre,
+                                     String statut,
+                                     LocalDate dateDebut,
+                                     LocalDate dateFin,
+                                     BigDecimal coutTotalEstime,
+                                     String formateurNomPrenom,
+                                     OffsetDateTime createdAt) {
+        this(idOrdreMission, codeOrdre, statut, dateDebut, dateFin, coutTotalEstime, formateurNomPrenom);
+        this.createdAt = createdAt;
+    }
+
     // --------------------------------------------------------
     // Getters / Setters
     // --------------------------------------------------------
@@ -113,4 +135,12 @@ public class OrdreMissionLightResponse {
     public void setFormateurNomPrenom(String formateurNomPrenom) {
         this.formateurNomPrenom = formateurNomPrenom;
     }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
 }
@@ -0,0 +1,127 @@
+// src/main/java/com/afci/trajet/dto/om/ecole/FormateurCandidatProjection.java
+package com.afci.trajet.dto.om.ecole;
+
+import java.math.BigDecimal;
+
+/**
+ * Modèle de lecture "formateur candidat" : une ligne FORMATEUR + UTILISATEUR.
+ *
+ * Rempli directement par une projection JPQL (FormateurRepository), il contient
+ * exactement ce dont OmFormateurCandidatResponse a besoin, sans charger les
+ * entités ni faire un findById(Utilisateur) par formateur.
+ *
+ * Les coordonnées sont converties une fois pour toutes en double (degrés) :
+ * les calculs de distance n'ont pas à repasser par BigDecimal.
+ */
+public class FormateurCandidatProjection {
+
+    private final int idFormateur;
+    private final int idUser;
+
+    private final String prenom;
+    private final String nom;
+    private final String ville;
+
+    private final short zoneKm;
+    private final boolean vehiculePerso;
+    private final boolean permis;
+    private final String commentaire;
+
+    private final double lat;
+    private final double lon;
+
+    /**
+     * Constructeur utilisé par la clause SELECT NEW (les requêtes filtrent
+     * lat / lon IS NOT NULL).
+     */
+    public FormateurCandidatProjection(
+            Integer idFormateur,
+            Integer idUser,
+            String prenom,
+            String nom,
+            String ville,
+            Short zoneKm,
+            boolean vehiculePerso,
+            boolean permis,
+            String commentaire,
+            BigDecimal lat,
+            BigDecimal lon
+    ) {
+        this.idFormateur = idFormateur;
+        this.idUser = idUser;
+        this.prenom = prenom;
+        this.nom = nom;
+        this.ville = ville;
+        this.zoneKm = (zoneKm != null) ? zoneKm : 0;
+        this.vehiculePerso = vehiculePerso;
+        this.permis = permis;
+        this.commentaire = commentaire;
+        this.lat = lat.doubleValue();
+        this.lon = lon.doubleValue();
+    }
+
+    /**
+     * Construit le DTO de réponse (distance et score fournis par le classement).
+     */
+    public OmFormateurCandidatResponse toResponse(double distanceKm, double score) {
+        OmFormateurCandidatResponse dto = new OmFormateurCandidatResponse();
+        dto.setIdFormateur(idFormateur);
+        dto.setIdUser(idUser);
+        dto.setPrenom(prenom);
+        dto.setNom(nom);
+        dto.setVille(ville);
+        dto.setZoneKm(zoneKm);
+        dto.setVehiculePerso(vehiculePerso);
+        dto.setPermis(permis);
+        dto.setCommentaire(commentaire);
+        dto.setDistanceKm(distanceKm);
+        dto.setScore(score);
+        return dto;
+    }
+
+    // --- Getters ---
+
+    public int getIdFormateur() {
+        return idFormateur;
+    }
+
+    public int getIdUser() {
+        return idUser;
+    }
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public String getVille() {
+        return ville;
+    }
+
+    public short getZoneKm() {
+        return zoneKm;
+    }
+
+    public boolean isVehiculePerso() {
+        return vehiculePerso;
+    }
+
+    public boolean isPermis() {
+        return permis;
+    }
+
+    public String getCommentaire() {
+        return commentaire;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+}
@@ -0,0 +1,68 @@
+// src/main/java/com/afci/trajet/dto/om/ecole/OmAffectationPlanResponse.java
+package com.afci.trajet.dto.om.ecole;
+
+import java.util.List;
+
+/**
+ * Plan d'affectation proposé pour un lot d'OM BROUILLON (rien n'est encore
+ * enregistré : le plan s'applique tel quel via POST /api/ecole/om/affectations).
+ *
+ *  - affectations     : OM pourvus, avec leur formateur ;
+ *  - nonAffectes      : OM sans formateur compatible (zone, dates, véhicule) ;
+ *  - distanceTotaleKm : somme des distances école ↔ formateur ;
+ *  - methode          : HONGROIS (petit lot, optimum exact) ou GLOUTON (+ recherche locale).
+ */
+public class OmAffectationPlanResponse {
+
+    private List<OmAffectationProposee> affectations;
+    private List<Integer> nonAffectes;
+    private double distanceTotaleKm;
+    private String methode;
+
+    public OmAffectationPlanResponse() {
+    }
+
+    public OmAffectationPlanResponse(List<OmAffectationProposee> affectations,
+                                     List<Integer> nonAffectes,
+                                     double distanceTotaleKm,
+                                     String methode) {
+        this.affectations = affectations;
+        this.nonAffectes = nonAffectes;
+        this.distanceTotaleKm = distanceTotaleKm;
+        this.methode = methode;
+    }
+
+    // --- Getters / Setters ---
+
+    public List<OmAffectationProposee> getAffectations() {
+        return affectations;
+    }
+
+    public void setAffectations(List<OmAffectationProposee> affectations) {
+        this.affectations = affectations;
+    }
+
+    public List<Integer> getNonAffectes() {
+        return nonAffectes;
+    }
+
+    public void setNonAffectes(List<Integer> nonAffectes) {
+        this.nonAffectes = nonAffectes;
+    }
+
+    public double getDistanceTotaleKm() {
+        return distanceTotaleKm;
+    }
+
+    public void setDistanceTotaleKm(double distanceTotaleKm) {
+        this.distanceTotaleKm = distanceTotaleKm;
+    }
+
+    public String getMethode() {
+        return methode;
+    }
+
+    public void setMethode(String methode) {
+        this.methode = methode;
+    }
+}
@@ -0,0 +1,63 @@
+// src/main/java/com/afci/trajet/dto/om/ecole/OmAffectationProposee.java
+package com.afci.trajet.dto.om.ecole;
+
+/**
+ * Une affectation OM ↔ formateur.
+ *
+ *  - en sortie de POST /api/ecole/om/affectations/optimisation : proposition
+ *    (distance et nom du formateur renseignés) ;
+ *  - en entrée de POST /api/ecole/om/affectations : seuls idOrdreMission
+ *    et idFormateur sont lus.
+ */
+public class OmAffectationProposee {
+
+    private Integer idOrdreMission;
+    private Integer idFormateur;
+    private String formateurNomPrenom;
+    private Double distanceKm;
+
+    public OmAffectationProposee() {
+    }
+
+    public OmAffectationProposee(Integer idOrdreMission, Integer idFormateur,
+                                 String formateurNomPrenom, Double distanceKm) {
+        this.idOrdreMission = idOrdreMission;
+        this.idFormateur = idFormateur;
+        this.formateurNomPrenom = formateurNomPrenom;
+        this.distanceKm = distanceKm;
+    }
+
+    // --- Getters / Setters ---
+
+    public Integer getIdOrdreMission() {
+        return idOrdreMission;
+    }
+
+    public void setIdOrdreMission(Integer idOrdreMission) {
+        this.idOrdreMission = idOrdreMission;
+    }
+
+    public Integer getIdFormateur() {
+        return idFormateur;
+    }
+
+    public void setIdFormateur(Integer idFormateur) {
+        this.idFormateur = idFormateur;
+    }
+
+    public String getFormateurNomPrenom() {
+        return formateurNomPrenom;
+    }
+
+    public void setFormateurNomPrenom(String formateurNomPrenom) {
+        this.formateurNomPrenom = formateurNomPrenom;
+    }
+
+    public Double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(Double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+}
@@ -0,0 +1,42 @@
+// src/main/java/com/afci/trajet/dto/om/ecole/OmCandidatsPageResponse.java
+package com.afci.trajet.dto.om.ecole;
+
+import java.util.List;
+
+/**
+ * Page de candidats formateurs pour un OM, classés par score décroissant.
+ *
+ * nextCursor est opaque : il suffit de le renvoyer tel quel (paramètre cursor)
+ * pour obtenir la page suivante. Il vaut null sur la dernière page.
+ */
+public class OmCandidatsPageResponse {
+
+    private List<OmFormateurCandidatResponse> items;
+    private String nextCursor;
+
+    public OmCandidatsPageResponse() {
+    }
+
+    public OmCandidatsPageResponse(List<OmFormateurCandidatResponse> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // --- Getters / Setters ---
+
+    public List<OmFormateurCandidatResponse> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OmFormateurCandidatResponse> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -14,8 +14,22 @@ public class OmFormateurCandidatResponse {
     private boolean permis;
     private String commentaire;
 
+    /**
+     * Distance routière si le moteur de routage local est actif, sinon à vol d'oiseau.
+     */
     private Double distanceKm;
 
+    /**
+     * Durée du trajet domicile -> école en voiture (minutes), null sans routage local.
+     */
+    private Double dureeRouteMin;
+
+    /**
+     * Score de classement (distance, zone, véhicule, permis) : plus il est élevé,
+     * plus le formateur est pertinent pour l'OM.
+     */
+    private Double score;
+
     // --- Getters / Setters ---
 
     public Integer getIdFormateur() {
@@ -97,4 +111,20 @@ public class OmFormateurCandidatResponse {
     public void setDistanceKm(Double distanceKm) {
         this.distanceKm = distanceKm;
     }
+
+    public Double getDureeRouteMin() {
+        return dureeRouteMin;
+    }
+
+    public void setDureeRouteMin(Double dureeRouteMin) {
+        this.dureeRouteMin = dureeRouteMin;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
 }
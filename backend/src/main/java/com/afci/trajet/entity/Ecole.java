@@ -62,6 +62,10 @@ public class Ecole {
     @Column(name = "lon", precision = 9, scale = 6)
     private BigDecimal lon;
 
+    /** Nom de GeocodingService.Precision (null = ADRESSE, lignes anciennes). */
+    @Column(name = "precision_geo", length = 12)
+    private String precisionGeo;
+
     /**
      * Niveau d’accessibilité global : FACILE, MOYENNE, DIFFICILE.
      */
@@ -202,6 +206,14 @@ public class Ecole {
         this.lon = lon;
     }
 
+    public String getPrecisionGeo() {
+        return precisionGeo;
+    }
+
+    public void setPrecisionGeo(String precisionGeo) {
+        this.precisionGeo = precisionGeo;
+    }
+
     public String getNiveauAccessibilite() {
         return niveauAccessibilite;
     }
@@ -0,0 +1,149 @@
+package com.afci.trajet.entity;
+
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Demande de géocodage asynchrone ("outbox").
+ *
+ * Correspond à la table SQL : geocodage_outbox (db/06_geocodage_outbox.sql)
+ *
+ * Écrite dans la transaction qui modifie l'adresse, puis traitée par
+ * GeocodageOutboxWorker qui appelle l'API Adresse et patche lat / lon
+ * sur la cible (UTILISATEUR ou ECOLE).
+ */
+@Entity
+@Table(name = "geocodage_outbox")
+public class GeocodageOutbox {
+
+    public static final String TYPE_UTILISATEUR = "UTILISATEUR";
+    public static final String TYPE_ECOLE = "ECOLE";
+
+    public static final String STATUT_EN_ATTENTE = "EN_ATTENTE";
+    public static final String STATUT_TRAITE = "TRAITE";
+    public static final String STATUT_ECHEC = "ECHEC";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_outbox")
+    private Long idOutbox;
+
+    @Column(name = "type_cible", nullable = false, length = 20)
+    private String typeCible;
+
+    @Column(name = "id_cible", nullable = false)
+    private Integer idCible;
+
+    @Column(name = "adresse", nullable = false, length = 512)
+    private String adresse;
+
+    @Column(name = "statut", nullable = false, length = 20)
+    private String statut = STATUT_EN_ATTENTE;
+
+    @Column(name = "tentatives", nullable = false)
+    private short tentatives;
+
+    @Column(name = "prochaine_tentative_at", nullable = false)
+    private OffsetDateTime prochaineTentativeAt = OffsetDateTime.now();
+
+    @Column(name = "derniere_erreur", columnDefinition = "text")
+    private String derniereErreur;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt = OffsetDateTime.now();
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt = OffsetDateTime.now();
+
+    // --------------------------------------------------------
+    // Constructeurs
+    // --------------------------------------------------------
+
+    public GeocodageOutbox() {
+    }
+
+    // --------------------------------------------------------
+    // Getters / Setters
+    // --------------------------------------------------------
+
+    public Long getIdOutbox() {
+        return idOutbox;
+    }
+
+    public void setIdOutbox(Long idOutbox) {
+        this.idOutbox = idOutbox;
+    }
+
+    public String getTypeCible() {
+        return typeCible;
+    }
+
+    public void setTypeCible(String typeCible) {
+        this.typeCible = typeCible;
+    }
+
+    public Integer getIdCible() {
+        return idCible;
+    }
+
+    public void setIdCible(Integer idCible) {
+        this.idCible = idCible;
+    }
+
+    public String getAdresse() {
+        return adresse;
+    }
+
+    public void setAdresse(String adresse) {
+        this.adresse = adresse;
+    }
+
+    public String getStatut() {
+        return statut;
+    }
+
+    public void setStatut(String statut) {
+        this.statut = statut;
+    }
+
+    public short getTentatives() {
+        return tentatives;
+    }
+
+    public void setTentatives(short tentatives) {
+        this.tentatives = tentatives;
+    }
+
+    public OffsetDateTime getProchaineTentativeAt() {
+        return prochaineTentativeAt;
+    }
+
+    public void setProchaineTentativeAt(OffsetDateTime prochaineTentativeAt) {
+        this.prochaineTentativeAt = prochaineTentativeAt;
+    }
+
+    public String getDerniereErreur() {
+        return derniereErreur;
+    }
+
+    public void setDerniereErreur(String derniereErreur) {
+        this.derniereErreur = derniereErreur;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(OffsetDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
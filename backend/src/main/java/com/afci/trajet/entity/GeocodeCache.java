@@ -0,0 +1,158 @@
+package com.afci.trajet.entity;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.*;
+
+/**
+ * Entrée du cache persistant de géocodage.
+ *
+ * Correspond à la table SQL : geocode_cache (db/05_geocode_cache.sql,
+ * db/07_geocode_cache_precision.sql)
+ *
+ * Clé = adresse normalisée (cf. GeocodageCache.normaliser).
+ * trouve = false : l'API n'a renvoyé aucune coordonnée pour cette adresse.
+ *
+ * La clé est fournie (pas générée) : Persistable évite à save / saveAll
+ * un SELECT préalable par ligne pour savoir s'il faut INSERT ou UPDATE.
+ */
+@Entity
+@Table(name = "geocode_cache")
+public class GeocodeCache implements Persistable<String> {
+
+    @Id
+    @Column(name = "cle", nullable = false, length = 512)
+    private String cle;
+
+    @Column(name = "adresse", nullable = false, length = 512)
+    private String adresse;
+
+    @Column(name = "trouve", nullable = false)
+    private boolean trouve;
+
+    @Column(name = "lat", precision = 9, scale = 6)
+    private BigDecimal lat;
+
+    @Column(name = "lon", precision = 9, scale = 6)
+    private BigDecimal lon;
+
+    /** Nom de GeocodingService.Precision (null = ADRESSE, lignes anciennes). */
+    @Column(name = "precision_geo", length = 12)
+    private String precisionGeo;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt = OffsetDateTime.now();
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt = OffsetDateTime.now();
+
+    /** true tant que la ligne n'a été ni lue ni enregistrée en base. */
+    @Transient
+    private boolean nouvelle = true;
+
+    // --------------------------------------------------------
+    // Constructeurs
+    // --------------------------------------------------------
+
+    public GeocodeCache() {
+    }
+
+    public GeocodeCache(String cle, String adresse, boolean trouve, BigDecimal lat, BigDecimal lon) {
+        this.cle = cle;
+        this.adresse = adresse;
+        this.trouve = trouve;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    // --------------------------------------------------------
+    // Persistable
+    // --------------------------------------------------------
+
+    @Override
+    public String getId() {
+        return cle;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nouvelle;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marquerPersistee() {
+        this.nouvelle = false;
+    }
+
+    // --------------------------------------------------------
+    // Getters / Setters
+    // --------------------------------------------------------
+
+    public String getCle() {
+        return cle;
+    }
+
+    public void setCle(String cle) {
+        this.cle = cle;
+    }
+
+    public String getAdresse() {
+        return adresse;
+    }
+
+    public void setAdresse(String adresse) {
+        this.adresse = adresse;
+    }
+
+    public boolean isTrouve() {
+        return trouve;
+    }
+
+    public void setTrouve(boolean trouve) {
+        this.trouve = trouve;
+    }
+
+    public BigDecimal getLat() {
+        return lat;
+    }
+
+    public void setLat(BigDecimal lat) {
+        this.lat = lat;
+    }
+
+    public BigDecimal getLon() {
+        return lon;
+    }
+
+    public void setLon(BigDecimal lon) {
+        this.lon = lon;
+    }
+
+    public String getPrecisionGeo() {
+        return precisionGeo;
+    }
+
+    public void setPrecisionGeo(String precisionGeo) {
+        this.precisionGeo = precisionGeo;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(OffsetDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
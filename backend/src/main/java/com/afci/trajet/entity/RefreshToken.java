@@ -25,6 +25,10 @@ public class RefreshToken {
     @Column(name = "id_user", nullable = false)
     private Integer idUser;
 
+    /**
+     * Empreinte SHA-256 (hex) du token remis au navigateur
+     * (cf. RefreshTokenService : le token brut n'est jamais stocké).
+     */
     @NotBlank
     @Size(max = 512)
     @Column(name = "token", nullable = false, length = 512)
@@ -56,6 +60,18 @@ public class RefreshToken {
     @Column(name = "revoked_at")
     private OffsetDateTime revokedAt;
 
+    /** Tokens issus d'une même connexion (un appareil), cf. db/09. */
+    @Column(name = "id_famille", nullable = false)
+    private UUID idFamille;
+
+    /** Token émis à la rotation de celui-ci (null tant qu'il n'a pas servi). */
+    @Column(name = "remplace_par")
+    private UUID remplacePar;
+
+    /** utilisateur.security_version au moment de l'émission. */
+    @Column(name = "security_version", nullable = false)
+    private int securityVersion;
+
     // --------------------------------------------------------
     // Constructeurs
     // --------------------------------------------------------
@@ -181,6 +197,30 @@ public class RefreshToken {
         this.revokedAt = revokedAt;
     }
 
+    public UUID getIdFamille() {
+        return idFamille;
+    }
+
+    public void setIdFamille(UUID idFamille) {
+        this.idFamille = idFamille;
+    }
+
+    public UUID getRemplacePar() {
+        return remplacePar;
+    }
+
+    public void setRemplacePar(UUID remplacePar) {
+        this.remplacePar = remplacePar;
+    }
+
+    public int getSecurityVersion() {
+        return securityVersion;
+    }
+
+    public void setSecurityVersion(int securityVersion) {
+        this.securityVersion = securityVersion;
+    }
+
     // --------------------------------------------------------
     // toString
     // --------------------------------------------------------
@@ -96,6 +96,10 @@ public class Utilisateur {
     @Column(name = "lon", precision = 9, scale = 6)
     private BigDecimal lon;
 
+    /** Nom de GeocodingService.Precision (null = ADRESSE, lignes anciennes). */
+    @Column(name = "precision_geo", length = 12)
+    private String precisionGeo;
+
     @Column(name = "last_login_at")
     private OffsetDateTime lastLoginAt;
 
@@ -133,6 +137,14 @@ public class Utilisateur {
     @Column(name = "deleted_at")
     private OffsetDateTime deletedAt;
 
+    /**
+     * Version de sécurité du compte (claim "sv" du JWT).
+     * Incrémentée via SecurityVersionRegistry.revoquer(...) : les JWT
+     * portant une version antérieure sont refusés.
+     */
+    @Column(name = "security_version", nullable = false)
+    private int securityVersion = 0;
+
     // --------------------------------------------------------
     // Constructeurs
     // --------------------------------------------------------
@@ -354,6 +366,14 @@ public class Utilisateur {
         this.lon = lon;
     }
 
+    public String getPrecisionGeo() {
+        return precisionGeo;
+    }
+
+    public void setPrecisionGeo(String precisionGeo) {
+        this.precisionGeo = precisionGeo;
+    }
+
     public OffsetDateTime getLastLoginAt() {
         return lastLoginAt;
     }
@@ -418,6 +438,14 @@ public class Utilisateur {
         this.deletedAt = deletedAt;
     }
 
+    public int getSecurityVersion() {
+        return securityVersion;
+    }
+
+    public void setSecurityVersion(int securityVersion) {
+        this.securityVersion = securityVersion;
+    }
+
     // --------------------------------------------------------
     // toString (utile pour les logs / debug)
     // --------------------------------------------------------
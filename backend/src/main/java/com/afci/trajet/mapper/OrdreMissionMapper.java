@@ -1,10 +1,16 @@
 package com.afci.trajet.mapper;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.afci.trajet.dto.om.OrdreMissionAssignFormateurRequest;
 import com.afci.trajet.dto.om.OrdreMissionCreateRequest;
+import com.afci.trajet.dto.om.OrdreMissionLightResponse;
 import com.afci.trajet.dto.om.OrdreMissionResponse;
 import com.afci.trajet.dto.om.OrdreMissionUpdateRequest;
 import com.afci.trajet.entity.OrdreMission;
@@ -14,12 +20,32 @@ import com.afci.trajet.entity.OrdreMission;
  *
  * Rôle :
  *  - transformer les DTO "d'entrée" (Create / Update / Assign) en entité ;
- *  - transformer l'entité en DTO "de sortie" (Response).
+ *  - transformer l'entité en DTO "de sortie" (Response) ;
+ *  - restreindre une liste "légère" aux colonnes demandées (?fields=...).
  *
  * On garde une classe simple avec des méthodes statiques : pas d'état interne.
  */
 public final class OrdreMissionMapper {
 
+    /**
+     * Colonnes sélectionnables de OrdreMissionLightResponse (?fields=...),
+     * dans l'ordre de sortie JSON.
+     */
+    private static final Map<String, Function<OrdreMissionLightResponse, Object>> CHAMPS_LIGHT;
+
+    static {
+        Map<String, Function<OrdreMissionLightResponse, Object>> champs = new LinkedHashMap<>();
+        champs.put("idOrdreMission", OrdreMissionLightResponse::getIdOrdreMission);
+        champs.put("codeOrdre", OrdreMissionLightResponse::getCodeOrdre);
+        champs.put("statut", OrdreMissionLightResponse::getStatut);
+        champs.put("dateDebut", OrdreMissionLightResponse::getDateDebut);
+        champs.put("dateFin", OrdreMissionLightResponse::getDateFin);
+        champs.put("coutTotalEstime", OrdreMissionLightResponse::getCoutTotalEstime);
+        champs.put("formateurNomPrenom", OrdreMissionLightResponse::getFormateurNomPrenom);
+        champs.put("createdAt", OrdreMissionLightResponse::getCreatedAt);
+        CHAMPS_LIGHT = champs;
+    }
+
     private OrdreMissionMapper() {
         // utilitaire stateless
     }
@@ -139,7 +165,55 @@ public final class OrdreMissionMapper {
     }
 
     // ---------------------------------------------------------------------
-    // 4️⃣ Helpers possibles pour d'autres cas
+    // 4️⃣ Liste "légère" : sélection de colonnes (?fields=...)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Analyse le paramètre fields ("codeOrdre,statut,dateDebut").
+     *
+     * @return null si fields est absent ou vide (toutes les colonnes)
+     * @throws IllegalArgumentException si une colonne est inconnue
+     */
+    public static Set<String> parseChampsLight(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> champs = new LinkedHashSet<>();
+        for (String champ : fields.split(",")) {
+            String nom = champ.trim();
+            if (nom.isEmpty()) {
+                continue;
+            }
+            if (!CHAMPS_LIGHT.containsKey(nom)) {
+                throw new IllegalArgumentException("Champ inconnu : " + nom
+                        + " (autorisés : " + String.join(", ", CHAMPS_LIGHT.keySet()) + ").");
+            }
+            champs.add(nom);
+        }
+        return champs;
+    }
+
+    /**
+     * Réduit chaque ligne aux colonnes demandées (ordre de CHAMPS_LIGHT ;
+     * une valeur null reste présente, comme dans le DTO complet).
+     */
+    public static List<Map<String, Object>> toChampsLight(List<OrdreMissionLightResponse> lignes,
+                                                          Set<String> champs) {
+        return lignes.stream()
+                .map(ligne -> {
+                    Map<String, Object> valeurs = new LinkedHashMap<>();
+                    CHAMPS_LIGHT.forEach((nom, getter) -> {
+                        if (champs.contains(nom)) {
+                            valeurs.put(nom, getter.apply(ligne));
+                        }
+                    });
+                    return valeurs;
+                })
+                .collect(Collectors.toList());
+    }
+
+    // ---------------------------------------------------------------------
+    // 5️⃣ Helpers possibles pour d'autres cas
     // ---------------------------------------------------------------------
 
     /**
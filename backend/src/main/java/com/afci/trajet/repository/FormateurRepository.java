@@ -1,18 +1,25 @@
 // src/main/java/com/afci/trajet/repository/FormateurRepository.java
 package com.afci.trajet.repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.afci.trajet.dto.formateur.admin.AdminFormateurListItemResponse;
+import com.afci.trajet.dto.om.ecole.FormateurCandidatProjection;
 import com.afci.trajet.entity.Formateur;
 
+import jakarta.persistence.LockModeType;
+
 /**
  * Repository JPA pour l'entité Formateur.
  *
@@ -24,6 +31,10 @@ import com.afci.trajet.entity.Formateur;
  * Méthodes avancées :
  *  - searchFormateursForAdmin(...) pour la recherche paginée côté ADMIN.
  *  - findByIdUser(...) pour "Mon compte" formateur.
+ *  - findCandidatsActifs*(...) : projection FormateurCandidatProjection
+ *    (candidats d'un OM, index spatial).
+ *  - findDisponibilitesRenseignees() : JSON de disponibilités (index des disponibilités).
+ *  - verrouillerParIds(...) : verrou d'écriture avant une affectation d'OM.
  */
 @Repository
 public interface FormateurRepository extends JpaRepository<Formateur, Integer> {
@@ -78,15 +89,104 @@ public interface FormateurRepository extends JpaRepository<Formateur, Integer> {
      *  - on retrouve la fiche formateur associée.
      */
     Optional<Formateur> findByIdUser(Integer idUser);
-    
-    
+
+    // ---------------------------------------------------------------------
+    // Modèle de lecture "candidats" (FORMATEUR + UTILISATEUR en 1 requête)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Tous les formateurs actifs et géocodés, avec les champs utilisateur
+     * nécessaires aux candidats. Sert au (re)chargement de l'index spatial.
+     */
+    @Query("""
+        SELECT new com.afci.trajet.dto.om.ecole.FormateurCandidatProjection(
+            f.idFormateur, u.idUser, u.prenom, u.nom, u.ville,
+            f.zoneKm, f.vehiculePerso, f.permis, f.commentaire,
+            u.lat, u.lon
+        )
+        FROM Formateur f
+        JOIN Utilisateur u ON f.idUser = u.idUser
+        WHERE u.actif = true
+          AND u.lat IS NOT NULL
+          AND u.lon IS NOT NULL
+    """)
+    List<FormateurCandidatProjection> findCandidatsActifs();
+
+    /**
+     * Idem, pré-filtré en SQL sur un rectangle englobant (bornes incluses).
+     *
+     * Le filtre exact "distance <= rayon" reste fait côté Java : le rectangle
+     * ne sert qu'à ne remonter que les lignes plausibles.
+     */
+    @Query("""
+        SELECT new com.afci.trajet.dto.om.ecole.FormateurCandidatProjection(
+            f.idFormateur, u.idUser, u.prenom, u.nom, u.ville,
+            f.zoneKm, f.vehiculePerso, f.permis, f.commentaire,
+            u.lat, u.lon
+        )
+        FROM Formateur f
+        JOIN Utilisateur u ON f.idUser = u.idUser
+        WHERE u.actif = true
+          AND u.lat BETWEEN :latMin AND :latMax
+          AND u.lon BETWEEN :lonMin AND :lonMax
+    """)
+    List<FormateurCandidatProjection> findCandidatsActifsDansRectangle(
+            @Param("latMin") BigDecimal latMin,
+            @Param("latMax") BigDecimal latMax,
+            @Param("lonMin") BigDecimal lonMin,
+            @Param("lonMax") BigDecimal lonMax
+    );
+
+    /**
+     * Lignes candidats pour une liste d'identifiants formateur
+     * (ex : les K retenus d'une page de classement).
+     */
     @Query("""
-            SELECT f
-            FROM Formateur f
-            JOIN Utilisateur u ON f.idUser = u.idUser
-            WHERE u.actif = true
-              AND u.lat IS NOT NULL
-              AND u.lon IS NOT NULL
-        """)
-        java.util.List<Formateur> findAllActifsAvecCoordonnees();
+        SELECT new com.afci.trajet.dto.om.ecole.FormateurCandidatProjection(
+            f.idFormateur, u.idUser, u.prenom, u.nom, u.ville,
+            f.zoneKm, f.vehiculePerso, f.permis, f.commentaire,
+            u.lat, u.lon
+        )
+        FROM Formateur f
+        JOIN Utilisateur u ON f.idUser = u.idUser
+        WHERE f.idFormateur IN :ids
+          AND u.actif = true
+          AND u.lat IS NOT NULL
+          AND u.lon IS NOT NULL
+    """)
+    List<FormateurCandidatProjection> findCandidatsActifsParIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Disponibilités déclarées (JSON brut) d'un formateur actif.
+     */
+    interface DisponibiliteJson {
+        Integer getIdFormateur();
+
+        String getDisponibiliteJson();
+    }
+
+    /**
+     * Formateurs actifs ayant renseigné leurs disponibilités.
+     * Sert au (re)chargement de DisponibiliteIndex.
+     */
+    @Query("""
+        SELECT f.idFormateur AS idFormateur, f.disponibiliteJson AS disponibiliteJson
+        FROM Formateur f
+        JOIN Utilisateur u ON f.idUser = u.idUser
+        WHERE u.actif = true
+          AND f.disponibiliteJson IS NOT NULL
+    """)
+    List<DisponibiliteJson> findDisponibilitesRenseignees();
+
+    /**
+     * Verrouille les fiches formateurs jusqu'à la fin de la transaction.
+     *
+     * Sérialise les affectations d'un même formateur : deux écoles qui lui
+     * affectent en même temps des OM aux dates qui se chevauchent ne peuvent
+     * pas passer toutes les deux le contrôle de conflit. Ordre croissant des
+     * id : deux lots qui partagent des formateurs ne s'interbloquent pas.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Formateur f WHERE f.idFormateur IN :ids ORDER BY f.idFormateur")
+    List<Formateur> verrouillerParIds(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,65 @@
+package com.afci.trajet.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.afci.trajet.entity.GeocodageOutbox;
+
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository JPA de la file de géocodage asynchrone (geocodage_outbox).
+ */
+public interface GeocodageOutboxRepository extends JpaRepository<GeocodageOutbox, Long> {
+
+    /**
+     * Planifie (ou replanifie) le géocodage d'une cible.
+     *
+     * Idempotent : s'il existe déjà une demande EN_ATTENTE pour cette cible,
+     * elle est remplacée par la nouvelle adresse (index unique partiel
+     * uq_geocodage_outbox_cible_en_attente).
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO geocodage_outbox (type_cible, id_cible, adresse, statut, tentatives, prochaine_tentative_at)
+        VALUES (:typeCible, :idCible, :adresse, 'EN_ATTENTE', 0, now())
+        ON CONFLICT (type_cible, id_cible) WHERE statut = 'EN_ATTENTE'
+        DO UPDATE SET adresse = EXCLUDED.adresse,
+                      tentatives = 0,
+                      prochaine_tentative_at = now(),
+                      derniere_erreur = NULL,
+                      updated_at = now()
+    """, nativeQuery = true)
+    int planifier(@Param("typeCible") String typeCible,
+                  @Param("idCible") Integer idCible,
+                  @Param("adresse") String adresse);
+
+    /**
+     * Demandes échues, verrouillées pour la transaction courante.
+     *
+     * SKIP LOCKED : plusieurs workers (ou instances) se partagent la file
+     * sans se bloquer ni traiter deux fois la même ligne en même temps.
+     */
+    @Query(value = """
+        SELECT *
+        FROM geocodage_outbox
+        WHERE statut = 'EN_ATTENTE'
+          AND prochaine_tentative_at <= now()
+        ORDER BY prochaine_tentative_at
+        LIMIT :taille
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<GeocodageOutbox> verrouillerATraiter(@Param("taille") int taille);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM GeocodageOutbox o WHERE o.idOutbox = :id")
+    Optional<GeocodageOutbox> findPourMiseAJour(@Param("id") Long id);
+
+    long countByStatut(String statut);
+}
@@ -0,0 +1,11 @@
+package com.afci.trajet.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.afci.trajet.entity.GeocodeCache;
+
+/**
+ * Repository JPA du cache persistant de géocodage (clé = adresse normalisée).
+ */
+public interface GeocodeCacheRepository extends JpaRepository<GeocodeCache, String> {
+}
@@ -0,0 +1,62 @@
+package com.afci.trajet.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Compteur annuel des codes d'ordre de mission (table ordre_mission_compteur, db/10).
+ *
+ * Un seul ordre SQL par réservation : l'upsert crée la ligne de l'année si
+ * besoin, ajoute "taille" et renvoie le nouveau dernier numéro. Le verrou
+ * de ligne sérialise les réservations concurrentes (plusieurs instances).
+ *
+ * Utilisé par CodeOrdreAllocator.
+ */
+@Repository
+public class OrdreMissionCompteurRepository {
+
+    private static final String RESERVER = """
+            INSERT INTO ordre_mission_compteur (annee, dernier)
+            VALUES (?, ?)
+            ON CONFLICT (annee) DO UPDATE
+               SET dernier = ordre_mission_compteur.dernier + EXCLUDED.dernier
+            RETURNING dernier
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrdreMissionCompteurRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Réserve un bloc dans une transaction à part : le verrou est relâché
+     * aussitôt, sans attendre la fin de la création de l'OM.
+     *
+     * @return dernier numéro du bloc (le bloc est [dernier - taille + 1, dernier])
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserverBloc(int annee, int taille) {
+        return reserver(annee, taille);
+    }
+
+    /**
+     * Réserve un seul numéro dans la transaction de l'appelant : en cas de
+     * rollback, le numéro est rendu (aucun trou), au prix d'un verrou tenu
+     * jusqu'au commit de la création.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long reserverDansTransaction(int annee) {
+        return reserver(annee, 1);
+    }
+
+    private long reserver(int annee, int taille) {
+        Long dernier = jdbcTemplate.queryForObject(RESERVER, Long.class, (short) annee, taille);
+        if (dernier == null) {
+            throw new IllegalStateException("Réservation du compteur de codes OM impossible (année " + annee + ").");
+        }
+        return dernier;
+    }
+}
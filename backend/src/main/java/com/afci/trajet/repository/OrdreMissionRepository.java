@@ -1,6 +1,7 @@
 package com.afci.trajet.repository;
 
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -8,9 +9,15 @@ import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.afci.trajet.dto.om.OrdreMissionLightResponse;
 import com.afci.trajet.entity.OrdreMission;
 
+import jakarta.persistence.LockModeType;
+
 /**
  * Repository JPA pour la table ORDRE_MISSION.
  *
@@ -23,6 +30,8 @@ import com.afci.trajet.entity.OrdreMission;
  *      * findByIdEcoleOrderByCreatedAtDesc(...)
  *      * findByIdEcoleAndStatutOrderByCreatedAtDesc(...)
  *      * findByIdOrdreMissionAndIdEcole(...)
+ *      * findLightByIdEcole[AndStatut](...) : projection légère pour les tableaux
+ *      * findPremierePageEcole(...) / findPageEcoleApres(...) (pagination par curseur)
  *
  *  - Côté FORMATEUR :
  *      * findByIdFormateurOrderByCreatedAtDesc(...)
@@ -32,6 +41,7 @@ import com.afci.trajet.entity.OrdreMission;
  *      * findByDateDebutBetween(...)
  *      * findByStatutOrderByCreatedAtDesc(...)
  *      * findTop20ByOrderByCreatedAtDesc()
+ *      * findCreneauxEngages{Depuis,DesFormateurs}(...) : périodes déjà prises par les formateurs
  */
 public interface OrdreMissionRepository extends JpaRepository<OrdreMission, Integer> {
 
@@ -119,9 +129,177 @@ public interface OrdreMissionRepository extends JpaRepository<OrdreMission, Inte
      * Pratique pour une page d'accueil Admin ou un widget de monitoring.
      */
     List<OrdreMission> findTop20ByOrderByCreatedAtDesc();
+
+    /**
+     * Période engagée par un formateur : OM qui lui est affecté, ni BROUILLON
+     * ni REJETE (projection de findCreneauxEngages*).
+     */
+    interface CreneauEngage {
+        Integer getIdOrdreMission();
+
+        Integer getIdFormateur();
+
+        LocalDate getDateDebut();
+
+        LocalDate getDateFin();
+    }
+
+    /**
+     * Périodes engagées de tous les formateurs qui se terminent à partir
+     * de "depuis" (chargement de ReservationIndex).
+     */
+    @Query("""
+            SELECT om.idOrdreMission AS idOrdreMission, om.idFormateur AS idFormateur,
+                   om.dateDebut AS dateDebut, om.dateFin AS dateFin
+              FROM OrdreMission om
+             WHERE om.idFormateur IS NOT NULL
+               AND om.statut NOT IN ('BROUILLON', 'REJETE')
+               AND om.dateFin >= :depuis
+            """)
+    List<CreneauEngage> findCreneauxEngagesDepuis(@Param("depuis") LocalDate depuis);
+
+    /**
+     * Périodes engagées de quelques formateurs qui chevauchent [debut, fin].
+     * Contrôle qui fait foi avant une affectation, les formateurs étant
+     * verrouillés (FormateurRepository.verrouillerParIds).
+     */
+    @Query("""
+            SELECT om.idOrdreMission AS idOrdreMission, om.idFormateur AS idFormateur,
+                   om.dateDebut AS dateDebut, om.dateFin AS dateFin
+              FROM OrdreMission om
+             WHERE om.idFormateur IN :idsFormateurs
+               AND om.statut NOT IN ('BROUILLON', 'REJETE')
+               AND om.dateDebut <= :fin
+               AND om.dateFin >= :debut
+            """)
+    List<CreneauEngage> findCreneauxEngagesDesFormateurs(@Param("idsFormateurs") Collection<Integer> idsFormateurs,
+                                                         @Param("debut") LocalDate debut,
+                                                         @Param("fin") LocalDate fin);
     
 
     Page<OrdreMission> findByIdEcole(Integer idEcole, Pageable pageable);
 
     Page<OrdreMission> findByIdEcoleAndStatut(Integer idEcole, String statut, Pageable pageable);
+
+    // ---------------------------------------------------------------------
+    // CÔTÉ ECOLE : listes "légères" (projection OrdreMissionLightResponse)
+    // ---------------------------------------------------------------------
+    //  - colonnes du tableau uniquement (pas de commentaire TEXT), nom du
+    //    formateur par jointure : ni entité managée ni snapshot de dirty checking ;
+    //  - tri (createdAt DESC, idOrdreMission DESC) = ordre de l'index
+    //    idx_ordre_mission_ecole_[statut_]created (db/11).
+
+    @Query(value = """
+            SELECT new com.afci.trajet.dto.om.OrdreMissionLightResponse(
+                       om.idOrdreMission, om.codeOrdre, om.statut, om.dateDebut, om.dateFin,
+                       om.coutTotalEstime, CONCAT(u.nom, ' ', u.prenom), om.createdAt)
+              FROM OrdreMission om
+              LEFT JOIN Formateur f ON f.idFormateur = om.idFormateur
+              LEFT JOIN Utilisateur u ON u.idUser = f.idUser
+             WHERE om.idEcole = :idEcole
+             ORDER BY om.createdAt DESC, om.idOrdreMission DESC
+            """,
+           countQuery = "SELECT COUNT(om) FROM OrdreMission om WHERE om.idEcole = :idEcole")
+    Page<OrdreMissionLightResponse> findLightByIdEcole(@Param("idEcole") Integer idEcole, Pageable pageable);
+
+    @Query(value = """
+            SELECT new com.afci.trajet.dto.om.OrdreMissionLightResponse(
+                       om.idOrdreMission, om.codeOrdre, om.statut, om.dateDebut, om.dateFin,
+                       om.coutTotalEstime, CONCAT(u.nom, ' ', u.prenom), om.createdAt)
+              FROM OrdreMission om
+              LEFT JOIN Formateur f ON f.idFormateur = om.idFormateur
+              LEFT JOIN Utilisateur u ON u.idUser = f.idUser
+             WHERE om.idEcole = :idEcole
+               AND om.statut = :statut
+             ORDER BY om.createdAt DESC, om.idOrdreMission DESC
+            """,
+           countQuery = """
+            SELECT COUNT(om) FROM OrdreMission om
+             WHERE om.idEcole = :idEcole
+               AND om.statut = :statut
+            """)
+    Page<OrdreMissionLightResponse> findLightByIdEcoleAndStatut(@Param("idEcole") Integer idEcole,
+                                                                @Param("statut") String statut,
+                                                                Pageable pageable);
+
+    // Pagination par curseur (keyset) :
+    //  - "limite" : PageRequest.of(0, n) => LIMIT n, sans COUNT(*) (retour List) ;
+    //  - page suivante : strictement après (createdAt, idOrdreMission) du
+    //    dernier OM renvoyé ; "createdAt <= :createdAt" borne le parcours d'index.
+
+    @Query("""
+            SELECT new com.afci.trajet.dto.om.OrdreMissionLightResponse(
+                       om.idOrdreMission, om.codeOrdre, om.statut, om.dateDebut, om.dateFin,
+                       om.coutTotalEstime, CONCAT(u.nom, ' ', u.prenom), om.createdAt)
+              FROM OrdreMission om
+              LEFT JOIN Formateur f ON f.idFormateur = om.idFormateur
+              LEFT JOIN Utilisateur u ON u.idUser = f.idUser
+             WHERE om.idEcole = :idEcole
+             ORDER BY om.createdAt DESC, om.idOrdreMission DESC
+            """)
+    List<OrdreMissionLightResponse> findPremierePageEcole(@Param("idEcole") Integer idEcole, Pageable limite);
+
+    @Query("""
+            SELECT new com.afci.trajet.dto.om.OrdreMissionLightResponse(
+                       om.idOrdreMission, om.codeOrdre, om.statut, om.dateDebut, om.dateFin,
+                       om.coutTotalEstime, CONCAT(u.nom, ' ', u.prenom), om.createdAt)
+              FROM OrdreMission om
+              LEFT JOIN Formateur f ON f.idFormateur = om.idFormateur
+              LEFT JOIN Utilisateur u ON u.idUser = f.idUser
+             WHERE om.idEcole = :idEcole
+               AND om.createdAt <= :createdAt
+               AND (om.createdAt < :createdAt OR om.idOrdreMission < :idOrdreMission)
+             ORDER BY om.createdAt DESC, om.idOrdreMission DESC
+            """)
+    List<OrdreMissionLightResponse> findPageEcoleApres(@Param("idEcole") Integer idEcole,
+                                                       @Param("createdAt") OffsetDateTime createdAt,
+                                                       @Param("idOrdreMission") Integer idOrdreMission,
+                                                       Pageable limite);
+
+    @Query("""
+            SELECT new com.afci.trajet.dto.om.OrdreMissionLightResponse(
+                       om.idOrdreMission, om.codeOrdre, om.statut, om.dateDebut, om.dateFin,
+                       om.coutTotalEstime, CONCAT(u.nom, ' ', u.prenom), om.createdAt)
+              FROM OrdreMission om
+              LEFT JOIN Formateur f ON f.idFormateur = om.idFormateur
+              LEFT JOIN Utilisateur u ON u.idUser = f.idUser
+             WHERE om.idEcole = :idEcole
+               AND om.statut = :statut
+             ORDER BY om.createdAt DESC, om.idOrdreMission DESC
+            """)
+    List<OrdreMissionLightResponse> findPremierePageEcoleParStatut(@Param("idEcole") Integer idEcole,
+                                                                   @Param("statut") String statut,
+                                                                   Pageable limite);
+
+    @Query("""
+            SELECT new com.afci.trajet.dto.om.OrdreMissionLightResponse(
+                       om.idOrdreMission, om.codeOrdre, om.statut, om.dateDebut, om.dateFin,
+                       om.coutTotalEstime, CONCAT(u.nom, ' ', u.prenom), om.createdAt)
+              FROM OrdreMission om
+              LEFT JOIN Formateur f ON f.idFormateur = om.idFormateur
+              LEFT JOIN Utilisateur u ON u.idUser = f.idUser
+             WHERE om.idEcole = :idEcole
+               AND om.statut = :statut
+               AND om.createdAt <= :createdAt
+               AND (om.createdAt < :createdAt OR om.idOrdreMission < :idOrdreMission)
+             ORDER BY om.createdAt DESC, om.idOrdreMission DESC
+            """)
+    List<OrdreMissionLightResponse> findPageEcoleParStatutApres(@Param("idEcole") Integer idEcole,
+                                                                @Param("statut") String statut,
+                                                                @Param("createdAt") OffsetDateTime createdAt,
+                                                                @Param("idOrdreMission") Integer idOrdreMission,
+                                                                Pageable limite);
+
+    long countByIdEcole(Integer idEcole);
+
+    long countByIdEcoleAndStatut(Integer idEcole, String statut);
+
+    /**
+     * Verrouille des OM jusqu'à la fin de la transaction (ordre croissant des
+     * id). Utilisé par TrajetRoutierService pour que deux propositions de
+     * trajets du même OM ne s'entremêlent pas.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OrdreMission o WHERE o.idOrdreMission IN :ids ORDER BY o.idOrdreMission")
+    List<OrdreMission> verrouillerParIds(@Param("ids") Collection<Integer> ids);
 }
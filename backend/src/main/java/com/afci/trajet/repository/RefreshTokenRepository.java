@@ -1,16 +1,82 @@
 package com.afci.trajet.repository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.afci.trajet.entity.RefreshToken;
 
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository des refresh tokens (table refresh_token).
+ *
+ * La colonne token contient l'empreinte SHA-256 du token (cf. db/09) :
+ * toutes les recherches se font par empreinte, via l'index unique.
+ */
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
 
     Optional<RefreshToken> findByToken(String token);
 
+    /**
+     * Même recherche, ligne verrouillée : deux onglets qui rafraîchissent
+     * en même temps ne peuvent pas faire tourner le même token deux fois.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT rt FROM RefreshToken rt WHERE rt.token = :token")
+    Optional<RefreshToken> findByTokenPourRotation(@Param("token") String token);
+
     List<RefreshToken> findByIdUserAndRevokedFalse(Integer idUser);
+
+    /**
+     * Révoque tous les tokens encore actifs d'une famille (un appareil).
+     */
+    @Modifying
+    @Query("""
+            UPDATE RefreshToken rt
+               SET rt.revoked = true, rt.revokedAt = :maintenant, rt.updatedAt = :maintenant
+             WHERE rt.idFamille = :idFamille
+               AND rt.revoked = false
+           """)
+    int revoquerFamille(@Param("idFamille") UUID idFamille,
+                        @Param("maintenant") OffsetDateTime maintenant);
+
+    /**
+     * Révoque les sessions actives d'un utilisateur sur un appareil donné
+     * (même user agent) : une nouvelle connexion remplace l'ancienne.
+     */
+    @Modifying
+    @Query("""
+            UPDATE RefreshToken rt
+               SET rt.revoked = true, rt.revokedAt = :maintenant, rt.updatedAt = :maintenant
+             WHERE rt.idUser = :idUser
+               AND rt.revoked = false
+               AND rt.userAgent = :userAgent
+           """)
+    int revoquerAppareil(@Param("idUser") Integer idUser,
+                         @Param("userAgent") String userAgent,
+                         @Param("maintenant") OffsetDateTime maintenant);
+
+    /**
+     * Supprime au plus "lot" tokens expirés ; à rappeler tant qu'il en reste.
+     * Chaque lot est une transaction courte (pas de long verrou sur la table).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM refresh_token
+             WHERE id_token IN (SELECT id_token
+                                  FROM refresh_token
+                                 WHERE expires_at < :limite
+                                 LIMIT :lot)
+           """, nativeQuery = true)
+    int supprimerExpires(@Param("limite") OffsetDateTime limite, @Param("lot") int lot);
 }
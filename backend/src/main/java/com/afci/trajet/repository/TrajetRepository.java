@@ -1,9 +1,13 @@
 package com.afci.trajet.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.afci.trajet.entity.Trajet;
 
@@ -38,4 +42,18 @@ public interface TrajetRepository extends JpaRepository<Trajet, Integer> {
      * On laisse la responsabilité de passer une valeur cohérente (déjà uppercased).
      */
     List<Trajet> findByMoyenPrincipal(String moyenPrincipal);
+
+    /**
+     * Supprime les propositions non retenues d'un auteur pour des OM
+     * (ex : trajets SYSTEME recalculés après une nouvelle affectation).
+     */
+    @Modifying
+    @Query("""
+            DELETE FROM Trajet t
+             WHERE t.idOrdreMission IN :idsOrdreMission
+               AND t.proposePar = :proposePar
+               AND t.retenu = false
+            """)
+    int supprimerPropositionsNonRetenues(@Param("idsOrdreMission") Collection<Integer> idsOrdreMission,
+                                         @Param("proposePar") String proposePar);
 }
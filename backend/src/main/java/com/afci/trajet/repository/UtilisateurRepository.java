@@ -1,11 +1,14 @@
 package com.afci.trajet.repository;
 
+import java.time.OffsetDateTime;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.afci.trajet.entity.Utilisateur;
 
@@ -35,4 +38,72 @@ public interface UtilisateurRepository extends JpaRepository<Utilisateur, Intege
         nativeQuery = true
     )
     void assignRoleToUser(Integer userId, Integer roleId);
+
+    /**
+     * Version de sécurité d'un compte ACTIF (vide si inactif ou inexistant).
+     * Une seule colonne : utilisée par SecurityVersionRegistry pour valider
+     * les JWT sans charger l'utilisateur ni ses rôles.
+     */
+    @Query("SELECT u.securityVersion FROM Utilisateur u WHERE u.idUser = :idUser AND u.actif = true")
+    Optional<Integer> findSecurityVersionActif(@Param("idUser") Integer idUser);
+
+    /**
+     * École et fiche formateur rattachées à un compte (null si aucune).
+     */
+    interface Rattachement {
+        Integer getIdEcole();
+        Integer getIdFormateur();
+    }
+
+    /**
+     * Rattachements d'un compte en une requête (deux sous-requêtes sur les
+     * index id_user) : utilisé par CurrentActorResolver pour construire le
+     * contexte CurrentActor sans charger les entités.
+     */
+    @Query("""
+            SELECT (SELECT e.idEcole FROM Ecole e WHERE e.idUser = u.idUser) AS idEcole,
+                   (SELECT f.idFormateur FROM Formateur f WHERE f.idUser = u.idUser) AS idFormateur
+              FROM Utilisateur u
+             WHERE u.idUser = :idUser
+            """)
+    Optional<Rattachement> findRattachement(@Param("idUser") Integer idUser);
+
+    /**
+     * Identifiant d'un compte à partir de son email (insensible à la casse).
+     */
+    @Query("SELECT u.idUser FROM Utilisateur u WHERE LOWER(u.email) = LOWER(:email)")
+    Optional<Integer> findIdUserByEmail(@Param("email") String email);
+
+    /**
+     * Rehachage après login (cf. PasswordHashingService) : ne remplace le
+     * hash que s'il n'a pas changé entre-temps (changement de mot de passe).
+     *
+     * @return 1 si remplacé, 0 sinon
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE Utilisateur u
+               SET u.passwordHash = :nouveau
+             WHERE u.idUser = :idUser
+               AND u.passwordHash = :ancien
+           """)
+    int remplacerPasswordHash(@Param("idUser") Integer idUser,
+                              @Param("ancien") String ancien,
+                              @Param("nouveau") String nouveau);
+
+    /**
+     * Échecs de connexion / blocage (cf. LoginAttemptGuard), sans charger l'entité.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE Utilisateur u
+               SET u.failedLoginAttempts = :echecs,
+                   u.lockedUntil = :bloqueJusqua
+             WHERE u.idUser = :idUser
+           """)
+    int enregistrerEchecsConnexion(@Param("idUser") Integer idUser,
+                                   @Param("echecs") short echecs,
+                                   @Param("bloqueJusqua") OffsetDateTime bloqueJusqua);
 }
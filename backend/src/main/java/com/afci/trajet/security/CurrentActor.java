@@ -0,0 +1,95 @@
+package com.afci.trajet.security;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Contexte de l'utilisateur connecté, pour la requête HTTP courante.
+ *
+ * Initialisé par le filtre JWT (uid et email tirés du token vérifié) ;
+ * injectable dans les services (proxy de portée requête) :
+ *  - getIdUser() / getEmail()   : sans accès base ;
+ *  - getIdEcole() / getIdFormateur() : résolus au premier appel via
+ *    CurrentActorResolver (cache), puis mémorisés pour la requête.
+ *
+ * Remplace, côté ECOLE, le couple findByEmailIgnoreCase + findByIdUser
+ * qui était refait par chaque méthode de service.
+ */
+@Component
+@RequestScope
+public class CurrentActor {
+
+    private final CurrentActorResolver resolver;
+
+    private Integer idUser;
+    private String email;
+    private CurrentActorResolver.Rattachements rattachements;
+
+    public CurrentActor(CurrentActorResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Appelé par JwtAuthenticationFilter une fois l'Authentication posée.
+     *
+     * @param idUser uid du token, ou null pour un token sans claims
+     *               (relu par email au premier besoin)
+     */
+    public void initialiser(Integer idUser, String email) {
+        this.idUser = idUser;
+        this.email = email;
+        this.rattachements = null;
+    }
+
+    public Integer getIdUser() {
+        if (idUser == null) {
+            if (email == null) {
+                throw new IllegalStateException("Aucun utilisateur authentifié.");
+            }
+            idUser = resolver.idUserParEmail(email)
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Utilisateur introuvable pour l'email : " + email));
+        }
+        return idUser;
+    }
+
+    public String getEmail() {
+        if (email == null) {
+            throw new IllegalStateException("Aucun utilisateur authentifié.");
+        }
+        return email;
+    }
+
+    /**
+     * @return id_ecole du compte, ou null s'il n'est pas rattaché à une école
+     */
+    public Integer getIdEcole() {
+        return rattachements().idEcole();
+    }
+
+    /**
+     * @return id_formateur du compte, ou null s'il n'a pas de fiche formateur
+     */
+    public Integer getIdFormateur() {
+        return rattachements().idFormateur();
+    }
+
+    /**
+     * id_ecole du compte connecté, ou exception si aucune école n'y est rattachée.
+     */
+    public Integer getIdEcoleOuEchec() {
+        Integer idEcole = getIdEcole();
+        if (idEcole == null) {
+            throw new IllegalArgumentException(
+                    "Aucune école associée à ce compte. Contactez un administrateur.");
+        }
+        return idEcole;
+    }
+
+    private CurrentActorResolver.Rattachements rattachements() {
+        if (rattachements == null) {
+            rattachements = resolver.rattachements(getIdUser());
+        }
+        return rattachements;
+    }
+}
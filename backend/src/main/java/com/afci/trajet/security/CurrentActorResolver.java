@@ -0,0 +1,87 @@
+package com.afci.trajet.security;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.repository.UtilisateurRepository;
+import com.afci.trajet.util.CacheBorne;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rattachements (école, fiche formateur) par utilisateur, en mémoire.
+ *
+ * Le filtre JWT ne pose dans CurrentActor que l'uid et l'email (claims du
+ * token). id_ecole / id_formateur sont résolus ici paresseusement, au
+ * premier getIdEcole() / getIdFormateur() de la requête puis mémorisés
+ * pour celle-ci : une requête qui n'en a pas besoin (admin, formateur...)
+ * ne coûte rien. En cas d'absence du cache : une requête à deux
+ * sous-requêtes.
+ *
+ * Un compte sans aucun rattachement (admin...) n'est pas mis en cache :
+ * une école ou une fiche formateur créée ensuite est vue immédiatement.
+ * Un rattachement ne change pas de compte ; une désactivation est gérée
+ * par SecurityVersionRegistry (le token est refusé avant d'arriver ici).
+ *
+ * Métrique Micrometer : securite.acteur.cache{resultat=hit|miss}
+ */
+@Component
+public class CurrentActorResolver {
+
+    /** id_ecole / id_formateur d'un compte (null si absent). */
+    public record Rattachements(Integer idEcole, Integer idFormateur) {
+        static final Rattachements AUCUN = new Rattachements(null, null);
+    }
+
+    private record Entree(Rattachements rattachements, long expireA) {
+    }
+
+    private final UtilisateurRepository utilisateurRepository;
+    private final long ttlNanos;
+
+    private final CacheBorne<Integer, Entree> parUtilisateur;
+
+    private final Counter hits;
+    private final Counter miss;
+
+    public CurrentActorResolver(UtilisateurRepository utilisateurRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${security.acteur.ttl:PT5M}") Duration ttl,
+                                @Value("${security.acteur.cache-max:10000}") int tailleMax) {
+        this.utilisateurRepository = utilisateurRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.parUtilisateur = new CacheBorne<>(tailleMax);
+
+        this.hits = Counter.builder("securite.acteur.cache").tag("resultat", "hit").register(meterRegistry);
+        this.miss = Counter.builder("securite.acteur.cache").tag("resultat", "miss").register(meterRegistry);
+    }
+
+    public Rattachements rattachements(Integer idUser) {
+        Entree entree = parUtilisateur.lire(idUser);
+        if (entree != null && System.nanoTime() - entree.expireA() < 0) {
+            hits.increment();
+            return entree.rattachements();
+        }
+        miss.increment();
+
+        Rattachements r = utilisateurRepository.findRattachement(idUser)
+                .map(p -> new Rattachements(p.getIdEcole(), p.getIdFormateur()))
+                .orElse(Rattachements.AUCUN);
+
+        if (r.idEcole() != null || r.idFormateur() != null) {
+            parUtilisateur.ecrire(idUser, new Entree(r, System.nanoTime() + ttlNanos));
+        }
+        return r;
+    }
+
+    /**
+     * Tokens émis sans uid (mode classique) : l'identifiant est relu par email.
+     */
+    public Optional<Integer> idUserParEmail(String email) {
+        return utilisateurRepository.findIdUserByEmail(email);
+    }
+}
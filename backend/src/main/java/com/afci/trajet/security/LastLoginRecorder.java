@@ -0,0 +1,81 @@
+package com.afci.trajet.security;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Écriture différée de utilisateur.last_login_at.
+ *
+ * Le login ne fait plus d'UPDATE synchrone : la date est notée en mémoire
+ * (une entrée par utilisateur, la plus récente gagne) puis écrite par lots
+ * (JDBC batch) toutes les security.login.flush-intervalle.
+ *
+ * En cas d'arrêt brutal, on perd au plus un intervalle de dates de dernière
+ * connexion : donnée purement informative.
+ */
+@Component
+public class LastLoginRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    private static final String UPDATE = """
+            UPDATE utilisateur
+               SET last_login_at = ?
+             WHERE id_user = ?
+               AND (last_login_at IS NULL OR last_login_at < ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, OffsetDateTime> enAttente = new ConcurrentHashMap<>();
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void enregistrer(Integer idUser, OffsetDateTime date) {
+        enAttente.merge(idUser, date, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    @Scheduled(fixedDelayString = "${security.login.flush-intervalle:PT10S}",
+               initialDelayString = "${security.login.flush-intervalle:PT10S}")
+    public void ecrire() {
+        if (enAttente.isEmpty()) {
+            return;
+        }
+        List<Object[]> parametres = new ArrayList<>(enAttente.size());
+        List<Map.Entry<Integer, OffsetDateTime>> pris = new ArrayList<>(enAttente.size());
+        for (Integer idUser : List.copyOf(enAttente.keySet())) {
+            OffsetDateTime date = enAttente.remove(idUser);
+            if (date != null) {
+                Timestamp ts = Timestamp.from(date.toInstant());
+                parametres.add(new Object[] { ts, idUser, ts });
+                pris.add(Map.entry(idUser, date));
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE, parametres);
+        } catch (RuntimeException ex) {
+            // On remet les dates (sans écraser une connexion plus récente) pour le prochain tour
+            pris.forEach(e -> enregistrer(e.getKey(), e.getValue()));
+            log.warn("Écriture des dates de dernière connexion reportée : {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void vider() {
+        ecrire();
+    }
+}
@@ -0,0 +1,143 @@
+package com.afci.trajet.security;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.util.CacheBorne;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Anti force brute du login, en mémoire (aucune requête, aucun BCrypt
+ * pour une tentative refusée).
+ *
+ *  - par email : security.login.max-echecs échecs consécutifs
+ *    => blocage security.login.duree-blocage ;
+ *  - par IP    : security.login.max-echecs-ip échecs (tous comptes confondus)
+ *    => même blocage (essais d'emails en rafale depuis une même adresse).
+ *
+ * Le blocage d'un compte est aussi recopié en base (utilisateur.locked_until,
+ * failed_login_attempts) par AuthService : il survit à un redémarrage et est
+ * vu par les autres instances.
+ *
+ * Métrique Micrometer : securite.login.bloques{cle=email|ip}
+ */
+@Component
+public class LoginAttemptGuard {
+
+    private static final class Compteur {
+        int echecs;
+        long bloqueJusqua;
+        long expireA;
+    }
+
+    private final int maxEchecs;
+    private final int maxEchecsIp;
+    private final long dureeBlocageNanos;
+    private final Duration dureeBlocage;
+
+    /** Bornés à security.login.cache-max : les compteurs sans échec récent partent en premier. */
+    private final CacheBorne<String, Compteur> parEmail;
+    private final CacheBorne<String, Compteur> parIp;
+
+    private final Counter bloquesEmail;
+    private final Counter bloquesIp;
+
+    public LoginAttemptGuard(MeterRegistry meterRegistry,
+                             @Value("${security.login.max-echecs:5}") int maxEchecs,
+                             @Value("${security.login.max-echecs-ip:50}") int maxEchecsIp,
+                             @Value("${security.login.duree-blocage:PT15M}") Duration dureeBlocage,
+                             @Value("${security.login.cache-max:100000}") int tailleMax) {
+        this.maxEchecs = maxEchecs;
+        this.maxEchecsIp = maxEchecsIp;
+        this.dureeBlocage = dureeBlocage;
+        this.dureeBlocageNanos = dureeBlocage.toNanos();
+        this.parEmail = new CacheBorne<>(tailleMax);
+        this.parIp = new CacheBorne<>(tailleMax);
+
+        this.bloquesEmail = Counter.builder("securite.login.bloques").tag("cle", "email").register(meterRegistry);
+        this.bloquesIp = Counter.builder("securite.login.bloques").tag("cle", "ip").register(meterRegistry);
+    }
+
+    /**
+     * @throws LockedException si l'email ou l'IP est bloqué
+     */
+    public void verifier(String email, String ip) {
+        long maintenant = System.nanoTime();
+        if (estBloque(parEmail.lire(cle(email)), maintenant)) {
+            bloquesEmail.increment();
+            throw new LockedException("Trop de tentatives de connexion, compte temporairement bloqué.");
+        }
+        if (ip != null && estBloque(parIp.lire(ip), maintenant)) {
+            bloquesIp.increment();
+            throw new LockedException("Trop de tentatives de connexion depuis cette adresse.");
+        }
+    }
+
+    /**
+     * Enregistre un échec.
+     *
+     * @return la date de fin de blocage si cet échec bloque le compte, sinon null
+     */
+    public OffsetDateTime echec(String email, String ip) {
+        long maintenant = System.nanoTime();
+        if (ip != null) {
+            incrementer(parIp, ip, maxEchecsIp, maintenant);
+        }
+        return incrementer(parEmail, cle(email), maxEchecs, maintenant)
+                ? OffsetDateTime.now().plus(dureeBlocage)
+                : null;
+    }
+
+    public void succes(String email) {
+        parEmail.retirer(cle(email));
+    }
+
+    public int maxEchecs() {
+        return maxEchecs;
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static boolean estBloque(Compteur c, long maintenant) {
+        if (c == null) {
+            return false;
+        }
+        synchronized (c) {
+            return c.bloqueJusqua != 0 && maintenant - c.bloqueJusqua < 0;
+        }
+    }
+
+    /**
+     * @return true si le seuil vient d'être atteint (début de blocage)
+     */
+    private boolean incrementer(CacheBorne<String, Compteur> compteurs, String cle, int seuil, long maintenant) {
+        Compteur c = compteurs.obtenir(cle, k -> new Compteur());
+        synchronized (c) {
+            if (c.expireA != 0 && maintenant - c.expireA > 0) {
+                // Fenêtre écoulée (ou blocage terminé) : on recompte depuis zéro
+                c.echecs = 0;
+                c.bloqueJusqua = 0;
+            }
+            c.echecs++;
+            c.expireA = maintenant + dureeBlocageNanos;
+            if (c.echecs >= seuil && c.bloqueJusqua == 0) {
+                c.bloqueJusqua = maintenant + dureeBlocageNanos;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static String cle(String email) {
+        return (email == null) ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
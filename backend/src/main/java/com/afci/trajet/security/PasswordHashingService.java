@@ -0,0 +1,192 @@
+package com.afci.trajet.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.afci.trajet.repository.UtilisateurRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Hachage / vérification des mots de passe (BCrypt) sur un pool dédié borné.
+ *
+ *  - security.login.hash-threads threads (défaut : nb de cœurs) et une file
+ *    de security.login.hash-file demandes au plus : une rafale de logins
+ *    consomme au plus ces cœurs, jamais tous les threads de l'API ;
+ *    au-delà => 503 immédiat ;
+ *  - email inconnu : comparaison "leurre" au même coût (pas d'énumération
+ *    des comptes par le temps de réponse) ;
+ *  - rehachage transparent : si le hash stocké a un coût inférieur au coût
+ *    courant (cf. SecurityConfig.passwordEncoder, calibré au démarrage),
+ *    il est recalculé en tâche de fond après un login réussi.
+ *
+ * Métriques Micrometer :
+ *  - securite.login.hash (durée d'une vérification, hors attente)
+ *  - securite.login.hash.rejets (pool saturé)
+ *  - securite.login.hash.file (jauge, demandes en attente)
+ *  - securite.login.rehash
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final UtilisateurRepository utilisateurRepository;
+    private final ThreadPoolExecutor pool;
+    private final Duration attenteMax;
+    private final String hashLeurre;
+
+    private final Timer dureeHash;
+    private final Counter rejets;
+    private final Counter rehash;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  UtilisateurRepository utilisateurRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.login.hash-threads:0}") int threads,
+                                  @Value("${security.login.hash-file:64}") int file,
+                                  @Value("${security.login.attente-hash:PT5S}") Duration attenteMax) {
+        this.passwordEncoder = passwordEncoder;
+        this.utilisateurRepository = utilisateurRepository;
+        this.attenteMax = attenteMax;
+
+        int n = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger numero = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(file),
+                r -> {
+                    Thread t = new Thread(r, "hash-mdp-" + numero.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Même coût que les vrais hash : la comparaison leurre dure autant
+        this.hashLeurre = passwordEncoder.encode("leurre-" + System.nanoTime());
+
+        this.dureeHash = Timer.builder("securite.login.hash")
+                .description("Durée d'une vérification BCrypt (hors attente dans la file)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejets = Counter.builder("securite.login.hash.rejets").register(meterRegistry);
+        this.rehash = Counter.builder("securite.login.rehash").register(meterRegistry);
+        meterRegistry.gauge("securite.login.hash.file", pool, p -> p.getQueue().size());
+    }
+
+    /**
+     * Vérifie un mot de passe sur le pool dédié.
+     *
+     * @param hashStocke null si l'email est inconnu (comparaison leurre, renvoie false)
+     * @throws ResponseStatusException 503 si le pool est saturé ou trop lent
+     */
+    public boolean verifier(String motDePasse, String hashStocke) {
+        String hash = (hashStocke != null) ? hashStocke : hashLeurre;
+        String brut = (motDePasse != null) ? motDePasse : "";
+        boolean ok = executer(() -> dureeHash.record(() -> passwordEncoder.matches(brut, hash)));
+        return ok && hashStocke != null;
+    }
+
+    /**
+     * Après un login réussi : recalcule le hash en tâche de fond si son coût
+     * est inférieur au coût courant. Mise à jour conditionnelle (le hash ne
+     * doit pas avoir changé entre-temps) ; un pool saturé reporte simplement
+     * au prochain login.
+     */
+    public void rehacherSiBesoin(Integer idUser, String motDePasse, String hashStocke) {
+        if (!passwordEncoder.upgradeEncoding(hashStocke)) {
+            return;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    String nouveau = passwordEncoder.encode(motDePasse);
+                    if (utilisateurRepository.remplacerPasswordHash(idUser, hashStocke, nouveau) == 1) {
+                        rehash.increment();
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Rehachage du mot de passe impossible (id_user={}) : {}", idUser, ex.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.debug("Pool de hachage saturé : rehachage reporté (id_user={})", idUser);
+        }
+    }
+
+    /**
+     * Coût BCrypt le plus élevé (entre min et max) dont un hachage prend au
+     * plus "cible" sur cette machine. Mesuré une fois au démarrage.
+     */
+    public static int calibrerCout(Duration cible, int min, int max) {
+        String echantillon = "calibrage-bcrypt";
+        int cout = min;
+        for (int c = min; c <= max; c++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(c);
+            encoder.encode(echantillon);                  // chauffe
+            long debut = System.nanoTime();
+            encoder.encode(echantillon);
+            long duree = System.nanoTime() - debut;
+            if (duree > cible.toNanos()) {
+                break;
+            }
+            cout = c;
+            if (duree * 2 > cible.toNanos()) {
+                break;                                    // le coût suivant (x2) dépasserait la cible
+            }
+        }
+        return cout;
+    }
+
+    @PreDestroy
+    void arreter() {
+        pool.shutdownNow();
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private <T> T executer(Callable<T> tache) {
+        Future<T> resultat;
+        try {
+            resultat = pool.submit(tache);
+        } catch (RejectedExecutionException ex) {
+            rejets.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Trop de connexions simultanées, réessayez dans quelques instants.");
+        }
+        try {
+            return resultat.get(attenteMax.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            resultat.cancel(true);
+            rejets.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Vérification du mot de passe trop lente, réessayez dans quelques instants.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Vérification du mot de passe interrompue.", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Vérification du mot de passe en échec.", ex.getCause());
+        }
+    }
+}
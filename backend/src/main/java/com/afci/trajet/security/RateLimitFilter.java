@@ -0,0 +1,162 @@
+package com.afci.trajet.security;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Contrôle d'admission par route et par appelant (seau à jetons en mémoire).
+ *
+ * Placé juste après JwtAuthenticationFilter :
+ *  - appelant authentifié => clé = id_user (CurrentActor, issu du JWT) ;
+ *  - sinon (login, refresh...) => clé = adresse IP.
+ *
+ * Budgets : security.rate-limit.routes, liste "[METHODE ]motif=capacite/periode"
+ * (motif Ant, periode ISO-8601), évaluée dans l'ordre, la première route
+ * qui correspond s'applique. Exemple : "POST /api/auth/login=10/PT1M".
+ * Une requête sans route correspondante n'est pas limitée.
+ *
+ * Au-delà du budget : 429 + Retry-After (secondes), sans toucher ni à la
+ * base ni au contrôleur.
+ *
+ * Métrique Micrometer : securite.admission{route=..., resultat=admise|rejetee}
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private record Route(String methode, String motif, TokenBucketLimiter limiter,
+                         Counter admises, Counter rejetees) {
+    }
+
+    private final CurrentActor currentActor;
+    private final boolean actif;
+    private final List<Route> routes;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    public RateLimitFilter(CurrentActor currentActor,
+                           MeterRegistry meterRegistry,
+                           @Value("${security.rate-limit.actif:true}") boolean actif,
+                           @Value("${security.rate-limit.routes:}") List<String> budgets,
+                           @Value("${security.rate-limit.cache-max:100000}") int tailleMax) {
+        this.currentActor = currentActor;
+        this.actif = actif;
+
+        List<Route> r = new ArrayList<>();
+        for (String budget : budgets) {
+            if (!budget.isBlank()) {
+                r.add(parser(budget.trim(), tailleMax, meterRegistry));
+            }
+        }
+        this.routes = List.copyOf(r);
+        log.info("Limitation de débit {} ({} route(s) configurée(s))",
+                actif ? "active" : "désactivée", routes.size());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Route route = actif ? trouverRoute(request) : null;
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long attenteNanos = route.limiter().consommer(cle(request), System.nanoTime());
+        if (attenteNanos == 0L) {
+            route.admises().increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        route.rejetees().increment();
+        long secondes = Math.max(1L, (attenteNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(secondes));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"Too Many Requests\"}");
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private Route trouverRoute(HttpServletRequest request) {
+        String chemin = request.getRequestURI().substring(request.getContextPath().length());
+        for (Route route : routes) {
+            if ((route.methode() == null || route.methode().equals(request.getMethod()))
+                    && matcher.match(route.motif(), chemin)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * id_user si l'appelant est authentifié (claims du JWT, sans requête
+     * en mode sans état), sinon adresse IP.
+     */
+    private String cle(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "u:" + currentActor.getIdUser();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * "[METHODE ]motif=capacite/periode" => Route.
+     */
+    private static Route parser(String budget, int tailleMax, MeterRegistry meterRegistry) {
+        int egal = budget.lastIndexOf('=');
+        int slash = budget.lastIndexOf('/');
+        if (egal <= 0 || slash < egal) {
+            throw new IllegalArgumentException(
+                    "security.rate-limit.routes : entrée invalide '" + budget
+                            + "' (attendu : [METHODE ]motif=capacite/periode)");
+        }
+        String route = budget.substring(0, egal).trim();
+        int capacite = Integer.parseInt(budget.substring(egal + 1, slash).trim());
+        Duration periode = Duration.parse(budget.substring(slash + 1).trim());
+
+        String methode = null;
+        String motif = route;
+        int espace = route.indexOf(' ');
+        if (espace > 0) {
+            methode = route.substring(0, espace).toUpperCase(Locale.ROOT);
+            motif = route.substring(espace + 1).trim();
+        }
+
+        return new Route(methode, motif,
+                new TokenBucketLimiter(capacite, periode, tailleMax),
+                Counter.builder("securite.admission").tag("route", route).tag("resultat", "admise")
+                        .register(meterRegistry),
+                Counter.builder("securite.admission").tag("route", route).tag("resultat", "rejetee")
+                        .register(meterRegistry));
+    }
+}
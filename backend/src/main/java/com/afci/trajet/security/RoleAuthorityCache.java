@@ -0,0 +1,136 @@
+package com.afci.trajet.security;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.entity.Role;
+import com.afci.trajet.entity.UtilisateurRole;
+import com.afci.trajet.entity.UtilisateurRoleId;
+import com.afci.trajet.repository.RoleRepository;
+import com.afci.trajet.repository.UtilisateurRoleRepository;
+import com.afci.trajet.util.ApresCommit;
+import com.afci.trajet.util.CacheBorne;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Rôles et authorities en mémoire (utilisé par CustomUserDetailsService).
+ *
+ *  - catalogue des rôles (id_role -> ROLE_CODE) : table minuscule que
+ *    l'application ne modifie jamais (scripts SQL seulement), chargée au
+ *    démarrage et rechargée dès qu'un id inconnu apparaît ; un code de rôle
+ *    renommé en base n'est pris en compte qu'au redémarrage ;
+ *  - authorities par utilisateur (utilisateur_role), gardées
+ *    security.roles.ttl ; invaliderApresCommit(idUser) après toute
+ *    modification des rôles ou du compte (création, soft delete...).
+ *
+ * Avant : 1 requête utilisateur_role + 1 requête role PAR rôle, à chaque
+ * connexion et à chaque requête authentifiée.
+ *
+ * Métriques Micrometer :
+ *  - securite.roles.cache{resultat=hit|miss} (miss = lecture utilisateur_role)
+ *  - securite.roles.catalogue.chargements
+ */
+@Component
+public class RoleAuthorityCache {
+
+    private record Entree(List<GrantedAuthority> authorities, long expireA) {
+    }
+
+    private final RoleRepository roleRepository;
+    private final UtilisateurRoleRepository utilisateurRoleRepository;
+    private final long ttlNanos;
+
+    /** id_role -> authority ; remplacé en bloc (copie immuable). */
+    private volatile Map<Integer, GrantedAuthority> catalogue = Map.of();
+
+    private final CacheBorne<Integer, Entree> parUtilisateur;
+
+    private final Counter hits;
+    private final Counter miss;
+    private final Counter chargementsCatalogue;
+
+    public RoleAuthorityCache(RoleRepository roleRepository,
+                              UtilisateurRoleRepository utilisateurRoleRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${security.roles.ttl:PT5M}") Duration ttl,
+                              @Value("${security.roles.cache-max:10000}") int tailleMax) {
+        this.roleRepository = roleRepository;
+        this.utilisateurRoleRepository = utilisateurRoleRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.parUtilisateur = new CacheBorne<>(tailleMax);
+
+        this.hits = Counter.builder("securite.roles.cache").tag("resultat", "hit").register(meterRegistry);
+        this.miss = Counter.builder("securite.roles.cache").tag("resultat", "miss").register(meterRegistry);
+        this.chargementsCatalogue = Counter.builder("securite.roles.catalogue.chargements").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void charger() {
+        chargerCatalogue();
+    }
+
+    /**
+     * Authorities (ROLE_ADMIN, ROLE_FORMATEUR...) d'un utilisateur.
+     */
+    public List<GrantedAuthority> authorities(Integer idUser) {
+        Entree entree = parUtilisateur.lire(idUser);
+        if (entree != null && System.nanoTime() - entree.expireA() < 0) {
+            hits.increment();
+            return entree.authorities();
+        }
+        miss.increment();
+
+        List<Integer> idsRoles = utilisateurRoleRepository.findByIdIdUser(idUser).stream()
+                .map(UtilisateurRole::getId)
+                .map(UtilisateurRoleId::getIdRole)
+                .distinct()
+                .toList();
+
+        Map<Integer, GrantedAuthority> roles = catalogue;
+        if (!roles.keySet().containsAll(idsRoles)) {
+            // Rôle créé depuis le chargement : une relecture suffit
+            roles = chargerCatalogue();
+        }
+
+        List<GrantedAuthority> authorities = idsRoles.stream()
+                .map(roles::get)
+                .filter(a -> a != null)
+                .distinct()
+                .toList();
+
+        parUtilisateur.ecrire(idUser, new Entree(authorities, System.nanoTime() + ttlNanos));
+        return authorities;
+    }
+
+    /**
+     * Oublie les authorities d'un utilisateur, après commit de la transaction
+     * courante (sinon une lecture concurrente pourrait remettre l'ancien état).
+     */
+    public void invaliderApresCommit(Integer idUser) {
+        ApresCommit.executer(() -> parUtilisateur.retirer(idUser));
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private synchronized Map<Integer, GrantedAuthority> chargerCatalogue() {
+        Map<Integer, GrantedAuthority> roles = new HashMap<>();
+        for (Role role : roleRepository.findAll()) {
+            roles.put(role.getIdRole(), new SimpleGrantedAuthority("ROLE_" + role.getCode()));
+        }
+        catalogue = Map.copyOf(roles);
+        chargementsCatalogue.increment();
+        return catalogue;
+    }
+}
@@ -0,0 +1,77 @@
+package com.afci.trajet.security;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.afci.trajet.util.CacheBorne;
+
+/**
+ * Seau à jetons sans verrou (algorithme GCRA) : "capacite" requêtes en
+ * rafale, puis une nouvelle toutes les periode / capacite.
+ *
+ * Un seau = un seul long (instant théorique où il serait de nouveau plein),
+ * mis à jour par compareAndSet : pas de synchronized, pas de thread de
+ * recharge. Les seaux sont dans un CacheBorne (lecture sans verrou,
+ * au plus tailleMax clés).
+ *
+ * Utilisé par RateLimitFilter, une instance par route configurée.
+ */
+public class TokenBucketLimiter {
+
+    private final long intervalleNanos;
+    private final long toleranceNanos;
+    private final int tailleMax;
+
+    private final CacheBorne<String, AtomicLong> seaux;
+
+    public TokenBucketLimiter(int capacite, Duration periode, int tailleMax) {
+        if (capacite <= 0 || periode.isZero() || periode.isNegative()) {
+            throw new IllegalArgumentException(
+                    "Budget invalide : " + capacite + " requêtes / " + periode);
+        }
+        this.intervalleNanos = Math.max(1L, periode.toNanos() / capacite);
+        this.toleranceNanos = intervalleNanos * capacite;
+        this.tailleMax = tailleMax;
+        this.seaux = new CacheBorne<>(tailleMax);
+    }
+
+    /**
+     * Consomme un jeton pour cette clé.
+     *
+     * @return 0 si la requête est admise, sinon le délai (ns) avant qu'un
+     *         jeton soit disponible
+     */
+    public long consommer(String cle, long maintenant) {
+        AtomicLong seau = seaux.lire(cle);
+        if (seau == null) {
+            if (seaux.taille() >= tailleMax) {
+                purger(maintenant);
+            }
+            seau = seaux.obtenir(cle, k -> new AtomicLong(maintenant));
+        }
+        while (true) {
+            long plein = seau.get();
+            long suivant = Math.max(plein, maintenant) + intervalleNanos;
+            long depassement = suivant - maintenant - toleranceNanos;
+            if (depassement > 0) {
+                return depassement;
+            }
+            if (seau.compareAndSet(plein, suivant)) {
+                return 0L;
+            }
+        }
+    }
+
+    public int taille() {
+        return seaux.taille();
+    }
+
+    /**
+     * Un seau redevenu plein équivaut à une clé absente : on l'oublie.
+     * Si cela ne suffit pas (attaque sur des clés toutes actives), CacheBorne
+     * évince les clés créées le plus anciennement.
+     */
+    private void purger(long maintenant) {
+        seaux.retirerSi((cle, s) -> s.get() - maintenant <= 0);
+    }
+}
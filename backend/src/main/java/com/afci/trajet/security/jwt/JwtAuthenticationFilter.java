@@ -1,9 +1,14 @@
 package com.afci.trajet.security.jwt;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -11,6 +16,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.afci.trajet.security.CurrentActor;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,19 +28,42 @@ import jakarta.servlet.http.HttpServletResponse;
  *
  * Rôle :
  *  - récupérer le header Authorization: Bearer xxx
- *  - valider le token via JwtService
+ *  - valider le token via JwtService.verify (une seule vérification, mise en cache)
  *  - si valide, positionner l'Authentication dans le SecurityContext.
+ *
+ * Deux modes :
+ *  - sans état (security.jwt.stateless=true, défaut) : si le token porte
+ *    uid / roles / sv (cf. JwtService.generateToken(userDetails, idUser, sv)),
+ *    l'Authentication est construite à partir des claims vérifiés ; seul
+ *    SecurityVersionRegistry est consulté (en mémoire) pour la révocation ;
+ *  - classique : chargement de l'utilisateur et de ses rôles en base
+ *    (UserDetailsService) à chaque requête. Toujours utilisé pour les
+ *    tokens émis sans ces claims.
+ *
+ * Dans les deux cas, CurrentActor (portée requête) est initialisé avec
+ * l'uid et l'email : les services n'ont plus à relire le compte connecté.
+ * École et fiche formateur y sont résolues au premier besoin seulement
+ * (CurrentActorResolver).
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final CurrentActor currentActor;
+    private final boolean stateless;
 
     public JwtAuthenticationFilter(JwtService jwtService,
-                                   UserDetailsService userDetailsService) {
+                                   UserDetailsService userDetailsService,
+                                   SecurityVersionRegistry securityVersionRegistry,
+                                   CurrentActor currentActor,
+                                   @Value("${security.jwt.stateless:true}") boolean stateless) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.currentActor = currentActor;
+        this.stateless = stateless;
     }
 
     @Override
@@ -53,33 +83,71 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(7); // remove "Bearer "
 
-        // 2. Extraire l'email du token
-        String username = jwtService.extractUsername(token);
+        // 2. Vérifier le token UNE fois (signature + expiration, ou cache)
+        Optional<VerifiedToken> verifie = jwtService.verify(token);
 
         // 3. Si pas encore authentifié dans ce contexte ET token valide
-        if (StringUtils.hasText(username) &&
-                SecurityContextHolder.getContext().getAuthentication() == null) {
-
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            if (jwtService.isTokenValid(token, userDetails)) {
-                // 4. Construire l'objet Authentication
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-
-                // 5. Poser l'Authentication dans le SecurityContext
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        if (verifie.isPresent()
+                && StringUtils.hasText(verifie.get().username())
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+
+            if (stateless && verifie.get().estSansEtat()) {
+                // 3 bis. Mode sans état : claims vérifiés, pas d'accès base
+                authentifierDepuisClaims(verifie.get(), request);
+            } else {
+                // Token émis sans uid / sv (ou mode sans état désactivé) : chargement en base
+                UserDetails userDetails = userDetailsService.loadUserByUsername(verifie.get().username());
+
+                if (verifie.get().username().equalsIgnoreCase(userDetails.getUsername())) {
+                    // 4. Construire l'objet Authentication
+                    UsernamePasswordAuthenticationToken authToken =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails,
+                                    null,
+                                    userDetails.getAuthorities()
+                            );
+                    authToken.setDetails(
+                            new WebAuthenticationDetailsSource().buildDetails(request)
+                    );
+
+                    // 5. Poser l'Authentication dans le SecurityContext
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+
+                    // Pas d'uid dans ce token : relu par email si un service en a besoin
+                    currentActor.initialiser(null, userDetails.getUsername());
+                }
             }
         }
 
         // 6. Continuer la chaîne de filtres
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Construit l'Authentication à partir des claims, si la version de
+     * sécurité du token est toujours la version courante du compte.
+     */
+    private void authentifierDepuisClaims(VerifiedToken verifie, HttpServletRequest request) {
+        if (!securityVersionRegistry.estAJour(verifie.userId(), verifie.securityVersion())) {
+            // Compte désactivé, mot de passe ou rôles modifiés depuis l'émission
+            return;
+        }
+
+        List<SimpleGrantedAuthority> authorities = verifie.roles().stream()
+                .map(code -> new SimpleGrantedAuthority("ROLE_" + code))
+                .toList();
+
+        // Principal "léger" (pas de mot de passe) : auth.getName() = email, comme avant
+        UserDetails principal = User.withUsername(verifie.username())
+                .password("")
+                .authorities(authorities)
+                .build();
+
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+
+        currentActor.initialiser(verifie.userId(), verifie.username());
+    }
 }
@@ -2,14 +2,22 @@ package com.afci.trajet.security.jwt;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.afci.trajet.util.CacheBorne;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -30,10 +38,28 @@ import io.jsonwebtoken.security.Keys;
  *  - Dans cette version, la clé est considérée comme une chaîne "normale"
  *    (UTF-8), PAS comme une chaîne encodée en Base64.
  *    => On NE fait plus de Decoders.BASE64.decode(...).
+ *
+ * PERFORMANCE (appelé sur chaque requête authentifiée) :
+ *  - la clé HMAC et le JwtParser sont construits une seule fois ;
+ *  - verify(token) fait UNE vérification et renvoie un VerifiedToken
+ *    (email, uid, rôles, version, expiration) ;
+ *  - les tokens déjà vérifiés sont gardés en mémoire (CacheBorne,
+ *    security.jwt.cache-max, lectures sans verrou) jusqu'à leur expiration :
+ *    une SPA qui renvoie le même token à chaque appel ne refait aucun
+ *    calcul HMAC ni parsing.
+ *    La clé du cache est la signature du token (texte après le dernier '.') :
+ *    elle est propre à chaque token et ne demande aucun calcul. Un en-tête
+ *    ou un payload modifié avec une signature connue ne sert à rien : ce
+ *    sont les claims du token réellement vérifié qui sont renvoyés.
  */
 @Service
 public class JwtService {
 
+    /** Claims du mode sans état (cf. JwtAuthenticationFilter). */
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_SECURITY_VERSION = "sv";
+
     /**
      * Clé secrète utilisée pour signer les JWT.
      *
@@ -62,15 +88,30 @@ public class JwtService {
      */
     private final long expirationMs;
 
+    /** Clé HMAC et parser (thread-safe) construits une fois pour toutes. */
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    /** Tokens déjà vérifiés : signature -> claims (null = cache désactivé). */
+    private final CacheBorne<String, VerifiedToken> verifies;
+
     /**
      * Constructeur : Spring injecte automatiquement les valeurs définies
      * dans application.yml grâce à l'annotation @Value.
+     *
+     * cacheMax = 0 désactive le cache des tokens vérifiés.
      */
     public JwtService(
             @Value("${security.jwt.secret}") String secret,
-            @Value("${security.jwt.expiration-ms}") long expirationMs) {
+            @Value("${security.jwt.expiration-ms}") long expirationMs,
+            @Value("${security.jwt.cache-max:10000}") int cacheMax) {
         this.secret = secret;
         this.expirationMs = expirationMs;
+        this.signingKey = buildSigningKey();
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifies = (cacheMax > 0) ? new CacheBorne<>(cacheMax) : null;
     }
 
     // ==========================================================
@@ -105,6 +146,36 @@ public class JwtService {
                 .compact();                                 // sérialisation finale du JWT (String)
     }
 
+    /**
+     * Variante "sans état" : en plus de sub / iat / exp, le token porte
+     *  - uid   : id de l'utilisateur ;
+     *  - roles : codes des rôles (ADMIN, ECOLE, FORMATEUR...) ;
+     *  - sv    : version de sécurité du compte (cf. SecurityVersionRegistry).
+     *
+     * Le filtre JWT peut alors reconstruire l'Authentication à partir du
+     * token seul, sans recharger l'utilisateur ni ses rôles en base.
+     */
+    public String generateToken(UserDetails userDetails, Integer idUser, int securityVersion) {
+        Date now = new Date();
+        Date expiration = new Date(now.getTime() + expirationMs);
+
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(a -> a.startsWith("ROLE_") ? a.substring(5) : a)   // ROLE_ADMIN -> ADMIN
+                .distinct()
+                .toList();
+
+        return Jwts.builder()
+                .setSubject(userDetails.getUsername())
+                .claim(CLAIM_USER_ID, idUser)
+                .claim(CLAIM_ROLES, roles)
+                .claim(CLAIM_SECURITY_VERSION, securityVersion)
+                .setIssuedAt(now)
+                .setExpiration(expiration)
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
     // ==========================================================
     //              2. EXTRACTION D'INFORMATIONS
     // ==========================================================
@@ -117,14 +188,52 @@ public class JwtService {
      * et le username correspond à l'email de l'utilisateur.
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verifierOuEchouer(token).username();
     }
 
     /**
      * Extrait la date d'expiration du token.
      */
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return verifierOuEchouer(token).expiration();
+    }
+
+    /**
+     * Vérifie le token (signature + expiration) en UNE passe.
+     *
+     * @return Optional.empty() si le token est invalide, mal formé ou expiré
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+
+        // 1) Déjà vérifié récemment ?
+        String signature = (verifies != null) ? signature(token) : null;
+        if (signature != null) {
+            VerifiedToken connu = verifies.lire(signature);
+            if (connu != null) {
+                if (!connu.estExpire()) {
+                    return Optional.of(connu);
+                }
+                verifies.retirer(signature);
+                return Optional.empty();
+            }
+        }
+
+        // 2) Vérification complète (HMAC + parsing)
+        VerifiedToken verifie;
+        try {
+            verifie = versVerifiedToken(extractAllClaims(token));
+        } catch (JwtException | IllegalArgumentException ex) {
+            // Signature invalide, token expiré ou mal formé : jamais mis en cache
+            return Optional.empty();
+        }
+
+        if (signature != null) {
+            verifies.ecrire(signature, verifie);
+        }
+        return Optional.of(verifie);
     }
 
     /**
@@ -144,14 +253,11 @@ public class JwtService {
      * Récupère tous les "claims" (le contenu du payload) en vérifiant la
      * signature avec la clé.
      *
-     * Si la signature est invalide, un parsing error sera levé par la
-     * librairie jjwt.
+     * Si la signature est invalide ou le token expiré, une JwtException
+     * est levée par la librairie jjwt.
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey()) // vérifie la signature
-                .build()
+    public Claims extractAllClaims(String token) {
+        return parser                           // vérifie la signature (clé préconstruite)
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -171,8 +277,10 @@ public class JwtService {
      *  - Maintenant : on considère que "secret" est simplement une chaîne UTF-8
      *    classique, suffisamment longue et aléatoire.
      *    On la convertit en bytes avec UTF-8 puis on construit la clé HMAC.
+     *
+     * Appelée une seule fois, dans le constructeur (cf. getSigningKey()).
      */
-    private Key getSigningKey() {
+    private Key buildSigningKey() {
         // On prend les octets UTF-8 de la chaîne "secret"
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
 
@@ -180,6 +288,13 @@ public class JwtService {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
+    /**
+     * Clé HMAC préconstruite (plus de Keys.hmacShaKeyFor à chaque appel).
+     */
+    private Key getSigningKey() {
+        return signingKey;
+    }
+
     // ==========================================================
     //                    3. VALIDATION DU TOKEN
     // ==========================================================
@@ -197,22 +312,43 @@ public class JwtService {
      *  - on appelle isTokenValid(token, userDetails)
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        try {
-            String username = extractUsername(token);
-            return username.equalsIgnoreCase(userDetails.getUsername())
-                    && !isTokenExpired(token);
-        } catch (Exception e) {
-            // Si le parsing du token échoue (signature invalide, token mal formé, etc.)
-            // on considère que le token est invalide.
-            return false;
-        }
+        // Une seule vérification (signature + expiration), ou aucune si le token est en cache.
+        // Si elle échoue (signature invalide, token mal formé, expiré...), le token est invalide.
+        return verify(token)
+                .map(v -> v.username() != null && v.username().equalsIgnoreCase(userDetails.getUsername()))
+                .orElse(false);
+    }
+
+    // ==========================================================
+    //                    4. HELPERS INTERNES
+    // ==========================================================
+
+    private VerifiedToken verifierOuEchouer(String token) {
+        return verify(token).orElseThrow(() -> new JwtException("JWT invalide ou expiré."));
+    }
+
+    private static VerifiedToken versVerifiedToken(Claims claims) {
+        Object roles = claims.get(CLAIM_ROLES);
+        List<String> codes = (roles instanceof Collection<?> c)
+                ? c.stream().map(String::valueOf).toList()
+                : List.of();
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.get(CLAIM_USER_ID, Integer.class),
+                codes,
+                claims.get(CLAIM_SECURITY_VERSION, Integer.class),
+                claims.getExpiration());
     }
 
     /**
-     * Indique si le token est expiré (true = expiré).
+     * Signature (dernier segment) du token : clé du cache ; null si le token
+     * n'a pas la forme header.payload.signature.
      */
-    private boolean isTokenExpired(String token) {
-        Date expiration = extractExpiration(token);
-        return expiration.before(new Date());
+    private static String signature(String token) {
+        int point = token.lastIndexOf('.');
+        if (point < 0 || point == token.length() - 1) {
+            return null;
+        }
+        return token.substring(point + 1);
     }
 }
@@ -0,0 +1,92 @@
+package com.afci.trajet.security.jwt;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.entity.Utilisateur;
+import com.afci.trajet.repository.UtilisateurRepository;
+import com.afci.trajet.util.ApresCommit;
+import com.afci.trajet.util.CacheBorne;
+
+/**
+ * Contrôle de révocation des JWT sans état.
+ *
+ * Chaque JWT porte la version de sécurité du compte au moment de la
+ * connexion (claim "sv"). Un JWT n'est accepté que si cette version est
+ * toujours la version courante d'un compte actif.
+ *
+ *  - versions courantes gardées en mémoire (idUser -> version), relues en
+ *    base au plus une fois par security.jwt.version-ttl et par utilisateur
+ *    (une requête d'une colonne, cf. UtilisateurRepository.findSecurityVersionActif) ;
+ *  - revoquer(...) incrémente la version (mot de passe changé, rôle modifié,
+ *    compte désactivé) ; le cache local est mis à jour après commit.
+ *
+ * Avec plusieurs instances, une révocation faite sur une autre instance est
+ * vue au plus tard après security.jwt.version-ttl.
+ */
+@Component
+public class SecurityVersionRegistry {
+
+    /** Version "compte inactif ou inexistant" : aucun JWT accepté. */
+    private static final int REVOQUE = -1;
+
+    private record Entree(int version, long expireA) {
+    }
+
+    private final UtilisateurRepository utilisateurRepository;
+    private final long ttlNanos;
+
+    private final CacheBorne<Integer, Entree> versions;
+
+    public SecurityVersionRegistry(UtilisateurRepository utilisateurRepository,
+                                   @Value("${security.jwt.version-ttl:PT30S}") Duration ttl,
+                                   @Value("${security.jwt.version-cache-max:10000}") int tailleMax) {
+        this.utilisateurRepository = utilisateurRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.versions = new CacheBorne<>(tailleMax);
+    }
+
+    /**
+     * @return true si la version portée par le JWT est la version courante
+     *         d'un compte actif
+     */
+    public boolean estAJour(Integer idUser, int versionToken) {
+        int courante = versionCourante(idUser);
+        return courante != REVOQUE && courante == versionToken;
+    }
+
+    /**
+     * Invalide tous les JWT déjà émis pour cet utilisateur.
+     *
+     * À appeler dans la transaction qui modifie le compte (l'entité est
+     * ensuite sauvegardée par l'appelant).
+     */
+    public void revoquer(Utilisateur utilisateur) {
+        int nouvelle = utilisateur.getSecurityVersion() + 1;
+        utilisateur.setSecurityVersion(nouvelle);
+
+        Integer idUser = utilisateur.getIdUser();
+        int version = utilisateur.isActif() ? nouvelle : REVOQUE;
+        ApresCommit.executer(() -> memoriser(idUser, version));
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private int versionCourante(Integer idUser) {
+        Entree entree = versions.lire(idUser);
+        if (entree != null && System.nanoTime() - entree.expireA() < 0) {
+            return entree.version();
+        }
+        int version = utilisateurRepository.findSecurityVersionActif(idUser).orElse(REVOQUE);
+        memoriser(idUser, version);
+        return version;
+    }
+
+    private void memoriser(Integer idUser, int version) {
+        versions.ecrire(idUser, new Entree(version, System.nanoTime() + ttlNanos));
+    }
+}
@@ -0,0 +1,32 @@
+package com.afci.trajet.security.jwt;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Résultat d'UNE vérification de JWT (signature + expiration), cf. JwtService.verify.
+ *
+ * Tout ce dont le filtre JWT a besoin est lu en une fois :
+ * plus de re-parsing pour l'email, puis l'expiration, puis les rôles.
+ *
+ * userId / roles / securityVersion sont null pour les tokens émis sans les
+ * claims du mode sans état (JwtService.generateToken(UserDetails)).
+ */
+public record VerifiedToken(
+        String username,
+        Integer userId,
+        List<String> roles,
+        Integer securityVersion,
+        Date expiration) {
+
+    /**
+     * @return true si le token porte uid et sv (authentification sans accès base possible)
+     */
+    public boolean estSansEtat() {
+        return userId != null && securityVersion != null;
+    }
+
+    public boolean estExpire() {
+        return expiration.before(new Date());
+    }
+}
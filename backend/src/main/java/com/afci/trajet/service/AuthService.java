@@ -1,13 +1,16 @@
 package com.afci.trajet.service;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,69 +19,168 @@ import com.afci.trajet.dto.AuthRequest;
 import com.afci.trajet.dto.AuthResponse;
 import com.afci.trajet.entity.Utilisateur;
 import com.afci.trajet.repository.UtilisateurRepository;
+import com.afci.trajet.security.LastLoginRecorder;
+import com.afci.trajet.security.LoginAttemptGuard;
+import com.afci.trajet.security.PasswordHashingService;
+import com.afci.trajet.security.RoleAuthorityCache;
 import com.afci.trajet.security.jwt.JwtService;
 
 /**
  * Service métier pour tout ce qui concerne l'authentification :
- * - Vérifier email/mot de passe via Spring Security
+ * - Vérifier email/mot de passe (BCrypt sur pool dédié, cf. PasswordHashingService)
+ * - Bloquer la force brute (LoginAttemptGuard, en mémoire + locked_until en base)
  * - Générer un JWT
- * - Mettre à jour les infos de connexion (lastLoginAt ...)
+ * - Mettre à jour les infos de connexion (lastLoginAt, en différé : LastLoginRecorder)
+ * - Émettre / faire tourner / révoquer le refresh token (cf. RefreshTokenService)
  */
 @Service
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
+    /**
+     * Réponse pour le frontend + refresh token à poser en cookie HttpOnly
+     * (le refresh token n'apparaît jamais dans le JSON).
+     */
+    public record Connexion(AuthResponse reponse, RefreshTokenService.Emission refresh) {
+    }
+
     private final JwtService jwtService;
     private final UtilisateurRepository utilisateurRepository;
+    private final RefreshTokenService refreshTokenService;
+    private final RoleAuthorityCache roleAuthorityCache;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginAttemptGuard loginAttemptGuard;
+    private final LastLoginRecorder lastLoginRecorder;
 
-    public AuthService(AuthenticationManager authenticationManager,
-                       JwtService jwtService,
-                       UtilisateurRepository utilisateurRepository) {
-        this.authenticationManager = authenticationManager;
+    public AuthService(JwtService jwtService,
+                       UtilisateurRepository utilisateurRepository,
+                       RefreshTokenService refreshTokenService,
+                       RoleAuthorityCache roleAuthorityCache,
+                       PasswordHashingService passwordHashingService,
+                       LoginAttemptGuard loginAttemptGuard,
+                       LastLoginRecorder lastLoginRecorder) {
         this.jwtService = jwtService;
         this.utilisateurRepository = utilisateurRepository;
+        this.refreshTokenService = refreshTokenService;
+        this.roleAuthorityCache = roleAuthorityCache;
+        this.passwordHashingService = passwordHashingService;
+        this.loginAttemptGuard = loginAttemptGuard;
+        this.lastLoginRecorder = lastLoginRecorder;
     }
 
     /**
      * Authentifie l'utilisateur à partir de l'email et du password,
-     * génère un JWT et renvoie un AuthResponse complet.
+     * génère un JWT + un refresh token et renvoie un AuthResponse complet.
+     *
+     * Une seule lecture en base (l'utilisateur) ; rôles en cache ;
+     * aucune écriture synchrone sur le chemin nominal.
+     *
+     * @throws LockedException         trop d'échecs récents (email ou IP)
+     * @throws BadCredentialsException email inconnu ou mot de passe faux
+     * @throws DisabledException       compte inactif
+     */
+    public Connexion login(AuthRequest request, String userAgent, String ipAddress) {
+        String email = request.getEmail();
+        OffsetDateTime maintenant = OffsetDateTime.now();
+
+        // 1) Anti force brute : refus immédiat, sans base ni BCrypt
+        loginAttemptGuard.verifier(email, ipAddress);
+
+        // 2) Une seule lecture de l'utilisateur (plus de 2e findByEmailIgnoreCase)
+        Utilisateur utilisateur = (email == null) ? null
+                : utilisateurRepository.findByEmailIgnoreCase(email).orElse(null);
+
+        // 3) Blocage posé en base (autre instance, ou avant un redémarrage)
+        if (utilisateur != null && utilisateur.getLockedUntil() != null
+                && utilisateur.getLockedUntil().isAfter(maintenant)) {
+            throw new LockedException("Trop de tentatives de connexion, compte temporairement bloqué.");
+        }
+
+        // 4) BCrypt sur le pool dédié (comparaison leurre si l'email est inconnu)
+        String hash = (utilisateur != null) ? utilisateur.getPasswordHash() : null;
+        if (!passwordHashingService.verifier(request.getPassword(), hash)) {
+            OffsetDateTime bloqueJusqua = loginAttemptGuard.echec(email, ipAddress);
+            if (utilisateur != null && bloqueJusqua != null) {
+                utilisateurRepository.enregistrerEchecsConnexion(utilisateur.getIdUser(),
+                        (short) loginAttemptGuard.maxEchecs(), bloqueJusqua);
+            }
+            throw new BadCredentialsException("Identifiants invalides.");
+        }
+        if (!utilisateur.isActif()) {
+            throw new DisabledException("Compte désactivé.");
+        }
+
+        // 5) Succès : compteurs remis à zéro (écriture seulement s'il y en avait)
+        loginAttemptGuard.succes(email);
+        if (utilisateur.getFailedLoginAttempts() != 0 || utilisateur.getLockedUntil() != null) {
+            utilisateurRepository.enregistrerEchecsConnexion(utilisateur.getIdUser(), (short) 0, null);
+        }
+        passwordHashingService.rehacherSiBesoin(utilisateur.getIdUser(), request.getPassword(), hash);
+
+        // 6) On génère le JWT.
+        //    uid / roles / version de sécurité sont embarqués dans le token :
+        //    le filtre JWT n'a plus besoin de recharger l'utilisateur en base.
+        List<GrantedAuthority> authorities = roleAuthorityCache.authorities(utilisateur.getIdUser());
+        UserDetails userDetails = User.withUsername(utilisateur.getEmail())
+                .password("")
+                .authorities(authorities)
+                .build();
+        String token = jwtService.generateToken(userDetails, utilisateur.getIdUser(),
+                utilisateur.getSecurityVersion());
+
+        // 7) Date de dernière connexion : écrite en différé, par lots.
+        lastLoginRecorder.enregistrer(utilisateur.getIdUser(), maintenant);
+
+        // 8) Refresh token pour cet appareil (évite un login BCrypt à chaque expiration du JWT)
+        RefreshTokenService.Emission refresh = refreshTokenService.emettre(
+                utilisateur.getIdUser(), utilisateur.getSecurityVersion(), userAgent, ipAddress);
+
+        // 9) On construit la réponse pour le frontend.
+        return new Connexion(construireReponse(utilisateur, token, authorities), refresh);
+    }
+
+    /**
+     * POST /api/auth/refresh : fait tourner le refresh token et émet un nouveau JWT.
+     * Pas de BCrypt : une recherche par empreinte + une lecture de l'utilisateur.
+     *
+     * @return Optional.empty() si le refresh token est invalide (=> 401)
      */
     @Transactional
-    public AuthResponse login(AuthRequest request) {
-
-        // 1) On délègue à Spring Security la vérification email / mot de passe.
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
-
-        // 2) Si on arrive ici, l'authentification est OK.
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-
-        // 3) On récupère l'entité Utilisateur pour renvoyer des infos métier (id, prénom, nom...)
-        Utilisateur utilisateur = utilisateurRepository
-                .findByEmailIgnoreCase(userDetails.getUsername())
+    public Optional<Connexion> refresh(String refreshToken, String userAgent, String ipAddress) {
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.tourner(refreshToken, userAgent, ipAddress);
+        if (rotation.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshTokenService.Rotation r = rotation.get();
+
+        Utilisateur utilisateur = utilisateurRepository.findById(r.idUser())
                 .orElseThrow(() -> new IllegalStateException(
-                        "Utilisateur introuvable alors que l'authentification a réussi : " + userDetails.getUsername()
-                ));
+                        "Utilisateur introuvable pour un refresh token valide (id_user=" + r.idUser() + ")"));
 
-        // 4) On génère le JWT à partir des UserDetails.
-        //    (si ton JwtService prend d'autres paramètres, adapte ici)
-        String token = jwtService.generateToken(userDetails);
+        List<GrantedAuthority> authorities = roleAuthorityCache.authorities(utilisateur.getIdUser());
+        UserDetails userDetails = User.withUsername(utilisateur.getEmail())
+                .password("")
+                .authorities(authorities)
+                .build();
 
-        // 5) On met à jour la date de dernière connexion.
-        utilisateur.setLastLoginAt(OffsetDateTime.now());
-        utilisateurRepository.save(utilisateur);
+        String token = jwtService.generateToken(userDetails, utilisateur.getIdUser(), r.securityVersion());
+        return Optional.of(new Connexion(construireReponse(utilisateur, token, authorities), r.emission()));
+    }
+
+    /**
+     * POST /api/auth/logout : révoque le refresh token de cet appareil (et sa famille).
+     */
+    public void logout(String refreshToken) {
+        refreshTokenService.revoquer(refreshToken);
+    }
 
-        // 6) On extrait les rôles (ROLE_ADMIN, ROLE_FORMATEUR...) des authorities
-        List<String> roles = authentication.getAuthorities()
+    private static AuthResponse construireReponse(Utilisateur utilisateur, String token,
+                                                  Collection<? extends GrantedAuthority> authorities) {
+        // On extrait les rôles (ROLE_ADMIN, ROLE_FORMATEUR...) des authorities
+        List<String> roles = authorities
                 .stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
 
-        // 7) On construit la réponse pour le frontend.
         AuthResponse response = new AuthResponse();
         response.setAccessToken(token);
         response.setTokenType("Bearer");
@@ -87,7 +189,6 @@ public class AuthService {
         response.setPrenom(utilisateur.getPrenom());
         response.setNom(utilisateur.getNom());
         response.setRoles(roles);
-
         return response;
     }
 }
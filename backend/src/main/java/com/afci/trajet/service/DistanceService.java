@@ -4,20 +4,20 @@ import java.math.BigDecimal;
 
 import org.springframework.stereotype.Service;
 
+import com.afci.trajet.service.geo.DistanceEngine;
+
 /**
  * Service utilitaire pour calculer des distances entre deux points GPS.
  *
  * Utilise la formule de Haversine pour calculer la distance
- * "à vol d'oiseau" en kilomètres.
+ * "à vol d'oiseau" en kilomètres (calcul délégué à DistanceEngine,
+ * commun à toute l'application).
  *
  * ⚠ Les coordonnées sont en degrés (lat/lon).
  */
 @Service
 public class DistanceService {
 
-    // Rayon moyen de la Terre en kilomètres
-    private static final double RAYON_TERRE_KM = 6371.0;
-
     /**
      * Calcule la distance en kilomètres entre deux points GPS
      * (lat1, lon1) et (lat2, lon2) avec la formule de Haversine.
@@ -37,30 +37,7 @@ public class DistanceService {
             throw new IllegalArgumentException("Les coordonnées lat/lon ne doivent pas être null.");
         }
 
-        // 1) Conversion BigDecimal -> double
-        double lat1Deg = lat1.doubleValue();
-        double lon1Deg = lon1.doubleValue();
-        double lat2Deg = lat2.doubleValue();
-        double lon2Deg = lon2.doubleValue();
-
-        // 2) Conversion degrés -> radians
-        double lat1Rad = Math.toRadians(lat1Deg);
-        double lon1Rad = Math.toRadians(lon1Deg);
-        double lat2Rad = Math.toRadians(lat2Deg);
-        double lon2Rad = Math.toRadians(lon2Deg);
-
-        // 3) Différences
-        double dLat = lat2Rad - lat1Rad;
-        double dLon = lon2Rad - lon1Rad;
-
-        // 4) Formule de Haversine
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(lat1Rad) * Math.cos(lat2Rad)
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        // 5) Distance finale
-        return RAYON_TERRE_KM * c;
+        return DistanceEngine.distanceKm(lat1.doubleValue(), lon1.doubleValue(),
+                lat2.doubleValue(), lon2.doubleValue());
     }
 }
@@ -14,18 +14,24 @@ import com.afci.trajet.dto.ecole.MonProfilUpdateRequest;
 import com.afci.trajet.dto.ecole.ResponsableAccessibiliteDto;
 import com.afci.trajet.dto.ecole.ResponsableAccessibiliteUpsertRequest;
 import com.afci.trajet.entity.Ecole;
+import com.afci.trajet.entity.GeocodageOutbox;
 import com.afci.trajet.entity.ResponsableAccessibilite;
 import com.afci.trajet.entity.Utilisateur;
 import com.afci.trajet.repository.EcoleRepository;
 import com.afci.trajet.repository.ResponsableAccessibiliteRepository;
 import com.afci.trajet.repository.UtilisateurRepository;
+import com.afci.trajet.security.CurrentActor;
+import com.afci.trajet.security.jwt.SecurityVersionRegistry;
+import com.afci.trajet.service.geocodage.GeocodageOutboxService;
 
 /**
  * Service métier pour l'espace "Mon compte / Mon établissement" côté ECOLE.
  *
- * Toutes les méthodes partent de l'email du compte connecté :
- *  - on récupère d'abord l'utilisateur,
- *  - puis l'école associée via la FK id_user,
+ * Toutes les méthodes partent du compte connecté (CurrentActor, initialisé
+ * par le filtre JWT) :
+ *  - id_user / id_ecole sont connus sans requête ;
+ *  - l'utilisateur et l'école ne sont chargés (par clé primaire) que si
+ *    la méthode en a besoin ;
  *  - puis on construit un DTO global.
  *
  * Ce service gère :
@@ -43,17 +49,26 @@ public class EcoleMonCompteService {
     private final GeocodingService geocodingService;
     private final PasswordEncoder passwordEncoder;
     private final ResponsableAccessibiliteRepository responsableRepository;
+    private final GeocodageOutboxService geocodageOutboxService;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final CurrentActor currentActor;
 
     public EcoleMonCompteService(UtilisateurRepository utilisateurRepository,
                                  EcoleRepository ecoleRepository,
                                  GeocodingService geocodingService,
                                  PasswordEncoder passwordEncoder,
-                                 ResponsableAccessibiliteRepository responsableRepository) {
+                                 ResponsableAccessibiliteRepository responsableRepository,
+                                 GeocodageOutboxService geocodageOutboxService,
+                                 SecurityVersionRegistry securityVersionRegistry,
+                                 CurrentActor currentActor) {
         this.utilisateurRepository = utilisateurRepository;
         this.ecoleRepository = ecoleRepository;
         this.geocodingService = geocodingService;
         this.passwordEncoder = passwordEncoder;
         this.responsableRepository = responsableRepository;
+        this.geocodageOutboxService = geocodageOutboxService;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.currentActor = currentActor;
     }
 
     // ---------------------------------------------------------------------
@@ -61,19 +76,20 @@ public class EcoleMonCompteService {
     // ---------------------------------------------------------------------
 
     /**
-     * Récupère l'utilisateur ECOLE par email (ignore case) ou lève une exception.
+     * Charge l'utilisateur ECOLE connecté (par clé primaire) ou lève une exception.
      */
-    private Utilisateur getUserByEmailOrThrow(String emailConnected) {
-        return utilisateurRepository.findByEmailIgnoreCase(emailConnected)
+    private Utilisateur getUserConnecteOrThrow() {
+        Integer idUser = currentActor.getIdUser();
+        return utilisateurRepository.findById(idUser)
                 .orElseThrow(() -> new IllegalArgumentException(
-                        "Utilisateur ECOLE introuvable pour l'email : " + emailConnected));
+                        "Utilisateur ECOLE introuvable (id_user=" + idUser + ")."));
     }
 
     /**
-     * Récupère l'école associée à un utilisateur donné (via id_user) ou lève une exception.
+     * Charge l'école du compte connecté (par clé primaire) ou lève une exception.
      */
-    private Ecole getEcoleByUserOrThrow(Utilisateur user) {
-        return ecoleRepository.findByIdUser(user.getIdUser())
+    private Ecole getEcoleConnecteeOrThrow() {
+        return ecoleRepository.findById(currentActor.getIdEcoleOuEchec())
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Aucune école associée à ce compte. Contactez un administrateur."));
     }
@@ -85,17 +101,16 @@ public class EcoleMonCompteService {
     /**
      * Récupère le "mon établissement" complet pour l'utilisateur ECOLE connecté.
      *
-     * @param emailConnected email de l'utilisateur connecté (principal Spring Security)
      * @return DTO regroupant profil + établissement + responsable accessibilité (optionnel)
      */
     @Transactional(readOnly = true)
-    public MonEtablissementResponse getMonEtablissement(String emailConnected) {
+    public MonEtablissementResponse getMonEtablissement() {
 
-        // 1) Récupérer le compte utilisateur par email (ignore case)
-        Utilisateur user = getUserByEmailOrThrow(emailConnected);
+        // 1) Charger le compte utilisateur connecté
+        Utilisateur user = getUserConnecteOrThrow();
 
-        // 2) Récupérer l'école associée via la FK id_user
-        Ecole ecole = getEcoleByUserOrThrow(user);
+        // 2) Charger l'école associée (id_ecole connu via CurrentActor)
+        Ecole ecole = getEcoleConnecteeOrThrow();
 
         // 3) Récupérer éventuellement le Responsable accessibilité (0 ou 1 par école)
         Optional<ResponsableAccessibilite> optResp =
@@ -122,11 +137,10 @@ public class EcoleMonCompteService {
      * L'email (identifiant de connexion) n'est pas modifié ici.
      */
     @Transactional
-    public MonEtablissementResponse updateMonProfil(String emailConnected,
-                                                    MonProfilUpdateRequest request) {
+    public MonEtablissementResponse updateMonProfil(MonProfilUpdateRequest request) {
 
         // 1) Récupérer l'utilisateur
-        Utilisateur user = getUserByEmailOrThrow(emailConnected);
+        Utilisateur user = getUserConnecteOrThrow();
 
         // 2) Mettre à jour les champs autorisés
         user.setPrenom(request.getPrenom());
@@ -137,7 +151,7 @@ public class EcoleMonCompteService {
         utilisateurRepository.save(user);
 
         // 4) Récupérer l'école liée
-        Ecole ecole = getEcoleByUserOrThrow(user);
+        Ecole ecole = getEcoleConnecteeOrThrow();
 
         // 5) Récupérer le responsable accessibilité pour reconstruire le DTO complet
         ResponsableAccessibiliteDto respDto = responsableRepository
@@ -156,19 +170,28 @@ public class EcoleMonCompteService {
      * Met à jour les informations d'établissement pour l'utilisateur ECOLE connecté.
      *
      * ⚠ lat / lon ne sont pas directement modifiés par le front :
-     * on reconstruit une adresse complète et on appelle l'API Adresse
-     * via GeocodingService. Si l'API renvoie quelque chose, on met à jour
-     * les coordonnées, sinon on conserve les anciennes (fallback).
+     * on reconstruit une adresse complète, géocodée depuis le cache ou, à défaut,
+     * par la file asynchrone (GeocodageOutboxService) après le commit.
+     * Si l'API renvoie quelque chose, on met à jour les coordonnées,
+     * sinon on conserve les anciennes (fallback).
      */
     @Transactional
-    public MonEtablissementResponse updateMonEtablissement(String emailConnected,
-                                                           MonEtablissementUpdateRequest request) {
+    public MonEtablissementResponse updateMonEtablissement(MonEtablissementUpdateRequest request) {
 
         // 1) Récupérer l'utilisateur
-        Utilisateur user = getUserByEmailOrThrow(emailConnected);
+        Utilisateur user = getUserConnecteOrThrow();
 
         // 2) Récupérer l'école associée
-        Ecole ecole = getEcoleByUserOrThrow(user);
+        Ecole ecole = getEcoleConnecteeOrThrow();
+
+        // Adresse AVANT modification : si elle ne change pas, on ne re-géocode pas
+        String ancienneAdresse = geocodingService.buildAdresseComplete(
+                ecole.getAdresseL1(),
+                ecole.getAdresseL2(),
+                ecole.getCodePostal(),
+                ecole.getVille(),
+                ecole.getPaysCode()
+        );
 
         // 3) Mettre à jour les champs établissement
         ecole.setNomEcole(request.getNomEcole());
@@ -180,7 +203,7 @@ public class EcoleMonCompteService {
         ecole.setNiveauAccessibilite(request.getNiveauAccessibilite());
         ecole.setInfosAcces(request.getInfosAcces());
 
-        // 4) Re-géocodage de l'adresse (API Adresse data.gouv)
+        // 4) Re-géocodage de l'adresse (API Adresse data.gouv) si elle a changé
         String adresseComplete = geocodingService.buildAdresseComplete(
                 request.getAdresseL1(),
                 request.getAdresseL2(),
@@ -189,12 +212,16 @@ public class EcoleMonCompteService {
                 request.getPaysCode()
         );
 
-        geocodingService.geocodeAdresse(adresseComplete)
-                .ifPresent(coords -> {
-                    // Si l'API renvoie quelque chose, on met lat/lon à jour
-                    ecole.setLat(coords.lat());
-                    ecole.setLon(coords.lon());
-                });
+        boolean adresseModifiee = !adresseComplete.equals(ancienneAdresse);
+        if (adresseModifiee || ecole.getLat() == null || ecole.getLon() == null) {
+            // Cache => lat/lon tout de suite ; sinon file asynchrone (patch après commit)
+            geocodageOutboxService.geocoder(GeocodageOutbox.TYPE_ECOLE, ecole.getIdEcole(), adresseComplete,
+                    coords -> {
+                        ecole.setLat(coords.lat());
+                        ecole.setLon(coords.lon());
+                        ecole.setPrecisionGeo(coords.precision().name());
+                    });
+        }
         // Si l'API ne renvoie rien, on conserve les anciennes coordonnées :
         // pas de "else", c'est le fallback naturel.
 
@@ -225,11 +252,10 @@ public class EcoleMonCompteService {
      *  - on encode le nouveau mot de passe avec PasswordEncoder.
      */
     @Transactional
-    public void changeMonMotDePasse(String emailConnected,
-                                    MonMotDePasseUpdateRequest request) {
+    public void changeMonMotDePasse(MonMotDePasseUpdateRequest request) {
 
         // 1) Récupérer l'utilisateur
-        Utilisateur user = getUserByEmailOrThrow(emailConnected);
+        Utilisateur user = getUserConnecteOrThrow();
 
         // 2) Vérifier l'ancien mot de passe
         if (request.getAncienMotDePasse() == null ||
@@ -251,6 +277,8 @@ public class EcoleMonCompteService {
 
         // 5) Encoder et sauvegarder
         user.setPasswordHash(passwordEncoder.encode(request.getNouveauMotDePasse()));
+        // Les JWT émis avec l'ancien mot de passe ne sont plus acceptés
+        securityVersionRegistry.revoquer(user);
         utilisateurRepository.save(user);
     }
 
@@ -265,12 +293,12 @@ public class EcoleMonCompteService {
      * Peut retourner null si aucun responsable n'a encore été défini.
      */
     @Transactional(readOnly = true)
-    public ResponsableAccessibiliteDto getMonResponsableAccessibilite(String emailConnected) {
+    public ResponsableAccessibiliteDto getMonResponsableAccessibilite() {
 
-        Utilisateur user = getUserByEmailOrThrow(emailConnected);
-        Ecole ecole = getEcoleByUserOrThrow(user);
+        // Seul id_ecole est utile : aucune lecture du compte ni de l'école
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
-        return responsableRepository.findByIdEcole(ecole.getIdEcole())
+        return responsableRepository.findByIdEcole(idEcole)
                 .map(this::mapToResponsableDto)
                 .orElse(null);
     }
@@ -284,18 +312,16 @@ public class EcoleMonCompteService {
      */
     @Transactional
     public ResponsableAccessibiliteDto upsertMonResponsableAccessibilite(
-            String emailConnected,
             ResponsableAccessibiliteUpsertRequest request) {
 
-        Utilisateur user = getUserByEmailOrThrow(emailConnected);
-        Ecole ecole = getEcoleByUserOrThrow(user);
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
         // On regarde s'il existe déjà un responsable pour cette école
         ResponsableAccessibilite responsable = responsableRepository
-                .findByIdEcole(ecole.getIdEcole())
+                .findByIdEcole(idEcole)
                 .orElseGet(() -> {
                     ResponsableAccessibilite r = new ResponsableAccessibilite();
-                    r.setIdEcole(ecole.getIdEcole());
+                    r.setIdEcole(idEcole);
                     r.setCreatedAt(OffsetDateTime.now());
                     return r;
                 });
@@ -14,11 +14,14 @@ import com.afci.trajet.dto.ecole.EcoleDetailAdminResponse;
 import com.afci.trajet.dto.ecole.EcoleResponse;
 import com.afci.trajet.dto.ecole.EcoleUpdateAdminRequest;
 import com.afci.trajet.entity.Ecole;
+import com.afci.trajet.entity.GeocodageOutbox;
 import com.afci.trajet.entity.Role;
 import com.afci.trajet.entity.Utilisateur;
 import com.afci.trajet.repository.EcoleRepository;
 import com.afci.trajet.repository.RoleRepository;
 import com.afci.trajet.repository.UtilisateurRepository;
+import com.afci.trajet.security.RoleAuthorityCache;
+import com.afci.trajet.service.geocodage.GeocodageOutboxService;
 
 /**
  * Service métier dédié à la gestion des ÉCOLES.
@@ -39,17 +42,23 @@ public class EcoleService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final GeocodingService geocodingService;
+    private final GeocodageOutboxService geocodageOutboxService;
+    private final RoleAuthorityCache roleAuthorityCache;
 
     public EcoleService(UtilisateurRepository utilisateurRepository,
                         EcoleRepository ecoleRepository,
                         RoleRepository roleRepository,
                         PasswordEncoder passwordEncoder,
-                        GeocodingService geocodingService) {
+                        GeocodingService geocodingService,
+                        GeocodageOutboxService geocodageOutboxService,
+                        RoleAuthorityCache roleAuthorityCache) {
         this.utilisateurRepository = utilisateurRepository;
         this.ecoleRepository = ecoleRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.geocodingService = geocodingService;
+        this.geocodageOutboxService = geocodageOutboxService;
+        this.roleAuthorityCache = roleAuthorityCache;
     }
 
     // ---------------------------------------------------------------------
@@ -96,6 +105,7 @@ public class EcoleService {
 
         // 4) Lier le rôle ECOLE dans la table utilisateur_role
         utilisateurRepository.assignRoleToUser(u.getIdUser(), roleEcole.getIdRole());
+        roleAuthorityCache.invaliderApresCommit(u.getIdUser());
 
         // 5) Créer l’entrée dans la table ECOLE
         Ecole e = new Ecole();
@@ -111,7 +121,11 @@ public class EcoleService {
         // FK vers le compte utilisateur référent
         e.setIdUser(u.getIdUser());
 
-        // 6) Géocodage via API Adresse (avec fallback interne dans le service)
+        // 6) Sauvegarde de l'école
+        ecoleRepository.save(e);
+
+        // 7) Géocodage : immédiat si l'adresse est en cache, sinon via la file
+        //    asynchrone (lat/lon patchés après le commit, sans bloquer la transaction)
         String adresseComplete = geocodingService.buildAdresseComplete(
                 request.getAdresseL1(),
                 request.getAdresseL2(),
@@ -120,15 +134,13 @@ public class EcoleService {
                 request.getPaysCode()
         );
 
-        geocodingService.geocodeAdresse(adresseComplete)
-                .ifPresent(coords -> {
+        geocodageOutboxService.geocoder(GeocodageOutbox.TYPE_ECOLE, e.getIdEcole(), adresseComplete,
+                coords -> {
                     e.setLat(coords.lat());
                     e.setLon(coords.lon());
+                    e.setPrecisionGeo(coords.precision().name());
                 });
 
-        // 7) Sauvegarde de l'école
-        ecoleRepository.save(e);
-
         // 8) Construire le DTO de réponse
         String nomCompletReferent = u.getPrenom() + " " + u.getNom();
 
@@ -152,7 +164,7 @@ public class EcoleService {
      * ⚠ Ici :
      *  - on met à jour les données de la table ECOLE
      *  - on met à jour les infos de l'utilisateur référent (email, prénom, nom, téléphone)
-     *  - on recalcule lat/lon à partir de la nouvelle adresse
+     *  - on recalcule lat/lon si l'adresse a changé (GeocodingService + cache)
      *  - ON NE TOUCHE PAS AU MOT DE PASSE (passwordHash reste inchangé)
      */
     @Transactional
@@ -162,6 +174,15 @@ public class EcoleService {
         Ecole ecole = ecoleRepository.findById(idEcole)
                 .orElseThrow(() -> new IllegalArgumentException("École introuvable pour id=" + idEcole));
 
+        // Adresse AVANT modification : si elle ne change pas, on ne re-géocode pas
+        String ancienneAdresse = geocodingService.buildAdresseComplete(
+                ecole.getAdresseL1(),
+                ecole.getAdresseL2(),
+                ecole.getCodePostal(),
+                ecole.getVille(),
+                ecole.getPaysCode()
+        );
+
         // 2) Mettre à jour les champs de l'école
         ecole.setNomEcole(request.getNomEcole());
         ecole.setAdresseL1(request.getAdresseL1());
@@ -192,7 +213,8 @@ public class EcoleService {
             }
         }
 
-        // 4) Re-géocodage systématique sur la nouvelle adresse
+        // 4) Re-géocodage (cache ou file asynchrone) uniquement si l'adresse a changé
+        //    ou si les coordonnées sont absentes
         String adresseComplete = geocodingService.buildAdresseComplete(
                 request.getAdresseL1(),
                 request.getAdresseL2(),
@@ -201,11 +223,15 @@ public class EcoleService {
                 request.getPaysCode()
         );
 
-        geocodingService.geocodeAdresse(adresseComplete)
-                .ifPresent(coords -> {
-                    ecole.setLat(coords.lat());
-                    ecole.setLon(coords.lon());
-                });
+        boolean adresseModifiee = !adresseComplete.equals(ancienneAdresse);
+        if (adresseModifiee || ecole.getLat() == null || ecole.getLon() == null) {
+            geocodageOutboxService.geocoder(GeocodageOutbox.TYPE_ECOLE, ecole.getIdEcole(), adresseComplete,
+                    coords -> {
+                        ecole.setLat(coords.lat());
+                        ecole.setLon(coords.lon());
+                        ecole.setPrecisionGeo(coords.precision().name());
+                    });
+        }
 
         // 5) Sauvegarder l'école
         ecoleRepository.save(ecole);
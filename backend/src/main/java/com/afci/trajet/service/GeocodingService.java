@@ -1,32 +1,70 @@
 package com.afci.trajet.service;
 
 import java.math.BigDecimal;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import com.afci.trajet.service.geocodage.AdresseCsvBatchClient;
+import com.afci.trajet.service.geocodage.ApiAdresseGeocodingProvider;
+import com.afci.trajet.service.geocodage.GazetteerGeocodingProvider;
+import com.afci.trajet.service.geocodage.GeocodageCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Orchestration du géocodage :
+ *
+ *   cache (mémoire + geocode_cache) -> API Adresse -> gazetteer hors ligne
+ *
+ * Le gazetteer (centroïdes code postal / commune) est branché selon
+ * geocodage.gazetteer.mode :
+ *  - FALLBACK  : seulement si l'API ne trouve rien ou est indisponible ;
+ *  - FAST_PATH : en premier, l'API n'est appelée que s'il ne trouve rien ;
+ *  - DISABLED  : jamais.
+ *
+ * Ses réponses (précision COMMUNE / CODE_POSTAL) ne sont PAS mises en cache,
+ * et la précision est stockée avec les coordonnées (precision_geo) : une
+ * adresse approximée est de nouveau proposée à l'API par le rattrapage
+ * (GeocodageBatchService).
+ */
 @Service
 public class GeocodingService {
 
     private static final Logger log = LoggerFactory.getLogger(GeocodingService.class);
 
-    // URL de l’API Adresse
-    private static final String API_URL = "https://api-adresse.data.gouv.fr/search/";
-
-    private final RestTemplate restTemplate;
+    private final ApiAdresseGeocodingProvider apiAdresse;
+    private final GazetteerGeocodingProvider gazetteer;
+    private final GeocodageCache geocodageCache;
+    private final AdresseCsvBatchClient csvBatchClient;
+    private final int tailleLotBatch;
+    private final Timer latenceApiBatch;
 
-    public GeocodingService(RestTemplateBuilder builder) {
-        this.restTemplate = builder.build();
+    public GeocodingService(ApiAdresseGeocodingProvider apiAdresse,
+                            GazetteerGeocodingProvider gazetteer,
+                            GeocodageCache geocodageCache,
+                            AdresseCsvBatchClient csvBatchClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${geocodage.batch.taille-lot:500}") int tailleLotBatch) {
+        this.apiAdresse = apiAdresse;
+        this.gazetteer = gazetteer;
+        this.geocodageCache = geocodageCache;
+        this.csvBatchClient = csvBatchClient;
+        this.tailleLotBatch = tailleLotBatch;
+        this.latenceApiBatch = Timer.builder("geocodage.api.batch.latence")
+                .description("Durée des appels CSV en masse à l'API Adresse (un lot)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     /**
@@ -72,80 +110,234 @@ public class GeocodingService {
     }
 
     /**
-     * Appelle l’API Adresse pour récupérer lat / lon à partir d'une adresse texte.
+     * Récupère lat / lon à partir d'une adresse texte.
+     *
+     * L'API Adresse n'est appelée que si l'adresse (normalisée) n'est ni dans
+     * le cache mémoire ni dans la table geocode_cache : une adresse déjà vue,
+     * ou inchangée, ne sort pas de la JVM.
+     *
+     * API indisponible ou adresse introuvable : centroïde de la commune
+     * (gazetteer), sauf si geocodage.gazetteer.mode = DISABLED. Le résultat
+     * porte alors une précision COMMUNE / CODE_POSTAL (Coords.estApproximative).
      *
-     * Retourne Optional.empty() si aucune coordonnée trouvée ou en cas d’erreur.
+     * Retourne Optional.empty() si aucune coordonnée trouvée.
      */
-    @SuppressWarnings("unchecked")
     public Optional<Coords> geocodeAdresse(String adresseComplete) {
+        String cle = GeocodageCache.normaliser(adresseComplete);
+        if (cle.isEmpty()) {
+            return Optional.empty();
+        }
         try {
-            // ⚠️ IMPORTANT : on laisse Spring gérer l’encodage
-            // -> PAS de build(true), on fait build() puis encode()
-            URI uri = UriComponentsBuilder
-                    .fromHttpUrl(API_URL)
-                    .queryParam("q", adresseComplete)
-                    .queryParam("limit", 1)
-                    .build()
-                    .encode(StandardCharsets.UTF_8)
-                    .toUri();
-
-            log.info("Appel API Adresse : {}", uri);
-
-            ResponseEntity<Map> response = restTemplate.getForEntity(uri, Map.class);
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                log.warn("Réponse non valide de l'API Adresse pour '{}': status={}",
-                        adresseComplete, response.getStatusCode());
-                return Optional.empty();
-            }
+            boolean gazetteerDabord = gazetteer.mode() == GazetteerGeocodingProvider.Mode.FAST_PATH;
+            Optional<Coords> coords = geocoderViaCacheOuApi(cle, adresseComplete, gazetteerDabord);
+            return coords.isPresent() ? coords : approximer(adresseComplete);
+        } catch (Exception ex) {
+            // Timeout, 5xx, bulkhead plein, disjoncteur ouvert : pas de pile, c'est attendu
+            log.warn("API Adresse indisponible pour '{}' : {}", adresseComplete, ex.getMessage());
+            return approximer(adresseComplete);
+        }
+    }
 
-            Map<String, Object> body = response.getBody();
-            Object featuresObj = body.get("features");
+    /**
+     * Résultat de l'API Adresse (ou du cache) uniquement : jamais de centroïde
+     * du gazetteer, et une erreur technique (réseau, timeout, 5xx) remonte en
+     * exception au lieu d'être confondue avec "adresse introuvable".
+     *
+     * Utilisé par la file de géocodage asynchrone : un centroïde provisoire
+     * n'y est remplacé que par une vraie réponse de l'API.
+     */
+    public Optional<Coords> geocodeAdresseStrict(String adresseComplete) {
+        String cle = GeocodageCache.normaliser(adresseComplete);
+        if (cle.isEmpty()) {
+            return Optional.empty();
+        }
+        return geocoderViaCacheOuApi(cle, adresseComplete, false);
+    }
 
-            if (!(featuresObj instanceof List<?> features) || features.isEmpty()) {
-                log.warn("Aucune feature retournée pour '{}'", adresseComplete);
-                return Optional.empty();
+    /**
+     * Géocodage EN MASSE (import d'une région, rattrapage des coordonnées manquantes).
+     *
+     * Les adresses déjà en cache ne partent pas ; les autres (dédoublonnées)
+     * sont envoyées par lots de geocodage.batch.taille-lot à l'endpoint CSV
+     * de l'API Adresse, puis mises en cache.
+     *
+     * Un lot en erreur technique est journalisé (sans mise en cache) : les
+     * autres lots continuent. Adresses restées sans coordonnées : gazetteer,
+     * avec une précision COMMUNE / CODE_POSTAL que l'appelant doit conserver.
+     *
+     * @return une entrée par adresse, dans le même ordre
+     */
+    public List<Optional<Coords>> geocodeBatch(List<String> adresses) {
+        List<Optional<Coords>> resultats = new ArrayList<>(Collections.nCopies(adresses.size(), Optional.empty()));
+
+        // clé normalisée -> positions dans la liste d'entrée
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        Map<String, String> adresseParCle = new HashMap<>();
+        for (int i = 0; i < adresses.size(); i++) {
+            String cle = GeocodageCache.normaliser(adresses.get(i));
+            if (cle.isEmpty()) {
+                continue;
             }
+            positions.computeIfAbsent(cle, k -> new ArrayList<>()).add(i);
+            adresseParCle.putIfAbsent(cle, adresses.get(i));
+        }
 
-            Object firstFeature = features.get(0);
-            if (!(firstFeature instanceof Map<?, ?> featureMapRaw)) {
-                log.warn("Format inattendu de feature pour '{}'", adresseComplete);
-                return Optional.empty();
+        // 1) Cache
+        List<String> aInterroger = new ArrayList<>();
+        for (String cle : positions.keySet()) {
+            GeocodageCache.Resultat enCache = geocodageCache.lire(cle);
+            if (enCache == null) {
+                aInterroger.add(cle);
+            } else {
+                Optional<Coords> coords = Optional.ofNullable(enCache.coords());
+                positions.get(cle).forEach(i -> resultats.set(i, coords));
             }
+        }
 
-            Map<String, Object> featureMap = (Map<String, Object>) featureMapRaw;
-            Object geometryObj = featureMap.get("geometry");
+        // 2) API CSV, lot par lot
+        for (int debut = 0; debut < aInterroger.size(); debut += tailleLotBatch) {
+            List<String> cles = aInterroger.subList(debut, Math.min(debut + tailleLotBatch, aInterroger.size()));
+            List<String> lot = cles.stream().map(adresseParCle::get).toList();
 
-            if (!(geometryObj instanceof Map<?, ?> geometryRaw)) {
-                log.warn("Geometry absente ou invalide pour '{}'", adresseComplete);
-                return Optional.empty();
+            List<Optional<Coords>> reponses;
+            try {
+                reponses = latenceApiBatch.recordCallable(() -> csvBatchClient.geocoder(lot));
+            } catch (Exception ex) {
+                log.error("Erreur lors du géocodage CSV d'un lot de {} adresses", lot.size(), ex);
+                continue;
             }
 
-            Map<String, Object> geometry = (Map<String, Object>) geometryRaw;
-            Object coordsObj = geometry.get("coordinates");
+            Map<String, GeocodageCache.Resultat> aMettreEnCache = new LinkedHashMap<>();
+            for (int j = 0; j < cles.size(); j++) {
+                Optional<Coords> coords = reponses.get(j);
+                positions.get(cles.get(j)).forEach(i -> resultats.set(i, coords));
+                aMettreEnCache.put(cles.get(j), new GeocodageCache.Resultat(coords.orElse(null)));
+            }
 
-            if (!(coordsObj instanceof List<?> coords) || coords.size() < 2) {
-                log.warn("Coordonnées absentes ou incomplètes pour '{}'", adresseComplete);
-                return Optional.empty();
+            try {
+                geocodageCache.enregistrerTous(aMettreEnCache, adresseParCle);
+            } catch (Exception ex) {
+                log.warn("Écriture du cache de géocodage impossible pour un lot de {} adresses", lot.size(), ex);
             }
+        }
 
-            // Format API Adresse : [lon, lat]
-            BigDecimal lon = new BigDecimal(coords.get(0).toString());
-            BigDecimal lat = new BigDecimal(coords.get(1).toString());
+        // 3) Gazetteer pour ce qui reste
+        for (Map.Entry<String, List<Integer>> e : positions.entrySet()) {
+            List<Integer> idx = e.getValue();
+            if (resultats.get(idx.get(0)).isEmpty()) {
+                Optional<Coords> approx = approximer(adresseParCle.get(e.getKey()));
+                if (approx.isPresent()) {
+                    idx.forEach(i -> resultats.set(i, approx));
+                }
+            }
+        }
 
-            log.info("Coordonnées trouvées pour '{}': lat={}, lon={}", adresseComplete, lat, lon);
+        return resultats;
+    }
 
-            return Optional.of(new Coords(lat, lon));
+    /**
+     * Résultat déjà connu pour cette adresse (cache mémoire ou base),
+     * SANS jamais appeler l'API.
+     *
+     * @return le résultat en cache, ou null si l'adresse n'a jamais été géocodée
+     */
+    public GeocodageCache.Resultat rechercherEnCache(String adresseComplete) {
+        String cle = GeocodageCache.normaliser(adresseComplete);
+        if (cle.isEmpty()) {
+            return new GeocodageCache.Resultat(null);
+        }
+        return geocodageCache.lire(cle);
+    }
 
-        } catch (Exception ex) {
-            log.error("Erreur lors de l'appel à l'API Adresse pour '{}'", adresseComplete, ex);
+    /**
+     * Centroïde de la commune / du code postal (gazetteer hors ligne).
+     * Optional.empty() si le gazetteer est désactivé ou ne connaît pas la commune.
+     */
+    public Optional<Coords> approximer(String adresseComplete) {
+        if (!gazetteer.estDisponible()) {
+            return Optional.empty();
+        }
+        return gazetteer.geocoder(adresseComplete);
+    }
+
+    /**
+     * Centroïde à partir des champs séparés (école sans coordonnées...).
+     */
+    public Optional<Coords> approximer(String codePostal, String ville) {
+        if (!gazetteer.estDisponible()) {
             return Optional.empty();
         }
+        return gazetteer.rechercher(codePostal, ville);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    /**
+     * Cache, puis (option) gazetteer en premier, puis API Adresse avec mise en
+     * cache. Une adresse introuvable pour l'API donne Optional.empty().
+     */
+    private Optional<Coords> geocoderViaCacheOuApi(String cle, String adresseComplete, boolean gazetteerDabord) {
+        GeocodageCache.Resultat enCache = geocodageCache.lire(cle);
+        if (enCache != null) {
+            return Optional.ofNullable(enCache.coords());
+        }
+
+        if (gazetteerDabord) {
+            Optional<Coords> rapide = gazetteer.geocoder(adresseComplete);
+            if (rapide.isPresent()) {
+                return rapide;
+            }
+        }
+
+        // Erreur technique : exception, donc PAS de mise en cache
+        Optional<Coords> coords = apiAdresse.geocoder(adresseComplete);
+
+        try {
+            geocodageCache.enregistrer(cle, adresseComplete, new GeocodageCache.Resultat(coords.orElse(null)));
+        } catch (Exception ex) {
+            log.warn("Écriture du cache de géocodage impossible pour '{}'", adresseComplete, ex);
+        }
+        return coords;
     }
 
     /**
-     * Petit record pour encapsuler proprement lat / lon.
+     * Précision d'une coordonnée, de la plus fine à la plus grossière.
      */
-    public record Coords(BigDecimal lat, BigDecimal lon) {
+    public enum Precision {
+        /** Numéro dans la rue (API Adresse, type housenumber). */
+        ADRESSE,
+        /** Rue ou lieu-dit (type street / locality). */
+        RUE,
+        /** Centroïde de la commune (type municipality, ou gazetteer). */
+        COMMUNE,
+        /** Centroïde du code postal (gazetteer, commune non reconnue). */
+        CODE_POSTAL;
+
+        public static Precision depuisTypeApi(String type) {
+            if (type == null) {
+                return ADRESSE;
+            }
+            return switch (type) {
+                case "street", "locality" -> RUE;
+                case "municipality" -> COMMUNE;
+                default -> ADRESSE;
+            };
+        }
+    }
+
+    /**
+     * Petit record pour encapsuler proprement lat / lon (+ précision).
+     */
+    public record Coords(BigDecimal lat, BigDecimal lon, Precision precision) {
+
+        public Coords(BigDecimal lat, BigDecimal lon) {
+            this(lat, lon, Precision.ADRESSE);
+        }
+
+        public boolean estApproximative() {
+            return precision == Precision.COMMUNE || precision == Precision.CODE_POSTAL;
+        }
     }
 }
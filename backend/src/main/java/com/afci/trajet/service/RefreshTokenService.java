@@ -0,0 +1,267 @@
+package com.afci.trajet.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.afci.trajet.entity.RefreshToken;
+import com.afci.trajet.repository.RefreshTokenRepository;
+import com.afci.trajet.repository.UtilisateurRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Refresh tokens (cookie HttpOnly) : émission, rotation, révocation, purge.
+ *
+ *  - le navigateur reçoit un token aléatoire (256 bits) ; la base n'en garde
+ *    que l'empreinte SHA-256, recherchée via l'index unique de refresh_token ;
+ *  - chaque /api/auth/refresh consomme le token et en émet un nouveau dans
+ *    la même famille (rotation) ;
+ *  - un token déjà consommé qui revient (hors courte tolérance pour les
+ *    onglets concurrents) = réutilisation : toute la famille est révoquée ;
+ *  - une famille = une connexion sur un appareil (user agent / IP mémorisés) ;
+ *    une nouvelle connexion depuis le même user agent révoque la précédente ;
+ *  - purge planifiée des tokens expirés, par lots.
+ *
+ * Métriques Micrometer :
+ *  - securite.refresh{resultat=emis|tourne|refuse|reutilise}
+ *  - securite.refresh.purges (lignes supprimées)
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom ALEA = new SecureRandom();
+
+    /** Token remis au navigateur. */
+    public record Emission(String token, OffsetDateTime expireA) {
+    }
+
+    /** Rotation réussie : à qui appartient le token, et son remplaçant. */
+    public record Rotation(Integer idUser, int securityVersion, Emission emission) {
+    }
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UtilisateurRepository utilisateurRepository;
+    private final Duration duree;
+    private final Duration graceReutilisation;
+    private final int tailleLotPurge;
+
+    private final Counter emis;
+    private final Counter tournes;
+    private final Counter refuses;
+    private final Counter reutilises;
+    private final Counter purges;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UtilisateurRepository utilisateurRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${security.refresh.duree:P14D}") Duration duree,
+                               @Value("${security.refresh.grace-reutilisation:PT10S}") Duration graceReutilisation,
+                               @Value("${security.refresh.purge-taille-lot:1000}") int tailleLotPurge) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.utilisateurRepository = utilisateurRepository;
+        this.duree = duree;
+        this.graceReutilisation = graceReutilisation;
+        this.tailleLotPurge = tailleLotPurge;
+
+        this.emis = compteur(meterRegistry, "emis");
+        this.tournes = compteur(meterRegistry, "tourne");
+        this.refuses = compteur(meterRegistry, "refuse");
+        this.reutilises = compteur(meterRegistry, "reutilise");
+        this.purges = Counter.builder("securite.refresh.purges").register(meterRegistry);
+    }
+
+    public Duration duree() {
+        return duree;
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Émission (login)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Nouvelle famille pour cet appareil ; l'éventuelle session précédente
+     * du même user agent est révoquée.
+     */
+    @Transactional
+    public Emission emettre(Integer idUser, int securityVersion, String userAgent, String ipAddress) {
+        OffsetDateTime maintenant = OffsetDateTime.now();
+        String ua = tronquer(userAgent, 255);
+        if (ua != null) {
+            refreshTokenRepository.revoquerAppareil(idUser, ua, maintenant);
+        }
+        Emission emission = enregistrer(UUID.randomUUID(), idUser, securityVersion, UUID.randomUUID(),
+                ua, ipAddress, maintenant);
+        emis.increment();
+        return emission;
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Rotation (/api/auth/refresh)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Consomme le token et en émet un nouveau dans la même famille.
+     *
+     * @return Optional.empty() si le token est inconnu, expiré, révoqué ou réutilisé
+     */
+    @Transactional
+    public Optional<Rotation> tourner(String tokenBrut, String userAgent, String ipAddress) {
+        if (tokenBrut == null || tokenBrut.isBlank()) {
+            refuses.increment();
+            return Optional.empty();
+        }
+        OffsetDateTime maintenant = OffsetDateTime.now();
+
+        RefreshToken actuel = refreshTokenRepository.findByTokenPourRotation(empreinte(tokenBrut)).orElse(null);
+        if (actuel == null || actuel.getExpiresAt().isBefore(maintenant)) {
+            refuses.increment();
+            return Optional.empty();
+        }
+
+        if (actuel.isRevoked()) {
+            boolean consomme = actuel.getRemplacePar() != null;
+            boolean horsTolerance = actuel.getRevokedAt() == null
+                    || actuel.getRevokedAt().plus(graceReutilisation).isBefore(maintenant);
+            if (consomme && horsTolerance) {
+                // Token déjà tourné présenté une 2e fois : vol probable
+                int revoques = refreshTokenRepository.revoquerFamille(actuel.getIdFamille(), maintenant);
+                reutilises.increment();
+                log.warn("Réutilisation d'un refresh token (user={}, famille={}) : {} token(s) révoqué(s)",
+                        actuel.getIdUser(), actuel.getIdFamille(), revoques);
+            } else {
+                refuses.increment();
+            }
+            return Optional.empty();
+        }
+
+        // Compte désactivé ou mot de passe changé depuis l'émission
+        Optional<Integer> version = utilisateurRepository.findSecurityVersionActif(actuel.getIdUser());
+        if (version.isEmpty() || version.get() != actuel.getSecurityVersion()) {
+            refreshTokenRepository.revoquerFamille(actuel.getIdFamille(), maintenant);
+            refuses.increment();
+            return Optional.empty();
+        }
+
+        UUID idSuivant = UUID.randomUUID();
+        Emission suivant = enregistrer(idSuivant, actuel.getIdUser(), version.get(), actuel.getIdFamille(),
+                tronquer(userAgent, 255), ipAddress, maintenant);
+
+        actuel.setRevoked(true);
+        actuel.setRevokedAt(maintenant);
+        actuel.setUpdatedAt(maintenant);
+        actuel.setRemplacePar(idSuivant);
+        refreshTokenRepository.save(actuel);
+
+        tournes.increment();
+        return Optional.of(new Rotation(actuel.getIdUser(), version.get(), suivant));
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ Révocation (logout)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Déconnexion de l'appareil : révoque toute la famille du token.
+     */
+    @Transactional
+    public void revoquer(String tokenBrut) {
+        if (tokenBrut == null || tokenBrut.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByToken(empreinte(tokenBrut))
+                .ifPresent(rt -> refreshTokenRepository.revoquerFamille(rt.getIdFamille(), OffsetDateTime.now()));
+    }
+
+    // ---------------------------------------------------------------------
+    // 4️⃣ Purge planifiée
+    // ---------------------------------------------------------------------
+
+    /**
+     * Supprime les tokens expirés par lots (une transaction par lot).
+     * Les tokens révoqués non expirés sont gardés : ils servent à détecter
+     * une réutilisation.
+     */
+    @Scheduled(fixedDelayString = "${security.refresh.purge-intervalle:PT1H}",
+               initialDelayString = "${security.refresh.purge-intervalle:PT1H}")
+    public void purger() {
+        OffsetDateTime limite = OffsetDateTime.now();
+        int total = 0;
+        int supprimes;
+        do {
+            supprimes = refreshTokenRepository.supprimerExpires(limite, tailleLotPurge);
+            total += supprimes;
+        } while (supprimes == tailleLotPurge);
+
+        if (total > 0) {
+            purges.increment(total);
+            log.info("Purge des refresh tokens expirés : {} ligne(s) supprimée(s)", total);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private Emission enregistrer(UUID idToken, Integer idUser, int securityVersion, UUID idFamille,
+                                 String userAgent, String ipAddress, OffsetDateTime maintenant) {
+        byte[] alea = new byte[32];
+        ALEA.nextBytes(alea);
+        String brut = Base64.getUrlEncoder().withoutPadding().encodeToString(alea);
+
+        RefreshToken rt = new RefreshToken();
+        rt.setIdToken(idToken);
+        rt.setIdUser(idUser);
+        rt.setToken(empreinte(brut));
+        rt.setIdFamille(idFamille);
+        rt.setSecurityVersion(securityVersion);
+        rt.setIssuedAt(maintenant);
+        rt.setExpiresAt(maintenant.plus(duree));
+        rt.setUserAgent(userAgent);
+        rt.setIpAddress(tronquer(ipAddress, 45));
+        rt.setCreatedAt(maintenant);
+        rt.setUpdatedAt(maintenant);
+        refreshTokenRepository.save(rt);
+
+        return new Emission(brut, rt.getExpiresAt());
+    }
+
+    static String empreinte(String tokenBrut) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(tokenBrut.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 indisponible.", ex);
+        }
+    }
+
+    private static String tronquer(String valeur, int max) {
+        if (valeur == null || valeur.isBlank()) {
+            return null;
+        }
+        return (valeur.length() <= max) ? valeur : valeur.substring(0, max);
+    }
+
+    private static Counter compteur(MeterRegistry registry, String resultat) {
+        return Counter.builder("securite.refresh")
+                .tag("resultat", resultat)
+                .register(registry);
+    }
+}
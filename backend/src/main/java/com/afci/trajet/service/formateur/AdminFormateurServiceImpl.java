@@ -19,6 +19,7 @@ import com.afci.trajet.dto.formateur.admin.AdminFormateurDetailResponse;
 import com.afci.trajet.dto.formateur.admin.AdminFormateurListItemResponse;
 import com.afci.trajet.dto.formateur.admin.AdminFormateurUpdateRequest;
 import com.afci.trajet.entity.Formateur;
+import com.afci.trajet.entity.GeocodageOutbox;
 import com.afci.trajet.entity.Role;
 import com.afci.trajet.entity.Utilisateur;
 import com.afci.trajet.entity.UtilisateurRole;
@@ -27,7 +28,13 @@ import com.afci.trajet.repository.FormateurRepository;
 import com.afci.trajet.repository.RoleRepository;
 import com.afci.trajet.repository.UtilisateurRepository;
 import com.afci.trajet.repository.UtilisateurRoleRepository;
+import com.afci.trajet.security.RoleAuthorityCache;
+import com.afci.trajet.security.jwt.SecurityVersionRegistry;
 import com.afci.trajet.service.GeocodingService;
+import com.afci.trajet.service.geocodage.GeocodageOutboxService;
+import com.afci.trajet.service.formateur.disponibilite.Disponibilite;
+import com.afci.trajet.service.formateur.disponibilite.DisponibiliteIndex;
+import com.afci.trajet.service.geo.FormateurSpatialIndex;
 
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -51,19 +58,34 @@ public class AdminFormateurServiceImpl implements AdminFormateurService {
     private final FormateurRepository formateurRepository;
     private final GeocodingService geocodingService;
     private final PasswordEncoder passwordEncoder;
+    private final FormateurSpatialIndex formateurSpatialIndex;
+    private final DisponibiliteIndex disponibiliteIndex;
+    private final GeocodageOutboxService geocodageOutboxService;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final RoleAuthorityCache roleAuthorityCache;
 
     public AdminFormateurServiceImpl(UtilisateurRepository utilisateurRepository,
                                      RoleRepository roleRepository,
                                      UtilisateurRoleRepository utilisateurRoleRepository,
                                      FormateurRepository formateurRepository,
                                      GeocodingService geocodingService,
-                                     PasswordEncoder passwordEncoder) {
+                                     PasswordEncoder passwordEncoder,
+                                     FormateurSpatialIndex formateurSpatialIndex,
+                                     DisponibiliteIndex disponibiliteIndex,
+                                     GeocodageOutboxService geocodageOutboxService,
+                                     SecurityVersionRegistry securityVersionRegistry,
+                                     RoleAuthorityCache roleAuthorityCache) {
         this.utilisateurRepository = utilisateurRepository;
         this.roleRepository = roleRepository;
         this.utilisateurRoleRepository = utilisateurRoleRepository;
         this.formateurRepository = formateurRepository;
         this.geocodingService = geocodingService;
         this.passwordEncoder = passwordEncoder;
+        this.formateurSpatialIndex = formateurSpatialIndex;
+        this.disponibiliteIndex = disponibiliteIndex;
+        this.geocodageOutboxService = geocodageOutboxService;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.roleAuthorityCache = roleAuthorityCache;
     }
 
     // =========================================================
@@ -197,6 +219,7 @@ public class AdminFormateurServiceImpl implements AdminFormateurService {
         ur.setId(urId);
         ur.setCreatedAt(now.toInstant());
         utilisateurRoleRepository.save(ur);
+        roleAuthorityCache.invaliderApresCommit(user.getIdUser());
 
         // -----------------------------
         // 4) FORMATEUR
@@ -212,12 +235,14 @@ public class AdminFormateurServiceImpl implements AdminFormateurService {
         );
         formateur.setCommentaire(request.getCommentaire());
         formateur.setMobilitePrefJson(request.getMobilitePrefJson());
+        Disponibilite.lire(request.getDisponibiliteJson()); // format validé avant écriture
         formateur.setDisponibiliteJson(request.getDisponibiliteJson());
         formateur.setCreatedAt(now);
         formateur.setUpdatedAt(now);
 
         // -----------------------------
         // 5) GÉOCODAGE (lat / lon sur UTILISATEUR)
+        //    cache => immédiat ; sinon file asynchrone, patch après commit
         // -----------------------------
         String adresseComplete = geocodingService.buildAdresseComplete(
                 user.getAdresseL1(),
@@ -227,15 +252,20 @@ public class AdminFormateurServiceImpl implements AdminFormateurService {
                 user.getPaysCode()
         );
 
-        geocodingService.geocodeAdresse(adresseComplete)
-                .ifPresent(coords -> {
+        geocodageOutboxService.geocoder(GeocodageOutbox.TYPE_UTILISATEUR, user.getIdUser(), adresseComplete,
+                coords -> {
                     user.setLat(coords.lat());
                     user.setLon(coords.lon());
+                    user.setPrecisionGeo(coords.precision().name());
                 });
 
         utilisateurRepository.save(user);
         formateurRepository.save(formateur);
 
+        // Index spatial et index des disponibilités : mis à jour une fois la transaction validée
+        formateurSpatialIndex.indexerApresCommit(formateur, user);
+        disponibiliteIndex.indexerApresCommit(formateur);
+
         return toDetailDto(user, formateur);
     }
 
@@ -316,6 +346,7 @@ public class AdminFormateurServiceImpl implements AdminFormateurService {
             formateur.setMobilitePrefJson(request.getMobilitePrefJson());
         }
         if (request.getDisponibiliteJson() != null) {
+            Disponibilite.lire(request.getDisponibiliteJson()); // format validé avant écriture
             formateur.setDisponibiliteJson(request.getDisponibiliteJson());
         }
 
@@ -332,16 +363,21 @@ public class AdminFormateurServiceImpl implements AdminFormateurService {
         );
 
         if (!newAdresse.equals(oldAdresse)) {
-            geocodingService.geocodeAdresse(newAdresse)
-                    .ifPresent(coords -> {
+            geocodageOutboxService.geocoder(GeocodageOutbox.TYPE_UTILISATEUR, user.getIdUser(), newAdresse,
+                    coords -> {
                         user.setLat(coords.lat());
                         user.setLon(coords.lon());
+                        user.setPrecisionGeo(coords.precision().name());
                     });
         }
 
         utilisateurRepository.save(user);
         formateurRepository.save(formateur);
 
+        // Index spatial et index des disponibilités : mis à jour une fois la transaction validée
+        formateurSpatialIndex.indexerApresCommit(formateur, user);
+        disponibiliteIndex.indexerApresCommit(formateur);
+
         return toDetailDto(user, formateur);
     }
 
@@ -364,8 +400,15 @@ public class AdminFormateurServiceImpl implements AdminFormateurService {
         user.setActif(false);
         user.setDeletedAt(now);
         user.setUpdatedAt(now);
+        // Compte désactivé : ses JWT en cours sont refusés immédiatement
+        securityVersionRegistry.revoquer(user);
+        roleAuthorityCache.invaliderApresCommit(user.getIdUser());
 
         utilisateurRepository.save(user);
+
+        // Un formateur désactivé ne doit plus apparaître dans les candidats
+        formateurSpatialIndex.retirerApresCommit(formateur.getIdFormateur());
+        disponibiliteIndex.retirerApresCommit(formateur.getIdFormateur());
     }
 
     // =========================================================
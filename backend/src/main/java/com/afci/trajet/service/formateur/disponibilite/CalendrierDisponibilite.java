@@ -0,0 +1,61 @@
+package com.afci.trajet.service.formateur.disponibilite;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Disponibilite "compilée" sur un horizon : un bit par jour, à 1 si le
+ * formateur est indisponible ce jour-là.
+ *
+ * Test d'une période [debut, fin] dans l'horizon : un seul nextSetBit,
+ * soit au plus (fin - debut) / 64 mots lus ; jamais de JSON relu.
+ * Hors horizon (ou à cheval), repli jour par jour sur la Disponibilite.
+ */
+final class CalendrierDisponibilite {
+
+    private final long origine;
+    private final int taille;
+    private final BitSet indisponible;
+    private final Disponibilite disponibilite;
+
+    private CalendrierDisponibilite(long origine, int taille, BitSet indisponible, Disponibilite disponibilite) {
+        this.origine = origine;
+        this.taille = taille;
+        this.indisponible = indisponible;
+        this.disponibilite = disponibilite;
+    }
+
+    /**
+     * @param debut premier jour de l'horizon
+     * @param jours longueur de l'horizon
+     */
+    static CalendrierDisponibilite compiler(Disponibilite disponibilite, LocalDate debut, int jours) {
+        BitSet bits = new BitSet(jours);
+        LocalDate jour = debut;
+        for (int i = 0; i < jours; i++) {
+            if (!disponibilite.estDisponible(jour)) {
+                bits.set(i);
+            }
+            jour = jour.plusDays(1);
+        }
+        return new CalendrierDisponibilite(debut.toEpochDay(), jours, bits, disponibilite);
+    }
+
+    /**
+     * Disponible CHAQUE jour de [debut, fin] (bornes incluses) ?
+     */
+    boolean estDisponible(LocalDate debut, LocalDate fin) {
+        long d = debut.toEpochDay() - origine;
+        long f = fin.toEpochDay() - origine;
+        if (d >= 0 && f < taille) {
+            int premier = indisponible.nextSetBit((int) d);
+            return premier < 0 || premier > f;
+        }
+        for (LocalDate jour = debut; !jour.isAfter(fin); jour = jour.plusDays(1)) {
+            if (!disponibilite.estDisponible(jour)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
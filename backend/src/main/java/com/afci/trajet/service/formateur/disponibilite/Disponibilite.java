@@ -0,0 +1,217 @@
+package com.afci.trajet.service.formateur.disponibilite;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Disponibilités déclarées d'un formateur (Formateur.disponibiliteJson), lues.
+ *
+ * Format :
+ * <pre>
+ * {
+ *   "lundi": ["matin", "apres_midi"],
+ *   "mercredi": ["matin"],
+ *   "vendredi": ["journee"],
+ *   "exceptions": [
+ *     { "du": "2026-07-01", "au": "2026-07-31", "disponible": false },
+ *     { "du": "2026-03-03", "disponible": true }
+ *   ]
+ * }
+ * </pre>
+ *
+ * Règles, à la journée (granularité des OM) :
+ *  - motif hebdomadaire : un jour cité avec au moins un créneau est disponible,
+ *    un jour absent ou sans créneau ne l'est pas ; sans aucun jour cité,
+ *    tous les jours le sont ;
+ *  - un motif qui ne cite ni samedi ni dimanche ne bloque pas le week-end
+ *    (un OM du lundi au lundi suivant reste possible) ;
+ *  - exceptions : "disponible": false (par défaut) rend indisponible, true rend
+ *    disponible un jour hors motif ; une indisponibilité l'emporte toujours.
+ *
+ * JSON absent ou vide : toujours disponible (TOUJOURS).
+ */
+public final class Disponibilite {
+
+    public static final Disponibilite TOUJOURS = new Disponibilite(0x7F, List.of(), List.of());
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final Map<String, DayOfWeek> JOURS = Map.of(
+            "lundi", DayOfWeek.MONDAY,
+            "mardi", DayOfWeek.TUESDAY,
+            "mercredi", DayOfWeek.WEDNESDAY,
+            "jeudi", DayOfWeek.THURSDAY,
+            "vendredi", DayOfWeek.FRIDAY,
+            "samedi", DayOfWeek.SATURDAY,
+            "dimanche", DayOfWeek.SUNDAY);
+
+    private static final Set<String> CRENEAUX = Set.of("matin", "apres_midi", "journee");
+
+    private static final int WEEK_END = bit(DayOfWeek.SATURDAY) | bit(DayOfWeek.SUNDAY);
+
+    /**
+     * Période d'exception, bornes incluses.
+     */
+    public record Periode(LocalDate du, LocalDate au) {
+
+        boolean contient(LocalDate jour) {
+            return !jour.isBefore(du) && !jour.isAfter(au);
+        }
+    }
+
+    /** bit (DayOfWeek.getValue() - 1) à 1 = jour disponible dans le motif. */
+    private final int joursSemaine;
+    private final List<Periode> indisponibles;
+    private final List<Periode> disponibles;
+
+    private Disponibilite(int joursSemaine, List<Periode> indisponibles, List<Periode> disponibles) {
+        this.joursSemaine = joursSemaine;
+        this.indisponibles = indisponibles;
+        this.disponibles = disponibles;
+    }
+
+    /**
+     * @throws IllegalArgumentException si le JSON ne respecte pas le format
+     */
+    public static Disponibilite lire(String json) {
+        if (json == null || json.isBlank()) {
+            return TOUJOURS;
+        }
+        JsonNode racine;
+        try {
+            racine = JSON.readTree(json);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Disponibilités : JSON invalide.");
+        }
+        if (racine == null || racine.isNull()) {
+            return TOUJOURS;
+        }
+        if (!racine.isObject()) {
+            throw new IllegalArgumentException("Disponibilités : un objet JSON est attendu.");
+        }
+
+        int joursCites = 0;
+        int joursDisponibles = 0;
+        List<Periode> indisponibles = new ArrayList<>();
+        List<Periode> disponibles = new ArrayList<>();
+
+        for (Map.Entry<String, JsonNode> champ : racine.properties()) {
+            String cle = champ.getKey().toLowerCase(Locale.ROOT);
+
+            if ("exceptions".equals(cle)) {
+                lireExceptions(champ.getValue(), indisponibles, disponibles);
+                continue;
+            }
+            DayOfWeek jour = JOURS.get(cle);
+            if (jour == null) {
+                throw new IllegalArgumentException("Disponibilités : clé inconnue '" + champ.getKey()
+                        + "' (attendu : lundi ... dimanche, exceptions).");
+            }
+            if (!champ.getValue().isArray()) {
+                throw new IllegalArgumentException("Disponibilités : liste de créneaux attendue pour " + cle + ".");
+            }
+            for (JsonNode creneau : champ.getValue()) {
+                if (!CRENEAUX.contains(creneau.asText())) {
+                    throw new IllegalArgumentException("Disponibilités : créneau inconnu '" + creneau.asText()
+                            + "' (attendu : matin, apres_midi, journee).");
+                }
+            }
+            joursCites |= bit(jour);
+            if (!champ.getValue().isEmpty()) {
+                joursDisponibles |= bit(jour);
+            }
+        }
+
+        int joursSemaine;
+        if (joursCites == 0) {
+            joursSemaine = 0x7F;
+        } else if ((joursCites & WEEK_END) == 0) {
+            joursSemaine = joursDisponibles | WEEK_END;
+        } else {
+            joursSemaine = joursDisponibles;
+        }
+
+        if (joursSemaine == 0x7F && indisponibles.isEmpty()) {
+            return TOUJOURS;
+        }
+        return new Disponibilite(joursSemaine, List.copyOf(indisponibles), List.copyOf(disponibles));
+    }
+
+    public boolean estDisponible(LocalDate jour) {
+        for (Periode p : indisponibles) {
+            if (p.contient(jour)) {
+                return false;
+            }
+        }
+        if ((joursSemaine & bit(jour.getDayOfWeek())) != 0) {
+            return true;
+        }
+        for (Periode p : disponibles) {
+            if (p.contient(jour)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean estToujoursDisponible() {
+        return this == TOUJOURS;
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static void lireExceptions(JsonNode exceptions, List<Periode> indisponibles, List<Periode> disponibles) {
+        if (!exceptions.isArray()) {
+            throw new IllegalArgumentException("Disponibilités : 'exceptions' doit être une liste.");
+        }
+        for (JsonNode e : exceptions) {
+            LocalDate du = date(e, "du");
+            if (du == null) {
+                throw new IllegalArgumentException("Disponibilités : 'du' est obligatoire dans une exception.");
+            }
+            LocalDate au = date(e, "au");
+            if (au == null) {
+                au = du;
+            }
+            if (au.isBefore(du)) {
+                throw new IllegalArgumentException("Disponibilités : exception du " + du + " au " + au
+                        + " (fin avant début).");
+            }
+            Periode periode = new Periode(du, au);
+            if (e.path("disponible").asBoolean(false)) {
+                disponibles.add(periode);
+            } else {
+                indisponibles.add(periode);
+            }
+        }
+    }
+
+    private static LocalDate date(JsonNode exception, String champ) {
+        JsonNode valeur = exception.get(champ);
+        if (valeur == null || valeur.isNull()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(valeur.asText());
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Disponibilités : date invalide '" + valeur.asText()
+                    + "' (attendu : AAAA-MM-JJ).");
+        }
+    }
+
+    private static int bit(DayOfWeek jour) {
+        return 1 << (jour.getValue() - 1);
+    }
+}
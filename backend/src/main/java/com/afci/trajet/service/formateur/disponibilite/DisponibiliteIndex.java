@@ -0,0 +1,178 @@
+package com.afci.trajet.service.formateur.disponibilite;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.entity.Formateur;
+import com.afci.trajet.repository.FormateurRepository;
+import com.afci.trajet.util.ApresCommit;
+
+/**
+ * Index en mémoire des disponibilités des formateurs.
+ *
+ * Chaque Formateur.disponibiliteJson est lu UNE fois puis compilé en
+ * calendrier (CalendrierDisponibilite) sur formateurs.disponibilite.horizon-jours
+ * à partir d'un mois en arrière. Seuls les formateurs qui ont des contraintes
+ * sont indexés : absent = toujours disponible.
+ *
+ * Cycle de vie (même principe que FormateurSpatialIndex) :
+ *  - chargement complet au démarrage, puis chaque nuit (l'horizon glisse),
+ *    publié d'un bloc : un lecteur voit l'ancien index ou le nouveau, jamais
+ *    un index à moitié rempli ;
+ *  - mise à jour unitaire APRÈS COMMIT quand un profil formateur est modifié,
+ *    sous le même verrou que le rechargement : une lecture en base antérieure
+ *    au commit ne peut pas écraser la mise à jour.
+ *
+ * Un JSON illisible déjà en base est ignoré (formateur considéré disponible)
+ * et signalé dans les logs ; les nouvelles saisies sont validées en amont
+ * (Disponibilite.lire).
+ */
+@Component
+public class DisponibiliteIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DisponibiliteIndex.class);
+
+    /** Recul de l'horizon : OM commencés récemment. */
+    private static final int RECUL_JOURS = 31;
+
+    private final FormateurRepository formateurRepository;
+    private final int horizonJours;
+
+    /** Remplacé en bloc par recharger() ; modifié sous verrou ensuite. */
+    private volatile Map<Integer, CalendrierDisponibilite> calendriers = new ConcurrentHashMap<>();
+
+    private volatile boolean pret = false;
+
+    public DisponibiliteIndex(FormateurRepository formateurRepository,
+                              @Value("${formateurs.disponibilite.horizon-jours:550}") int horizonJours) {
+        this.formateurRepository = formateurRepository;
+        this.horizonJours = horizonJours;
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Chargement
+    // ---------------------------------------------------------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void chargerAuDemarrage() {
+        try {
+            recharger();
+        } catch (Exception ex) {
+            // L'index sera rechargé paresseusement à la première recherche.
+            log.warn("Chargement initial de l'index des disponibilités impossible", ex);
+        }
+    }
+
+    /**
+     * Recompilation nocturne : l'horizon suit la date du jour.
+     */
+    @Scheduled(cron = "${formateurs.disponibilite.recompilation:0 15 3 * * *}")
+    public void recompilerChaqueNuit() {
+        recharger();
+    }
+
+    public synchronized void recharger() {
+        List<FormateurRepository.DisponibiliteJson> lignes = formateurRepository.findDisponibilitesRenseignees();
+
+        Map<Integer, CalendrierDisponibilite> nouveaux = new ConcurrentHashMap<>();
+        int illisibles = 0;
+        for (FormateurRepository.DisponibiliteJson l : lignes) {
+            try {
+                CalendrierDisponibilite c = compiler(Disponibilite.lire(l.getDisponibiliteJson()));
+                if (c != null) {
+                    nouveaux.put(l.getIdFormateur(), c);
+                }
+            } catch (IllegalArgumentException ex) {
+                illisibles++;
+                log.warn("Disponibilités illisibles pour le formateur {} : {}", l.getIdFormateur(), ex.getMessage());
+            }
+        }
+
+        calendriers = nouveaux;
+        pret = true;
+
+        log.info("Index des disponibilités chargé : {} formateur(s) avec contraintes, {} JSON illisible(s)",
+                nouveaux.size(), illisibles);
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Mises à jour unitaires
+    // ---------------------------------------------------------------------
+
+    /**
+     * Recompile le calendrier d'un formateur une fois la transaction
+     * courante validée (ou immédiatement s'il n'y a pas de transaction).
+     *
+     * @throws IllegalArgumentException si disponibiliteJson est invalide
+     *         (levée tout de suite : la transaction n'est pas validée)
+     */
+    public void indexerApresCommit(Formateur formateur) {
+        Integer idFormateur = formateur.getIdFormateur();
+        Disponibilite disponibilite = Disponibilite.lire(formateur.getDisponibiliteJson());
+
+        ApresCommit.executer(() -> {
+            CalendrierDisponibilite c = compiler(disponibilite);
+            synchronized (this) {
+                if (c == null) {
+                    calendriers.remove(idFormateur);
+                } else {
+                    calendriers.put(idFormateur, c);
+                }
+            }
+        });
+    }
+
+    public void retirerApresCommit(Integer idFormateur) {
+        ApresCommit.executer(() -> {
+            synchronized (this) {
+                calendriers.remove(idFormateur);
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ Recherche
+    // ---------------------------------------------------------------------
+
+    /**
+     * Le formateur est-il disponible chaque jour de [debut, fin] ?
+     */
+    public boolean estDisponible(int idFormateur, LocalDate debut, LocalDate fin) {
+        if (!pret) {
+            chargerSiBesoin();
+        }
+        CalendrierDisponibilite c = calendriers.get(idFormateur);
+        return c == null || c.estDisponible(debut, fin);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private synchronized void chargerSiBesoin() {
+        if (!pret) {
+            recharger();
+        }
+    }
+
+    /**
+     * null si aucune contrainte (rien à indexer).
+     */
+    private CalendrierDisponibilite compiler(Disponibilite disponibilite) {
+        if (disponibilite.estToujoursDisponible()) {
+            return null;
+        }
+        return CalendrierDisponibilite.compiler(disponibilite,
+                LocalDate.now().minusDays(RECUL_JOURS), RECUL_JOURS + horizonJours);
+    }
+}
@@ -13,10 +13,16 @@ import com.afci.trajet.dto.formateur.moncompte.ChangePasswordRequest;
 import com.afci.trajet.dto.formateur.moncompte.FormateurProfileResponse;
 import com.afci.trajet.dto.formateur.moncompte.FormateurProfileUpdateRequest;
 import com.afci.trajet.entity.Formateur;
+import com.afci.trajet.entity.GeocodageOutbox;
 import com.afci.trajet.entity.Utilisateur;
 import com.afci.trajet.repository.FormateurRepository;
 import com.afci.trajet.repository.UtilisateurRepository;
+import com.afci.trajet.security.jwt.SecurityVersionRegistry;
 import com.afci.trajet.service.GeocodingService;
+import com.afci.trajet.service.geocodage.GeocodageOutboxService;
+import com.afci.trajet.service.formateur.disponibilite.Disponibilite;
+import com.afci.trajet.service.formateur.disponibilite.DisponibiliteIndex;
+import com.afci.trajet.service.geo.FormateurSpatialIndex;
 
 /**
  * Implémentation du service "Mon compte" pour le rôle FORMATEUR.
@@ -29,15 +35,27 @@ public class FormateurMonCompteServiceImpl implements FormateurMonCompteService
     private final FormateurRepository formateurRepository;
     private final GeocodingService geocodingService;
     private final PasswordEncoder passwordEncoder;
+    private final FormateurSpatialIndex formateurSpatialIndex;
+    private final DisponibiliteIndex disponibiliteIndex;
+    private final GeocodageOutboxService geocodageOutboxService;
+    private final SecurityVersionRegistry securityVersionRegistry;
 
     public FormateurMonCompteServiceImpl(UtilisateurRepository utilisateurRepository,
                                          FormateurRepository formateurRepository,
                                          GeocodingService geocodingService,
-                                         PasswordEncoder passwordEncoder) {
+                                         PasswordEncoder passwordEncoder,
+                                         FormateurSpatialIndex formateurSpatialIndex,
+                                         DisponibiliteIndex disponibiliteIndex,
+                                         GeocodageOutboxService geocodageOutboxService,
+                                         SecurityVersionRegistry securityVersionRegistry) {
         this.utilisateurRepository = utilisateurRepository;
         this.formateurRepository = formateurRepository;
         this.geocodingService = geocodingService;
         this.passwordEncoder = passwordEncoder;
+        this.formateurSpatialIndex = formateurSpatialIndex;
+        this.disponibiliteIndex = disponibiliteIndex;
+        this.geocodageOutboxService = geocodageOutboxService;
+        this.securityVersionRegistry = securityVersionRegistry;
     }
 
     // --------------------------------------------------------
@@ -125,6 +143,7 @@ public class FormateurMonCompteServiceImpl implements FormateurMonCompteService
             formateur.setMobilitePrefJson(request.getMobilitePrefJson());
         }
         if (request.getDisponibiliteJson() != null) {
+            Disponibilite.lire(request.getDisponibiliteJson()); // format validé avant écriture
             formateur.setDisponibiliteJson(request.getDisponibiliteJson());
         }
         if (request.getCommentaire() != null) {
@@ -148,16 +167,23 @@ public class FormateurMonCompteServiceImpl implements FormateurMonCompteService
         );
 
         if (!newAdresse.equals(oldAdresse)) {
-            geocodingService.geocodeAdresse(newAdresse)
-                    .ifPresent(coords -> {
+            // Cache => lat/lon tout de suite ; sinon file asynchrone (patch après commit)
+            geocodageOutboxService.geocoder(GeocodageOutbox.TYPE_UTILISATEUR, user.getIdUser(), newAdresse,
+                    coords -> {
                         user.setLat(coords.lat());
                         user.setLon(coords.lon());
+                        user.setPrecisionGeo(coords.precision().name());
                     });
         }
 
         utilisateurRepository.save(user);
         formateurRepository.save(formateur);
 
+        // Nouvelle adresse => nouvelle position dans l'index spatial des candidats
+        formateurSpatialIndex.indexerApresCommit(formateur, user);
+        // Disponibilités recompilées dans l'index des candidats
+        disponibiliteIndex.indexerApresCommit(formateur);
+
         return toProfileResponse(user, formateur);
     }
 
@@ -192,6 +218,8 @@ public class FormateurMonCompteServiceImpl implements FormateurMonCompteService
         user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
         user.setPasswordUpdatedAt(OffsetDateTime.now());
         user.setUpdatedAt(OffsetDateTime.now());
+        // Les JWT émis avec l'ancien mot de passe ne sont plus acceptés
+        securityVersionRegistry.revoquer(user);
 
         utilisateurRepository.save(user);
     }
@@ -0,0 +1,173 @@
+package com.afci.trajet.service.geo;
+
+/**
+ * Moteur de distance "à vol d'oiseau" (Haversine), unique pour toute l'application.
+ *
+ *  - distanceKm(...) : un point -> un point, en double (plus de BigDecimal) ;
+ *  - Points          : coordonnées de N points en "structure de tableaux"
+ *                      (double[] lat / lon en radians + cos(lat) précalculé) ;
+ *  - distancesKm(...) : un point -> N points d'un coup (ou une tranche [debut, fin)).
+ *
+ * Le calcul un-vers-plusieurs a deux noyaux :
+ *  - vectoriel (jdk.incubator.vector, SIMD) si le module est chargé
+ *    (--add-modules jdk.incubator.vector, cf. pom.xml) ;
+ *  - scalaire sinon, ou si -Dtrajet.distance.vectoriel=false.
+ *
+ * Les deux donnent le même résultat au dernier chiffre près.
+ */
+public final class DistanceEngine {
+
+    /** Rayon moyen de la Terre en kilomètres. */
+    public static final double RAYON_TERRE_KM = 6371.0;
+
+    private static final boolean VECTORIEL =
+            Boolean.parseBoolean(System.getProperty("trajet.distance.vectoriel", "true"))
+                    && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private DistanceEngine() {
+        // classe utilitaire, pas d'instanciation
+    }
+
+    /**
+     * Coordonnées de N points, rangées par colonne.
+     *
+     * Immuable une fois construit : partageable entre threads.
+     */
+    public static final class Points {
+
+        final double[] latRad;
+        final double[] lonRad;
+        final double[] cosLat;
+
+        private Points(double[] latRad, double[] lonRad, double[] cosLat) {
+            this.latRad = latRad;
+            this.lonRad = lonRad;
+            this.cosLat = cosLat;
+        }
+
+        /**
+         * @param latDeg latitudes en degrés
+         * @param lonDeg longitudes en degrés (même longueur)
+         */
+        public static Points depuisDegres(double[] latDeg, double[] lonDeg) {
+            if (latDeg.length != lonDeg.length) {
+                throw new IllegalArgumentException("Autant de latitudes que de longitudes sont attendues.");
+            }
+            int n = latDeg.length;
+            double[] lat = new double[n];
+            double[] lon = new double[n];
+            double[] cos = new double[n];
+            for (int i = 0; i < n; i++) {
+                lat[i] = Math.toRadians(latDeg[i]);
+                lon[i] = Math.toRadians(lonDeg[i]);
+                cos[i] = Math.cos(lat[i]);
+            }
+            return new Points(lat, lon, cos);
+        }
+
+        public int taille() {
+            return latRad.length;
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Un point -> un point
+    // ---------------------------------------------------------------------
+
+    /**
+     * Distance à vol d'oiseau (Haversine) en km, coordonnées en degrés.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double lat1Rad = Math.toRadians(lat1);
+        double lat2Rad = Math.toRadians(lat2);
+        return haversineKm(lat1Rad, Math.toRadians(lon1), Math.cos(lat1Rad),
+                lat2Rad, Math.toRadians(lon2), Math.cos(lat2Rad));
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Un point -> N points
+    // ---------------------------------------------------------------------
+
+    /**
+     * Distances (km) du point (latDeg, lonDeg) à chacun des points.
+     *
+     * @return un nouveau tableau, même ordre que les points
+     */
+    public static double[] distancesKm(double latDeg, double lonDeg, Points points) {
+        double[] sortie = new double[points.taille()];
+        distancesKm(latDeg, lonDeg, points, sortie);
+        return sortie;
+    }
+
+    /**
+     * Variante sans allocation : écrit les distances dans sortie[0..n-1]
+     * (sortie.length >= points.taille()).
+     */
+    public static void distancesKm(double latDeg, double lonDeg, Points points, double[] sortie) {
+        distancesKm(latDeg, lonDeg, points, 0, points.taille(), sortie);
+    }
+
+    /**
+     * Tranche [debut, fin) des points : écrit sortie[debut..fin-1], le reste
+     * du tableau n'est pas touché (calcul découpé entre threads, cf. DistanceMatrix).
+     */
+    public static void distancesKm(double latDeg, double lonDeg, Points points,
+                                   int debut, int fin, double[] sortie) {
+        if (debut < 0 || fin > points.taille() || debut > fin) {
+            throw new IllegalArgumentException("Tranche invalide [" + debut + ", " + fin + ") pour "
+                    + points.taille() + " points.");
+        }
+        if (sortie.length < fin) {
+            throw new IllegalArgumentException("Tableau de sortie trop petit (" + sortie.length + " < " + fin + ").");
+        }
+        double lat = Math.toRadians(latDeg);
+        double lon = Math.toRadians(lonDeg);
+        double cos = Math.cos(lat);
+
+        if (VECTORIEL) {
+            DistanceKernelVector.distancesKm(lat, lon, cos, points.latRad, points.lonRad, points.cosLat,
+                    debut, fin, sortie);
+        } else {
+            distancesKmScalaire(lat, lon, cos, points.latRad, points.lonRad, points.cosLat, debut, fin, sortie);
+        }
+    }
+
+    /**
+     * Noyau scalaire sur [debut, fin) (aussi utilisé pour la fin de boucle du noyau vectoriel).
+     */
+    static void distancesKmScalaire(double lat, double lon, double cos,
+                                    double[] lats, double[] lons, double[] cosLats,
+                                    int debut, int fin, double[] sortie) {
+        for (int i = debut; i < fin; i++) {
+            sortie[i] = haversineKm(lat, lon, cos, lats[i], lons[i], cosLats[i]);
+        }
+    }
+
+    public static boolean estVectoriel() {
+        return VECTORIEL;
+    }
+
+    /**
+     * Pour les bancs d'essai : force le noyau scalaire.
+     */
+    public static double[] distancesKmScalaire(double latDeg, double lonDeg, Points points) {
+        int n = points.taille();
+        double[] sortie = new double[n];
+        double lat = Math.toRadians(latDeg);
+        distancesKmScalaire(lat, Math.toRadians(lonDeg), Math.cos(lat),
+                points.latRad, points.lonRad, points.cosLat, 0, n, sortie);
+        return sortie;
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static double haversineKm(double lat1, double lon1, double cos1,
+                                      double lat2, double lon2, double cos2) {
+        double sinDLat = Math.sin((lat2 - lat1) * 0.5);
+        double sinDLon = Math.sin((lon2 - lon1) * 0.5);
+        double a = sinDLat * sinDLat + cos1 * cos2 * sinDLon * sinDLon;
+        return 2 * RAYON_TERRE_KM * Math.asin(Math.sqrt(Math.min(1.0, a)));
+    }
+}
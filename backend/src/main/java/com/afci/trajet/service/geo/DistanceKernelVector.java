@@ -0,0 +1,46 @@
+package com.afci.trajet.service.geo;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyau SIMD du calcul un-vers-plusieurs (cf. DistanceEngine).
+ *
+ * Classe isolée : elle n'est chargée que si le module jdk.incubator.vector
+ * est présent, le reste de l'application n'en dépend pas.
+ *
+ * Traite DoubleVector.SPECIES_PREFERRED.length() points par itération
+ * (4 en AVX2, 8 en AVX-512), la fin du tableau passe par le noyau scalaire.
+ */
+final class DistanceKernelVector {
+
+    private static final VectorSpecies<Double> ESPECE = DoubleVector.SPECIES_PREFERRED;
+
+    private DistanceKernelVector() {
+    }
+
+    static void distancesKm(double lat, double lon, double cos,
+                            double[] lats, double[] lons, double[] cosLats,
+                            int debut, int fin, double[] sortie) {
+        int borne = debut + ESPECE.loopBound(fin - debut);
+        int i = debut;
+        for (; i < borne; i += ESPECE.length()) {
+            DoubleVector la = DoubleVector.fromArray(ESPECE, lats, i);
+            DoubleVector lo = DoubleVector.fromArray(ESPECE, lons, i);
+            DoubleVector co = DoubleVector.fromArray(ESPECE, cosLats, i);
+
+            DoubleVector sinDLat = la.sub(lat).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector sinDLon = lo.sub(lon).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector a = sinDLat.mul(sinDLat)
+                    .add(co.mul(cos).mul(sinDLon).mul(sinDLon))
+                    .min(1.0);
+
+            a.sqrt()
+             .lanewise(VectorOperators.ASIN)
+             .mul(2 * DistanceEngine.RAYON_TERRE_KM)
+             .intoArray(sortie, i);
+        }
+        DistanceEngine.distancesKmScalaire(lat, lon, cos, lats, lons, cosLats, i, fin, sortie);
+    }
+}
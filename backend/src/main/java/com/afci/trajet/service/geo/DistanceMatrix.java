@@ -0,0 +1,109 @@
+package com.afci.trajet.service.geo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Matrice de distances plusieurs-vers-plusieurs (ex : écoles × formateurs).
+ *
+ * La matrice est découpée en tuiles (une source × un bloc de TAILLE_BLOC
+ * cibles), réparties par fork-join : chaque tuile est un appel un-vers-plusieurs
+ * de DistanceEngine sur une tranche, qui écrit directement dans sa ligne
+ * (aucune tuile ne partage de case, donc aucune synchronisation).
+ *
+ * En dessous de SEUIL_SEQUENTIEL cases, calcul sur le thread appelant :
+ * le découpage coûterait plus que le calcul.
+ */
+public final class DistanceMatrix {
+
+    /** Nombre de cibles par tuile. */
+    static final int TAILLE_BLOC = 4096;
+
+    /** Nombre de cases en dessous duquel on ne parallélise pas. */
+    static final long SEUIL_SEQUENTIEL = 32_768;
+
+    private DistanceMatrix() {
+        // classe utilitaire, pas d'instanciation
+    }
+
+    /**
+     * @param latsDeg latitudes des sources en degrés
+     * @param lonsDeg longitudes des sources en degrés (même longueur)
+     * @param cibles  points cibles (partagés en lecture entre les threads)
+     * @param pool    pool fork-join utilisé au-delà du seuil
+     * @return matrice[source][cible] en km
+     */
+    public static double[][] calculer(double[] latsDeg, double[] lonsDeg,
+                                      DistanceEngine.Points cibles, ForkJoinPool pool) {
+        if (latsDeg.length != lonsDeg.length) {
+            throw new IllegalArgumentException("Autant de latitudes que de longitudes sont attendues.");
+        }
+        int n = cibles.taille();
+        double[][] matrice = new double[latsDeg.length][n];
+        int blocs = Math.max(1, (n + TAILLE_BLOC - 1) / TAILLE_BLOC);
+        int tuiles = latsDeg.length * blocs;
+
+        if ((long) latsDeg.length * n <= SEUIL_SEQUENTIEL) {
+            for (int t = 0; t < tuiles; t++) {
+                calculerTuile(t, blocs, latsDeg, lonsDeg, cibles, matrice);
+            }
+        } else {
+            pool.invoke(new Tuiles(0, tuiles, blocs, latsDeg, lonsDeg, cibles, matrice));
+        }
+        return matrice;
+    }
+
+    public static double[][] calculer(double[] latsDeg, double[] lonsDeg, DistanceEngine.Points cibles) {
+        return calculer(latsDeg, lonsDeg, cibles, ForkJoinPool.commonPool());
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    /**
+     * Tuiles [debut, fin) : coupées en deux tant qu'il en reste plus d'une.
+     */
+    private static final class Tuiles extends RecursiveAction {
+
+        private final int debut;
+        private final int fin;
+        private final int blocs;
+        private final double[] latsDeg;
+        private final double[] lonsDeg;
+        private final DistanceEngine.Points cibles;
+        private final double[][] matrice;
+
+        Tuiles(int debut, int fin, int blocs, double[] latsDeg, double[] lonsDeg,
+               DistanceEngine.Points cibles, double[][] matrice) {
+            this.debut = debut;
+            this.fin = fin;
+            this.blocs = blocs;
+            this.latsDeg = latsDeg;
+            this.lonsDeg = lonsDeg;
+            this.cibles = cibles;
+            this.matrice = matrice;
+        }
+
+        @Override
+        protected void compute() {
+            if (fin - debut <= 1) {
+                if (fin > debut) {
+                    calculerTuile(debut, blocs, latsDeg, lonsDeg, cibles, matrice);
+                }
+                return;
+            }
+            int milieu = (debut + fin) >>> 1;
+            invokeAll(new Tuiles(debut, milieu, blocs, latsDeg, lonsDeg, cibles, matrice),
+                    new Tuiles(milieu, fin, blocs, latsDeg, lonsDeg, cibles, matrice));
+        }
+    }
+
+    private static void calculerTuile(int tuile, int blocs, double[] latsDeg, double[] lonsDeg,
+                                      DistanceEngine.Points cibles, double[][] matrice) {
+        int source = tuile / blocs;
+        int debut = (tuile % blocs) * TAILLE_BLOC;
+        int fin = Math.min(debut + TAILLE_BLOC, cibles.taille());
+        DistanceEngine.distancesKm(latsDeg[source], lonsDeg[source], cibles, debut, fin, matrice[source]);
+    }
+}
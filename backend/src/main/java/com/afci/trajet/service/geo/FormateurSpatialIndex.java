@@ -0,0 +1,347 @@
+package com.afci.trajet.service.geo;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.dto.om.ecole.FormateurCandidatProjection;
+import com.afci.trajet.entity.Formateur;
+import com.afci.trajet.entity.Utilisateur;
+import com.afci.trajet.repository.FormateurRepository;
+import com.afci.trajet.util.ApresCommit;
+
+/**
+ * Index spatial en mémoire des formateurs ACTIFS et GÉOCODÉS.
+ *
+ * Principe : une grille régulière en degrés (lat/lon). Chaque formateur est
+ * rangé dans la cellule qui contient son domicile (Utilisateur.lat / lon).
+ * Une recherche "dans un rayon" ne parcourt que les cellules du rectangle
+ * englobant le cercle, au lieu de relire toute la table formateur.
+ *
+ * Cycle de vie :
+ *  - chargement complet au démarrage (ApplicationReadyEvent) ;
+ *  - mise à jour unitaire APRÈS COMMIT quand un formateur est créé,
+ *    modifié ou désactivé (AdminFormateurServiceImpl, FormateurMonCompteServiceImpl) ;
+ *  - rechargement complet possible via recharger().
+ *
+ * Concurrence : les lectures sont sans verrou (cellules immuables remplacées
+ * en bloc), les écritures sont rares et sérialisées. Un rechargement construit
+ * un nouvel état à part et le publie d'un coup : une recherche concurrente voit
+ * l'ancien index ou le nouveau, jamais un index vide ou à moitié rempli.
+ */
+@Component
+public class FormateurSpatialIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FormateurSpatialIndex.class);
+
+    /** Taille d'une cellule de la grille en degrés (~28 km en latitude). */
+    private static final double TAILLE_CELLULE_DEG = 0.25;
+
+    /** Nombre de km par degré de latitude (approximation sphérique). */
+    private static final double KM_PAR_DEGRE = 111.32;
+
+    private final FormateurRepository formateurRepository;
+
+    /** État courant, remplacé en bloc par recharger(). */
+    private volatile Etat etat = new Etat(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    private volatile boolean pret = false;
+
+    public FormateurSpatialIndex(FormateurRepository formateurRepository) {
+        this.formateurRepository = formateurRepository;
+    }
+
+    // ---------------------------------------------------------------------
+    // Types exposés
+    // ---------------------------------------------------------------------
+
+    /**
+     * Entrée de l'index : identifiants, coordonnées en degrés et attributs
+     * de mobilité utiles au classement (évite de relire la fiche formateur).
+     */
+    public record Entree(int idFormateur,
+                         int idUser,
+                         double lat,
+                         double lon,
+                         short zoneKm,
+                         boolean vehiculePerso,
+                         boolean permis) {
+    }
+
+    /**
+     * Contenu d'une cellule : les entrées et leurs coordonnées en colonnes
+     * (DistanceEngine.Points), pour un calcul de distances un-vers-plusieurs.
+     */
+    private record Cellule(Entree[] entrees, DistanceEngine.Points points) {
+
+        static Cellule de(Entree[] entrees) {
+            double[] lats = new double[entrees.length];
+            double[] lons = new double[entrees.length];
+            for (int i = 0; i < entrees.length; i++) {
+                lats[i] = entrees[i].lat();
+                lons[i] = entrees[i].lon();
+            }
+            return new Cellule(entrees, DistanceEngine.Points.depuisDegres(lats, lons));
+        }
+    }
+
+    /**
+     * cellules : cellule (clé lat/lon) -> entrées de la cellule (immuable) ;
+     * parFormateur : idFormateur -> entrée courante (pour retrouver l'ancienne cellule).
+     */
+    private record Etat(Map<Long, Cellule> cellules, Map<Integer, Entree> parFormateur) {
+    }
+
+    /**
+     * Résultat d'une recherche : entrée + distance à vol d'oiseau (km).
+     */
+    public record Voisin(Entree entree, double distanceKm) {
+    }
+
+    /**
+     * Rectangle lat/lon (degrés) englobant un cercle : sert au découpage en
+     * cellules et au pré-filtrage SQL (FormateurRepository.findCandidatsActifsDansRectangle).
+     */
+    public record Rectangle(double latMin, double latMax, double lonMin, double lonMax) {
+
+        public static Rectangle autour(double lat, double lon, double rayonKm) {
+            double dLat = rayonKm / KM_PAR_DEGRE;
+            double cosLat = Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+            double dLon = Math.min(rayonKm / (KM_PAR_DEGRE * cosLat), 180.0);
+            return new Rectangle(lat - dLat, lat + dLat, lon - dLon, lon + dLon);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Chargement
+    // ---------------------------------------------------------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void chargerAuDemarrage() {
+        try {
+            recharger();
+        } catch (Exception ex) {
+            // L'index sera rechargé paresseusement à la première recherche.
+            log.warn("Chargement initial de l'index spatial des formateurs impossible", ex);
+        }
+    }
+
+    /**
+     * Recharge tout l'index depuis la base (1 seule requête FORMATEUR + UTILISATEUR,
+     * quel que soit le nombre de formateurs).
+     */
+    public synchronized void recharger() {
+        List<FormateurCandidatProjection> lignes = formateurRepository.findCandidatsActifs();
+
+        Map<Long, List<Entree>> parCellule = new HashMap<>();
+        Map<Integer, Entree> parFormateur = new ConcurrentHashMap<>();
+
+        for (FormateurCandidatProjection l : lignes) {
+            Entree e = new Entree(l.getIdFormateur(), l.getIdUser(), l.getLat(), l.getLon(),
+                    l.getZoneKm(), l.isVehiculePerso(), l.isPermis());
+            parFormateur.put(e.idFormateur(), e);
+            parCellule.computeIfAbsent(cleCellule(e.lat(), e.lon()), k -> new ArrayList<>()).add(e);
+        }
+        Map<Long, Cellule> cellules = new ConcurrentHashMap<>();
+        parCellule.forEach((cle, liste) -> cellules.put(cle, Cellule.de(liste.toArray(Entree[]::new))));
+
+        // Publication en un seul pas (les mises à jour unitaires attendent le moniteur)
+        etat = new Etat(cellules, parFormateur);
+        pret = true;
+
+        log.info("Index spatial des formateurs chargé : {} formateurs, {} cellules",
+                parFormateur.size(), cellules.size());
+    }
+
+    public boolean estPret() {
+        return pret;
+    }
+
+    public int taille() {
+        return etat.parFormateur().size();
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Mises à jour unitaires
+    // ---------------------------------------------------------------------
+
+    /**
+     * Répercute l'état d'un formateur dans l'index une fois la transaction
+     * courante validée (ou immédiatement s'il n'y a pas de transaction).
+     *
+     * Les valeurs sont capturées tout de suite : l'entité peut encore
+     * être modifiée avant le commit sans fausser l'index.
+     */
+    public void indexerApresCommit(Formateur formateur, Utilisateur user) {
+        Integer idFormateur = formateur.getIdFormateur();
+        Integer idUser = user.getIdUser();
+        boolean indexable = user.isActif() && user.getLat() != null && user.getLon() != null;
+        BigDecimal lat = user.getLat();
+        BigDecimal lon = user.getLon();
+        short zoneKm = formateur.getZoneKm();
+        boolean vehiculePerso = formateur.isVehiculePerso();
+        boolean permis = formateur.isPermis();
+
+        ApresCommit.executer(() -> {
+            if (indexable) {
+                upsert(new Entree(idFormateur, idUser, lat.doubleValue(), lon.doubleValue(),
+                        zoneKm, vehiculePerso, permis));
+            } else {
+                retirer(idFormateur);
+            }
+        });
+    }
+
+    /**
+     * Retire un formateur de l'index (ex : soft delete) après commit.
+     */
+    public void retirerApresCommit(Integer idFormateur) {
+        ApresCommit.executer(() -> retirer(idFormateur));
+    }
+
+    synchronized void upsert(Entree entree) {
+        retirer(entree.idFormateur());
+        Map<Long, Cellule> cellules = etat.cellules();
+        long cle = cleCellule(entree.lat(), entree.lon());
+        Cellule actuelle = cellules.get(cle);
+        Entree[] actuelles = (actuelle == null) ? new Entree[0] : actuelle.entrees();
+        Entree[] nouvelles = Arrays.copyOf(actuelles, actuelles.length + 1);
+        nouvelles[actuelles.length] = entree;
+        cellules.put(cle, Cellule.de(nouvelles));
+        etat.parFormateur().put(entree.idFormateur(), entree);
+    }
+
+    synchronized void retirer(Integer idFormateur) {
+        Map<Long, Cellule> cellules = etat.cellules();
+        Entree ancienne = etat.parFormateur().remove(idFormateur);
+        if (ancienne == null) {
+            return;
+        }
+        long cle = cleCellule(ancienne.lat(), ancienne.lon());
+        Cellule actuelle = cellules.get(cle);
+        if (actuelle == null) {
+            return;
+        }
+        Entree[] restantes = Arrays.stream(actuelle.entrees())
+                .filter(e -> e.idFormateur() != idFormateur)
+                .toArray(Entree[]::new);
+        if (restantes.length == 0) {
+            cellules.remove(cle);
+        } else {
+            cellules.put(cle, Cellule.de(restantes));
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ Recherches
+    // ---------------------------------------------------------------------
+
+    /**
+     * Tous les formateurs situés à moins de rayonKm du point (lat, lon),
+     * triés du plus proche au plus éloigné.
+     */
+    public List<Voisin> rechercherDansRayon(double lat, double lon, double rayonKm) {
+        if (!pret) {
+            recharger();
+        }
+
+        Map<Long, Cellule> cellules = etat.cellules();
+        Rectangle r = Rectangle.autour(lat, lon, rayonKm);
+        int ligneMin = indice(r.latMin());
+        int ligneMax = indice(r.latMax());
+        int colMin = indice(r.lonMin());
+        int colMax = indice(r.lonMax());
+
+        List<Voisin> resultats = new ArrayList<>();
+        long nbCellulesRectangle = (long) (ligneMax - ligneMin + 1) * (colMax - colMin + 1);
+
+        if (nbCellulesRectangle > cellules.size()) {
+            // Rectangle plus grand que la grille occupée : on parcourt les cellules non vides.
+            for (Map.Entry<Long, Cellule> c : cellules.entrySet()) {
+                int ligne = (int) (c.getKey() >> 32);
+                int col = (int) (long) c.getKey();
+                if (ligne >= ligneMin && ligne <= ligneMax && col >= colMin && col <= colMax) {
+                    collecter(c.getValue(), lat, lon, rayonKm, resultats);
+                }
+            }
+        } else {
+            for (int ligne = ligneMin; ligne <= ligneMax; ligne++) {
+                for (int col = colMin; col <= colMax; col++) {
+                    Cellule cellule = cellules.get(cle(ligne, col));
+                    if (cellule != null) {
+                        collecter(cellule, lat, lon, rayonKm, resultats);
+                    }
+                }
+            }
+        }
+
+        resultats.sort(Comparator.comparingDouble(Voisin::distanceKm));
+        return resultats;
+    }
+
+    /**
+     * Les k formateurs les plus proches du point (lat, lon).
+     *
+     * On élargit le rayon par doublement : dès que la recherche dans un rayon r
+     * renvoie au moins k voisins, ces k premiers sont exactement les k plus proches.
+     */
+    public List<Voisin> plusProches(double lat, double lon, int k) {
+        double rayon = TAILLE_CELLULE_DEG * KM_PAR_DEGRE;
+        while (true) {
+            List<Voisin> voisins = rechercherDansRayon(lat, lon, rayon);
+            if (voisins.size() >= k || rayon >= Math.PI * DistanceEngine.RAYON_TERRE_KM) {
+                return voisins.subList(0, Math.min(k, voisins.size()));
+            }
+            rayon *= 2;
+        }
+    }
+
+    /**
+     * Instantané de tous les formateurs indexés (ordre quelconque), pour les
+     * calculs qui portent sur tout le vivier (candidats de plusieurs OM à la fois).
+     */
+    public List<Entree> toutes() {
+        if (!pret) {
+            recharger();
+        }
+        return List.copyOf(etat.parFormateur().values());
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static void collecter(Cellule cellule, double lat, double lon,
+                                  double rayonKm, List<Voisin> resultats) {
+        double[] distances = DistanceEngine.distancesKm(lat, lon, cellule.points());
+        Entree[] entrees = cellule.entrees();
+        for (int i = 0; i < entrees.length; i++) {
+            if (distances[i] <= rayonKm) {
+                resultats.add(new Voisin(entrees[i], distances[i]));
+            }
+        }
+    }
+
+    private static int indice(double degres) {
+        return (int) Math.floor(degres / TAILLE_CELLULE_DEG);
+    }
+
+    private static long cleCellule(double lat, double lon) {
+        return cle(indice(lat), indice(lon));
+    }
+
+    private static long cle(int ligne, int col) {
+        return ((long) ligne << 32) | (col & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,374 @@
+package com.afci.trajet.service.geo.route;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.afci.trajet.service.geo.DistanceEngine;
+
+/**
+ * Graphe routier compact, prêt pour les plus courts chemins.
+ *
+ * Représentation CSR (compressed sparse row), dans les deux sens :
+ *  - SORTANT : arcs u -> v rangés par u (recherches "depuis") ;
+ *  - ENTRANT : les mêmes arcs rangés par v (recherches "vers", plusieurs-vers-un).
+ * Les arcs de u occupent [premier[u], premier[u + 1]) dans voisin / duree / longueur.
+ *
+ * Poids : durée en dixièmes de seconde (critère de recherche : trajet le plus
+ * rapide), longueur en mètres (restituée le long du chemin retenu).
+ *
+ * Repères (ALT) : pour chaque repère L, durées L -> v et v -> L de tous les
+ * nœuds, calculées hors ligne (RoadGraphBuilder). INFINI = non atteignable.
+ *
+ * Fichier (little-endian, entiers 32 bits) :
+ * <pre>
+ *   en-tête : MAGIC, VERSION, nbNoeuds, nbArcs, nbReperes
+ *   lat[n], lon[n]                                  (micro-degrés)
+ *   SORTANT : premier[n + 1], voisin[m], duree[m], longueur[m]
+ *   ENTRANT : premier[n + 1], voisin[m], duree[m], longueur[m]
+ *   pour chaque repère : depuis[n], vers[n]
+ * </pre>
+ * Chaque tableau est projeté en mémoire séparément (FileChannel.map) : rien
+ * n'est copié sur le tas, le système pagine le fichier à la demande, et aucun
+ * tableau ne bute sur la limite de 2 Go d'une projection.
+ */
+public final class RoadGraph {
+
+    static final int MAGIC = 0x54465247; // "TFRG"
+    static final int VERSION = 1;
+    static final int INFINI = Integer.MAX_VALUE;
+
+    static final int SORTANT = 0;
+    static final int ENTRANT = 1;
+
+    private static final int TAILLE_EN_TETE = 5 * Integer.BYTES;
+
+    private final int nbNoeuds;
+    private final int nbArcs;
+    private final IntBuffer lats;
+    private final IntBuffer lons;
+    private final IntBuffer[] premier;
+    private final IntBuffer[] voisin;
+    private final IntBuffer[] duree;
+    private final IntBuffer[] longueur;
+    private final IntBuffer[] depuisRepere;
+    private final IntBuffer[] versRepere;
+
+    private final GrilleNoeuds grille;
+
+    RoadGraph(int nbNoeuds, int nbArcs, IntBuffer lats, IntBuffer lons,
+              IntBuffer[] premier, IntBuffer[] voisin, IntBuffer[] duree, IntBuffer[] longueur,
+              IntBuffer[] depuisRepere, IntBuffer[] versRepere) {
+        this.nbNoeuds = nbNoeuds;
+        this.nbArcs = nbArcs;
+        this.lats = lats;
+        this.lons = lons;
+        this.premier = premier;
+        this.voisin = voisin;
+        this.duree = duree;
+        this.longueur = longueur;
+        this.depuisRepere = depuisRepere;
+        this.versRepere = versRepere;
+        this.grille = new GrilleNoeuds(this);
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Lecture / écriture du fichier
+    // ---------------------------------------------------------------------
+
+    /**
+     * Projette un fichier de graphe en mémoire.
+     *
+     * @throws IOException fichier illisible, d'un autre format ou tronqué
+     */
+    public static RoadGraph charger(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            if (canal.size() < TAILLE_EN_TETE) {
+                throw new IOException("Graphe routier tronqué : " + fichier);
+            }
+            IntBuffer enTete = projeter(canal, 0, 5);
+            if (enTete.get(0) != MAGIC || enTete.get(1) != VERSION) {
+                throw new IOException("Format de graphe routier inconnu : " + fichier);
+            }
+            int n = enTete.get(2);
+            int m = enTete.get(3);
+            int nbReperes = enTete.get(4);
+
+            long attendu = TAILLE_EN_TETE + 4L * (2L * n + 2L * (n + 1 + 3L * m) + 2L * nbReperes * n);
+            if (canal.size() != attendu) {
+                throw new IOException("Graphe routier tronqué ou corrompu : " + fichier
+                        + " (" + canal.size() + " octets, " + attendu + " attendus)");
+            }
+
+            long[] position = {TAILLE_EN_TETE};
+            IntBuffer lats = section(canal, position, n);
+            IntBuffer lons = section(canal, position, n);
+            IntBuffer[] premier = new IntBuffer[2];
+            IntBuffer[] voisin = new IntBuffer[2];
+            IntBuffer[] duree = new IntBuffer[2];
+            IntBuffer[] longueur = new IntBuffer[2];
+            for (int sens = SORTANT; sens <= ENTRANT; sens++) {
+                premier[sens] = section(canal, position, n + 1);
+                voisin[sens] = section(canal, position, m);
+                duree[sens] = section(canal, position, m);
+                longueur[sens] = section(canal, position, m);
+            }
+            IntBuffer[] depuis = new IntBuffer[nbReperes];
+            IntBuffer[] vers = new IntBuffer[nbReperes];
+            for (int r = 0; r < nbReperes; r++) {
+                depuis[r] = section(canal, position, n);
+                vers[r] = section(canal, position, n);
+            }
+            // Les projections restent valides après la fermeture du canal.
+            return new RoadGraph(n, m, lats, lons, premier, voisin, duree, longueur, depuis, vers);
+        }
+    }
+
+    /**
+     * Écrit le graphe au format lu par charger().
+     */
+    public void ecrire(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer tampon = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            tampon.putInt(MAGIC).putInt(VERSION).putInt(nbNoeuds).putInt(nbArcs).putInt(depuisRepere.length);
+            ecrire(canal, tampon, lats);
+            ecrire(canal, tampon, lons);
+            for (int sens = SORTANT; sens <= ENTRANT; sens++) {
+                ecrire(canal, tampon, premier[sens]);
+                ecrire(canal, tampon, voisin[sens]);
+                ecrire(canal, tampon, duree[sens]);
+                ecrire(canal, tampon, longueur[sens]);
+            }
+            for (int r = 0; r < depuisRepere.length; r++) {
+                ecrire(canal, tampon, depuisRepere[r]);
+                ecrire(canal, tampon, versRepere[r]);
+            }
+            tampon.flip();
+            while (tampon.hasRemaining()) {
+                canal.write(tampon);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Accès (recherches du paquetage)
+    // ---------------------------------------------------------------------
+
+    public int nbNoeuds() {
+        return nbNoeuds;
+    }
+
+    public int nbArcs() {
+        return nbArcs;
+    }
+
+    public int nbReperes() {
+        return depuisRepere.length;
+    }
+
+    double latitude(int noeud) {
+        return lats.get(noeud) / 1e6;
+    }
+
+    double longitude(int noeud) {
+        return lons.get(noeud) / 1e6;
+    }
+
+    int premier(int sens, int noeud) {
+        return premier[sens].get(noeud);
+    }
+
+    int voisin(int sens, int arc) {
+        return voisin[sens].get(arc);
+    }
+
+    int duree(int sens, int arc) {
+        return duree[sens].get(arc);
+    }
+
+    int longueur(int sens, int arc) {
+        return longueur[sens].get(arc);
+    }
+
+    /**
+     * Nœud propriétaire d'un arc (celui dont la liste contient l'arc),
+     * par dichotomie sur premier : évite de stocker l'origine de chaque arc.
+     */
+    int proprietaire(int sens, int arc) {
+        IntBuffer p = premier[sens];
+        int bas = 0;
+        int haut = nbNoeuds - 1;
+        while (bas < haut) {
+            int milieu = (bas + haut + 1) >>> 1;
+            if (p.get(milieu) <= arc) {
+                bas = milieu;
+            } else {
+                haut = milieu - 1;
+            }
+        }
+        return bas;
+    }
+
+    int depuisRepere(int repere, int noeud) {
+        return depuisRepere[repere].get(noeud);
+    }
+
+    int versRepere(int repere, int noeud) {
+        return versRepere[repere].get(noeud);
+    }
+
+    /**
+     * Nœud le plus proche de (lat, lon) à moins de maxKm, -1 sinon.
+     */
+    int noeudLePlusProche(double lat, double lon, double maxKm) {
+        return grille.plusProche(lat, lon, maxKm);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static IntBuffer section(FileChannel canal, long[] position, int nb) throws IOException {
+        IntBuffer b = projeter(canal, position[0], nb);
+        position[0] += 4L * nb;
+        return b;
+    }
+
+    private static IntBuffer projeter(FileChannel canal, long position, int nb) throws IOException {
+        return canal.map(FileChannel.MapMode.READ_ONLY, position, 4L * nb)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+    }
+
+    private static void ecrire(FileChannel canal, ByteBuffer tampon, IntBuffer valeurs) throws IOException {
+        for (int i = 0; i < valeurs.limit(); i++) {
+            if (tampon.remaining() < Integer.BYTES) {
+                tampon.flip();
+                while (tampon.hasRemaining()) {
+                    canal.write(tampon);
+                }
+                tampon.clear();
+            }
+            tampon.putInt(valeurs.get(i));
+        }
+    }
+
+    /**
+     * Grille régulière des nœuds (tri par comptage, CSR elle aussi) pour
+     * accrocher une adresse au réseau : on parcourt les cellules en anneaux
+     * autour du point jusqu'à ce qu'aucune cellule plus lointaine ne puisse
+     * contenir un nœud plus proche.
+     */
+    private static final class GrilleNoeuds {
+
+        /** Nombre maximal de cellules (borne la mémoire de la grille). */
+        private static final long CELLULES_MAX = 4_000_000L;
+
+        private final RoadGraph graphe;
+        private final double latMin;
+        private final double lonMin;
+        private final double taille;
+        private final int lignes;
+        private final int colonnes;
+        private final double tailleMinKm;
+        private final int[] debut;
+        private final int[] noeuds;
+
+        GrilleNoeuds(RoadGraph graphe) {
+            this.graphe = graphe;
+            int n = graphe.nbNoeuds;
+            double laMin = 90;
+            double laMax = -90;
+            double loMin = 180;
+            double loMax = -180;
+            for (int v = 0; v < n; v++) {
+                double la = graphe.latitude(v);
+                double lo = graphe.longitude(v);
+                laMin = Math.min(laMin, la);
+                laMax = Math.max(laMax, la);
+                loMin = Math.min(loMin, lo);
+                loMax = Math.max(loMax, lo);
+            }
+            if (n == 0) {
+                laMin = laMax = loMin = loMax = 0;
+            }
+            // cellules d'environ 1 km, agrandies si l'emprise l'exige
+            double t = 0.01;
+            while ((long) ((laMax - laMin) / t + 1) * (long) ((loMax - loMin) / t + 1) > CELLULES_MAX) {
+                t *= 2;
+            }
+            this.latMin = laMin;
+            this.lonMin = loMin;
+            this.taille = t;
+            this.lignes = (int) ((laMax - laMin) / t) + 1;
+            this.colonnes = (int) ((loMax - loMin) / t) + 1;
+            double cosMin = Math.cos(Math.toRadians(Math.max(Math.abs(laMin), Math.abs(laMax))));
+            this.tailleMinKm = t * 111.32 * Math.max(cosMin, 0.01);
+
+            int[] cellule = new int[n];
+            this.debut = new int[lignes * colonnes + 1];
+            for (int v = 0; v < n; v++) {
+                cellule[v] = ligne(graphe.latitude(v)) * colonnes + colonne(graphe.longitude(v));
+                debut[cellule[v] + 1]++;
+            }
+            for (int c = 0; c < lignes * colonnes; c++) {
+                debut[c + 1] += debut[c];
+            }
+            this.noeuds = new int[n];
+            int[] curseur = debut.clone();
+            for (int v = 0; v < n; v++) {
+                noeuds[curseur[cellule[v]]++] = v;
+            }
+        }
+
+        int plusProche(double lat, double lon, double maxKm) {
+            int l0 = ligne(lat);
+            int c0 = colonne(lon);
+            int meilleur = -1;
+            double meilleurKm = maxKm;
+            // de quoi couvrir toute la grille, même depuis un point hors emprise
+            int anneauMax = Math.max(Math.max(Math.abs(l0), Math.abs(lignes - l0)),
+                    Math.max(Math.abs(c0), Math.abs(colonnes - c0)));
+            for (int r = 0; r <= anneauMax; r++) {
+                // Au-delà de l'anneau r, tout nœud est à plus de r * tailleMinKm.
+                if (r > 0 && (r - 1) * tailleMinKm > meilleurKm) {
+                    break;
+                }
+                for (int l = l0 - r; l <= l0 + r; l++) {
+                    if (l < 0 || l >= lignes) {
+                        continue;
+                    }
+                    boolean bord = (l == l0 - r || l == l0 + r);
+                    for (int c = c0 - r; c <= c0 + r; c += bord ? 1 : 2 * r) {
+                        if (c < 0 || c >= colonnes) {
+                            continue;
+                        }
+                        int cle = l * colonnes + c;
+                        for (int i = debut[cle]; i < debut[cle + 1]; i++) {
+                            int v = noeuds[i];
+                            double km = DistanceEngine.distanceKm(lat, lon, graphe.latitude(v), graphe.longitude(v));
+                            if (km <= meilleurKm) {
+                                meilleurKm = km;
+                                meilleur = v;
+                            }
+                        }
+                    }
+                }
+            }
+            return meilleur;
+        }
+
+        private int ligne(double lat) {
+            return (int) Math.floor((lat - latMin) / taille);
+        }
+
+        private int colonne(double lon) {
+            return (int) Math.floor((lon - lonMin) / taille);
+        }
+    }
+}
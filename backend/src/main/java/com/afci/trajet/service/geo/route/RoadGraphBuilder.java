@@ -0,0 +1,262 @@
+package com.afci.trajet.service.geo.route;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prétraitement HORS LIGNE d'un réseau routier en fichier RoadGraph.
+ *
+ * Étapes :
+ *  1) nœuds (lat / lon) et arcs orientés (longueur, durée) accumulés ;
+ *  2) tables CSR sortantes et entrantes (tri par comptage) ;
+ *  3) repères ALT choisis "au plus loin" : chaque nouveau repère est le nœud
+ *     le plus éloigné des repères déjà choisis, puis durées depuis / vers
+ *     chaque repère par un Dijkstra complet dans chaque sens.
+ *
+ * Entrée CSV (extraction préalable d'OpenStreetMap ou d'une BD routière),
+ * séparateur virgule ou point-virgule, ligne d'en-tête facultative :
+ * <pre>
+ *   noeuds.csv : id, lat, lon
+ *   arcs.csv   : id_de, id_vers, longueur_m, duree_s, double_sens (0/1)
+ * </pre>
+ * Usage : RoadGraphBuilder noeuds.csv arcs.csv graphe.tfrg [nbReperes=16]
+ */
+public final class RoadGraphBuilder {
+
+    public static final int REPERES_PAR_DEFAUT = 16;
+
+    private int[] lats = new int[1024];
+    private int[] lons = new int[1024];
+    private int nbNoeuds;
+
+    private int[] origines = new int[1024];
+    private int[] destinations = new int[1024];
+    private int[] longueurs = new int[1024];
+    private int[] durees = new int[1024];
+    private int nbArcs;
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Saisie du réseau
+    // ---------------------------------------------------------------------
+
+    /**
+     * @return indice du nœud dans le graphe
+     */
+    public int ajouterNoeud(double lat, double lon) {
+        if (nbNoeuds == lats.length) {
+            lats = Arrays.copyOf(lats, lats.length * 2);
+            lons = Arrays.copyOf(lons, lons.length * 2);
+        }
+        lats[nbNoeuds] = (int) Math.round(lat * 1e6);
+        lons[nbNoeuds] = (int) Math.round(lon * 1e6);
+        return nbNoeuds++;
+    }
+
+    /**
+     * Arc orienté de -> vers.
+     */
+    public void ajouterArc(int de, int vers, double longueurM, double dureeS) {
+        if (de < 0 || de >= nbNoeuds || vers < 0 || vers >= nbNoeuds) {
+            throw new IllegalArgumentException("Arc " + de + " -> " + vers + " : nœud inconnu.");
+        }
+        if (longueurM < 0 || dureeS < 0) {
+            throw new IllegalArgumentException("Arc " + de + " -> " + vers + " : longueur ou durée négative.");
+        }
+        if (nbArcs == origines.length) {
+            origines = Arrays.copyOf(origines, origines.length * 2);
+            destinations = Arrays.copyOf(destinations, destinations.length * 2);
+            longueurs = Arrays.copyOf(longueurs, longueurs.length * 2);
+            durees = Arrays.copyOf(durees, durees.length * 2);
+        }
+        origines[nbArcs] = de;
+        destinations[nbArcs] = vers;
+        longueurs[nbArcs] = (int) Math.round(longueurM);
+        durees[nbArcs] = (int) Math.round(dureeS * 10);
+        nbArcs++;
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Construction
+    // ---------------------------------------------------------------------
+
+    public RoadGraph construire(int nbReperes) {
+        int n = nbNoeuds;
+        int m = nbArcs;
+        IntBuffer[] premier = new IntBuffer[2];
+        IntBuffer[] voisin = new IntBuffer[2];
+        IntBuffer[] duree = new IntBuffer[2];
+        IntBuffer[] longueur = new IntBuffer[2];
+        for (int sens = RoadGraph.SORTANT; sens <= RoadGraph.ENTRANT; sens++) {
+            int[] proprietaire = (sens == RoadGraph.SORTANT) ? origines : destinations;
+            int[] autre = (sens == RoadGraph.SORTANT) ? destinations : origines;
+
+            int[] p = new int[n + 1];
+            for (int a = 0; a < m; a++) {
+                p[proprietaire[a] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                p[v + 1] += p[v];
+            }
+            int[] vo = new int[m];
+            int[] du = new int[m];
+            int[] lo = new int[m];
+            int[] curseur = Arrays.copyOf(p, n);
+            for (int a = 0; a < m; a++) {
+                int i = curseur[proprietaire[a]]++;
+                vo[i] = autre[a];
+                du[i] = durees[a];
+                lo[i] = longueurs[a];
+            }
+            premier[sens] = IntBuffer.wrap(p);
+            voisin[sens] = IntBuffer.wrap(vo);
+            duree[sens] = IntBuffer.wrap(du);
+            longueur[sens] = IntBuffer.wrap(lo);
+        }
+        IntBuffer la = IntBuffer.wrap(Arrays.copyOf(lats, n));
+        IntBuffer lo = IntBuffer.wrap(Arrays.copyOf(lons, n));
+
+        RoadGraph sansReperes = new RoadGraph(n, m, la, lo, premier, voisin, duree, longueur,
+                new IntBuffer[0], new IntBuffer[0]);
+        int r = Math.min(nbReperes, n);
+        IntBuffer[] depuis = new IntBuffer[r];
+        IntBuffer[] vers = new IntBuffer[r];
+        choisirReperes(sansReperes, depuis, vers);
+
+        return new RoadGraph(n, m, la, lo, premier, voisin, duree, longueur, depuis, vers);
+    }
+
+    /**
+     * Repères "au plus loin" et leurs tables de durées.
+     */
+    private static void choisirReperes(RoadGraph graphe, IntBuffer[] depuis, IntBuffer[] vers) {
+        if (depuis.length == 0) {
+            return;
+        }
+        int n = graphe.nbNoeuds();
+        RouteSearch recherche = new RouteSearch(graphe);
+        int[] toutLeGraphe = new int[0];
+
+        // Premier repère : le nœud le plus éloigné du nœud 0
+        recherche.dijkstra(RoadGraph.SORTANT, 0, toutLeGraphe, RoadGraph.INFINI);
+        int repere = plusEloigne(recherche, n, null);
+
+        int[] plusProcheRepere = new int[n];
+        Arrays.fill(plusProcheRepere, RoadGraph.INFINI);
+        for (int r = 0; r < depuis.length; r++) {
+            int[] d = new int[n];
+            recherche.dijkstra(RoadGraph.SORTANT, repere, toutLeGraphe, RoadGraph.INFINI);
+            for (int v = 0; v < n; v++) {
+                d[v] = recherche.dureeVers(v);
+                plusProcheRepere[v] = Math.min(plusProcheRepere[v], d[v]);
+            }
+            depuis[r] = IntBuffer.wrap(d);
+
+            int[] dv = new int[n];
+            recherche.dijkstra(RoadGraph.ENTRANT, repere, toutLeGraphe, RoadGraph.INFINI);
+            for (int v = 0; v < n; v++) {
+                dv[v] = recherche.dureeVers(v);
+            }
+            vers[r] = IntBuffer.wrap(dv);
+
+            repere = plusEloigne(recherche, n, plusProcheRepere);
+        }
+    }
+
+    /**
+     * Nœud atteint le plus éloigné : d'après la dernière recherche, ou d'après
+     * la durée au repère le plus proche si "distances" est fourni.
+     */
+    private static int plusEloigne(RouteSearch recherche, int n, int[] distances) {
+        int meilleur = 0;
+        int max = -1;
+        for (int v = 0; v < n; v++) {
+            int d = (distances == null) ? recherche.dureeVers(v) : distances[v];
+            if (d != RoadGraph.INFINI && d > max) {
+                max = d;
+                meilleur = v;
+            }
+        }
+        return meilleur;
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ Import CSV / ligne de commande
+    // ---------------------------------------------------------------------
+
+    public static RoadGraphBuilder depuisCsv(Path noeuds, Path arcs) throws IOException {
+        RoadGraphBuilder builder = new RoadGraphBuilder();
+        Map<Long, Integer> indices = new HashMap<>();
+
+        try (BufferedReader lecteur = Files.newBufferedReader(noeuds, StandardCharsets.UTF_8)) {
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                String[] c = champs(ligne);
+                if (c == null) {
+                    continue;
+                }
+                indices.put(Long.parseLong(c[0]),
+                        builder.ajouterNoeud(Double.parseDouble(c[1]), Double.parseDouble(c[2])));
+            }
+        }
+
+        try (BufferedReader lecteur = Files.newBufferedReader(arcs, StandardCharsets.UTF_8)) {
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                String[] c = champs(ligne);
+                if (c == null) {
+                    continue;
+                }
+                Integer de = indices.get(Long.parseLong(c[0]));
+                Integer vers = indices.get(Long.parseLong(c[1]));
+                if (de == null || vers == null) {
+                    throw new IllegalArgumentException("Arc vers un nœud inconnu : " + ligne);
+                }
+                double longueurM = Double.parseDouble(c[2]);
+                double dureeS = Double.parseDouble(c[3]);
+                builder.ajouterArc(de, vers, longueurM, dureeS);
+                if (c.length > 4 && "1".equals(c[4])) {
+                    builder.ajouterArc(vers, de, longueurM, dureeS);
+                }
+            }
+        }
+        return builder;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage : RoadGraphBuilder noeuds.csv arcs.csv graphe.tfrg [nbReperes]");
+            System.exit(2);
+        }
+        int nbReperes = (args.length > 3) ? Integer.parseInt(args[3]) : REPERES_PAR_DEFAUT;
+
+        long debut = System.nanoTime();
+        RoadGraphBuilder builder = depuisCsv(Path.of(args[0]), Path.of(args[1]));
+        RoadGraph graphe = builder.construire(nbReperes);
+        graphe.ecrire(Path.of(args[2]));
+        System.out.printf("Graphe routier : %d noeuds, %d arcs, %d reperes, %d s%n",
+                graphe.nbNoeuds(), graphe.nbArcs(), graphe.nbReperes(),
+                (System.nanoTime() - debut) / 1_000_000_000L);
+    }
+
+    /**
+     * Champs d'une ligne CSV ; null pour une ligne vide ou d'en-tête.
+     */
+    private static String[] champs(String ligne) {
+        String l = ligne.strip();
+        if (l.isEmpty() || !(Character.isDigit(l.charAt(0)) || l.charAt(0) == '-')) {
+            return null;
+        }
+        String[] c = l.split("[,;]");
+        for (int i = 0; i < c.length; i++) {
+            c[i] = c[i].strip();
+        }
+        return c;
+    }
+}
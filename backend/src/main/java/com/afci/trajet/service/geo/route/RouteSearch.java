@@ -0,0 +1,251 @@
+package com.afci.trajet.service.geo.route;
+
+import java.util.Arrays;
+
+/**
+ * État d'une recherche de plus court chemin sur un RoadGraph.
+ *
+ * Tableaux dimensionnés au graphe et réutilisés d'une recherche à l'autre :
+ * un numéro de génération marque les nœuds vus / fermés, rien n'est remis
+ * à zéro entre deux recherches. Une instance n'est PAS partagée entre threads
+ * (RoutingEngine en tient une réserve).
+ *
+ * File de priorité : tas binaire de long (priorité << 32 | nœud), sans objet
+ * alloué ; les entrées périmées sont ignorées au dépilage.
+ */
+final class RouteSearch {
+
+    private final RoadGraph graphe;
+
+    /** Meilleure durée connue depuis l'origine (dixièmes de seconde). */
+    private final int[] duree;
+    /** Arc par lequel le nœud a été atteint, -1 pour l'origine. */
+    private final int[] arcParent;
+    /** 2 * generation : vu ; 2 * generation + 1 : fermé ; autre : pas encore vu. */
+    private final int[] etat;
+    private int generation = 0;
+    private int sens;
+
+    /** A* : cible et repères actifs de la recherche en cours. */
+    private int cible;
+    private int[] reperes;
+
+    private long[] tas = new long[1024];
+    private int tailleTas;
+
+    RouteSearch(RoadGraph graphe) {
+        this.graphe = graphe;
+        int n = graphe.nbNoeuds();
+        this.duree = new int[n];
+        this.arcParent = new int[n];
+        this.etat = new int[n];
+    }
+
+    RoadGraph graphe() {
+        return graphe;
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Recherches
+    // ---------------------------------------------------------------------
+
+    /**
+     * Dijkstra depuis origine, dans le sens donné (ENTRANT : durées VERS origine).
+     * S'arrête quand toutes les cibles sont fermées, ou au-delà de dureeMax.
+     *
+     * @param cibles nœuds à atteindre (triés, distincts) ; vide = tout le graphe
+     */
+    void dijkstra(int sens, int origine, int[] cibles, int dureeMax) {
+        demarrer(sens, origine);
+        empiler(0, origine);
+        int restantes = cibles.length;
+
+        while (tailleTas > 0) {
+            long tete = depiler();
+            int u = (int) tete;
+            int du = (int) (tete >>> 32);
+            if (estFerme(u) || du != duree[u]) {
+                continue;
+            }
+            if (du > dureeMax) {
+                break;
+            }
+            etat[u] = 2 * generation + 1;
+            if (cibles.length > 0 && Arrays.binarySearch(cibles, u) >= 0 && --restantes == 0) {
+                break;
+            }
+            relacher(u, du, false);
+        }
+    }
+
+    /**
+     * A* point à point avec repères (ALT) : l'heuristique est une borne
+     * inférieure tirée de l'inégalité triangulaire sur les durées pré-calculées
+     * depuis / vers chaque repère actif.
+     *
+     * @param reperes indices des repères à utiliser (les plus informatifs pour ce couple)
+     * @return durée origine -> cible, INFINI si la cible n'est pas atteignable
+     */
+    int aEtoile(int origine, int cible, int[] reperes) {
+        this.cible = cible;
+        this.reperes = reperes;
+        demarrer(RoadGraph.SORTANT, origine);
+        // La file est ordonnée sur durée + potentiel ; la durée exacte est dans duree[].
+        empiler(potentiel(origine), origine);
+
+        while (tailleTas > 0) {
+            long tete = depiler();
+            int u = (int) tete;
+            if (estFerme(u)) {
+                continue;
+            }
+            etat[u] = 2 * generation + 1;
+            if (u == cible) {
+                return duree[u];
+            }
+            relacher(u, duree[u], true);
+        }
+        return RoadGraph.INFINI;
+    }
+
+    /**
+     * Borne inférieure de la durée noeud -> cible (repères ALT).
+     */
+    private int potentiel(int noeud) {
+        int borne = 0;
+        for (int r : reperes) {
+            int lc = graphe.depuisRepere(r, cible);
+            int lv = graphe.depuisRepere(r, noeud);
+            if (lc != RoadGraph.INFINI && lv != RoadGraph.INFINI) {
+                borne = Math.max(borne, lc - lv);
+            }
+            int vl = graphe.versRepere(r, noeud);
+            int cl = graphe.versRepere(r, cible);
+            if (vl != RoadGraph.INFINI && cl != RoadGraph.INFINI) {
+                borne = Math.max(borne, vl - cl);
+            }
+        }
+        return borne;
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Résultats de la dernière recherche
+    // ---------------------------------------------------------------------
+
+    /**
+     * Durée trouvée jusqu'au nœud (fermé), INFINI sinon.
+     */
+    int dureeVers(int noeud) {
+        return estFerme(noeud) ? duree[noeud] : RoadGraph.INFINI;
+    }
+
+    /**
+     * Longueur en mètres du chemin trouvé jusqu'au nœud (fermé).
+     */
+    long longueurVers(int noeud) {
+        long metres = 0;
+        for (int v = noeud; arcParent[v] >= 0; v = graphe.proprietaire(sens, arcParent[v])) {
+            metres += graphe.longueur(sens, arcParent[v]);
+        }
+        return metres;
+    }
+
+    /**
+     * Nœuds du chemin trouvé, de l'origine au nœud (sens SORTANT), ou du nœud
+     * à l'origine (sens ENTRANT) : toujours dans le sens de circulation.
+     */
+    int[] chemin(int noeud) {
+        int nb = 1;
+        for (int v = noeud; arcParent[v] >= 0; v = graphe.proprietaire(sens, arcParent[v])) {
+            nb++;
+        }
+        int[] chemin = new int[nb];
+        int i = (sens == RoadGraph.SORTANT) ? nb - 1 : 0;
+        int pas = (sens == RoadGraph.SORTANT) ? -1 : 1;
+        for (int v = noeud; ; v = graphe.proprietaire(sens, arcParent[v])) {
+            chemin[i] = v;
+            i += pas;
+            if (arcParent[v] < 0) {
+                break;
+            }
+        }
+        return chemin;
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private void demarrer(int sens, int origine) {
+        this.sens = sens;
+        if (++generation >= Integer.MAX_VALUE / 2) {
+            Arrays.fill(etat, 0);
+            generation = 1;
+        }
+        tailleTas = 0;
+        duree[origine] = 0;
+        arcParent[origine] = -1;
+        etat[origine] = 2 * generation;
+    }
+
+    /**
+     * @param avecPotentiel priorité = durée + potentiel (A*), sinon durée seule
+     */
+    private void relacher(int u, int du, boolean avecPotentiel) {
+        int fin = graphe.premier(sens, u + 1);
+        for (int a = graphe.premier(sens, u); a < fin; a++) {
+            int v = graphe.voisin(sens, a);
+            if (estFerme(v)) {
+                continue;
+            }
+            int dv = du + graphe.duree(sens, a);
+            if (etat[v] != 2 * generation || dv < duree[v]) {
+                duree[v] = dv;
+                arcParent[v] = a;
+                etat[v] = 2 * generation;
+                empiler(avecPotentiel ? dv + potentiel(v) : dv, v);
+            }
+        }
+    }
+
+    private boolean estFerme(int noeud) {
+        return etat[noeud] == 2 * generation + 1;
+    }
+
+    private void empiler(int priorite, int noeud) {
+        if (tailleTas == tas.length) {
+            tas = Arrays.copyOf(tas, tas.length * 2);
+        }
+        long cle = ((long) priorite << 32) | (noeud & 0xFFFFFFFFL);
+        int i = tailleTas++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (tas[parent] <= cle) {
+                break;
+            }
+            tas[i] = tas[parent];
+            i = parent;
+        }
+        tas[i] = cle;
+    }
+
+    private long depiler() {
+        long tete = tas[0];
+        long dernier = tas[--tailleTas];
+        int i = 0;
+        int moitie = tailleTas >>> 1;
+        while (i < moitie) {
+            int enfant = 2 * i + 1;
+            if (enfant + 1 < tailleTas && tas[enfant + 1] < tas[enfant]) {
+                enfant++;
+            }
+            if (dernier <= tas[enfant]) {
+                break;
+            }
+            tas[i] = tas[enfant];
+            i = enfant;
+        }
+        tas[i] = dernier;
+        return tete;
+    }
+}
@@ -0,0 +1,288 @@
+package com.afci.trajet.service.geo.route;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.service.geo.DistanceEngine;
+
+/**
+ * Moteur de routage local : distances et durées en voiture sur le réseau
+ * routier, sans service externe.
+ *
+ * Le graphe (RoadGraph) est produit hors ligne par RoadGraphBuilder puis
+ * projeté en mémoire au démarrage depuis routage.graphe.fichier. Sans fichier,
+ * le moteur est inactif (estDisponible() = false) et l'application garde les
+ * distances à vol d'oiseau.
+ *
+ * Recherches :
+ *  - point à point : A* avec repères (ALT), trace de l'itinéraire comprise ;
+ *  - un-vers-plusieurs / plusieurs-vers-un : un seul Dijkstra borné
+ *    (routage.duree-max), arrêté dès que toutes les cibles sont atteintes.
+ *
+ * Une adresse est accrochée au nœud le plus proche (au plus routage.accroche-max-km) ;
+ * le tronçon d'accroche est compté à vol d'oiseau, à VITESSE_ACCROCHE_KMH.
+ *
+ * Concurrence : au plus routage.recherches-simultanees recherches à la fois,
+ * chacune avec son état (tableaux dimensionnés au graphe) pris dans une réserve.
+ */
+@Component
+public class RoutingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingEngine.class);
+
+    /** Vitesse retenue entre une adresse et son nœud d'accroche. */
+    static final double VITESSE_ACCROCHE_KMH = 30.0;
+
+    /** Nombre maximal de points de la trace restituée. */
+    private static final int TRACE_POINTS_MAX = 500;
+
+    private final String fichier;
+    private final double accrocheMaxKm;
+    private final int dureeMaxDs;
+    private final int reperesActifs;
+    private final Semaphore recherches;
+    private final ConcurrentLinkedQueue<RouteSearch> reserve = new ConcurrentLinkedQueue<>();
+
+    private volatile RoadGraph graphe;
+
+    public RoutingEngine(@Value("${routage.graphe.fichier:}") String fichier,
+                         @Value("${routage.recherches-simultanees:4}") int recherchesSimultanees,
+                         @Value("${routage.accroche-max-km:5}") double accrocheMaxKm,
+                         @Value("${routage.duree-max:PT6H}") Duration dureeMax,
+                         @Value("${routage.reperes-actifs:4}") int reperesActifs) {
+        this.fichier = fichier;
+        this.accrocheMaxKm = accrocheMaxKm;
+        this.dureeMaxDs = (int) Math.min(dureeMax.toMillis() / 100, Integer.MAX_VALUE - 1);
+        this.reperesActifs = reperesActifs;
+        this.recherches = new Semaphore(recherchesSimultanees);
+    }
+
+    /**
+     * Itinéraire point à point.
+     *
+     * @param distanceKm distance routière (accroches comprises)
+     * @param dureeMin   durée en minutes (accroches comprises)
+     * @param lats       trace en degrés, du départ à l'arrivée (échantillonnée)
+     */
+    public record Itineraire(double distanceKm, double dureeMin, double[] lats, double[] lons) {
+    }
+
+    /**
+     * Résultat un-vers-plusieurs, dans l'ordre des points demandés ;
+     * NaN quand aucune route n'a été trouvée.
+     */
+    public record Trajets(double[] distancesKm, double[] dureesMin) {
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Chargement
+    // ---------------------------------------------------------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void chargerAuDemarrage() {
+        if (fichier == null || fichier.isBlank()) {
+            log.info("Routage local désactivé (routage.graphe.fichier vide) : distances à vol d'oiseau");
+            return;
+        }
+        try {
+            charger(Path.of(fichier));
+        } catch (IOException ex) {
+            log.warn("Graphe routier illisible, routage local désactivé : {}", ex.getMessage());
+        }
+    }
+
+    public synchronized void charger(Path chemin) throws IOException {
+        long debut = System.nanoTime();
+        RoadGraph g = RoadGraph.charger(chemin);
+        reserve.clear();
+        graphe = g;
+        log.info("Graphe routier chargé : {} nœuds, {} arcs, {} repères en {} ms",
+                g.nbNoeuds(), g.nbArcs(), g.nbReperes(), (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    public boolean estDisponible() {
+        return graphe != null;
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Recherches
+    // ---------------------------------------------------------------------
+
+    /**
+     * Trajet le plus rapide de (latDepart, lonDepart) à (latArrivee, lonArrivee).
+     * Vide si le moteur est inactif, si un point est trop loin du réseau ou
+     * s'il n'existe pas de route.
+     */
+    public Optional<Itineraire> itineraire(double latDepart, double lonDepart,
+                                           double latArrivee, double lonArrivee) {
+        RoadGraph g = graphe;
+        if (g == null) {
+            return Optional.empty();
+        }
+        int depart = g.noeudLePlusProche(latDepart, lonDepart, accrocheMaxKm);
+        int arrivee = g.noeudLePlusProche(latArrivee, lonArrivee, accrocheMaxKm);
+        if (depart < 0 || arrivee < 0) {
+            return Optional.empty();
+        }
+        double accrocheKm = accrocheKm(g, depart, latDepart, lonDepart) + accrocheKm(g, arrivee, latArrivee, lonArrivee);
+
+        RouteSearch recherche = prendre(g);
+        try {
+            int dureeDs = recherche.aEtoile(depart, arrivee, reperesActifs(g, depart, arrivee));
+            if (dureeDs == RoadGraph.INFINI) {
+                return Optional.empty();
+            }
+            double distanceKm = recherche.longueurVers(arrivee) / 1000.0 + accrocheKm;
+            double dureeMin = dureeDs / 600.0 + accrocheKm / VITESSE_ACCROCHE_KMH * 60.0;
+
+            int[] chemin = recherche.chemin(arrivee);
+            int pas = Math.max(1, (chemin.length + TRACE_POINTS_MAX - 1) / TRACE_POINTS_MAX);
+            int nb = (chemin.length - 1) / pas + 2;
+            double[] lats = new double[nb];
+            double[] lons = new double[nb];
+            lats[0] = latDepart;
+            lons[0] = lonDepart;
+            int i = 1;
+            for (int k = 0; k < chemin.length; k += pas) {
+                lats[i] = g.latitude(chemin[k]);
+                lons[i] = g.longitude(chemin[k]);
+                i++;
+            }
+            lats = Arrays.copyOf(lats, i + 1);
+            lons = Arrays.copyOf(lons, i + 1);
+            lats[i] = latArrivee;
+            lons[i] = lonArrivee;
+            return Optional.of(new Itineraire(distanceKm, dureeMin, lats, lons));
+        } finally {
+            rendre(recherche);
+        }
+    }
+
+    /**
+     * Trajets de (lat, lon) vers chaque point : un seul Dijkstra.
+     */
+    public Trajets unVersPlusieurs(double lat, double lon, double[] lats, double[] lons) {
+        return plusieurs(RoadGraph.SORTANT, lat, lon, lats, lons);
+    }
+
+    /**
+     * Trajets de chaque point vers (lat, lon) : un seul Dijkstra sur les arcs
+     * entrants (ex : domiciles des formateurs vers une école).
+     */
+    public Trajets plusieursVersUn(double[] lats, double[] lons, double lat, double lon) {
+        return plusieurs(RoadGraph.ENTRANT, lat, lon, lats, lons);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private Trajets plusieurs(int sens, double lat, double lon, double[] lats, double[] lons) {
+        int k = lats.length;
+        double[] distances = new double[k];
+        double[] durees = new double[k];
+        Arrays.fill(distances, Double.NaN);
+        Arrays.fill(durees, Double.NaN);
+
+        RoadGraph g = graphe;
+        int origine = (g == null) ? -1 : g.noeudLePlusProche(lat, lon, accrocheMaxKm);
+        if (origine < 0 || k == 0) {
+            return new Trajets(distances, durees);
+        }
+        double accrocheOrigineKm = accrocheKm(g, origine, lat, lon);
+
+        int[] noeuds = new int[k];
+        for (int i = 0; i < k; i++) {
+            noeuds[i] = g.noeudLePlusProche(lats[i], lons[i], accrocheMaxKm);
+        }
+        int[] cibles = Arrays.stream(noeuds).filter(v -> v >= 0).distinct().sorted().toArray();
+        if (cibles.length == 0) {
+            return new Trajets(distances, durees);
+        }
+
+        RouteSearch recherche = prendre(g);
+        try {
+            recherche.dijkstra(sens, origine, cibles, dureeMaxDs);
+            for (int i = 0; i < k; i++) {
+                int v = noeuds[i];
+                if (v < 0 || recherche.dureeVers(v) == RoadGraph.INFINI) {
+                    continue;
+                }
+                double accroche = accrocheOrigineKm + accrocheKm(g, v, lats[i], lons[i]);
+                distances[i] = recherche.longueurVers(v) / 1000.0 + accroche;
+                durees[i] = recherche.dureeVers(v) / 600.0 + accroche / VITESSE_ACCROCHE_KMH * 60.0;
+            }
+        } finally {
+            rendre(recherche);
+        }
+        return new Trajets(distances, durees);
+    }
+
+    /**
+     * Repères les plus informatifs pour ce couple : ceux qui donnent la plus
+     * forte borne inférieure au départ (les autres ralentissent sans guider).
+     */
+    private int[] reperesActifs(RoadGraph g, int depart, int arrivee) {
+        int r = g.nbReperes();
+        if (r <= reperesActifs) {
+            int[] tous = new int[r];
+            Arrays.setAll(tous, i -> i);
+            return tous;
+        }
+        long[] bornes = new long[r];
+        for (int i = 0; i < r; i++) {
+            long borne = 0;
+            int la = g.depuisRepere(i, arrivee);
+            int ld = g.depuisRepere(i, depart);
+            if (la != RoadGraph.INFINI && ld != RoadGraph.INFINI) {
+                borne = Math.max(borne, la - ld);
+            }
+            int dl = g.versRepere(i, depart);
+            int al = g.versRepere(i, arrivee);
+            if (dl != RoadGraph.INFINI && al != RoadGraph.INFINI) {
+                borne = Math.max(borne, dl - al);
+            }
+            // borne en poids fort, indice en poids faible : un seul tri
+            bornes[i] = (borne << 32) | i;
+        }
+        Arrays.sort(bornes);
+        int[] actifs = new int[reperesActifs];
+        for (int i = 0; i < reperesActifs; i++) {
+            actifs[i] = (int) bornes[r - 1 - i];
+        }
+        return actifs;
+    }
+
+    private static double accrocheKm(RoadGraph g, int noeud, double lat, double lon) {
+        return DistanceEngine.distanceKm(lat, lon, g.latitude(noeud), g.longitude(noeud));
+    }
+
+    private RouteSearch prendre(RoadGraph g) {
+        recherches.acquireUninterruptibly();
+        RouteSearch r = reserve.poll();
+        while (r != null && r.graphe() != g) {
+            // état d'un graphe rechargé depuis : abandonné
+            r = reserve.poll();
+        }
+        return (r != null) ? r : new RouteSearch(g);
+    }
+
+    private void rendre(RouteSearch recherche) {
+        if (recherche.graphe() == graphe) {
+            reserve.offer(recherche);
+        }
+        recherches.release();
+    }
+}
@@ -0,0 +1,249 @@
+package com.afci.trajet.service.geocodage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.afci.trajet.service.GeocodingService.Precision;
+
+/**
+ * Client du géocodage EN MASSE de l'API Adresse : POST {api}/search/csv/.
+ *
+ * Un appel = un lot d'adresses envoyé comme fichier CSV (multipart) :
+ *
+ *   id,adresse
+ *   0,"20 rue Jules Barni, 80000 Amiens, FR"
+ *   1,...
+ *
+ * L'API renvoie le même CSV enrichi des colonnes latitude / longitude /
+ * result_type / result_status. Dans les deux sens, rien n'est matérialisé en
+ * entier : le corps multipart est écrit au fil de l'eau dans la connexion
+ * (transfert chunked), la réponse est lue ligne par ligne depuis le flux HTTP.
+ *
+ * Même pool de connexions que le géocodage unitaire (GeocodageHttpConfig,
+ * timeout de lecture geocodage.batch.timeout) et mêmes bulkhead / disjoncteur
+ * (ApiAdresseGarde) : une API en panne n'est pas relancée par les lots CSV.
+ *
+ * Le découpage en lots (taille maximale d'un appel) est fait par l'appelant,
+ * cf. GeocodingService.geocodeBatch.
+ */
+@Component
+public class AdresseCsvBatchClient {
+
+    private static final Logger log = LoggerFactory.getLogger(AdresseCsvBatchClient.class);
+
+    private static final String CRLF = "\r\n";
+
+    private final URI uriCsv;
+    private final RestTemplate restTemplate;
+    private final ApiAdresseGarde garde;
+
+    public AdresseCsvBatchClient(@Qualifier("geocodageCsvRestTemplate") RestTemplate restTemplate,
+                                 ApiAdresseGarde garde,
+                                 @Value("${geocodage.api.url:https://api-adresse.data.gouv.fr}") String apiUrl) {
+        String base = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        this.uriCsv = URI.create(base + "/search/csv/");
+        this.restTemplate = restTemplate;
+        this.garde = garde;
+    }
+
+    /**
+     * Géocode un lot d'adresses en UN appel HTTP.
+     *
+     * @return une entrée par adresse, dans le même ordre (empty = non trouvée)
+     * @throws IOException erreur technique (réseau, timeout, statut HTTP != 2xx)
+     * @throws IllegalStateException appel refusé (bulkhead plein, disjoncteur ouvert)
+     */
+    public List<Optional<Coords>> geocoder(List<String> adresses) throws IOException {
+        if (adresses.isEmpty()) {
+            return List.of();
+        }
+
+        String frontiere = "----trajet-" + UUID.randomUUID();
+        try {
+            return garde.executer(() -> restTemplate.execute(uriCsv, HttpMethod.POST,
+                    requete -> {
+                        requete.getHeaders().setContentType(
+                                MediaType.parseMediaType("multipart/form-data; boundary=" + frontiere));
+                        if (requete instanceof StreamingHttpOutputMessage flux) {
+                            flux.setBody(sortie -> ecrireCorps(sortie, adresses, frontiere));
+                        } else {
+                            ecrireCorps(requete.getBody(), adresses, frontiere);
+                        }
+                    },
+                    reponse -> lireReponse(reponse.getBody(), adresses.size())));
+        } catch (HttpStatusCodeException ex) {
+            throw new IOException("API Adresse (CSV) : statut HTTP " + ex.getStatusCode().value(), ex);
+        } catch (RestClientException ex) {
+            throw new IOException("API Adresse (CSV) : " + ex.getMessage(), ex);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Requête
+    // ---------------------------------------------------------------------
+
+    /**
+     * Écrit le corps multipart directement dans le flux de la requête
+     * (tampon de 8 Ko, aucune copie du lot). Le flux n'est pas fermé ici.
+     */
+    private static void ecrireCorps(OutputStream sortie, List<String> adresses, String frontiere) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), 8192);
+
+        // Colonne à géocoder + colonnes de résultat demandées
+        champ(w, frontiere, "columns", "adresse");
+        champ(w, frontiere, "result_columns", "latitude");
+        champ(w, frontiere, "result_columns", "longitude");
+        champ(w, frontiere, "result_columns", "result_type");
+        champ(w, frontiere, "result_columns", "result_status");
+
+        w.write("--" + frontiere + CRLF
+                + "Content-Disposition: form-data; name=\"data\"; filename=\"adresses.csv\"" + CRLF
+                + "Content-Type: text/csv" + CRLF
+                + CRLF
+                + "id,adresse\n");
+        for (int i = 0; i < adresses.size(); i++) {
+            w.write(Integer.toString(i));
+            w.write(',');
+            w.write(echapper(adresses.get(i)));
+            w.write('\n');
+        }
+        w.write(CRLF + "--" + frontiere + "--" + CRLF);
+        w.flush();
+    }
+
+    private static void champ(Writer w, String frontiere, String nom, String valeur) throws IOException {
+        w.write("--" + frontiere + CRLF
+                + "Content-Disposition: form-data; name=\"" + nom + '"' + CRLF
+                + CRLF
+                + valeur + CRLF);
+    }
+
+    /**
+     * Valeur CSV entre guillemets (guillemets doublés, retours à la ligne aplatis).
+     */
+    static String echapper(String valeur) {
+        String aplatie = (valeur == null) ? "" : valeur.replace('\r', ' ').replace('\n', ' ');
+        return '"' + aplatie.replace("\"", "\"\"") + '"';
+    }
+
+    // ---------------------------------------------------------------------
+    // Réponse (lecture en flux)
+    // ---------------------------------------------------------------------
+
+    private static List<Optional<Coords>> lireReponse(InputStream corps, int nbAdresses) throws IOException {
+        List<Optional<Coords>> resultats = new ArrayList<>(Collections.nCopies(nbAdresses, Optional.empty()));
+
+        BufferedReader lecteur = new BufferedReader(new InputStreamReader(corps, StandardCharsets.UTF_8));
+        String entete = lecteur.readLine();
+        if (entete == null) {
+            throw new IOException("API Adresse (CSV) : réponse vide");
+        }
+
+        List<String> colonnes = decouper(retirerBom(entete));
+        int iId = colonnes.indexOf("id");
+        int iLat = colonnes.indexOf("latitude");
+        int iLon = colonnes.indexOf("longitude");
+        int iType = colonnes.indexOf("result_type");
+        int iStatut = colonnes.indexOf("result_status");
+        if (iId < 0 || iLat < 0 || iLon < 0) {
+            throw new IOException("API Adresse (CSV) : colonnes inattendues " + colonnes);
+        }
+
+        String ligne;
+        while ((ligne = lecteur.readLine()) != null) {
+            if (ligne.isBlank()) {
+                continue;
+            }
+            List<String> valeurs = decouper(ligne);
+            if (valeurs.size() <= Math.max(iId, Math.max(iLat, iLon))) {
+                log.warn("Ligne CSV ignorée (colonnes manquantes) : {}", ligne);
+                continue;
+            }
+
+            int index;
+            try {
+                index = Integer.parseInt(valeurs.get(iId));
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            if (index < 0 || index >= nbAdresses) {
+                continue;
+            }
+
+            String statut = (iStatut >= 0 && iStatut < valeurs.size()) ? valeurs.get(iStatut) : "ok";
+            String lat = valeurs.get(iLat);
+            String lon = valeurs.get(iLon);
+            if ("ok".equals(statut) && !lat.isEmpty() && !lon.isEmpty()) {
+                String type = (iType >= 0 && iType < valeurs.size()) ? valeurs.get(iType) : null;
+                resultats.set(index, Optional.of(new Coords(new BigDecimal(lat), new BigDecimal(lon),
+                        Precision.depuisTypeApi(type))));
+            }
+        }
+        return resultats;
+    }
+
+    /**
+     * Découpe une ligne CSV (séparateur virgule, champs éventuellement entre guillemets).
+     */
+    static List<String> decouper(String ligne) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder courant = new StringBuilder();
+        boolean entreGuillemets = false;
+
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"') {
+                    if (i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                        courant.append('"');
+                        i++;
+                    } else {
+                        entreGuillemets = false;
+                    }
+                } else {
+                    courant.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == ',') {
+                champs.add(courant.toString());
+                courant.setLength(0);
+            } else {
+                courant.append(c);
+            }
+        }
+        champs.add(courant.toString());
+        return champs;
+    }
+
+    private static String retirerBom(String s) {
+        return (!s.isEmpty() && s.charAt(0) == '\uFEFF') ? s.substring(1) : s;
+    }
+}
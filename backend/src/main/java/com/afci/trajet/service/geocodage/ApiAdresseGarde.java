@@ -0,0 +1,112 @@
+package com.afci.trajet.service.geocodage;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Protections communes à TOUS les appels vers l'API Adresse (géocodage
+ * unitaire et CSV en masse) : une panne de l'API doit couper les deux.
+ *
+ *  - bulkhead : au plus geocodage.http.max-concurrents appels simultanés,
+ *    attente bornée (geocodage.http.attente-bulkhead) puis refus ;
+ *  - disjoncteur : trop d'échecs récents => refus immédiat pendant
+ *    geocodage.disjoncteur.duree-ouverture.
+ *
+ * Un refus est une erreur technique (IllegalStateException).
+ *
+ * Métriques Micrometer :
+ *  - geocodage.api.rejets{cause=bulkhead|disjoncteur}
+ *  - geocodage.api.disjoncteur (0 = fermé, 1 = demi-ouvert, 2 = ouvert)
+ */
+@Component
+public class ApiAdresseGarde {
+
+    /**
+     * Appel protégé ; E = exception contrôlée éventuelle (IOException pour le CSV).
+     */
+    @FunctionalInterface
+    public interface Appel<T, E extends Exception> {
+        T executer() throws E;
+    }
+
+    private final Semaphore bulkhead;
+    private final Duration attenteBulkhead;
+    private final CircuitBreaker disjoncteur;
+
+    private final Counter rejetsBulkhead;
+    private final Counter rejetsDisjoncteur;
+
+    public ApiAdresseGarde(MeterRegistry meterRegistry,
+                           @Value("${geocodage.http.max-concurrents:10}") int maxConcurrents,
+                           @Value("${geocodage.http.attente-bulkhead:PT0.2S}") Duration attenteBulkhead,
+                           @Value("${geocodage.disjoncteur.fenetre:20}") int fenetre,
+                           @Value("${geocodage.disjoncteur.appels-min:10}") int appelsMin,
+                           @Value("${geocodage.disjoncteur.seuil-echec:0.5}") double seuilEchec,
+                           @Value("${geocodage.disjoncteur.duree-ouverture:PT30S}") Duration dureeOuverture) {
+        this.bulkhead = new Semaphore(maxConcurrents);
+        this.attenteBulkhead = attenteBulkhead;
+        this.disjoncteur = new CircuitBreaker(fenetre, appelsMin, seuilEchec, dureeOuverture);
+
+        this.rejetsBulkhead = Counter.builder("geocodage.api.rejets").tag("cause", "bulkhead").register(meterRegistry);
+        this.rejetsDisjoncteur = Counter.builder("geocodage.api.rejets").tag("cause", "disjoncteur").register(meterRegistry);
+        meterRegistry.gauge("geocodage.api.disjoncteur", disjoncteur, d -> d.etat().ordinal());
+    }
+
+    /**
+     * Exécute l'appel sous bulkhead et disjoncteur.
+     *
+     * @throws IllegalStateException si l'appel est refusé (bulkhead plein, disjoncteur ouvert)
+     */
+    public <T, E extends Exception> T executer(Appel<T, E> appel) throws E {
+        // 1) Bulkhead : attente courte, jamais illimitée
+        try {
+            if (!bulkhead.tryAcquire(attenteBulkhead.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejetsBulkhead.increment();
+                throw new IllegalStateException("API Adresse : trop d'appels simultanés, requête refusée.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Géocodage interrompu.", ex);
+        }
+
+        try {
+            // 2) Disjoncteur
+            if (!disjoncteur.autoriser()) {
+                rejetsDisjoncteur.increment();
+                throw new IllegalStateException("API Adresse indisponible (disjoncteur ouvert).");
+            }
+
+            try {
+                T resultat = appel.executer();
+                disjoncteur.succes();
+                return resultat;
+            } catch (HttpClientErrorException ex) {
+                // 4xx : requête refusée, pas un signe de dégradation de l'API (sauf 429)
+                if (ex.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                    disjoncteur.echec();
+                } else {
+                    disjoncteur.succes();
+                }
+                throw ex;
+            } catch (Exception ex) {
+                disjoncteur.echec();
+                throw ex;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public CircuitBreaker.Etat etatDisjoncteur() {
+        return disjoncteur.etat();
+    }
+}
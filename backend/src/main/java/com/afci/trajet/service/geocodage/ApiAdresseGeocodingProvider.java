@@ -0,0 +1,202 @@
+package com.afci.trajet.service.geocodage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.afci.trajet.service.GeocodingService.Precision;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Géocodage unitaire via l'API Adresse : GET {api}/search/?q=...&limit=1.
+ *
+ * Protections (une API lente ne doit pas immobiliser les threads Tomcat) :
+ *  - client poolé à timeouts stricts (cf. GeocodageHttpConfig) ;
+ *  - bulkhead et disjoncteur partagés avec le client CSV (cf. ApiAdresseGarde).
+ *
+ * Un refus est une erreur technique (IllegalStateException) : la file de
+ * géocodage réessaiera, GeocodingService.geocodeAdresse bascule sur le
+ * gazetteer.
+ *
+ * La réponse GeoJSON est lue en flux : seuls features[0].geometry.coordinates
+ * et features[0].properties.type sont extraits, sans arbre ni Map.
+ *
+ * Pas de cache ici (cf. GeocodageCache, orchestré par GeocodingService).
+ *
+ * Métrique Micrometer : geocodage.api.latence (histogramme, appels réellement émis)
+ */
+@Component
+public class ApiAdresseGeocodingProvider implements GeocodingProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiAdresseGeocodingProvider.class);
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .build();
+
+    // URL de l’API Adresse (geocodage.api.url + /search/)
+    private final String apiUrl;
+
+    private final RestTemplate restTemplate;
+    private final ApiAdresseGarde garde;
+
+    private final Timer latence;
+
+    public ApiAdresseGeocodingProvider(
+            @Qualifier("geocodageRestTemplate") RestTemplate restTemplate,
+            ApiAdresseGarde garde,
+            MeterRegistry meterRegistry,
+            @Value("${geocodage.api.url:https://api-adresse.data.gouv.fr}") String apiUrl) {
+        this.apiUrl = (apiUrl.endsWith("/") ? apiUrl : apiUrl + "/") + "search/";
+        this.restTemplate = restTemplate;
+        this.garde = garde;
+
+        this.latence = Timer.builder("geocodage.api.latence")
+                .description("Durée des appels à l'API Adresse (hors cache)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String nom() {
+        return "api-adresse";
+    }
+
+    /**
+     * Optional.empty() = l'API a répondu mais sans coordonnées exploitables ;
+     * une exception = erreur technique (réseau, timeout, 5xx, refus du
+     * bulkhead ou du disjoncteur...).
+     */
+    @Override
+    public Optional<Coords> geocoder(String adresseComplete) {
+        return garde.executer(() -> latence.record(() -> appeler(adresseComplete)));
+    }
+
+    public CircuitBreaker.Etat etatDisjoncteur() {
+        return garde.etatDisjoncteur();
+    }
+
+    // ---------------------------------------------------------------------
+    // Appel + lecture en flux
+    // ---------------------------------------------------------------------
+
+    private Optional<Coords> appeler(String adresseComplete) {
+        // ⚠️ IMPORTANT : on laisse Spring gérer l’encodage
+        // -> PAS de build(true), on fait build() puis encode()
+        URI uri = UriComponentsBuilder
+                .fromUriString(apiUrl)
+                .queryParam("q", adresseComplete)
+                .queryParam("limit", 1)
+                .build()
+                .encode(StandardCharsets.UTF_8)
+                .toUri();
+
+        log.debug("Appel API Adresse : {}", uri);
+
+        Optional<Coords> coords = restTemplate.execute(uri, HttpMethod.GET,
+                requete -> requete.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                reponse -> lire(reponse.getBody()));
+
+        if (coords == null || coords.isEmpty()) {
+            log.debug("Aucune coordonnée retournée pour '{}'", adresseComplete);
+            return Optional.empty();
+        }
+        log.debug("Coordonnées trouvées pour '{}': {}", adresseComplete, coords.get());
+        return coords;
+    }
+
+    /**
+     * Lit features[0] et ignore tout le reste (skipChildren).
+     * Le corps est ensuite vidé pour que la connexion retourne au pool.
+     */
+    static Optional<Coords> lire(InputStream corps) throws IOException {
+        try (JsonParser p = JSON.createParser(corps)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return Optional.empty();
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String champ = p.currentName();
+                JsonToken valeur = p.nextToken();
+                if ("features".equals(champ) && valeur == JsonToken.START_ARRAY) {
+                    return (p.nextToken() == JsonToken.START_OBJECT) ? lireFeature(p) : Optional.empty();
+                }
+                p.skipChildren();
+            }
+            return Optional.empty();
+        } finally {
+            corps.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static Optional<Coords> lireFeature(JsonParser p) throws IOException {
+        BigDecimal lat = null;
+        BigDecimal lon = null;
+        String type = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String champ = p.currentName();
+            JsonToken valeur = p.nextToken();
+
+            if ("geometry".equals(champ) && valeur == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String sousChamp = p.currentName();
+                    if (p.nextToken() == JsonToken.START_ARRAY && "coordinates".equals(sousChamp)) {
+                        // Format API Adresse : [lon, lat]
+                        BigDecimal[] xy = new BigDecimal[2];
+                        for (int i = 0; p.nextToken() != JsonToken.END_ARRAY; i++) {
+                            if (i < 2 && p.currentToken().isNumeric()) {
+                                xy[i] = p.getDecimalValue();
+                            }
+                            p.skipChildren();
+                        }
+                        lon = xy[0];
+                        lat = xy[1];
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            } else if ("properties".equals(champ) && valeur == JsonToken.START_OBJECT) {
+                // properties.type : housenumber / street / locality / municipality
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String sousChamp = p.currentName();
+                    p.nextToken();
+                    if ("type".equals(sousChamp)) {
+                        type = p.getValueAsString();
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+
+        if (lat == null || lon == null) {
+            log.warn("Coordonnées absentes ou incomplètes dans la réponse de l'API Adresse");
+            return Optional.empty();
+        }
+        return Optional.of(new Coords(lat, lon, Precision.depuisTypeApi(type)));
+    }
+}
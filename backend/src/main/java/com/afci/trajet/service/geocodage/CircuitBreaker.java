@@ -0,0 +1,127 @@
+package com.afci.trajet.service.geocodage;
+
+import java.time.Duration;
+
+/**
+ * Disjoncteur minimal, à fenêtre glissante sur les N derniers appels.
+ *
+ *  - FERME       : les appels passent ; si, sur au moins "appelsMin" appels
+ *                  de la fenêtre, le taux d'échec atteint "seuilEchec",
+ *                  le disjoncteur s'ouvre ;
+ *  - OUVERT      : les appels sont refusés immédiatement pendant "dureeOuverture" ;
+ *  - DEMI_OUVERT : un seul appel d'essai ; succès => FERME, échec => OUVERT.
+ *
+ * Les sections critiques sont de quelques instructions (aucune E/S) :
+ * un simple verrou intrinsèque suffit.
+ */
+public class CircuitBreaker {
+
+    /** Ordre = gravité (exposé tel quel en jauge : 0, 1, 2). */
+    public enum Etat {
+        FERME, DEMI_OUVERT, OUVERT
+    }
+
+    private final boolean[] fenetre;
+    private final int appelsMin;
+    private final double seuilEchec;
+    private final long dureeOuvertureNanos;
+
+    private Etat etat = Etat.FERME;
+    private int position;
+    private int remplis;
+    private int echecs;
+    private long ouvertJusqua;
+    private boolean essaiEnCours;
+
+    public CircuitBreaker(int tailleFenetre, int appelsMin, double seuilEchec, Duration dureeOuverture) {
+        if (tailleFenetre <= 0 || appelsMin <= 0 || appelsMin > tailleFenetre) {
+            throw new IllegalArgumentException("Fenêtre du disjoncteur invalide.");
+        }
+        if (seuilEchec <= 0 || seuilEchec > 1) {
+            throw new IllegalArgumentException("Le seuil d'échec doit être dans ]0, 1].");
+        }
+        this.fenetre = new boolean[tailleFenetre];
+        this.appelsMin = appelsMin;
+        this.seuilEchec = seuilEchec;
+        this.dureeOuvertureNanos = dureeOuverture.toNanos();
+    }
+
+    /**
+     * @return true si l'appel peut partir ; false = échec immédiat
+     */
+    public synchronized boolean autoriser() {
+        switch (etat) {
+            case FERME:
+                return true;
+            case OUVERT:
+                if (System.nanoTime() - ouvertJusqua < 0) {
+                    return false;
+                }
+                etat = Etat.DEMI_OUVERT;
+                essaiEnCours = true;
+                return true;
+            default: // DEMI_OUVERT
+                if (essaiEnCours) {
+                    return false;
+                }
+                essaiEnCours = true;
+                return true;
+        }
+    }
+
+    public synchronized void succes() {
+        if (etat == Etat.DEMI_OUVERT) {
+            fermer();
+        } else if (etat == Etat.FERME) {
+            enregistrer(false);
+        }
+    }
+
+    public synchronized void echec() {
+        if (etat == Etat.DEMI_OUVERT) {
+            ouvrir();
+        } else if (etat == Etat.FERME) {
+            enregistrer(true);
+            if (remplis >= appelsMin && echecs >= seuilEchec * remplis) {
+                ouvrir();
+            }
+        }
+    }
+
+    public synchronized Etat etat() {
+        return etat;
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private void enregistrer(boolean enEchec) {
+        if (remplis == fenetre.length) {
+            if (fenetre[position]) {
+                echecs--;
+            }
+        } else {
+            remplis++;
+        }
+        fenetre[position] = enEchec;
+        if (enEchec) {
+            echecs++;
+        }
+        position = (position + 1) % fenetre.length;
+    }
+
+    private void ouvrir() {
+        etat = Etat.OUVERT;
+        ouvertJusqua = System.nanoTime() + dureeOuvertureNanos;
+        essaiEnCours = false;
+    }
+
+    private void fermer() {
+        etat = Etat.FERME;
+        essaiEnCours = false;
+        position = 0;
+        remplis = 0;
+        echecs = 0;
+    }
+}
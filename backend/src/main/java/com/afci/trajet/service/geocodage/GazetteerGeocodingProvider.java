@@ -0,0 +1,357 @@
+package com.afci.trajet.service.geocodage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.afci.trajet.service.GeocodingService.Precision;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Géocodeur HORS LIGNE : centroïdes "code postal + commune".
+ *
+ * Source : fichier CSV "code_postal;commune;lat;lon" (geocodage.gazetteer.source),
+ * par défaut un extrait embarqué ; le fichier complet (La Poste / IGN) peut
+ * être fourni par configuration.
+ *
+ * Au démarrage, le CSV est compilé en un index binaire trié
+ * (geocodage.gazetteer.index), puis projeté en mémoire (mmap, hors tas) :
+ *
+ *   en-tête : magic (int) | version (int) | crc32 du CSV (long) | n (int)
+ *   n × 20 o : code postal (int) | hash du nom normalisé (long) | lat (float) | lon (float)
+ *
+ * Une recherche = une recherche dichotomique sur le code postal puis quelques
+ * comparaisons de hash : quelques microsecondes, aucune allocation notable.
+ * L'index n'est recompilé que si le CSV a changé (crc32).
+ *
+ * Précision : COMMUNE si le nom correspond, CODE_POSTAL sinon
+ * (premier centroïde du code postal).
+ */
+@Component
+public class GazetteerGeocodingProvider implements GeocodingProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(GazetteerGeocodingProvider.class);
+
+    /**
+     * Place du gazetteer dans la chaîne de géocodage (cf. GeocodingService).
+     */
+    public enum Mode {
+        /** Utilisé seulement si l'API ne trouve rien ou est indisponible. */
+        FALLBACK,
+        /** Consulté en premier : l'API n'est appelée que s'il ne trouve rien. */
+        FAST_PATH,
+        /** Jamais utilisé. */
+        DISABLED
+    }
+
+    private static final int MAGIC = 0x47415A31; // "GAZ1"
+    private static final int VERSION = 1;
+    private static final int TAILLE_ENTETE = 4 + 4 + 8 + 4;
+    private static final int TAILLE_ENTREE = 4 + 8 + 4 + 4;
+
+    /** "..., 80000 Amiens, FR" : dernier "5 chiffres + nom" de l'adresse. */
+    private static final Pattern CP_VILLE = Pattern.compile("(?<![0-9])(\\d{5})\\s+([^,]+)");
+    private static final Pattern CEDEX = Pattern.compile("\\s+cedex(\\s+\\d+)?$");
+    private static final Pattern SAINT = Pattern.compile("\\bst\\b");
+    private static final Pattern SAINTE = Pattern.compile("\\bste\\b");
+
+    private final Mode mode;
+    private final String source;
+    private final Path fichierIndex;
+    private final ResourceLoader resourceLoader;
+
+    private final Counter trouves;
+    private final Counter introuvables;
+
+    /** Index projeté en mémoire (lecture seule, accès absolus => partageable entre threads). */
+    private volatile ByteBuffer index;
+    private volatile int nbEntrees;
+
+    public GazetteerGeocodingProvider(
+            @Value("${geocodage.gazetteer.mode:FALLBACK}") Mode mode,
+            @Value("${geocodage.gazetteer.source:classpath:geocodage/communes-centroides.csv}") String source,
+            @Value("${geocodage.gazetteer.index:${java.io.tmpdir}/trajet-gazetteer.idx}") String fichierIndex,
+            ResourceLoader resourceLoader,
+            MeterRegistry meterRegistry) {
+        this.mode = mode;
+        this.source = source;
+        this.fichierIndex = Path.of(fichierIndex);
+        this.resourceLoader = resourceLoader;
+        this.trouves = Counter.builder("geocodage.gazetteer").tag("resultat", "trouve").register(meterRegistry);
+        this.introuvables = Counter.builder("geocodage.gazetteer").tag("resultat", "introuvable").register(meterRegistry);
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Chargement
+    // ---------------------------------------------------------------------
+
+    @PostConstruct
+    public void charger() {
+        if (mode == Mode.DISABLED) {
+            return;
+        }
+        try {
+            byte[] csv = lireSource();
+            CRC32 crc = new CRC32();
+            crc.update(csv);
+
+            if (!indexAJour(crc.getValue())) {
+                ecrireIndex(compiler(csv), crc.getValue());
+            }
+            projeter();
+            log.info("Gazetteer chargé : {} centroïdes ({}), mode {}", nbEntrees, fichierIndex, mode);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Gazetteer indisponible ({}), géocodage hors ligne désactivé", source, ex);
+            index = null;
+            nbEntrees = 0;
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public boolean estDisponible() {
+        return mode != Mode.DISABLED && index != null;
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Recherche
+    // ---------------------------------------------------------------------
+
+    @Override
+    public String nom() {
+        return "gazetteer";
+    }
+
+    /**
+     * Extrait code postal + commune de l'adresse complète, puis rechercher(...).
+     */
+    @Override
+    public Optional<Coords> geocoder(String adresseComplete) {
+        if (adresseComplete == null) {
+            return Optional.empty();
+        }
+        Matcher m = CP_VILLE.matcher(adresseComplete);
+        String codePostal = null;
+        String ville = null;
+        while (m.find()) {
+            codePostal = m.group(1);
+            ville = m.group(2);
+        }
+        return (codePostal == null) ? Optional.empty() : rechercher(codePostal, ville);
+    }
+
+    /**
+     * Centroïde de la commune (ou, à défaut, du code postal).
+     */
+    public Optional<Coords> rechercher(String codePostal, String ville) {
+        ByteBuffer idx = index;
+        int cp = parseCodePostal(codePostal);
+        if (idx == null || cp < 0) {
+            introuvables.increment();
+            return Optional.empty();
+        }
+
+        int n = nbEntrees;
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (idx.getInt(position(mid)) < cp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (lo >= n || idx.getInt(position(lo)) != cp) {
+            introuvables.increment();
+            return Optional.empty();
+        }
+
+        int retenue = lo;
+        Precision precision = Precision.CODE_POSTAL;
+        if (ville != null && !ville.isBlank()) {
+            long h = hashNom(ville);
+            for (int i = lo; i < n && idx.getInt(position(i)) == cp; i++) {
+                if (idx.getLong(position(i) + 4) == h) {
+                    retenue = i;
+                    precision = Precision.COMMUNE;
+                    break;
+                }
+            }
+        }
+
+        int p = position(retenue);
+        trouves.increment();
+        return Optional.of(new Coords(
+                enDecimal(idx.getFloat(p + 12)),
+                enDecimal(idx.getFloat(p + 16)),
+                precision));
+    }
+
+    // ---------------------------------------------------------------------
+    // Compilation de l'index
+    // ---------------------------------------------------------------------
+
+    private record Centroide(int cp, long hash, float lat, float lon) {
+    }
+
+    private byte[] lireSource() throws IOException {
+        Resource resource = resourceLoader.getResource(source);
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private boolean indexAJour(long crc) {
+        if (!Files.isRegularFile(fichierIndex)) {
+            return false;
+        }
+        try (FileChannel canal = FileChannel.open(fichierIndex, StandardOpenOption.READ)) {
+            if (canal.size() < TAILLE_ENTETE) {
+                return false;
+            }
+            ByteBuffer entete = ByteBuffer.allocate(TAILLE_ENTETE);
+            canal.read(entete, 0);
+            entete.flip();
+            return entete.getInt() == MAGIC
+                    && entete.getInt() == VERSION
+                    && entete.getLong() == crc
+                    && canal.size() == TAILLE_ENTETE + (long) entete.getInt() * TAILLE_ENTREE;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static Centroide[] compiler(byte[] csv) {
+        String[] lignes = new String(csv, StandardCharsets.UTF_8).split("\\R");
+        Centroide[] centroides = new Centroide[lignes.length];
+        int n = 0;
+
+        for (String ligne : lignes) {
+            String[] champs = ligne.split(";");
+            if (champs.length < 4) {
+                continue;
+            }
+            int cp = parseCodePostal(champs[0]);
+            if (cp < 0) {
+                continue; // en-tête ou ligne invalide
+            }
+            try {
+                centroides[n++] = new Centroide(cp, hashNom(champs[1]),
+                        Float.parseFloat(champs[2].trim()), Float.parseFloat(champs[3].trim()));
+            } catch (NumberFormatException ex) {
+                n--;
+            }
+        }
+
+        Centroide[] tries = Arrays.copyOf(centroides, n);
+        Arrays.sort(tries, (a, b) -> a.cp() != b.cp()
+                ? Integer.compare(a.cp(), b.cp())
+                : Long.compare(a.hash(), b.hash()));
+        return tries;
+    }
+
+    private void ecrireIndex(Centroide[] centroides, long crc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TAILLE_ENTETE + centroides.length * TAILLE_ENTREE);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(crc).putInt(centroides.length);
+        for (Centroide c : centroides) {
+            buffer.putInt(c.cp()).putLong(c.hash()).putFloat(c.lat()).putFloat(c.lon());
+        }
+        buffer.flip();
+
+        // Écriture dans un fichier temporaire puis renommage : jamais d'index à moitié écrit
+        Path dossier = fichierIndex.toAbsolutePath().getParent();
+        Files.createDirectories(dossier);
+        Path tmp = Files.createTempFile(dossier, "gazetteer", ".tmp");
+        try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        }
+        Files.move(tmp, fichierIndex, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void projeter() throws IOException {
+        try (FileChannel canal = FileChannel.open(fichierIndex, StandardOpenOption.READ)) {
+            ByteBuffer mappe = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            int n = mappe.getInt(4 + 4 + 8);
+            this.nbEntrees = n;
+            this.index = mappe;
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static int position(int i) {
+        return TAILLE_ENTETE + i * TAILLE_ENTREE;
+    }
+
+    private static int parseCodePostal(String codePostal) {
+        if (codePostal == null) {
+            return -1;
+        }
+        String cp = codePostal.trim();
+        if (cp.length() != 5) {
+            return -1;
+        }
+        int valeur = 0;
+        for (int i = 0; i < 5; i++) {
+            char c = cp.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valeur = valeur * 10 + (c - '0');
+        }
+        return valeur;
+    }
+
+    /**
+     * Hash FNV-1a 64 bits du nom de commune normalisé
+     * ("Saint-Quentin", "ST QUENTIN" et "St-Quentin Cedex 2" => même hash).
+     */
+    static long hashNom(String nom) {
+        String normalise = GeocodageCache.normaliser(nom);
+        normalise = CEDEX.matcher(normalise).replaceAll("");
+        normalise = SAINT.matcher(normalise).replaceAll("saint");
+        normalise = SAINTE.matcher(normalise).replaceAll("sainte");
+
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalise.length(); i++) {
+            h ^= normalise.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static BigDecimal enDecimal(float degres) {
+        return BigDecimal.valueOf(degres).setScale(6, RoundingMode.HALF_UP);
+    }
+}
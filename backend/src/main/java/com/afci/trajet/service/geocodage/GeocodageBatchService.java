@@ -0,0 +1,165 @@
+package com.afci.trajet.service.geocodage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.afci.trajet.dto.geocodage.GeocodageBatchResponse;
+import com.afci.trajet.service.GeocodingService;
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.afci.trajet.service.geo.FormateurSpatialIndex;
+
+/**
+ * Rattrapage EN MASSE des coordonnées manquantes ou approximatives (import
+ * d'une région, API indisponible lors des créations...).
+ *
+ * Pour chaque table (utilisateur, ecole) :
+ *  1. lecture des lignes avec une adresse et sans lat/lon, ou avec un simple
+ *     centroïde (precision_geo COMMUNE / CODE_POSTAL) ;
+ *  2. géocodage par lots via GeocodingService.geocodeBatch (endpoint CSV) ;
+ *  3. écriture des coordonnées et de leur précision par UPDATE JDBC en
+ *     batch, lot par lot. Un centroïde ne remplace jamais un autre centroïde.
+ *
+ * Lancé par l'admin, et chaque nuit (geocodage.batch.rattrapage) : une
+ * adresse approximée faute de réponse de l'API y est de nouveau proposée.
+ *
+ * Volontairement hors transaction : chaque batch d'UPDATE est validé
+ * seul, aucun appel HTTP ne retient de connexion.
+ */
+@Service
+public class GeocodageBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeocodageBatchService.class);
+
+    private static final String SELECT_UTILISATEURS = """
+            SELECT id_user, adresse_l1, adresse_l2, code_postal, ville, pays_code,
+                   (lat IS NOT NULL AND lon IS NOT NULL) AS a_coordonnees
+            FROM utilisateur
+            WHERE deleted_at IS NULL
+              AND (lat IS NULL OR lon IS NULL OR precision_geo IN ('COMMUNE', 'CODE_POSTAL'))
+              AND (adresse_l1 IS NOT NULL OR ville IS NOT NULL)
+            ORDER BY id_user
+            """;
+
+    private static final String SELECT_ECOLES = """
+            SELECT id_ecole, adresse_l1, adresse_l2, code_postal, ville, pays_code,
+                   (lat IS NOT NULL AND lon IS NOT NULL) AS a_coordonnees
+            FROM ecole
+            WHERE lat IS NULL OR lon IS NULL OR precision_geo IN ('COMMUNE', 'CODE_POSTAL')
+            ORDER BY id_ecole
+            """;
+
+    // Ne jamais écraser une coordonnée précise posée entre-temps
+    private static final String UPDATE_UTILISATEUR = """
+            UPDATE utilisateur SET lat = ?, lon = ?, precision_geo = ?
+            WHERE id_user = ?
+              AND (lat IS NULL OR lon IS NULL OR precision_geo IN ('COMMUNE', 'CODE_POSTAL'))
+            """;
+
+    private static final String UPDATE_ECOLE = """
+            UPDATE ecole SET lat = ?, lon = ?, precision_geo = ?
+            WHERE id_ecole = ?
+              AND (lat IS NULL OR lon IS NULL OR precision_geo IN ('COMMUNE', 'CODE_POSTAL'))
+            """;
+
+    /** aCoordonnees : la ligne a déjà un centroïde, à ne remplacer que par mieux. */
+    private record Cible(int id, String adresse, boolean aCoordonnees) {
+    }
+
+    private record Bilan(int aTraiter, int geocodes) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GeocodingService geocodingService;
+    private final FormateurSpatialIndex formateurSpatialIndex;
+    private final int tailleLot;
+
+    public GeocodageBatchService(JdbcTemplate jdbcTemplate,
+                                 GeocodingService geocodingService,
+                                 FormateurSpatialIndex formateurSpatialIndex,
+                                 @Value("${geocodage.batch.taille-lot:500}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.geocodingService = geocodingService;
+        this.formateurSpatialIndex = formateurSpatialIndex;
+        this.tailleLot = tailleLot;
+    }
+
+    /**
+     * Rattrapage nocturne : mêmes lignes que le lancement manuel.
+     */
+    @Scheduled(cron = "${geocodage.batch.rattrapage:0 30 2 * * *}")
+    public void rattraperChaqueNuit() {
+        try {
+            regeocoderCoordonneesManquantes();
+        } catch (Exception ex) {
+            log.warn("Rattrapage nocturne du géocodage en échec", ex);
+        }
+    }
+
+    /**
+     * Géocode tous les utilisateurs et toutes les écoles sans coordonnées,
+     * ou avec des coordonnées approximatives.
+     */
+    public GeocodageBatchResponse regeocoderCoordonneesManquantes() {
+        long debut = System.currentTimeMillis();
+
+        Bilan utilisateurs = traiter(SELECT_UTILISATEURS, UPDATE_UTILISATEUR);
+        Bilan ecoles = traiter(SELECT_ECOLES, UPDATE_ECOLE);
+
+        if (utilisateurs.geocodes() > 0) {
+            // Nouveaux formateurs géocodés => candidats possibles
+            formateurSpatialIndex.recharger();
+        }
+
+        long dureeMs = System.currentTimeMillis() - debut;
+        log.info("Géocodage en masse : utilisateurs {}/{}, écoles {}/{} en {} ms",
+                utilisateurs.geocodes(), utilisateurs.aTraiter(),
+                ecoles.geocodes(), ecoles.aTraiter(), dureeMs);
+
+        return new GeocodageBatchResponse(utilisateurs.aTraiter(), utilisateurs.geocodes(),
+                ecoles.aTraiter(), ecoles.geocodes(), dureeMs);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private Bilan traiter(String select, String update) {
+        List<Cible> cibles = jdbcTemplate.query(select, (rs, i) -> new Cible(
+                rs.getInt(1),
+                geocodingService.buildAdresseComplete(
+                        rs.getString(2), rs.getString(3), rs.getString(4),
+                        rs.getString(5), rs.getString(6)),
+                rs.getBoolean(7)));
+
+        int geocodes = 0;
+        for (int debut = 0; debut < cibles.size(); debut += tailleLot) {
+            List<Cible> lot = cibles.subList(debut, Math.min(debut + tailleLot, cibles.size()));
+            List<Optional<Coords>> coords = geocodingService.geocodeBatch(
+                    lot.stream().map(Cible::adresse).toList());
+
+            List<Object[]> parametres = new ArrayList<>(lot.size());
+            for (int i = 0; i < lot.size(); i++) {
+                Coords c = coords.get(i).orElse(null);
+                if (c == null || (c.estApproximative() && lot.get(i).aCoordonnees())) {
+                    continue;
+                }
+                parametres.add(new Object[] { c.lat(), c.lon(), c.precision().name(), lot.get(i).id() });
+            }
+
+            if (!parametres.isEmpty()) {
+                for (int n : jdbcTemplate.batchUpdate(update, parametres)) {
+                    geocodes += Math.max(n, 0);
+                }
+            }
+        }
+        return new Bilan(cibles.size(), geocodes);
+    }
+}
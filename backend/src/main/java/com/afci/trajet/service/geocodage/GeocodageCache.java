@@ -0,0 +1,253 @@
+package com.afci.trajet.service.geocodage;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.afci.trajet.entity.GeocodeCache;
+import com.afci.trajet.repository.GeocodeCacheRepository;
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.afci.trajet.service.GeocodingService.Precision;
+import com.afci.trajet.util.CacheBorne;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache de géocodage à deux niveaux, devant l'API Adresse :
+ *
+ *  1. mémoire : CacheBorne (geocodage.cache.memoire-max entrées, lectures
+ *     sans verrou) avec TTL ;
+ *  2. base    : table geocode_cache, partagée entre instances et redémarrages.
+ *
+ * La clé est l'adresse complète (GeocodingService.buildAdresseComplete)
+ * normalisée : minuscules, sans accents, ponctuation et espaces compactés.
+ * "20 rue Jules Barni, 80000 Amiens, FR" et "20 Rue Jules  Barni 80000 AMIENS FR"
+ * partagent donc la même entrée.
+ *
+ * Les résultats négatifs (adresse inconnue de l'API) sont aussi mis en cache,
+ * avec un TTL plus court. Les erreurs techniques (timeout, 5xx) ne le sont pas.
+ *
+ * Métriques Micrometer :
+ *  - geocodage.cache{niveau=memoire|base, resultat=hit|miss}
+ */
+@Component
+public class GeocodageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GeocodageCache.class);
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUM = Pattern.compile("[^a-z0-9]+");
+
+    /**
+     * Résultat mis en cache : coords == null signifie "adresse introuvable".
+     */
+    public record Resultat(Coords coords) {
+
+        public boolean trouve() {
+            return coords != null;
+        }
+    }
+
+    private record EntreeMemoire(Resultat resultat, long expireANanos) {
+    }
+
+    private final GeocodeCacheRepository geocodeCacheRepository;
+
+    private final Duration ttlMemoire;
+    private final Duration ttlBase;
+    private final Duration ttlNegatif;
+
+    private final CacheBorne<String, EntreeMemoire> memoire;
+
+    private final Counter hitMemoire;
+    private final Counter missMemoire;
+    private final Counter hitBase;
+    private final Counter missBase;
+
+    public GeocodageCache(GeocodeCacheRepository geocodeCacheRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${geocodage.cache.memoire-max:10000}") int memoireMax,
+                          @Value("${geocodage.cache.ttl-memoire:PT24H}") Duration ttlMemoire,
+                          @Value("${geocodage.cache.ttl-base:P180D}") Duration ttlBase,
+                          @Value("${geocodage.cache.ttl-negatif:PT6H}") Duration ttlNegatif) {
+        this.geocodeCacheRepository = geocodeCacheRepository;
+        this.ttlMemoire = ttlMemoire;
+        this.ttlBase = ttlBase;
+        this.ttlNegatif = ttlNegatif;
+
+        this.memoire = new CacheBorne<>(memoireMax);
+
+        this.hitMemoire = compteur(meterRegistry, "memoire", "hit");
+        this.missMemoire = compteur(meterRegistry, "memoire", "miss");
+        this.hitBase = compteur(meterRegistry, "base", "hit");
+        this.missBase = compteur(meterRegistry, "base", "miss");
+        meterRegistry.gauge("geocodage.cache.memoire.taille", this, GeocodageCache::tailleMemoire);
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Clé
+    // ---------------------------------------------------------------------
+
+    /**
+     * Normalise une adresse complète en clé de cache (chaîne vide si rien d'utile).
+     */
+    public static String normaliser(String adresseComplete) {
+        if (adresseComplete == null) {
+            return "";
+        }
+        String sansAccents = DIACRITIQUES
+                .matcher(Normalizer.normalize(adresseComplete, Normalizer.Form.NFD))
+                .replaceAll("");
+        return tronquer(NON_ALPHANUM
+                .matcher(sansAccents.toLowerCase(Locale.ROOT))
+                .replaceAll(" ")
+                .trim());
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Lecture
+    // ---------------------------------------------------------------------
+
+    /**
+     * Cherche une adresse (clé normalisée) en mémoire puis en base.
+     *
+     * La transaction de l'appelant est suspendue pendant la lecture : une
+     * erreur sur geocode_cache ne peut pas la marquer "rollback-only".
+     *
+     * @return le résultat en cache, ou null s'il faut interroger l'API
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Resultat lire(String cle) {
+        EntreeMemoire m = memoire.lire(cle);
+        if (m != null && m.expireANanos() - System.nanoTime() > 0) {
+            hitMemoire.increment();
+            return m.resultat();
+        }
+        missMemoire.increment();
+
+        GeocodeCache ligne;
+        try {
+            ligne = geocodeCacheRepository.findById(cle).orElse(null);
+        } catch (Exception ex) {
+            // Le cache ne doit jamais empêcher le géocodage
+            log.warn("Lecture du cache de géocodage impossible pour '{}'", cle, ex);
+            return null;
+        }
+
+        Duration ttl = (ligne != null && ligne.isTrouve()) ? ttlBase : ttlNegatif;
+        if (ligne == null || ligne.getUpdatedAt().plus(ttl).isBefore(OffsetDateTime.now())) {
+            missBase.increment();
+            return null;
+        }
+        hitBase.increment();
+
+        Resultat resultat = new Resultat(ligne.isTrouve() ? versCoords(ligne) : null);
+        mettreEnMemoire(cle, resultat);
+        return resultat;
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ Écriture
+    // ---------------------------------------------------------------------
+
+    /**
+     * Enregistre le résultat d'un appel à l'API dans les deux niveaux.
+     *
+     * L'écriture en base se fait dans sa propre transaction : un échec
+     * ne fait pas échouer (ni ne retient) la transaction métier appelante.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void enregistrer(String cle, String adresseComplete, Resultat resultat) {
+        mettreEnMemoire(cle, resultat);
+
+        GeocodeCache ligne = geocodeCacheRepository.findById(cle)
+                .orElseGet(() -> new GeocodeCache(cle, adresseComplete, false, null, null));
+        ligne.setAdresse(tronquer(adresseComplete));
+        ligne.setTrouve(resultat.trouve());
+        ligne.setLat(resultat.trouve() ? resultat.coords().lat() : null);
+        ligne.setLon(resultat.trouve() ? resultat.coords().lon() : null);
+        ligne.setPrecisionGeo(resultat.trouve() ? resultat.coords().precision().name() : null);
+        ligne.setUpdatedAt(OffsetDateTime.now());
+        geocodeCacheRepository.save(ligne);
+    }
+
+    /**
+     * Variante "en masse" de enregistrer : une seule transaction pour tout le lot.
+     *
+     * @param resultats      clé normalisée -> résultat
+     * @param adresseParCle  clé normalisée -> adresse d'origine
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void enregistrerTous(Map<String, Resultat> resultats, Map<String, String> adresseParCle) {
+        Map<String, GeocodeCache> existantes = new HashMap<>();
+        geocodeCacheRepository.findAllById(resultats.keySet())
+                .forEach(l -> existantes.put(l.getCle(), l));
+
+        OffsetDateTime now = OffsetDateTime.now();
+        List<GeocodeCache> lignes = new ArrayList<>(resultats.size());
+        resultats.forEach((cle, resultat) -> {
+            mettreEnMemoire(cle, resultat);
+            GeocodeCache ligne = existantes.getOrDefault(cle, new GeocodeCache(cle, "", false, null, null));
+            ligne.setAdresse(tronquer(adresseParCle.getOrDefault(cle, cle)));
+            ligne.setTrouve(resultat.trouve());
+            ligne.setLat(resultat.trouve() ? resultat.coords().lat() : null);
+            ligne.setLon(resultat.trouve() ? resultat.coords().lon() : null);
+            ligne.setPrecisionGeo(resultat.trouve() ? resultat.coords().precision().name() : null);
+            ligne.setUpdatedAt(now);
+            lignes.add(ligne);
+        });
+        geocodeCacheRepository.saveAll(lignes);
+    }
+
+    /**
+     * Vide le niveau mémoire (le niveau base expire de lui-même).
+     */
+    public void viderMemoire() {
+        memoire.vider();
+    }
+
+    public int tailleMemoire() {
+        return memoire.taille();
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private void mettreEnMemoire(String cle, Resultat resultat) {
+        Duration ttl = resultat.trouve() ? ttlMemoire : ttlNegatif;
+        memoire.ecrire(cle, new EntreeMemoire(resultat, System.nanoTime() + ttl.toNanos()));
+    }
+
+    private static Coords versCoords(GeocodeCache ligne) {
+        Precision precision = (ligne.getPrecisionGeo() != null)
+                ? Precision.valueOf(ligne.getPrecisionGeo())
+                : Precision.ADRESSE;
+        return new Coords(ligne.getLat(), ligne.getLon(), precision);
+    }
+
+    private static String tronquer(String adresse) {
+        return (adresse.length() <= 512) ? adresse : adresse.substring(0, 512);
+    }
+
+    private static Counter compteur(MeterRegistry registry, String niveau, String resultat) {
+        return Counter.builder("geocodage.cache")
+                .tag("niveau", niveau)
+                .tag("resultat", resultat)
+                .register(registry);
+    }
+}
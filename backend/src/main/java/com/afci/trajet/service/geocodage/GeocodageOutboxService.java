@@ -0,0 +1,259 @@
+package com.afci.trajet.service.geocodage;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.afci.trajet.entity.Ecole;
+import com.afci.trajet.entity.GeocodageOutbox;
+import com.afci.trajet.entity.Utilisateur;
+import com.afci.trajet.repository.EcoleRepository;
+import com.afci.trajet.repository.FormateurRepository;
+import com.afci.trajet.repository.GeocodageOutboxRepository;
+import com.afci.trajet.repository.UtilisateurRepository;
+import com.afci.trajet.service.GeocodingService;
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.afci.trajet.service.geo.FormateurSpatialIndex;
+
+/**
+ * File de géocodage asynchrone ("outbox").
+ *
+ * Côté écriture (services métier), geocoder(...) :
+ *  - applique tout de suite les coordonnées si l'adresse est déjà en cache ;
+ *  - sinon applique un centroïde PROVISOIRE (gazetteer hors ligne, précision
+ *    commune) et insère une demande dans geocodage_outbox, DANS la transaction
+ *    courante : la modification est validée sans attendre l'API Adresse.
+ *
+ * Côté traitement (GeocodageOutboxWorker) :
+ *  - reserverLot(...) : prend des demandes échues (SKIP LOCKED + bail) ;
+ *  - appliquerResultat(...) / enregistrerEchec(...) : patch lat / lon ou
+ *    replanification avec backoff exponentiel.
+ *
+ * Idempotence : une seule demande EN_ATTENTE par cible (la dernière adresse
+ * gagne), et un résultat n'est appliqué que si l'adresse de la cible est
+ * toujours celle qui a été géocodée.
+ */
+@Service
+public class GeocodageOutboxService {
+
+    /**
+     * Publié quand une demande est planifiée : le worker la traite
+     * dès le commit, sans attendre son prochain passage.
+     */
+    public record DemandePlanifiee() {
+    }
+
+    /**
+     * Vue détachée d'une demande réservée par le worker.
+     */
+    public record Demande(long idOutbox, String typeCible, int idCible, String adresse, int tentatives) {
+    }
+
+    private final GeocodageOutboxRepository outboxRepository;
+    private final UtilisateurRepository utilisateurRepository;
+    private final EcoleRepository ecoleRepository;
+    private final FormateurRepository formateurRepository;
+    private final GeocodingService geocodingService;
+    private final FormateurSpatialIndex formateurSpatialIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int maxTentatives;
+    private final Duration backoffInitial;
+    private final Duration backoffMax;
+
+    public GeocodageOutboxService(GeocodageOutboxRepository outboxRepository,
+                                  UtilisateurRepository utilisateurRepository,
+                                  EcoleRepository ecoleRepository,
+                                  FormateurRepository formateurRepository,
+                                  GeocodingService geocodingService,
+                                  FormateurSpatialIndex formateurSpatialIndex,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${geocodage.outbox.max-tentatives:8}") int maxTentatives,
+                                  @Value("${geocodage.outbox.backoff-initial:PT30S}") Duration backoffInitial,
+                                  @Value("${geocodage.outbox.backoff-max:PT1H}") Duration backoffMax) {
+        this.outboxRepository = outboxRepository;
+        this.utilisateurRepository = utilisateurRepository;
+        this.ecoleRepository = ecoleRepository;
+        this.formateurRepository = formateurRepository;
+        this.geocodingService = geocodingService;
+        this.formateurSpatialIndex = formateurSpatialIndex;
+        this.eventPublisher = eventPublisher;
+        this.maxTentatives = maxTentatives;
+        this.backoffInitial = backoffInitial;
+        this.backoffMax = backoffMax;
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Côté écriture (services métier)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Géocode une adresse sans appel HTTP dans la transaction courante.
+     *
+     * @param typeCible GeocodageOutbox.TYPE_UTILISATEUR ou TYPE_ECOLE
+     * @param idCible   id_user ou id_ecole (l'entité doit déjà être sauvegardée)
+     * @param appliquer appelé immédiatement si l'adresse est déjà en cache,
+     *                  ou avec le centroïde de la commune en attendant l'API
+     */
+    @Transactional
+    public void geocoder(String typeCible, Integer idCible, String adresseComplete, Consumer<Coords> appliquer) {
+        if (GeocodageCache.normaliser(adresseComplete).isEmpty()) {
+            return;
+        }
+
+        GeocodageCache.Resultat enCache = geocodingService.rechercherEnCache(adresseComplete);
+        if (enCache != null) {
+            // Introuvable pour l'API : le centroïde de la commune vaut mieux que rien
+            (enCache.trouve() ? Optional.of(enCache.coords()) : geocodingService.approximer(adresseComplete))
+                    .ifPresent(appliquer);
+            return;
+        }
+
+        // Coordonnées provisoires, remplacées par le worker après l'appel à l'API
+        geocodingService.approximer(adresseComplete).ifPresent(appliquer);
+
+        outboxRepository.planifier(typeCible, idCible, adresseComplete);
+        eventPublisher.publishEvent(new DemandePlanifiee());
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Côté worker
+    // ---------------------------------------------------------------------
+
+    /**
+     * Réserve jusqu'à "taille" demandes échues.
+     *
+     * La réservation repousse prochaine_tentative_at de "bail" : si le worker
+     * s'arrête en cours de route, la demande redevient éligible ensuite.
+     */
+    @Transactional
+    public List<Demande> reserverLot(int taille, Duration bail) {
+        OffsetDateTime finBail = OffsetDateTime.now().plus(bail);
+        List<GeocodageOutbox> lignes = outboxRepository.verrouillerATraiter(taille);
+        for (GeocodageOutbox o : lignes) {
+            o.setProchaineTentativeAt(finBail);
+        }
+        return lignes.stream()
+                .map(o -> new Demande(o.getIdOutbox(), o.getTypeCible(), o.getIdCible(),
+                        o.getAdresse(), o.getTentatives()))
+                .toList();
+    }
+
+    /**
+     * Applique le résultat d'un géocodage (coords == null : adresse introuvable,
+     * on conserve les anciennes coordonnées).
+     *
+     * Sans effet si la demande a été remplacée (nouvelle adresse) entre-temps.
+     */
+    @Transactional
+    public void appliquerResultat(Demande demande, Coords coords) {
+        GeocodageOutbox o = outboxRepository.findPourMiseAJour(demande.idOutbox()).orElse(null);
+        if (o == null || !estToujoursCourante(o, demande)) {
+            return;
+        }
+
+        boolean appliquee = switch (o.getTypeCible()) {
+            case GeocodageOutbox.TYPE_UTILISATEUR -> patcherUtilisateur(o.getIdCible(), o.getAdresse(), coords);
+            case GeocodageOutbox.TYPE_ECOLE -> patcherEcole(o.getIdCible(), o.getAdresse(), coords);
+            default -> false;
+        };
+
+        o.setStatut(GeocodageOutbox.STATUT_TRAITE);
+        o.setTentatives((short) (demande.tentatives() + 1));
+        if (!appliquee) {
+            o.setDerniereErreur("Cible supprimée ou adresse modifiée depuis la demande : ignorée.");
+        } else if (coords == null) {
+            o.setDerniereErreur("Adresse introuvable : coordonnées inchangées.");
+        } else {
+            o.setDerniereErreur(null);
+        }
+        o.setUpdatedAt(OffsetDateTime.now());
+    }
+
+    /**
+     * Erreur technique : replanifie avec backoff exponentiel (+ gigue),
+     * ou passe en ECHEC après max-tentatives.
+     */
+    @Transactional
+    public void enregistrerEchec(Demande demande, String erreur) {
+        GeocodageOutbox o = outboxRepository.findPourMiseAJour(demande.idOutbox()).orElse(null);
+        if (o == null || !estToujoursCourante(o, demande)) {
+            return;
+        }
+
+        int tentatives = demande.tentatives() + 1;
+        o.setTentatives((short) tentatives);
+        o.setDerniereErreur(erreur);
+        o.setUpdatedAt(OffsetDateTime.now());
+
+        if (tentatives >= maxTentatives) {
+            o.setStatut(GeocodageOutbox.STATUT_ECHEC);
+        } else {
+            o.setProchaineTentativeAt(OffsetDateTime.now().plus(delaiAvant(tentatives)));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long compterEnAttente() {
+        return outboxRepository.countByStatut(GeocodageOutbox.STATUT_EN_ATTENTE);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static boolean estToujoursCourante(GeocodageOutbox o, Demande demande) {
+        return GeocodageOutbox.STATUT_EN_ATTENTE.equals(o.getStatut())
+                && o.getAdresse().equals(demande.adresse());
+    }
+
+    private boolean patcherUtilisateur(Integer idUser, String adresse, Coords coords) {
+        Utilisateur u = utilisateurRepository.findById(idUser).orElse(null);
+        if (u == null || !memeAdresse(adresse, geocodingService.buildAdresseComplete(
+                u.getAdresseL1(), u.getAdresseL2(), u.getCodePostal(), u.getVille(), u.getPaysCode()))) {
+            return false;
+        }
+        if (coords != null) {
+            u.setLat(coords.lat());
+            u.setLon(coords.lon());
+            u.setPrecisionGeo(coords.precision().name());
+            // Un formateur change de cellule dans l'index des candidats
+            formateurRepository.findByIdUser(idUser)
+                    .ifPresent(f -> formateurSpatialIndex.indexerApresCommit(f, u));
+        }
+        return true;
+    }
+
+    private boolean patcherEcole(Integer idEcole, String adresse, Coords coords) {
+        Ecole e = ecoleRepository.findById(idEcole).orElse(null);
+        if (e == null || !memeAdresse(adresse, geocodingService.buildAdresseComplete(
+                e.getAdresseL1(), e.getAdresseL2(), e.getCodePostal(), e.getVille(), e.getPaysCode()))) {
+            return false;
+        }
+        if (coords != null) {
+            e.setLat(coords.lat());
+            e.setLon(coords.lon());
+            e.setPrecisionGeo(coords.precision().name());
+        }
+        return true;
+    }
+
+    private static boolean memeAdresse(String a, String b) {
+        return GeocodageCache.normaliser(a).equals(GeocodageCache.normaliser(b));
+    }
+
+    private Duration delaiAvant(int tentatives) {
+        long base = backoffInitial.toMillis() << Math.min(tentatives - 1, 20);
+        long plafonne = Math.min(base, backoffMax.toMillis());
+        long gigue = ThreadLocalRandom.current().nextLong(plafonne / 4 + 1);
+        return Duration.ofMillis(plafonne - gigue);
+    }
+}
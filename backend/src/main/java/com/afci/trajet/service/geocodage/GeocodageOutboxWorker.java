@@ -0,0 +1,172 @@
+package com.afci.trajet.service.geocodage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.afci.trajet.service.GeocodingService;
+import com.afci.trajet.service.GeocodingService.Coords;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Worker de la file de géocodage (geocodage_outbox).
+ *
+ * Déclenchement :
+ *  - juste après le commit d'une transaction qui a planifié une demande ;
+ *  - périodiquement (geocodage.outbox.intervalle), pour les reprises / backoff.
+ *
+ * Chaque demande d'un lot est traitée sur son propre thread virtuel :
+ * l'appel HTTP se fait HORS transaction, seules la réservation et l'écriture
+ * du résultat ouvrent (brièvement) une connexion.
+ *
+ * Métriques Micrometer :
+ *  - geocodage.outbox.en_attente (jauge, profondeur de la file)
+ *  - geocodage.outbox.traitements{resultat=trouve|introuvable|erreur}
+ */
+@Component
+public class GeocodageOutboxWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(GeocodageOutboxWorker.class);
+
+    private final GeocodageOutboxService outboxService;
+    private final GeocodingService geocodingService;
+
+    private final int tailleLot;
+    private final Duration bail;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Un seul drainage à la fois (planifié ou déclenché par un commit). */
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+
+    /** Demande arrivée pendant un drainage : on refait un tour avant de rendre la main. */
+    private final AtomicBoolean aRelancer = new AtomicBoolean(false);
+
+    private final AtomicLong profondeur = new AtomicLong(0);
+
+    private final Counter trouves;
+    private final Counter introuvables;
+    private final Counter erreurs;
+
+    public GeocodageOutboxWorker(GeocodageOutboxService outboxService,
+                                 GeocodingService geocodingService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${geocodage.outbox.taille-lot:10}") int tailleLot,
+                                 @Value("${geocodage.outbox.bail:PT2M}") Duration bail) {
+        this.outboxService = outboxService;
+        this.geocodingService = geocodingService;
+        this.tailleLot = tailleLot;
+        this.bail = bail;
+
+        meterRegistry.gauge("geocodage.outbox.en_attente", profondeur);
+        this.trouves = compteur(meterRegistry, "trouve");
+        this.introuvables = compteur(meterRegistry, "introuvable");
+        this.erreurs = compteur(meterRegistry, "erreur");
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Déclencheurs
+    // ---------------------------------------------------------------------
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void surDemandePlanifiee(GeocodageOutboxService.DemandePlanifiee event) {
+        executor.execute(this::drainer);
+    }
+
+    @Scheduled(fixedDelayString = "${geocodage.outbox.intervalle:PT5S}",
+               initialDelayString = "${geocodage.outbox.intervalle:PT5S}")
+    public void drainerPeriodiquement() {
+        drainer();
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Traitement
+    // ---------------------------------------------------------------------
+
+    /**
+     * Traite les demandes échues par lots, jusqu'à épuisement de la file.
+     */
+    public void drainer() {
+        if (!enCours.compareAndSet(false, true)) {
+            aRelancer.set(true);
+            return;
+        }
+        try {
+            List<GeocodageOutboxService.Demande> lot;
+            do {
+                aRelancer.set(false);
+                lot = outboxService.reserverLot(tailleLot, bail);
+
+                List<Future<?>> taches = new ArrayList<>(lot.size());
+                for (GeocodageOutboxService.Demande d : lot) {
+                    taches.add(executor.submit(() -> traiter(d)));
+                }
+                for (Future<?> t : taches) {
+                    attendre(t);
+                }
+            } while (lot.size() == tailleLot || aRelancer.get());
+
+            profondeur.set(outboxService.compterEnAttente());
+        } catch (Exception ex) {
+            log.warn("Drainage de la file de géocodage interrompu", ex);
+        } finally {
+            enCours.set(false);
+        }
+    }
+
+    private void traiter(GeocodageOutboxService.Demande d) {
+        Optional<Coords> coords;
+        try {
+            coords = geocodingService.geocodeAdresseStrict(d.adresse());
+        } catch (Exception ex) {
+            erreurs.increment();
+            log.warn("Géocodage en échec (outbox id={}, tentative {}) : {}",
+                    d.idOutbox(), d.tentatives() + 1, ex.getMessage());
+            outboxService.enregistrerEchec(d, ex.getClass().getSimpleName() + " : " + ex.getMessage());
+            return;
+        }
+
+        (coords.isPresent() ? trouves : introuvables).increment();
+        outboxService.appliquerResultat(d, coords.orElse(null));
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdown();
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private static void attendre(Future<?> tache) throws InterruptedException {
+        try {
+            tache.get();
+        } catch (ExecutionException ex) {
+            log.warn("Traitement d'une demande de géocodage en erreur", ex.getCause());
+        }
+    }
+
+    private static Counter compteur(MeterRegistry registry, String resultat) {
+        return Counter.builder("geocodage.outbox.traitements")
+                .tag("resultat", resultat)
+                .register(registry);
+    }
+}
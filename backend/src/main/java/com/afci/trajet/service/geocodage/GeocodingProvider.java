@@ -0,0 +1,29 @@
+package com.afci.trajet.service.geocodage;
+
+import java.util.Optional;
+
+import com.afci.trajet.service.GeocodingService.Coords;
+
+/**
+ * Source de géocodage "adresse texte -> lat / lon".
+ *
+ * Implémentations :
+ *  - ApiAdresseGeocodingProvider : API Adresse (précision adresse / rue) ;
+ *  - GazetteerGeocodingProvider  : centroïdes code postal + commune,
+ *    hors ligne (précision commune).
+ *
+ * L'orchestration (cache, ordre des sources, repli) est faite par GeocodingService.
+ */
+public interface GeocodingProvider {
+
+    /** Nom court de la source (logs, métriques). */
+    String nom();
+
+    /**
+     * Géocode une adresse complète (cf. GeocodingService.buildAdresseComplete).
+     *
+     * @return Optional.empty() si la source ne connaît pas l'adresse
+     * @throws RuntimeException en cas d'erreur technique (réseau, timeout...)
+     */
+    Optional<Coords> geocoder(String adresseComplete);
+}
@@ -0,0 +1,66 @@
+package com.afci.trajet.service.om;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.repository.OrdreMissionRepository;
+import com.afci.trajet.util.ApresCommit;
+import com.afci.trajet.util.CacheBorne;
+
+/**
+ * Nombre d'OM par école (et par statut), pour la pagination par curseur.
+ *
+ * Le total n'est calculé que si le front le demande (withTotal=true), puis
+ * gardé om.liste.total-ttl : feuilleter une liste ne refait pas de COUNT(*)
+ * à chaque page. invaliderApresCommit(idEcole) après une création ou un
+ * changement de statut.
+ */
+@Component
+public class OrdreMissionCompteCache {
+
+    private record Cle(Integer idEcole, String statut) {
+    }
+
+    private record Entree(long total, long expireA) {
+    }
+
+    private final OrdreMissionRepository ordreMissionRepository;
+    private final long ttlNanos;
+
+    private final CacheBorne<Cle, Entree> comptes;
+
+    public OrdreMissionCompteCache(OrdreMissionRepository ordreMissionRepository,
+                                   @Value("${om.liste.total-ttl:PT30S}") Duration ttl,
+                                   @Value("${om.liste.total-cache-max:10000}") int tailleMax) {
+        this.ordreMissionRepository = ordreMissionRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.comptes = new CacheBorne<>(tailleMax);
+    }
+
+    /**
+     * @param statut statut déjà normalisé (majuscules), ou null pour tous les statuts
+     */
+    public long compter(Integer idEcole, String statut) {
+        Cle cle = new Cle(idEcole, statut);
+        Entree entree = comptes.lire(cle);
+        if (entree != null && System.nanoTime() - entree.expireA() < 0) {
+            return entree.total();
+        }
+
+        long total = (statut == null)
+                ? ordreMissionRepository.countByIdEcole(idEcole)
+                : ordreMissionRepository.countByIdEcoleAndStatut(idEcole, statut);
+
+        comptes.ecrire(cle, new Entree(total, System.nanoTime() + ttlNanos));
+        return total;
+    }
+
+    /**
+     * Oublie les totaux d'une école, après commit de la transaction courante.
+     */
+    public void invaliderApresCommit(Integer idEcole) {
+        ApresCommit.executer(() -> comptes.retirerSi((c, e) -> c.idEcole().equals(idEcole)));
+    }
+}
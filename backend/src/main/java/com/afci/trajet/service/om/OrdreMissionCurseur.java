@@ -0,0 +1,48 @@
+package com.afci.trajet.service.om;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import com.afci.trajet.dto.om.OrdreMissionLightResponse;
+
+/**
+ * Position dans la liste des OM d'une école (tri created_at DESC,
+ * id_ordre_mission DESC) : (createdAt, idOrdreMission) du dernier OM
+ * renvoyé. La page suivante contient les OM strictement après.
+ *
+ * Sérialisé en Base64 URL-safe pour rester opaque côté front.
+ */
+public record OrdreMissionCurseur(OffsetDateTime createdAt, int idOrdreMission) {
+
+    public static OrdreMissionCurseur apres(OrdreMissionLightResponse om) {
+        return new OrdreMissionCurseur(om.getCreatedAt(), om.getIdOrdreMission());
+    }
+
+    public String encoder() {
+        Instant instant = createdAt.toInstant();
+        String brut = instant.getEpochSecond() + ":" + instant.getNano() + ":" + idOrdreMission;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur reçu du front (null ou vide => première page).
+     */
+    public static OrdreMissionCurseur decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parties = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8)
+                    .split(":");
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parties[0]), Long.parseLong(parties[1]));
+            return new OrdreMissionCurseur(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC),
+                    Integer.parseInt(parties[2]));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Curseur de pagination invalide.");
+        }
+    }
+}
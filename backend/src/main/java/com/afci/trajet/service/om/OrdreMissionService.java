@@ -1,12 +1,18 @@
 package com.afci.trajet.service.om;
 
+import com.afci.trajet.dto.common.CursorPageResponse;
 import com.afci.trajet.dto.common.PageResponse;
 import com.afci.trajet.dto.om.OrdreMissionAssignFormateurRequest;
 import com.afci.trajet.dto.om.OrdreMissionCreateRequest;
+import com.afci.trajet.dto.om.OrdreMissionLightResponse;
 import com.afci.trajet.dto.om.OrdreMissionResponse;
 import com.afci.trajet.dto.om.OrdreMissionUpdateRequest;
 
 import java.util.List;
+import java.util.Map;
+import com.afci.trajet.dto.om.ecole.OmAffectationPlanResponse;
+import com.afci.trajet.dto.om.ecole.OmAffectationProposee;
+import com.afci.trajet.dto.om.ecole.OmCandidatsPageResponse;
 import com.afci.trajet.dto.om.ecole.OmFormateurCandidatResponse;
 
 /**
@@ -27,16 +33,14 @@ public interface OrdreMissionService {
     /**
      * Création d'un nouvel ordre de mission pour une école (côté ECOLE).
      *
-     * L'utilisateur est identifié par son email (Spring Security),
-     * ce qui permet de retrouver l'école à laquelle il est rattaché.
+     * L'école est celle de l'utilisateur connecté (CurrentActor).
      *
      * Règles métier :
      *  - statut initial : BROUILLON ;
      *  - pas encore de formateur affecté (idFormateur = null) ;
      *  - génération d'un code ordre (OM-AAAA-XXXX).
      */
-    OrdreMissionResponse createOrdreMissionPourEcole(String emailConnected,
-                                                     OrdreMissionCreateRequest request);
+    OrdreMissionResponse createOrdreMissionPourEcole(OrdreMissionCreateRequest request);
 
     /**
      * Mise à jour d'un ordre de mission en statut BROUILLON
@@ -47,34 +51,57 @@ public interface OrdreMissionService {
      *  - coutTotalEstime
      *  - commentaire
      */
-    OrdreMissionResponse updateOrdreMissionBrouillonPourEcole(String emailConnected,
-                                                               Integer idOrdreMission,
+    OrdreMissionResponse updateOrdreMissionBrouillonPourEcole(Integer idOrdreMission,
                                                                OrdreMissionUpdateRequest request);
 
     /**
      * Liste paginée des ordres de mission de l'école de l'utilisateur connecté.
      *
-     * @param emailConnected email de l'utilisateur (contexte sécurité)
      * @param statut         statut optionnel pour filtrer (BROUILLON, PROPOSE, etc.)
      *                       - si null ou vide → tous les statuts
      * @param page           index de page (0-based)
      * @param size           taille de page
      */
     PageResponse<OrdreMissionResponse> listerOrdresMissionPourEcole(
-            String emailConnected,
             String statut,
             int page,
             int size
     );
 
+    /**
+     * Même liste paginée, en version "légère" : projection
+     * OrdreMissionLightResponse (colonnes du tableau, nom du formateur),
+     * sans charger les entités ni la colonne commentaire.
+     */
+    PageResponse<OrdreMissionLightResponse> listerOrdresMissionLightPourEcole(
+            String statut,
+            int page,
+            int size
+    );
+
+    /**
+     * Liste "légère" des ordres de mission de l'école connectée, par curseur
+     * (du plus récent au plus ancien, sans OFFSET ni COUNT(*)).
+     *
+     * @param statut    statut optionnel pour filtrer (null ou vide → tous)
+     * @param cursor    nextCursor de la page précédente (null → première page)
+     * @param size      taille de page (bornée à 100)
+     * @param avecTotal true pour renseigner totalElements (compte mis en cache)
+     */
+    CursorPageResponse<OrdreMissionLightResponse> listerOrdresMissionPourEcoleParCurseur(
+            String statut,
+            String cursor,
+            int size,
+            boolean avecTotal
+    );
+
     /**
      * Récupération du détail d'un ordre de mission pour l'école
      * de l'utilisateur connecté.
      *
      * Vérifie que l'OM appartient bien à l'école.
      */
-    OrdreMissionResponse getOrdreMissionDetailPourEcole(String emailConnected,
-                                                        Integer idOrdreMission);
+    OrdreMissionResponse getOrdreMissionDetailPourEcole(Integer idOrdreMission);
 
     /**
      * Affectation d'un formateur à un OM (côté ECOLE).
@@ -82,14 +109,62 @@ public interface OrdreMissionService {
      * Règles métier :
      *  - l'OM doit appartenir à l'école de l'utilisateur connecté ;
      *  - l'OM doit être en statut BROUILLON ;
+     *  - le formateur ne doit pas être déjà engagé sur des dates qui chevauchent ;
      *  - après affectation, le statut passe à PROPOSE.
      */
-    OrdreMissionResponse assignerFormateurPourOrdreMission(String emailConnected,
-                                                            Integer idOrdreMission,
+    OrdreMissionResponse assignerFormateurPourOrdreMission(Integer idOrdreMission,
                                                             OrdreMissionAssignFormateurRequest request);
 
     List<OmFormateurCandidatResponse> findCandidatsPourOrdre(Integer idOrdreMission);
 
+    /**
+     * Candidats formateurs d'un OM, classés par score (CandidateRanker).
+     * Les formateurs indisponibles ou déjà engagés sur les dates de l'OM sont écartés.
+     *
+     * @param limit         nombre de candidats par page (null → valeur par défaut)
+     * @param maxDistanceKm distance maximale école ↔ formateur (null → pas de filtre)
+     * @param cursor        curseur opaque de la page précédente (null → première page)
+     */
+    OmCandidatsPageResponse classerCandidatsPourOrdre(Integer idOrdreMission,
+                                                      Integer limit,
+                                                      Double maxDistanceKm,
+                                                      String cursor);
+
+    /**
+     * Candidats formateurs de plusieurs OM en un seul calcul
+     * (première page de chaque classement, paramètres par défaut).
+     */
+    Map<Integer, List<OmFormateurCandidatResponse>> findCandidatsPourOrdres(List<Integer> idsOrdreMission);
+
+    /**
+     * Candidats formateurs de plusieurs OM (ex : tous les BROUILLON d'une session) :
+     * vivier chargé une seule fois, distances écoles × formateurs calculées
+     * une seule fois, un classement par école et par dates partagé par ses OM.
+     *
+     * @return idOrdreMission -> candidats classés, dans l'ordre des ids demandés
+     */
+    Map<Integer, List<OmFormateurCandidatResponse>> classerCandidatsPourOrdres(List<Integer> idsOrdreMission,
+                                                                             Integer limit,
+                                                                             Double maxDistanceKm);
+
     OrdreMissionResponse affecterFormateur(Integer idOrdreMission, Integer idFormateur);
 
+    /**
+     * Plan d'affectation à coût minimal (distance totale) pour un lot d'OM
+     * BROUILLON de l'école connectée (AffectationOptimizer).
+     *
+     * Rien n'est enregistré : le plan est à relire puis à appliquer
+     * avec appliquerAffectations.
+     */
+    OmAffectationPlanResponse optimiserAffectations(List<Integer> idsOrdreMission);
+
+    /**
+     * Applique un plan d'affectation en une seule transaction (tout ou rien) :
+     * chaque OM passe BROUILLON -> PROPOSE avec son formateur.
+     *
+     * Refusé si un OM n'est plus en BROUILLON ou si un formateur se retrouve
+     * sur deux OM aux dates qui se chevauchent.
+     */
+    List<OrdreMissionResponse> appliquerAffectations(List<OmAffectationProposee> affectations);
+
 }
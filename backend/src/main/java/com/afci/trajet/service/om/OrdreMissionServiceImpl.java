@@ -3,11 +3,20 @@ package com.afci.trajet.service.om;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Comparator;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,11 +24,17 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.afci.trajet.dto.common.CursorPageResponse;
 import com.afci.trajet.dto.common.PageResponse;
 import com.afci.trajet.dto.om.OrdreMissionAssignFormateurRequest;
 import com.afci.trajet.dto.om.OrdreMissionCreateRequest;
+import com.afci.trajet.dto.om.OrdreMissionLightResponse;
 import com.afci.trajet.dto.om.OrdreMissionResponse;
 import com.afci.trajet.dto.om.OrdreMissionUpdateRequest;
+import com.afci.trajet.dto.om.ecole.FormateurCandidatProjection;
+import com.afci.trajet.dto.om.ecole.OmAffectationPlanResponse;
+import com.afci.trajet.dto.om.ecole.OmAffectationProposee;
+import com.afci.trajet.dto.om.ecole.OmCandidatsPageResponse;
 import com.afci.trajet.dto.om.ecole.OmFormateurCandidatResponse;
 import com.afci.trajet.entity.Ecole;
 import com.afci.trajet.entity.Formateur;
@@ -30,7 +45,21 @@ import com.afci.trajet.repository.EcoleRepository;
 import com.afci.trajet.repository.FormateurRepository;
 import com.afci.trajet.repository.OrdreMissionRepository;
 import com.afci.trajet.repository.UtilisateurRepository;
-import com.afci.trajet.util.GeoUtils;
+import com.afci.trajet.security.CurrentActor;
+import com.afci.trajet.service.GeocodingService;
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.afci.trajet.service.formateur.disponibilite.DisponibiliteIndex;
+import com.afci.trajet.service.geo.DistanceEngine;
+import com.afci.trajet.service.geo.DistanceMatrix;
+import com.afci.trajet.service.geo.FormateurSpatialIndex;
+import com.afci.trajet.service.geo.route.RoutingEngine;
+import com.afci.trajet.service.om.affectation.AffectationOptimizer;
+import com.afci.trajet.service.om.candidat.CandidatContexte;
+import com.afci.trajet.service.om.candidat.CandidatCurseur;
+import com.afci.trajet.service.om.candidat.CandidateRanker;
+import com.afci.trajet.service.om.code.CodeOrdreAllocator;
+import com.afci.trajet.service.om.reservation.ReservationIndex;
+import com.afci.trajet.service.trajet.TrajetRoutierService;
 
 /**
  * Implémentation du service métier pour la gestion des Ordres de Mission.
@@ -40,24 +69,81 @@ import com.afci.trajet.util.GeoUtils;
  *  - elle peut modifier cet OM tant qu'il est en BROUILLON ;
  *  - elle peut ensuite affecter un formateur, ce qui fait passer le statut en PROPOSE ;
  *  - elle peut lister ses OM, filtrer par statut, consulter le détail, etc.
+ *
+ * L'école connectée est lue dans CurrentActor (initialisé par le filtre JWT) :
+ * plus de findByEmailIgnoreCase + findByIdUser au début de chaque méthode.
  */
 @Service
 @Transactional
 public class OrdreMissionServiceImpl implements OrdreMissionService {
 
+    /**
+     * Rayon maximal de recherche des candidats : au-delà de la zone de mobilité
+     * maximale autorisée (500 km), aucun formateur ne peut intervenir.
+     */
+    private static final double RAYON_RECHERCHE_MAX_KM = 500.0;
+
+    /** Taille maximale d'une page de la liste des OM (pagination par curseur). */
+    private static final int TAILLE_PAGE_MAX = 100;
+
     private final OrdreMissionRepository ordreMissionRepository;
     private final UtilisateurRepository utilisateurRepository;
     private final EcoleRepository ecoleRepository;
     private final FormateurRepository formateurRepository;
+    private final FormateurSpatialIndex formateurSpatialIndex;
+    private final CandidateRanker candidateRanker;
+    private final GeocodingService geocodingService;
+    private final CurrentActor currentActor;
+    private final CodeOrdreAllocator codeOrdreAllocator;
+    private final OrdreMissionCompteCache ordreMissionCompteCache;
+    private final AffectationOptimizer affectationOptimizer;
+    private final DisponibiliteIndex disponibiliteIndex;
+    private final ReservationIndex reservationIndex;
+    private final RoutingEngine routingEngine;
+    private final TrajetRoutierService trajetRoutierService;
+    private final int candidatsLimiteDefaut;
+    private final int candidatsLimiteMax;
+    private final int candidatsLotMax;
+    private final int affectationLotMax;
 
     public OrdreMissionServiceImpl(OrdreMissionRepository ordreMissionRepository,
                                    UtilisateurRepository utilisateurRepository,
                                    EcoleRepository ecoleRepository,
-                                   FormateurRepository formateurRepository) {
+                                   FormateurRepository formateurRepository,
+                                   FormateurSpatialIndex formateurSpatialIndex,
+                                   CandidateRanker candidateRanker,
+                                   GeocodingService geocodingService,
+                                   CurrentActor currentActor,
+                                   CodeOrdreAllocator codeOrdreAllocator,
+                                   OrdreMissionCompteCache ordreMissionCompteCache,
+                                   AffectationOptimizer affectationOptimizer,
+                                   DisponibiliteIndex disponibiliteIndex,
+                                   ReservationIndex reservationIndex,
+                                   RoutingEngine routingEngine,
+                                   TrajetRoutierService trajetRoutierService,
+                                   @Value("${candidats.limite-defaut:50}") int candidatsLimiteDefaut,
+                                   @Value("${candidats.limite-max:500}") int candidatsLimiteMax,
+                                   @Value("${candidats.lot-max:100}") int candidatsLotMax,
+                                   @Value("${om.affectation.lot-max:1000}") int affectationLotMax) {
         this.ordreMissionRepository = ordreMissionRepository;
         this.utilisateurRepository = utilisateurRepository;
         this.ecoleRepository = ecoleRepository;
         this.formateurRepository = formateurRepository;
+        this.formateurSpatialIndex = formateurSpatialIndex;
+        this.candidateRanker = candidateRanker;
+        this.geocodingService = geocodingService;
+        this.currentActor = currentActor;
+        this.codeOrdreAllocator = codeOrdreAllocator;
+        this.ordreMissionCompteCache = ordreMissionCompteCache;
+        this.affectationOptimizer = affectationOptimizer;
+        this.disponibiliteIndex = disponibiliteIndex;
+        this.reservationIndex = reservationIndex;
+        this.routingEngine = routingEngine;
+        this.trajetRoutierService = trajetRoutierService;
+        this.candidatsLimiteDefaut = candidatsLimiteDefaut;
+        this.candidatsLimiteMax = candidatsLimiteMax;
+        this.candidatsLotMax = candidatsLotMax;
+        this.affectationLotMax = affectationLotMax;
     }
 
     // ---------------------------------------------------------------------
@@ -65,18 +151,10 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
     // ---------------------------------------------------------------------
 
     @Override
-    public OrdreMissionResponse createOrdreMissionPourEcole(String emailConnected,
-                                                            OrdreMissionCreateRequest request) {
+    public OrdreMissionResponse createOrdreMissionPourEcole(OrdreMissionCreateRequest request) {
 
-        // 1) Sécurisation / contexte : retrouver l'utilisateur par email
-        Utilisateur user = utilisateurRepository.findByEmailIgnoreCase(emailConnected)
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Utilisateur introuvable pour l'email : " + emailConnected));
-
-        // 2) Retrouver l'école associée à cet utilisateur (FK id_user)
-        Ecole ecole = ecoleRepository.findByIdUser(user.getIdUser())
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Aucune école associée à ce compte. Contactez un administrateur."));
+        // 1) + 2) Contexte : utilisateur et école connectés (CurrentActor, sans requête)
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
         // 3) Validation simple des dates
         validateDates(request.getDateDebut(), request.getDateFin());
@@ -85,8 +163,8 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
         OrdreMission om = OrdreMissionMapper.toEntityFromCreate(request);
 
         // 5) Compléter les champs contextuels côté service
-        om.setIdEcole(ecole.getIdEcole());
-        om.setIdUserCreateur(user.getIdUser());
+        om.setIdEcole(idEcole);
+        om.setIdUserCreateur(currentActor.getIdUser());
 
         // Au moment de la création côté ECOLE :
         //  - on n'a PAS encore de formateur affecté
@@ -95,8 +173,9 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
         // Statut initial : BROUILLON (automate métier)
         om.setStatut("BROUILLON");
 
-        // Générer un code ordre fonctionnel (ex : OM-2025-0001)
-        String code = generateCodeOrdre(ecole);
+        // Générer un code ordre fonctionnel (ex : OM-2025-0001),
+        // unique même sous créations concurrentes (compteur annuel réservé par blocs)
+        String code = codeOrdreAllocator.prochainCode();
         om.setCodeOrdre(code);
 
         // Timestamps
@@ -106,6 +185,7 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
 
         // 6) Sauvegarder
         ordreMissionRepository.save(om);
+        ordreMissionCompteCache.invaliderApresCommit(idEcole);
 
         // 7) Retourner le DTO de réponse
         return OrdreMissionMapper.toResponse(om);
@@ -116,25 +196,18 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
     // ---------------------------------------------------------------------
 
     @Override
-    public OrdreMissionResponse updateOrdreMissionBrouillonPourEcole(String emailConnected,
-                                                                     Integer idOrdreMission,
+    public OrdreMissionResponse updateOrdreMissionBrouillonPourEcole(Integer idOrdreMission,
                                                                      OrdreMissionUpdateRequest request) {
 
-        // 1) Contexte utilisateur + école
-        Utilisateur user = utilisateurRepository.findByEmailIgnoreCase(emailConnected)
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Utilisateur introuvable pour l'email : " + emailConnected));
-
-        Ecole ecole = ecoleRepository.findByIdUser(user.getIdUser())
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Aucune école associée à ce compte. Contactez un administrateur."));
+        // 1) Contexte : école de l'utilisateur connecté (CurrentActor, sans requête)
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
         // 2) Retrouver l'OM et vérifier qu'il appartient bien à cette école
         OrdreMission om = ordreMissionRepository.findById(idOrdreMission)
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Ordre de mission introuvable (id=" + idOrdreMission + ")."));
 
-        if (!om.getIdEcole().equals(ecole.getIdEcole())) {
+        if (!om.getIdEcole().equals(idEcole)) {
             throw new IllegalArgumentException(
                     "Cet ordre de mission n'appartient pas à votre établissement.");
         }
@@ -165,21 +238,12 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
 
     @Override
     @Transactional(readOnly = true)
-    public PageResponse<OrdreMissionResponse> listerOrdresMissionPourEcole(String emailConnected,
-                                                                           String statut,
+    public PageResponse<OrdreMissionResponse> listerOrdresMissionPourEcole(String statut,
                                                                            int page,
                                                                            int size) {
 
-        // 1) Contexte utilisateur + école
-        Utilisateur user = utilisateurRepository.findByEmailIgnoreCase(emailConnected)
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Utilisateur introuvable pour l'email : " + emailConnected));
-
-        Ecole ecole = ecoleRepository.findByIdUser(user.getIdUser())
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Aucune école associée à ce compte. Contactez un administrateur."));
-
-        Integer idEcole = ecole.getIdEcole();
+        // 1) Contexte : école de l'utilisateur connecté (CurrentActor, sans requête)
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
         // 2) Préparation du pageable avec tri par createdAt desc
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
@@ -210,22 +274,98 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
     }
 
     // ---------------------------------------------------------------------
-    // 4️⃣ Détail d'un OM (côté ECOLE)
+    // 3️⃣ bis Liste "légère" des OM de l'école (projection, sans commentaire)
     // ---------------------------------------------------------------------
 
     @Override
     @Transactional(readOnly = true)
-    public OrdreMissionResponse getOrdreMissionDetailPourEcole(String emailConnected,
-                                                               Integer idOrdreMission) {
+    public PageResponse<OrdreMissionLightResponse> listerOrdresMissionLightPourEcole(String statut,
+                                                                                     int page,
+                                                                                     int size) {
 
-        // 1) Contexte utilisateur + école
-        Utilisateur user = utilisateurRepository.findByEmailIgnoreCase(emailConnected)
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Utilisateur introuvable pour l'email : " + emailConnected));
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
-        Ecole ecole = ecoleRepository.findByIdUser(user.getIdUser())
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Aucune école associée à ce compte. Contactez un administrateur."));
+        // Tri (createdAt DESC, idOrdreMission DESC) porté par la requête
+        Pageable pageable = PageRequest.of(page, Math.min(size, TAILLE_PAGE_MAX));
+
+        Page<OrdreMissionLightResponse> pageOm;
+        if (statut != null && !statut.isBlank()) {
+            String statutFiltre = statut.trim().toUpperCase(Locale.ROOT);
+            pageOm = ordreMissionRepository.findLightByIdEcoleAndStatut(idEcole, statutFiltre, pageable);
+        } else {
+            pageOm = ordreMissionRepository.findLightByIdEcole(idEcole, pageable);
+        }
+
+        return new PageResponse<>(
+                pageOm.getContent(),
+                pageOm.getNumber(),
+                pageOm.getSize(),
+                pageOm.getTotalElements(),
+                pageOm.getTotalPages(),
+                pageOm.isFirst(),
+                pageOm.isLast()
+        );
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ ter Liste des OM de l'école par curseur (keyset)
+    // ---------------------------------------------------------------------
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<OrdreMissionLightResponse> listerOrdresMissionPourEcoleParCurseur(String statut,
+                                                                                              String cursor,
+                                                                                              int size,
+                                                                                              boolean avecTotal) {
+
+        // 1) Contexte : école de l'utilisateur connecté
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
+
+        String statutFiltre = (statut != null && !statut.isBlank())
+                ? statut.trim().toUpperCase(Locale.ROOT)
+                : null;
+        int taille = Math.min(Math.max(size, 1), TAILLE_PAGE_MAX);
+        OrdreMissionCurseur apres = OrdreMissionCurseur.decoder(cursor);
+
+        // 2) Une ligne de plus que la page : sa présence dit s'il existe une page suivante
+        //    (projection légère : colonnes du tableau seulement, aucune entité chargée)
+        Pageable limite = PageRequest.of(0, taille + 1);
+        List<OrdreMissionLightResponse> oms;
+        if (statutFiltre == null) {
+            oms = (apres == null)
+                    ? ordreMissionRepository.findPremierePageEcole(idEcole, limite)
+                    : ordreMissionRepository.findPageEcoleApres(idEcole,
+                            apres.createdAt(), apres.idOrdreMission(), limite);
+        } else {
+            oms = (apres == null)
+                    ? ordreMissionRepository.findPremierePageEcoleParStatut(idEcole, statutFiltre, limite)
+                    : ordreMissionRepository.findPageEcoleParStatutApres(idEcole, statutFiltre,
+                            apres.createdAt(), apres.idOrdreMission(), limite);
+        }
+
+        // 3) Curseur de la page suivante = position du dernier OM renvoyé
+        String nextCursor = null;
+        if (oms.size() > taille) {
+            oms = oms.subList(0, taille);
+            nextCursor = OrdreMissionCurseur.apres(oms.get(taille - 1)).encoder();
+        }
+
+        // 4) Total optionnel (mis en cache, pas de COUNT(*) à chaque page)
+        Long total = avecTotal ? ordreMissionCompteCache.compter(idEcole, statutFiltre) : null;
+
+        return new CursorPageResponse<>(oms, taille, nextCursor, total);
+    }
+
+    // ---------------------------------------------------------------------
+    // 4️⃣ Détail d'un OM (côté ECOLE)
+    // ---------------------------------------------------------------------
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrdreMissionResponse getOrdreMissionDetailPourEcole(Integer idOrdreMission) {
+
+        // 1) Contexte : école de l'utilisateur connecté (CurrentActor, sans requête)
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
         // 2) Charger l'OM
         OrdreMission om = ordreMissionRepository.findById(idOrdreMission)
@@ -233,7 +373,7 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
                         "Ordre de mission introuvable (id=" + idOrdreMission + ")."));
 
         // 3) Vérifier l'appartenance à l'école
-        if (!om.getIdEcole().equals(ecole.getIdEcole())) {
+        if (!om.getIdEcole().equals(idEcole)) {
             throw new IllegalArgumentException(
                     "Cet ordre de mission n'appartient pas à votre établissement.");
         }
@@ -247,18 +387,11 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
     // ---------------------------------------------------------------------
 
     @Override
-    public OrdreMissionResponse assignerFormateurPourOrdreMission(String emailConnected,
-                                                                  Integer idOrdreMission,
+    public OrdreMissionResponse assignerFormateurPourOrdreMission(Integer idOrdreMission,
                                                                   OrdreMissionAssignFormateurRequest request) {
 
-        // 1) Contexte utilisateur + école
-        Utilisateur user = utilisateurRepository.findByEmailIgnoreCase(emailConnected)
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Utilisateur introuvable pour l'email : " + emailConnected));
-
-        Ecole ecole = ecoleRepository.findByIdUser(user.getIdUser())
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Aucune école associée à ce compte. Contactez un administrateur."));
+        // 1) Contexte : école de l'utilisateur connecté (CurrentActor, sans requête)
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
 
         // 2) Charger l'OM
         OrdreMission om = ordreMissionRepository.findById(idOrdreMission)
@@ -266,7 +399,7 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
                         "Ordre de mission introuvable (id=" + idOrdreMission + ")."));
 
         // 3) Contrôler l'appartenance à l'école
-        if (!om.getIdEcole().equals(ecole.getIdEcole())) {
+        if (!om.getIdEcole().equals(idEcole)) {
             throw new IllegalArgumentException(
                     "Cet ordre de mission n'appartient pas à votre établissement.");
         }
@@ -287,23 +420,44 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Formateur introuvable (id=" + idFormateur + ")."));
 
-        // 6) Appliquer l'affectation
+        // 6) Pas de double réservation : contrôle sous verrou du formateur
+        controlerConflitsSousVerrou(List.of(om), Map.of(om.getIdOrdreMission(), formateur.getIdFormateur()));
+
+        // 7) Appliquer l'affectation
         om.setIdFormateur(formateur.getIdFormateur());
         om.setStatut("PROPOSE");
         om.setUpdatedAt(OffsetDateTime.now());
 
         ordreMissionRepository.save(om);
+        ordreMissionCompteCache.invaliderApresCommit(om.getIdEcole());
+        reservationIndex.mettreAJourApresCommit(om);
+        trajetRoutierService.proposerApresCommit(List.of(om));
 
         return OrdreMissionMapper.toResponse(om);
     }
 
     // ---------------------------------------------------------------------
-    // 6️⃣ Candidats formateurs pour un OM (triés par distance)
+    // 6️⃣ Candidats formateurs pour un OM (classés par score)
     // ---------------------------------------------------------------------
 
     @Override
     @Transactional(readOnly = true)
     public List<OmFormateurCandidatResponse> findCandidatsPourOrdre(Integer idOrdreMission) {
+        return classerCandidatsPourOrdre(idOrdreMission, null, null, null).getItems();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OmCandidatsPageResponse classerCandidatsPourOrdre(Integer idOrdreMission,
+                                                             Integer limit,
+                                                             Double maxDistanceKm,
+                                                             String cursor) {
+
+        int k = (limit == null) ? candidatsLimiteDefaut : Math.min(limit, candidatsLimiteMax);
+        if (k <= 0) {
+            throw new IllegalArgumentException("Le paramètre limit doit être strictement positif.");
+        }
+        CandidatCurseur apres = CandidatCurseur.decoder(cursor);
 
         OrdreMission om = ordreMissionRepository.findById(idOrdreMission)
                 .orElseThrow(() -> new IllegalArgumentException(
@@ -316,52 +470,193 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
                 .orElseThrow(() -> new IllegalStateException(
                         "École introuvable pour l'OM (id_ecole=" + om.getIdEcole() + ")"));
 
-        if (ecole.getLat() == null || ecole.getLon() == null) {
-            throw new IllegalStateException(
-                    "Les coordonnées GPS de l'établissement ne sont pas renseignées.");
-        }
-
-        BigDecimal omLat = ecole.getLat();
-        BigDecimal omLon = ecole.getLon();
-
-        // 🔍 On récupère tous les formateurs (tu pourras plus tard optimiser
-        // avec une méthode custom du repository : findAllActifsAvecCoordonnees(), etc.)
-        List<Formateur> formateurs = formateurRepository.findAll();
-
-        List<OmFormateurCandidatResponse> candidats = formateurs.stream()
-                .map(f -> {
-                    Utilisateur u = utilisateurRepository.findById(f.getIdUser())
-                            .orElse(null);
-
-                    if (u == null || !u.isActif()
-                            || u.getLat() == null || u.getLon() == null) {
-                        return null;
-                    }
-
-                    double distance = GeoUtils.distanceKm(
-                            omLat, omLon,
-                            u.getLat(), u.getLon()
-                    );
-
-                    OmFormateurCandidatResponse dto = new OmFormateurCandidatResponse();
-                    dto.setIdFormateur(f.getIdFormateur());
-                    dto.setIdUser(u.getIdUser());
-                    dto.setPrenom(u.getPrenom());
-                    dto.setNom(u.getNom());
-                    dto.setVille(u.getVille());
-                    dto.setZoneKm(f.getZoneKm());
-                    dto.setVehiculePerso(f.isVehiculePerso());
-                    dto.setPermis(f.isPermis());
-                    dto.setCommentaire(f.getCommentaire());
-                    dto.setDistanceKm(distance);
-
-                    return dto;
-                })
-                .filter(Objects::nonNull)
-                .sorted(Comparator.comparing(OmFormateurCandidatResponse::getDistanceKm))
+        Coords position = positionEcole(ecole);
+
+        double omLat = position.lat().doubleValue();
+        double omLon = position.lon().doubleValue();
+
+        double rayonKm = (maxDistanceKm == null)
+                ? RAYON_RECHERCHE_MAX_KM
+                : Math.min(maxDistanceKm, RAYON_RECHERCHE_MAX_KM);
+
+        // 🔍 Pool de candidats :
+        //  - index spatial en mémoire s'il est chargé (aucune requête) ;
+        //  - sinon UNE requête projetée, pré-filtrée sur le rectangle englobant.
+        Map<Integer, FormateurCandidatProjection> lignes = null;
+        List<CandidatContexte> pool;
+
+        if (formateurSpatialIndex.estPret()) {
+            pool = formateurSpatialIndex.rechercherDansRayon(omLat, omLon, rayonKm).stream()
+                    .map(OrdreMissionServiceImpl::toContexte)
+                    .toList();
+        } else {
+            lignes = chargerCandidatsDansRayon(omLat, omLon, rayonKm);
+            List<FormateurCandidatProjection> dansRectangle = new ArrayList<>(lignes.values());
+
+            // Distances un-vers-plusieurs : coordonnées en colonnes (DistanceEngine)
+            double[] lats = new double[dansRectangle.size()];
+            double[] lons = new double[dansRectangle.size()];
+            for (int i = 0; i < lats.length; i++) {
+                lats[i] = dansRectangle.get(i).getLat();
+                lons[i] = dansRectangle.get(i).getLon();
+            }
+            double[] distances = DistanceEngine.distancesKm(omLat, omLon,
+                    DistanceEngine.Points.depuisDegres(lats, lons));
+
+            pool = new ArrayList<>(lats.length);
+            for (int i = 0; i < lats.length; i++) {
+                if (distances[i] <= rayonKm) {
+                    pool.add(toContexte(dansRectangle.get(i), distances[i]));
+                }
+            }
+        }
+
+        // 📅 Formateurs libres sur les dates de l'OM : disponibilités déclarées
+        //    et OM déjà engagés (index en mémoire, aucune requête par candidat)
+        pool = pool.stream()
+                .filter(c -> estLibre(c.idFormateur(), om.getDateDebut(), om.getDateFin()))
                 .toList();
 
-        return candidats;
+        // 🚗 Distances et durées routières (domiciles -> école, un seul Dijkstra) ;
+        //    vol d'oiseau conservé si le moteur de routage est inactif
+        pool = routerCandidats(omLat, omLon, pool);
+
+        // 🏅 Classement top-K : seuls les K meilleurs sont conservés (tas borné)
+        CandidateRanker.Classement classement = candidateRanker.classer(pool, k, maxDistanceKm, apres);
+
+        List<CandidateRanker.CandidatClasse> retenus = classement.retenus();
+        if (retenus.isEmpty()) {
+            return new OmCandidatsPageResponse(List.of(), null);
+        }
+
+        // Fiches des SEULS retenus : 1 requête projetée FORMATEUR + UTILISATEUR sur K ids
+        // (inutile si la page vient déjà de la requête rectangle).
+        if (lignes == null) {
+            lignes = formateurRepository
+                    .findCandidatsActifsParIds(retenus.stream().map(r -> r.candidat().idFormateur()).toList())
+                    .stream()
+                    .collect(Collectors.toMap(FormateurCandidatProjection::getIdFormateur, Function.identity()));
+        }
+
+        // Les DTO ne sont construits que pour les K survivants, déjà triés.
+        List<OmFormateurCandidatResponse> candidats = toCandidats(retenus, lignes);
+
+        String nextCursor = (classement.suivant() != null) ? classement.suivant().encoder() : null;
+        return new OmCandidatsPageResponse(candidats, nextCursor);
+    }
+
+    // ---------------------------------------------------------------------
+    // 6️⃣ bis Candidats de plusieurs OM en un seul calcul
+    // ---------------------------------------------------------------------
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, List<OmFormateurCandidatResponse>> findCandidatsPourOrdres(List<Integer> idsOrdreMission) {
+        return classerCandidatsPourOrdres(idsOrdreMission, null, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, List<OmFormateurCandidatResponse>> classerCandidatsPourOrdres(List<Integer> idsOrdreMission,
+                                                                                    Integer limit,
+                                                                                    Double maxDistanceKm) {
+
+        List<Integer> ids = idsDuLot(idsOrdreMission, candidatsLotMax);
+        int k = (limit == null) ? candidatsLimiteDefaut : Math.min(limit, candidatsLimiteMax);
+        if (k <= 0) {
+            throw new IllegalArgumentException("Le paramètre limit doit être strictement positif.");
+        }
+        double rayonKm = (maxDistanceKm == null)
+                ? RAYON_RECHERCHE_MAX_KM
+                : Math.min(maxDistanceKm, RAYON_RECHERCHE_MAX_KM);
+
+        // 1) OM demandés (1 requête), regroupés par école :
+        //    tous les OM d'une école partagent le même point de départ (Ecole.lat / lon)
+        Map<Integer, OrdreMission> oms = ordreMissionRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(OrdreMission::getIdOrdreMission, Function.identity()));
+
+        Integer idEcoleConnectee = currentActor.getIdEcole();
+        List<Integer> idsEcoles = new ArrayList<>();
+        for (Integer id : ids) {
+            OrdreMission om = oms.get(id);
+            // OM d'une autre école : même réponse qu'un OM inexistant
+            if (om == null || (idEcoleConnectee != null && !idEcoleConnectee.equals(om.getIdEcole()))) {
+                throw new IllegalArgumentException("Ordre de mission introuvable (id=" + id + ")");
+            }
+            if (!idsEcoles.contains(om.getIdEcole())) {
+                idsEcoles.add(om.getIdEcole());
+            }
+        }
+
+        Map<Integer, Ecole> ecoles = ecoleRepository.findAllById(idsEcoles).stream()
+                .collect(Collectors.toMap(Ecole::getIdEcole, Function.identity()));
+        double[] latsEcoles = new double[idsEcoles.size()];
+        double[] lonsEcoles = new double[idsEcoles.size()];
+        for (int e = 0; e < idsEcoles.size(); e++) {
+            Ecole ecole = ecoles.get(idsEcoles.get(e));
+            if (ecole == null) {
+                throw new IllegalStateException("École introuvable pour l'OM (id_ecole=" + idsEcoles.get(e) + ")");
+            }
+            Coords position = positionEcole(ecole);
+            latsEcoles[e] = position.lat().doubleValue();
+            lonsEcoles[e] = position.lon().doubleValue();
+        }
+
+        // 2) Vivier chargé UNE fois pour tous les OM
+        Vivier v = chargerVivier();
+        List<FormateurSpatialIndex.Entree> vivier = v.entrees();
+        Map<Integer, FormateurCandidatProjection> lignes = v.lignes();
+
+        // 3) Matrice écoles × formateurs, calculée en parallèle (fork-join)
+        double[][] distances = DistanceMatrix.calculer(latsEcoles, lonsEcoles, v.points());
+
+        // 4) Un classement top-K par école et par période : le score ne dépend que
+        //    du formateur et de sa distance à l'école, les filtres de disponibilité
+        //    et de réservation que des dates ; les OM d'une même session partagent donc leur classement.
+        Map<Integer, Integer> indiceEcole = new HashMap<>();
+        for (int e = 0; e < idsEcoles.size(); e++) {
+            indiceEcole.put(idsEcoles.get(e), e);
+        }
+        Map<GroupeCandidats, List<CandidateRanker.CandidatClasse>> retenusParGroupe = new HashMap<>();
+        Set<Integer> idsRetenus = new HashSet<>();
+        for (Integer id : ids) {
+            OrdreMission om = oms.get(id);
+            GroupeCandidats groupe = new GroupeCandidats(om.getIdEcole(), om.getDateDebut(), om.getDateFin());
+            if (retenusParGroupe.containsKey(groupe)) {
+                continue;
+            }
+            double[] ligne = distances[indiceEcole.get(om.getIdEcole())];
+            List<CandidatContexte> pool = new ArrayList<>();
+            for (int i = 0; i < ligne.length; i++) {
+                if (ligne[i] <= rayonKm && estLibre(vivier.get(i).idFormateur(), groupe.debut(), groupe.fin())) {
+                    pool.add(toContexte(new FormateurSpatialIndex.Voisin(vivier.get(i), ligne[i])));
+                }
+            }
+            List<CandidateRanker.CandidatClasse> retenus =
+                    candidateRanker.classer(pool, k, maxDistanceKm, null).retenus();
+            retenusParGroupe.put(groupe, retenus);
+            retenus.forEach(r -> idsRetenus.add(r.candidat().idFormateur()));
+        }
+
+        // 5) Fiches des SEULS retenus, toutes écoles confondues : 1 requête
+        if (lignes == null && !idsRetenus.isEmpty()) {
+            lignes = formateurRepository.findCandidatsActifsParIds(idsRetenus).stream()
+                    .collect(Collectors.toMap(FormateurCandidatProjection::getIdFormateur, Function.identity()));
+        }
+
+        Map<GroupeCandidats, List<OmFormateurCandidatResponse>> candidatsParGroupe = new HashMap<>();
+        for (Map.Entry<GroupeCandidats, List<CandidateRanker.CandidatClasse>> g : retenusParGroupe.entrySet()) {
+            candidatsParGroupe.put(g.getKey(), (lignes == null) ? List.of() : toCandidats(g.getValue(), lignes));
+        }
+
+        // 6) Réponse dans l'ordre des OM demandés
+        Map<Integer, List<OmFormateurCandidatResponse>> resultat = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            OrdreMission om = oms.get(id);
+            resultat.put(id, candidatsParGroupe.get(
+                    new GroupeCandidats(om.getIdEcole(), om.getDateDebut(), om.getDateFin())));
+        }
+        return resultat;
     }
 
     // ---------------------------------------------------------------------
@@ -392,20 +687,391 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
             throw new IllegalStateException("Ce formateur est désactivé.");
         }
 
+        // pas de double réservation : contrôle sous verrou du formateur
+        controlerConflitsSousVerrou(List.of(om), Map.of(om.getIdOrdreMission(), formateur.getIdFormateur()));
+
         // ping-pong Ecole → Formateur : PROPOSE
         om.setIdFormateur(formateur.getIdFormateur());
         om.setStatut("PROPOSE");
         om.setUpdatedAt(OffsetDateTime.now());
 
         ordreMissionRepository.save(om);
+        ordreMissionCompteCache.invaliderApresCommit(om.getIdEcole());
+        reservationIndex.mettreAJourApresCommit(om);
+        trajetRoutierService.proposerApresCommit(List.of(om));
 
         return OrdreMissionMapper.toResponse(om);
     }
 
+    // ---------------------------------------------------------------------
+    // 8️⃣ Plan d'affectation optimisé pour un lot d'OM BROUILLON
+    // ---------------------------------------------------------------------
+
+    @Override
+    @Transactional(readOnly = true)
+    public OmAffectationPlanResponse optimiserAffectations(List<Integer> idsOrdreMission) {
+
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
+        List<Integer> ids = idsDuLot(idsOrdreMission, affectationLotMax);
+
+        // 1) OM du lot : tous de l'école, tous en BROUILLON
+        List<OrdreMission> oms = chargerBrouillonsDeLEcole(ids, idEcole);
+
+        Ecole ecole = ecoleRepository.findById(idEcole)
+                .orElseThrow(() -> new IllegalStateException("École introuvable (id_ecole=" + idEcole + ")"));
+        Coords position = positionEcole(ecole);
+
+        // 2) Vivier + distances école -> formateurs
+        Vivier vivier = chargerVivier();
+        double[][] distances = DistanceMatrix.calculer(
+                new double[] {position.lat().doubleValue()},
+                new double[] {position.lon().doubleValue()},
+                vivier.points());
+
+        List<AffectationOptimizer.Formateur> formateurs = new ArrayList<>(vivier.entrees().size());
+        for (FormateurSpatialIndex.Entree e : vivier.entrees()) {
+            formateurs.add(new AffectationOptimizer.Formateur(e.idFormateur(), e.zoneKm(),
+                    e.vehiculePerso(), e.permis()));
+        }
+
+        // 3) Périodes déjà engagées sur la plage du lot (index des réservations, aucune requête)
+        LocalDate debut = oms.stream().map(OrdreMission::getDateDebut).min(LocalDate::compareTo).orElseThrow();
+        LocalDate fin = oms.stream().map(OrdreMission::getDateFin).max(LocalDate::compareTo).orElseThrow();
+        Map<Integer, List<AffectationOptimizer.Creneau>> engagements = new HashMap<>();
+        for (int f = 0; f < formateurs.size(); f++) {
+            int idFormateur = formateurs.get(f).idFormateur();
+            for (ReservationIndex.Reservation r : reservationIndex.reservations(idFormateur, debut, fin)) {
+                engagements.computeIfAbsent(f, x -> new ArrayList<>()).add(new AffectationOptimizer.Creneau(
+                        r.debut().toEpochDay(), r.fin().toEpochDay()));
+            }
+        }
+
+        List<AffectationOptimizer.Ordre> ordres = oms.stream()
+                .map(om -> new AffectationOptimizer.Ordre(om.getIdOrdreMission(), 0,
+                        om.getDateDebut().toEpochDay(), om.getDateFin().toEpochDay()))
+                .toList();
+
+        // 4) Optimisation (aucun accès base ; disponibilités lues dans l'index en mémoire)
+        AffectationOptimizer.Resultat resultat = affectationOptimizer.optimiser(
+                new AffectationOptimizer.Probleme(ordres, formateurs, distances, engagements,
+                        (f, jourDebut, jourFin) -> disponibiliteIndex.estDisponible(formateurs.get(f).idFormateur(),
+                                LocalDate.ofEpochDay(jourDebut), LocalDate.ofEpochDay(jourFin))));
+
+        // 5) Fiches des formateurs retenus (noms), 1 requête si le vivier vient de l'index
+        Map<Integer, FormateurCandidatProjection> lignes = vivier.lignes();
+        if (lignes == null) {
+            List<Integer> idsRetenus = Arrays.stream(resultat.formateurParOrdre())
+                    .filter(f -> f >= 0)
+                    .mapToObj(f -> formateurs.get(f).idFormateur())
+                    .distinct()
+                    .toList();
+            lignes = idsRetenus.isEmpty() ? Map.of() : formateurRepository.findCandidatsActifsParIds(idsRetenus)
+                    .stream()
+                    .collect(Collectors.toMap(FormateurCandidatProjection::getIdFormateur, Function.identity()));
+        }
+
+        List<OmAffectationProposee> affectations = new ArrayList<>();
+        List<Integer> nonAffectes = new ArrayList<>();
+        for (int o = 0; o < ordres.size(); o++) {
+            int f = resultat.formateurParOrdre()[o];
+            FormateurCandidatProjection l = (f < 0) ? null : lignes.get(formateurs.get(f).idFormateur());
+            if (l == null) {
+                nonAffectes.add(ordres.get(o).idOrdreMission());
+                continue;
+            }
+            affectations.add(new OmAffectationProposee(ordres.get(o).idOrdreMission(), l.getIdFormateur(),
+                    l.getNom() + " " + l.getPrenom(), resultat.distanceParOrdre()[o]));
+        }
+
+        return new OmAffectationPlanResponse(affectations, nonAffectes,
+                resultat.distanceTotaleKm(), resultat.methode());
+    }
+
+    // ---------------------------------------------------------------------
+    // 9️⃣ Application d'un plan d'affectation (tout ou rien)
+    // ---------------------------------------------------------------------
+
+    @Override
+    public List<OrdreMissionResponse> appliquerAffectations(List<OmAffectationProposee> affectations) {
+
+        Integer idEcole = currentActor.getIdEcoleOuEchec();
+
+        if (affectations == null || affectations.isEmpty()) {
+            throw new IllegalArgumentException("Au moins une affectation est attendue.");
+        }
+        Map<Integer, Integer> formateurParOm = new LinkedHashMap<>();
+        for (OmAffectationProposee a : affectations) {
+            if (a == null || a.getIdOrdreMission() == null || a.getIdFormateur() == null) {
+                throw new IllegalArgumentException("Chaque affectation doit préciser idOrdreMission et idFormateur.");
+            }
+            if (formateurParOm.put(a.getIdOrdreMission(), a.getIdFormateur()) != null) {
+                throw new IllegalArgumentException(
+                        "Ordre de mission présent deux fois dans le plan (id=" + a.getIdOrdreMission() + ")");
+            }
+        }
+        List<Integer> ids = idsDuLot(new ArrayList<>(formateurParOm.keySet()), affectationLotMax);
+
+        // 1) OM : tous de l'école, tous encore en BROUILLON
+        List<OrdreMission> oms = chargerBrouillonsDeLEcole(ids, idEcole);
+
+        // 2) Formateurs : existants et actifs
+        Set<Integer> idsFormateurs = new HashSet<>(formateurParOm.values());
+        Set<Integer> actifs = formateurRepository.findCandidatsActifsParIds(idsFormateurs).stream()
+                .map(FormateurCandidatProjection::getIdFormateur)
+                .collect(Collectors.toSet());
+        for (Integer idFormateur : idsFormateurs) {
+            if (!actifs.contains(idFormateur)) {
+                throw new IllegalStateException(
+                        "Formateur introuvable, désactivé ou sans adresse géocodée (id=" + idFormateur + ").");
+            }
+        }
+
+        // 3) Formateur disponible (disponibiliteJson) sur les dates de chaque OM
+        for (OrdreMission om : oms) {
+            Integer idFormateur = formateurParOm.get(om.getIdOrdreMission());
+            if (!disponibiliteIndex.estDisponible(idFormateur, om.getDateDebut(), om.getDateFin())) {
+                throw new IllegalStateException("Le formateur " + idFormateur
+                        + " n'est pas disponible sur les dates de l'OM " + om.getCodeOrdre() + ".");
+            }
+        }
+
+        // 3 bis) Aucun chevauchement de dates, entre OM du plan et avec les OM
+        //        déjà engagés (sous verrou des formateurs du plan)
+        controlerConflitsSousVerrou(oms, formateurParOm);
+
+        // 4) Application : BROUILLON -> PROPOSE (une seule transaction)
+        OffsetDateTime maintenant = OffsetDateTime.now();
+        for (OrdreMission om : oms) {
+            om.setIdFormateur(formateurParOm.get(om.getIdOrdreMission()));
+            om.setStatut("PROPOSE");
+            om.setUpdatedAt(maintenant);
+        }
+        ordreMissionRepository.saveAll(oms);
+        ordreMissionCompteCache.invaliderApresCommit(idEcole);
+        oms.forEach(reservationIndex::mettreAJourApresCommit);
+        trajetRoutierService.proposerApresCommit(oms);
+
+        return OrdreMissionMapper.toResponseList(oms);
+    }
+
     // ---------------------------------------------------------------------
     // Helpers internes
     // ---------------------------------------------------------------------
 
+    /**
+     * Formateur libre sur [debut, fin] : disponible d'après ses disponibilités
+     * déclarées et sans OM engagé qui chevauche (index en mémoire).
+     */
+    private boolean estLibre(int idFormateur, LocalDate debut, LocalDate fin) {
+        return disponibiliteIndex.estDisponible(idFormateur, debut, fin)
+                && !reservationIndex.estReserve(idFormateur, debut, fin);
+    }
+
+    /**
+     * Refuse une affectation qui chevaucherait une période déjà engagée du
+     * formateur, ou un autre OM du même lot qui lui est affecté.
+     *
+     *  1) refus immédiat si l'index des réservations voit déjà le conflit ;
+     *  2) verrou des formateurs concernés jusqu'au commit ;
+     *  3) relecture en base de leurs périodes engagées (1 requête) : c'est le
+     *     contrôle qui fait foi, une affectation concurrente validée avant
+     *     notre verrou y figure même si l'index n'est pas encore à jour.
+     *
+     * @param formateurParOm idOrdreMission -> idFormateur
+     */
+    private void controlerConflitsSousVerrou(List<OrdreMission> oms, Map<Integer, Integer> formateurParOm) {
+        for (OrdreMission om : oms) {
+            Integer idFormateur = formateurParOm.get(om.getIdOrdreMission());
+            if (reservationIndex.estReserve(idFormateur, om.getDateDebut(), om.getDateFin())) {
+                throw dejaEngage(idFormateur, om);
+            }
+        }
+
+        Set<Integer> idsFormateurs = new HashSet<>(formateurParOm.values());
+        formateurRepository.verrouillerParIds(idsFormateurs);
+
+        LocalDate debut = oms.stream().map(OrdreMission::getDateDebut).min(LocalDate::compareTo).orElseThrow();
+        LocalDate fin = oms.stream().map(OrdreMission::getDateFin).max(LocalDate::compareTo).orElseThrow();
+        Map<Integer, List<LocalDate[]>> periodes = new HashMap<>();
+        for (OrdreMissionRepository.CreneauEngage c
+                : ordreMissionRepository.findCreneauxEngagesDesFormateurs(idsFormateurs, debut, fin)) {
+            periodes.computeIfAbsent(c.getIdFormateur(), x -> new ArrayList<>())
+                    .add(new LocalDate[] {c.getDateDebut(), c.getDateFin()});
+        }
+        for (OrdreMission om : oms) {
+            Integer idFormateur = formateurParOm.get(om.getIdOrdreMission());
+            List<LocalDate[]> prises = periodes.computeIfAbsent(idFormateur, x -> new ArrayList<>());
+            for (LocalDate[] p : prises) {
+                if (!p[0].isAfter(om.getDateFin()) && !om.getDateDebut().isAfter(p[1])) {
+                    throw dejaEngage(idFormateur, om);
+                }
+            }
+            prises.add(new LocalDate[] {om.getDateDebut(), om.getDateFin()});
+        }
+    }
+
+    private static IllegalStateException dejaEngage(Integer idFormateur, OrdreMission om) {
+        return new IllegalStateException("Le formateur " + idFormateur
+                + " est déjà engagé sur les dates de l'OM " + om.getCodeOrdre() + ".");
+    }
+
+    /**
+     * OM qui partagent le même classement de candidats (même école, mêmes dates).
+     */
+    private record GroupeCandidats(Integer idEcole, LocalDate debut, LocalDate fin) {
+    }
+
+    /**
+     * Vivier de formateurs actifs géocodés :
+     *  - index spatial en mémoire s'il est chargé (aucune requête, lignes = null) ;
+     *  - sinon UNE requête projetée (lignes = fiches de tous les formateurs).
+     */
+    private record Vivier(List<FormateurSpatialIndex.Entree> entrees,
+                          Map<Integer, FormateurCandidatProjection> lignes) {
+
+        DistanceEngine.Points points() {
+            double[] lats = new double[entrees.size()];
+            double[] lons = new double[entrees.size()];
+            for (int i = 0; i < lats.length; i++) {
+                lats[i] = entrees.get(i).lat();
+                lons[i] = entrees.get(i).lon();
+            }
+            return DistanceEngine.Points.depuisDegres(lats, lons);
+        }
+    }
+
+    private Vivier chargerVivier() {
+        if (formateurSpatialIndex.estPret()) {
+            return new Vivier(formateurSpatialIndex.toutes(), null);
+        }
+        Map<Integer, FormateurCandidatProjection> lignes = formateurRepository.findCandidatsActifs().stream()
+                .collect(Collectors.toMap(FormateurCandidatProjection::getIdFormateur, Function.identity()));
+        List<FormateurSpatialIndex.Entree> entrees = lignes.values().stream()
+                .map(l -> new FormateurSpatialIndex.Entree(l.getIdFormateur(), l.getIdUser(),
+                        l.getLat(), l.getLon(), l.getZoneKm(), l.isVehiculePerso(), l.isPermis()))
+                .toList();
+        return new Vivier(entrees, lignes);
+    }
+
+    /**
+     * Ids d'un lot (sans null ni doublon), borné à lotMax.
+     */
+    private static List<Integer> idsDuLot(List<Integer> idsOrdreMission, int lotMax) {
+        List<Integer> ids = (idsOrdreMission == null) ? List.of()
+                : idsOrdreMission.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("Au moins un ordre de mission est attendu.");
+        }
+        if (ids.size() > lotMax) {
+            throw new IllegalArgumentException(
+                    "Au plus " + lotMax + " ordres de mission par demande (reçu : " + ids.size() + ").");
+        }
+        return ids;
+    }
+
+    /**
+     * OM du lot (1 requête), dans l'ordre des ids : tous de l'école, tous en BROUILLON.
+     */
+    private List<OrdreMission> chargerBrouillonsDeLEcole(List<Integer> ids, Integer idEcole) {
+        Map<Integer, OrdreMission> parId = ordreMissionRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(OrdreMission::getIdOrdreMission, Function.identity()));
+        List<OrdreMission> oms = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            OrdreMission om = parId.get(id);
+            if (om == null || !idEcole.equals(om.getIdEcole())) {
+                throw new IllegalArgumentException("Ordre de mission introuvable (id=" + id + ")");
+            }
+            if (!"BROUILLON".equalsIgnoreCase(om.getStatut())) {
+                throw new IllegalStateException("L'ordre de mission " + om.getCodeOrdre()
+                        + " n'est plus en BROUILLON : plan d'affectation à recalculer.");
+            }
+            oms.add(om);
+        }
+        return oms;
+    }
+
+    /**
+     * Point de départ des distances : l'école ; si elle n'est pas (encore)
+     * géocodée, centroïde de sa commune (gazetteer hors ligne).
+     */
+    private Coords positionEcole(Ecole ecole) {
+        if (ecole.getLat() != null && ecole.getLon() != null) {
+            return new Coords(ecole.getLat(), ecole.getLon());
+        }
+        return geocodingService.approximer(ecole.getCodePostal(), ecole.getVille())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Les coordonnées GPS de l'établissement ne sont pas renseignées."));
+    }
+
+    /**
+     * DTO des candidats retenus (déjà triés), à partir de leurs fiches.
+     */
+    private static List<OmFormateurCandidatResponse> toCandidats(List<CandidateRanker.CandidatClasse> retenus,
+                                                                 Map<Integer, FormateurCandidatProjection> lignes) {
+        List<OmFormateurCandidatResponse> candidats = new ArrayList<>(retenus.size());
+        for (CandidateRanker.CandidatClasse r : retenus) {
+            FormateurCandidatProjection l = lignes.get(r.candidat().idFormateur());
+            if (l == null) {
+                // désactivé / dé-géocodé depuis le dernier rafraîchissement de l'index
+                continue;
+            }
+            OmFormateurCandidatResponse dto = l.toResponse(r.candidat().distanceKm(), r.score());
+            if (!Double.isNaN(r.candidat().dureeRouteMin())) {
+                dto.setDureeRouteMin(Math.round(r.candidat().dureeRouteMin() * 10) / 10.0);
+            }
+            candidats.add(dto);
+        }
+        return candidats;
+    }
+
+    private Map<Integer, FormateurCandidatProjection> chargerCandidatsDansRayon(double lat,
+                                                                             double lon,
+                                                                             double rayonKm) {
+        FormateurSpatialIndex.Rectangle r = FormateurSpatialIndex.Rectangle.autour(lat, lon, rayonKm);
+        return formateurRepository.findCandidatsActifsDansRectangle(
+                        BigDecimal.valueOf(r.latMin()), BigDecimal.valueOf(r.latMax()),
+                        BigDecimal.valueOf(r.lonMin()), BigDecimal.valueOf(r.lonMax()))
+                .stream()
+                .collect(Collectors.toMap(FormateurCandidatProjection::getIdFormateur, Function.identity()));
+    }
+
+    private static CandidatContexte toContexte(FormateurCandidatProjection l, double distanceKm) {
+        return new CandidatContexte(l.getIdFormateur(), l.getIdUser(), distanceKm,
+                l.getZoneKm(), l.isVehiculePerso(), l.isPermis(), l.getLat(), l.getLon(), Double.NaN);
+    }
+
+    private static CandidatContexte toContexte(FormateurSpatialIndex.Voisin v) {
+        FormateurSpatialIndex.Entree e = v.entree();
+        return new CandidatContexte(e.idFormateur(), e.idUser(), v.distanceKm(),
+                e.zoneKm(), e.vehiculePerso(), e.permis(), e.lat(), e.lon(), Double.NaN);
+    }
+
+    /**
+     * Candidats avec distance et durée routières vers l'école (RoutingEngine,
+     * plusieurs-vers-un). Un domicile sans route trouvée garde sa distance à vol d'oiseau.
+     */
+    private List<CandidatContexte> routerCandidats(double omLat, double omLon, List<CandidatContexte> pool) {
+        if (!routingEngine.estDisponible() || pool.isEmpty()) {
+            return pool;
+        }
+        double[] lats = new double[pool.size()];
+        double[] lons = new double[pool.size()];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = pool.get(i).lat();
+            lons[i] = pool.get(i).lon();
+        }
+        RoutingEngine.Trajets trajets = routingEngine.plusieursVersUn(lats, lons, omLat, omLon);
+
+        List<CandidatContexte> routes = new ArrayList<>(pool.size());
+        for (int i = 0; i < lats.length; i++) {
+            double duree = trajets.dureesMin()[i];
+            routes.add(Double.isNaN(duree)
+                    ? pool.get(i)
+                    : pool.get(i).avecRoute(trajets.distancesKm()[i], duree));
+        }
+        return routes;
+    }
+
     private void validateDates(LocalDate dateDebut, LocalDate dateFin) {
         if (dateDebut == null || dateFin == null) {
             throw new IllegalArgumentException("Les dates de début et de fin sont obligatoires.");
@@ -414,11 +1080,4 @@ public class OrdreMissionServiceImpl implements OrdreMissionService {
             throw new IllegalArgumentException("La date de fin ne peut pas être antérieure à la date de début.");
         }
     }
-
-    private String generateCodeOrdre(Ecole ecole) {
-        int year = LocalDate.now().getYear();
-        long count = ordreMissionRepository.count() + 1; // simpliste
-
-        return String.format("OM-%d-%04d", year, count);
-    }
 }
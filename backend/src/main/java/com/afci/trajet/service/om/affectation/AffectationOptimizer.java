@@ -0,0 +1,488 @@
+package com.afci.trajet.service.om.affectation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Affectation globale formateurs ↔ OM BROUILLON, à coût minimal.
+ *
+ * Coût d'une affectation : distance école ↔ domicile du formateur (km).
+ * Un OM laissé sans formateur coûte PENALITE_NON_AFFECTE : couvrir un OM
+ * de plus passe toujours avant quelques kilomètres gagnés.
+ *
+ * Contraintes (une affectation qui en viole une n'est jamais proposée) :
+ *  - distance <= Formateur.zoneKm ;
+ *  - au-delà de om.affectation.sans-vehicule-max-km : permis ET véhicule perso ;
+ *  - formateur disponible sur les dates de l'OM (disponibilités déclarées) ;
+ *  - pas de chevauchement de dates avec un OM déjà engagé du formateur,
+ *    ni avec un autre OM du lot qui lui est affecté.
+ *
+ * Étapes :
+ *  1) candidats réalisables de chaque OM, les om.affectation.candidats-par-ordre
+ *     moins chers seulement ;
+ *  2) solution initiale :
+ *     - lot <= om.affectation.seuil-exact : algorithme hongrois (optimum exact
+ *       quand chaque formateur prend au plus un OM du lot, le cas d'une session
+ *       où tous les OM couvrent la même semaine) ;
+ *     - au-delà : glouton, OM les plus contraints d'abord ;
+ *  3) recherche locale (déplacement d'un OM, échange de formateurs entre deux
+ *     OM) tant qu'elle améliore le coût total, dans la limite de
+ *     om.affectation.passes-max passes. Elle peut donner plusieurs OM sans
+ *     chevauchement au même formateur.
+ *
+ * Classe sans accès base : le service fournit le Probleme (distances,
+ * créneaux déjà engagés) et applique le Resultat.
+ */
+@Component
+public class AffectationOptimizer {
+
+    /** Coût d'un OM sans formateur. */
+    static final double PENALITE_NON_AFFECTE = 1.0e6;
+
+    /** "Infini" de l'algorithme hongrois (fini pour éviter INF - INF). */
+    private static final double INFINI = 1.0e15;
+
+    private static final double EPSILON = 1.0e-9;
+
+    /**
+     * OM à pourvoir. debut / fin : jours (LocalDate.toEpochDay), bornes incluses.
+     * indiceEcole : ligne de Probleme.distances.
+     */
+    public record Ordre(int idOrdreMission, int indiceEcole, long debut, long fin) {
+    }
+
+    /**
+     * Formateur du vivier (attributs de mobilité).
+     */
+    public record Formateur(int idFormateur, short zoneKm, boolean vehiculePerso, boolean permis) {
+    }
+
+    /**
+     * Période déjà engagée par un formateur (OM affecté hors lot), bornes incluses.
+     */
+    public record Creneau(long debut, long fin) {
+    }
+
+    /**
+     * Disponibilité déclarée d'un formateur (indice) sur [debut, fin], en jours.
+     */
+    @FunctionalInterface
+    public interface Disponibilites {
+
+        Disponibilites TOUJOURS = (formateur, debut, fin) -> true;
+
+        boolean estDisponible(int formateur, long debut, long fin);
+    }
+
+    /**
+     * @param distances      distances[indiceEcole][indiceFormateur] en km
+     * @param engagements    indice formateur -> créneaux déjà engagés (absent = libre)
+     * @param disponibilites disponibilités déclarées (DisponibiliteIndex)
+     */
+    public record Probleme(List<Ordre> ordres,
+                           List<Formateur> formateurs,
+                           double[][] distances,
+                           Map<Integer, List<Creneau>> engagements,
+                           Disponibilites disponibilites) {
+    }
+
+    /**
+     * @param formateurParOrdre indice formateur retenu pour chaque OM (-1 = aucun)
+     * @param distanceParOrdre  distance de l'affectation (km, NaN si aucune)
+     * @param methode           "HONGROIS" ou "GLOUTON" (solution initiale)
+     */
+    public record Resultat(int[] formateurParOrdre,
+                           double[] distanceParOrdre,
+                           double distanceTotaleKm,
+                           int nonAffectes,
+                           String methode,
+                           int passes) {
+    }
+
+    private final int seuilExact;
+    private final int candidatsParOrdre;
+    private final double sansVehiculeMaxKm;
+    private final int passesMax;
+
+    public AffectationOptimizer(@Value("${om.affectation.seuil-exact:150}") int seuilExact,
+                                @Value("${om.affectation.candidats-par-ordre:30}") int candidatsParOrdre,
+                                @Value("${om.affectation.sans-vehicule-max-km:30}") double sansVehiculeMaxKm,
+                                @Value("${om.affectation.passes-max:20}") int passesMax) {
+        if (candidatsParOrdre < 1) {
+            throw new IllegalArgumentException(
+                    "om.affectation.candidats-par-ordre doit être >= 1 (reçu : " + candidatsParOrdre + ")");
+        }
+        this.seuilExact = seuilExact;
+        this.candidatsParOrdre = candidatsParOrdre;
+        this.sansVehiculeMaxKm = sansVehiculeMaxKm;
+        this.passesMax = passesMax;
+    }
+
+    public Resultat optimiser(Probleme probleme) {
+        List<Ordre> ordres = probleme.ordres();
+        int n = ordres.size();
+
+        // 1️⃣ Candidats réalisables, du moins cher au plus cher
+        int[][] candidats = new int[n][];
+        double[][] couts = new double[n][];
+        for (int o = 0; o < n; o++) {
+            selectionnerCandidats(probleme, ordres.get(o), o, candidats, couts);
+        }
+
+        // 2️⃣ Solution initiale
+        int[] affectation = new int[n];
+        Arrays.fill(affectation, -1);
+        String methode;
+        if (n <= seuilExact) {
+            hongrois(candidats, couts, affectation);
+            methode = "HONGROIS";
+        } else {
+            glouton(ordres, candidats, couts, probleme.formateurs().size(), affectation);
+            methode = "GLOUTON";
+        }
+
+        // 3️⃣ Recherche locale
+        Planning planning = new Planning(ordres, probleme.formateurs().size());
+        for (int o = 0; o < n; o++) {
+            if (affectation[o] >= 0) {
+                planning.ajouter(affectation[o], o);
+            }
+        }
+        int passes = ameliorer(ordres, candidats, couts, affectation, planning);
+
+        double[] distances = new double[n];
+        double total = 0.0;
+        int nonAffectes = 0;
+        for (int o = 0; o < n; o++) {
+            if (affectation[o] < 0) {
+                distances[o] = Double.NaN;
+                nonAffectes++;
+            } else {
+                distances[o] = cout(candidats[o], couts[o], affectation[o]);
+                total += distances[o];
+            }
+        }
+        return new Resultat(affectation, distances, total, nonAffectes, methode, passes);
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Candidats réalisables
+    // ---------------------------------------------------------------------
+
+    /**
+     * Garde les candidatsParOrdre formateurs réalisables les plus proches
+     * (insertion dans un petit tableau trié : pas de tri de tout le vivier).
+     */
+    private void selectionnerCandidats(Probleme probleme, Ordre ordre, int o,
+                                       int[][] candidats, double[][] couts) {
+        double[] ligne = probleme.distances()[ordre.indiceEcole()];
+        List<Formateur> formateurs = probleme.formateurs();
+        int[] ids = new int[candidatsParOrdre];
+        double[] ds = new double[candidatsParOrdre];
+        int taille = 0;
+
+        for (int f = 0; f < formateurs.size(); f++) {
+            double d = ligne[f];
+            if (taille == candidatsParOrdre && d >= ds[taille - 1]) {
+                continue;
+            }
+            if (!estRealisable(formateurs.get(f), d, probleme.engagements().get(f), ordre)
+                    || !probleme.disponibilites().estDisponible(f, ordre.debut(), ordre.fin())) {
+                continue;
+            }
+            int pos = (taille == candidatsParOrdre) ? taille - 1 : taille++;
+            while (pos > 0 && ds[pos - 1] > d) {
+                ids[pos] = ids[pos - 1];
+                ds[pos] = ds[pos - 1];
+                pos--;
+            }
+            ids[pos] = f;
+            ds[pos] = d;
+        }
+        candidats[o] = Arrays.copyOf(ids, taille);
+        couts[o] = Arrays.copyOf(ds, taille);
+    }
+
+    private boolean estRealisable(Formateur f, double distanceKm, List<Creneau> engagements, Ordre ordre) {
+        if (distanceKm > f.zoneKm()) {
+            return false;
+        }
+        if (distanceKm > sansVehiculeMaxKm && !(f.permis() && f.vehiculePerso())) {
+            return false;
+        }
+        if (engagements != null) {
+            for (Creneau c : engagements) {
+                if (c.debut() <= ordre.fin() && ordre.debut() <= c.fin()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Solutions initiales
+    // ---------------------------------------------------------------------
+
+    /**
+     * Algorithme hongrois (potentiels, O(n² m)) : lignes = OM, colonnes =
+     * formateurs candidats d'au moins un OM + une colonne "non affecté" par OM.
+     * Chaque formateur prend au plus un OM : aucun chevauchement possible.
+     */
+    private static void hongrois(int[][] candidats, double[][] couts, int[] affectation) {
+        int n = candidats.length;
+        List<Integer> formateurDeColonne = new ArrayList<>();
+        Map<Integer, Integer> colonnes = new HashMap<>();
+        for (int[] cs : candidats) {
+            for (int f : cs) {
+                colonnes.computeIfAbsent(f, k -> {
+                    formateurDeColonne.add(k);
+                    return formateurDeColonne.size();       // colonnes numérotées à partir de 1
+                });
+            }
+        }
+        int k = formateurDeColonne.size();
+        int m = k + n;
+
+        double[][] a = new double[n + 1][m + 1];
+        for (int i = 1; i <= n; i++) {
+            Arrays.fill(a[i], 1, k + 1, INFINI);
+            Arrays.fill(a[i], k + 1, m + 1, PENALITE_NON_AFFECTE);
+            for (int c = 0; c < candidats[i - 1].length; c++) {
+                a[i][colonnes.get(candidats[i - 1][c])] = couts[i - 1][c];
+            }
+        }
+
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] ligneDe = new int[m + 1];
+        int[] precedent = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] vu = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            ligneDe[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, INFINI);
+            Arrays.fill(vu, false);
+            do {
+                vu[j0] = true;
+                int i0 = ligneDe[j0];
+                double delta = INFINI;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (!vu[j]) {
+                        double cur = a[i0][j] - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            precedent[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (vu[j]) {
+                        u[ligneDe[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (ligneDe[j0] != 0);
+            do {
+                int j1 = precedent[j0];
+                ligneDe[j0] = ligneDe[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        for (int j = 1; j <= k; j++) {
+            if (ligneDe[j] != 0) {
+                affectation[ligneDe[j] - 1] = formateurDeColonne.get(j - 1);
+            }
+        }
+    }
+
+    /**
+     * Glouton : les OM qui ont le moins de candidats d'abord (puis le plus
+     * grand regret entre 1er et 2e choix), chacun prend son candidat le moins
+     * cher encore libre sur ses dates.
+     */
+    private static void glouton(List<Ordre> ordres, int[][] candidats, double[][] couts,
+                                int nbFormateurs, int[] affectation) {
+        Planning planning = new Planning(ordres, nbFormateurs);
+        Integer[] ordre = IntStream.range(0, ordres.size()).boxed().toArray(Integer[]::new);
+        Arrays.sort(ordre, Comparator.<Integer>comparingInt(o -> candidats[o].length)
+                .thenComparing(o -> -regret(couts[o])));
+
+        for (int o : ordre) {
+            for (int c = 0; c < candidats[o].length; c++) {
+                int f = candidats[o][c];
+                if (planning.estLibre(f, o, -1)) {
+                    affectation[o] = f;
+                    planning.ajouter(f, o);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static double regret(double[] couts) {
+        return (couts.length < 2) ? PENALITE_NON_AFFECTE : couts[1] - couts[0];
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ Recherche locale
+    // ---------------------------------------------------------------------
+
+    /**
+     * Première amélioration trouvée, OM par OM :
+     *  - déplacement : l'OM passe à un candidat moins cher libre sur ses dates
+     *    (ou trouve enfin un formateur s'il n'en avait pas) ;
+     *  - échange : deux OM échangent leurs formateurs si le total baisse.
+     *
+     * @return nombre de passes effectuées
+     */
+    private int ameliorer(List<Ordre> ordres, int[][] candidats, double[][] couts,
+                          int[] affectation, Planning planning) {
+        int passes = 0;
+        boolean ameliore = true;
+        while (ameliore && passes < passesMax) {
+            ameliore = false;
+            passes++;
+            for (int o = 0; o < ordres.size(); o++) {
+                if (deplacer(o, candidats, couts, affectation, planning)
+                        || echanger(o, candidats, couts, affectation, planning)) {
+                    ameliore = true;
+                }
+            }
+        }
+        return passes;
+    }
+
+    private static boolean deplacer(int o, int[][] candidats, double[][] couts,
+                                    int[] affectation, Planning planning) {
+        double actuel = coutActuel(o, candidats, couts, affectation);
+        for (int c = 0; c < candidats[o].length; c++) {
+            int f = candidats[o][c];
+            if (couts[o][c] >= actuel - EPSILON || f == affectation[o]) {
+                return false;                                // candidats triés : plus rien de moins cher
+            }
+            if (planning.estLibre(f, o, -1)) {
+                if (affectation[o] >= 0) {
+                    planning.retirer(affectation[o], o);
+                }
+                affectation[o] = f;
+                planning.ajouter(f, o);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean echanger(int o, int[][] candidats, double[][] couts,
+                                    int[] affectation, Planning planning) {
+        int f1 = affectation[o];
+        if (f1 < 0) {
+            return false;
+        }
+        double actuel = cout(candidats[o], couts[o], f1);
+        for (int c = 0; c < candidats[o].length; c++) {
+            if (couts[o][c] >= actuel - EPSILON) {
+                return false;
+            }
+            int f2 = candidats[o][c];
+            for (int o2 : planning.ordresDe(f2)) {
+                double gain = actuel + cout(candidats[o2], couts[o2], f2)
+                        - couts[o][c] - cout(candidats[o2], couts[o2], f1);
+                if (gain > EPSILON && planning.estLibre(f2, o, o2) && planning.estLibre(f1, o2, o)) {
+                    planning.retirer(f1, o);
+                    planning.retirer(f2, o2);
+                    affectation[o] = f2;
+                    affectation[o2] = f1;
+                    planning.ajouter(f2, o);
+                    planning.ajouter(f1, o2);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static double coutActuel(int o, int[][] candidats, double[][] couts, int[] affectation) {
+        return (affectation[o] < 0) ? PENALITE_NON_AFFECTE : cout(candidats[o], couts[o], affectation[o]);
+    }
+
+    /**
+     * Coût de (o, f), INFINI si f n'est pas un candidat de o.
+     */
+    private static double cout(int[] candidats, double[] couts, int f) {
+        for (int c = 0; c < candidats.length; c++) {
+            if (candidats[c] == f) {
+                return couts[c];
+            }
+        }
+        return INFINI;
+    }
+
+    /**
+     * OM du lot affectés à chaque formateur (quelques-uns au plus).
+     */
+    private static final class Planning {
+
+        private static final int[] AUCUN = new int[0];
+
+        private final List<Ordre> ordres;
+        private final int[][] parFormateur;
+
+        Planning(List<Ordre> ordres, int nbFormateurs) {
+            this.ordres = ordres;
+            this.parFormateur = new int[nbFormateurs][];
+            Arrays.fill(parFormateur, AUCUN);
+        }
+
+        int[] ordresDe(int f) {
+            return parFormateur[f];
+        }
+
+        /**
+         * Le formateur f peut-il prendre l'OM o, en ignorant l'OM "sauf"
+         * (celui qu'il céderait dans un échange) ?
+         */
+        boolean estLibre(int f, int o, int sauf) {
+            Ordre ordre = ordres.get(o);
+            for (int autre : parFormateur[f]) {
+                if (autre != o && autre != sauf) {
+                    Ordre a = ordres.get(autre);
+                    if (a.debut() <= ordre.fin() && ordre.debut() <= a.fin()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void ajouter(int f, int o) {
+            int[] actuels = parFormateur[f];
+            int[] nouveaux = Arrays.copyOf(actuels, actuels.length + 1);
+            nouveaux[actuels.length] = o;
+            parFormateur[f] = nouveaux;
+        }
+
+        void retirer(int f, int o) {
+            parFormateur[f] = Arrays.stream(parFormateur[f]).filter(x -> x != o).toArray();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.afci.trajet.service.om.candidat;
+
+/**
+ * Données minimales d'un formateur candidat nécessaires au classement.
+ *
+ * Volontairement "plat" et primitif : le classement porte sur tout le vivier
+ * de formateurs, alors que les DTO ne sont construits que pour les K retenus.
+ *
+ * distanceKm est à vol d'oiseau, ou routière une fois passée par RoutingEngine
+ * (dureeRouteMin renseignée ; NaN sinon). lat / lon : domicile, en degrés.
+ */
+public record CandidatContexte(int idFormateur,
+                               int idUser,
+                               double distanceKm,
+                               short zoneKm,
+                               boolean vehiculePerso,
+                               boolean permis,
+                               double lat,
+                               double lon,
+                               double dureeRouteMin) {
+
+    /**
+     * Même candidat, avec la distance et la durée routières.
+     */
+    public CandidatContexte avecRoute(double distanceRouteKm, double dureeMin) {
+        return new CandidatContexte(idFormateur, idUser, distanceRouteKm, zoneKm, vehiculePerso, permis,
+                lat, lon, dureeMin);
+    }
+}
@@ -0,0 +1,38 @@
+package com.afci.trajet.service.om.candidat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position dans un classement de candidats : (score, idFormateur) du dernier
+ * élément renvoyé. La page suivante contient les candidats classés
+ * strictement après cette position.
+ *
+ * Sérialisé en Base64 URL-safe pour rester opaque côté front.
+ */
+public record CandidatCurseur(double score, int idFormateur) {
+
+    public String encoder() {
+        String brut = Long.toHexString(Double.doubleToLongBits(score)) + ":" + idFormateur;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur reçu du front (null ou vide => début du classement).
+     */
+    public static CandidatCurseur decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return null;
+        }
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            int sep = brut.indexOf(':');
+            double score = Double.longBitsToDouble(Long.parseUnsignedLong(brut.substring(0, sep), 16));
+            int idFormateur = Integer.parseInt(brut.substring(sep + 1));
+            return new CandidatCurseur(score, idFormateur);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Curseur de pagination invalide.");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.afci.trajet.service.om.candidat;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Critères de notation par défaut des candidats formateurs.
+ *
+ * Les poids sont configurables dans application.yml (candidats.score.*).
+ * Un poids à 0 neutralise le critère.
+ */
+@Configuration
+public class CandidatScoringConfig {
+
+    /**
+     * Proximité : 1 au pied de l'école, 0 à distance-reference-km et au-delà.
+     */
+    @Bean
+    public CandidateScorer scoreDistance(
+            @Value("${candidats.score.poids-distance:1.0}") double poids,
+            @Value("${candidats.score.distance-reference-km:500}") double distanceReferenceKm) {
+        return c -> poids * Math.max(0.0, 1.0 - c.distanceKm() / distanceReferenceKm);
+    }
+
+    /**
+     * Adéquation à la zone de mobilité déclarée (Formateur.zoneKm) :
+     * 1 si l'école est dans la zone, décroissance linéaire jusqu'à 0
+     * à deux fois la zone.
+     */
+    @Bean
+    public CandidateScorer scoreZone(
+            @Value("${candidats.score.poids-zone:1.0}") double poids) {
+        return c -> {
+            if (c.distanceKm() <= c.zoneKm()) {
+                return poids;
+            }
+            if (c.zoneKm() <= 0) {
+                return 0.0;
+            }
+            double depassement = (c.distanceKm() - c.zoneKm()) / c.zoneKm();
+            return poids * Math.max(0.0, 1.0 - depassement);
+        };
+    }
+
+    @Bean
+    public CandidateScorer scoreVehiculePerso(
+            @Value("${candidats.score.poids-vehicule-perso:0.2}") double poids) {
+        return c -> c.vehiculePerso() ? poids : 0.0;
+    }
+
+    @Bean
+    public CandidateScorer scorePermis(
+            @Value("${candidats.score.poids-permis:0.2}") double poids) {
+        return c -> c.permis() ? poids : 0.0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.afci.trajet.service.om.candidat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Étape de classement des candidats formateurs.
+ *
+ * Rôle :
+ *  - noter chaque candidat avec le pipeline de CandidateScorer ;
+ *  - filtrer sur la distance maximale et la position du curseur ;
+ *  - ne conserver que les K meilleurs dans un tas borné (O(n log K)),
+ *    sans trier tout le vivier.
+ *
+ * Ordre du classement : score décroissant, puis idFormateur croissant
+ * (départage stable, nécessaire pour la pagination par curseur).
+ */
+@Component
+public class CandidateRanker {
+
+    private static final Comparator<CandidatClasse> ORDRE_CLASSEMENT =
+            Comparator.comparingDouble(CandidatClasse::score).reversed()
+                    .thenComparingInt(c -> c.candidat().idFormateur());
+
+    private final List<CandidateScorer> scorers;
+
+    public CandidateRanker(List<CandidateScorer> scorers) {
+        this.scorers = List.copyOf(scorers);
+    }
+
+    /**
+     * Candidat noté.
+     */
+    public record CandidatClasse(CandidatContexte candidat, double score) {
+    }
+
+    /**
+     * Résultat d'un classement : les K meilleurs (triés) + curseur suivant
+     * (null s'il n'y a plus de candidats après cette page).
+     */
+    public record Classement(List<CandidatClasse> retenus, CandidatCurseur suivant) {
+    }
+
+    /**
+     * @param candidats     vivier de candidats (ordre quelconque)
+     * @param limit         nombre maximal de candidats à retenir (K)
+     * @param maxDistanceKm distance maximale (null = pas de filtre)
+     * @param apres         curseur de la page précédente (null = début)
+     */
+    public Classement classer(Iterable<CandidatContexte> candidats,
+                              int limit,
+                              Double maxDistanceKm,
+                              CandidatCurseur apres) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("La limite doit être strictement positive.");
+        }
+
+        // Tas "à l'envers" : la tête est le MOINS bon des retenus.
+        // On garde K+1 éléments pour savoir s'il existe une page suivante.
+        PriorityQueue<CandidatClasse> tas = new PriorityQueue<>(
+                Math.min(limit + 1, 1024), ORDRE_CLASSEMENT.reversed());
+
+        for (CandidatContexte c : candidats) {
+            if (maxDistanceKm != null && c.distanceKm() > maxDistanceKm) {
+                continue;
+            }
+
+            double score = noter(c);
+            if (apres != null && !estApres(score, c.idFormateur(), apres)) {
+                continue;
+            }
+
+            CandidatClasse classe = new CandidatClasse(c, score);
+            if (tas.size() <= limit) {
+                tas.offer(classe);
+            } else if (ORDRE_CLASSEMENT.compare(classe, tas.peek()) < 0) {
+                tas.poll();
+                tas.offer(classe);
+            }
+        }
+
+        boolean pageSuivante = tas.size() > limit;
+        if (pageSuivante) {
+            tas.poll();
+        }
+
+        List<CandidatClasse> retenus = new ArrayList<>(tas);
+        retenus.sort(ORDRE_CLASSEMENT);
+
+        CandidatCurseur suivant = null;
+        if (pageSuivante && !retenus.isEmpty()) {
+            CandidatClasse dernier = retenus.get(retenus.size() - 1);
+            suivant = new CandidatCurseur(dernier.score(), dernier.candidat().idFormateur());
+        }
+
+        return new Classement(retenus, suivant);
+    }
+
+    public double noter(CandidatContexte candidat) {
+        double score = 0.0;
+        for (CandidateScorer scorer : scorers) {
+            score += scorer.noter(candidat);
+        }
+        return score;
+    }
+
+    private static boolean estApres(double score, int idFormateur, CandidatCurseur curseur) {
+        int cmp = Double.compare(curseur.score(), score);
+        return cmp > 0 || (cmp == 0 && idFormateur > curseur.idFormateur());
+    }
+}
@@ -0,0 +1,19 @@
+package com.afci.trajet.service.om.candidat;
+
+/**
+ * Critère de notation d'un candidat formateur.
+ *
+ * Chaque bean Spring implémentant cette interface est automatiquement
+ * ajouté au pipeline du CandidateRanker : le score final d'un candidat
+ * est la somme des contributions de tous les critères.
+ *
+ * Convention : plus la contribution est élevée, meilleur est le candidat.
+ */
+@FunctionalInterface
+public interface CandidateScorer {
+
+    /**
+     * Contribution (déjà pondérée) du critère au score du candidat.
+     */
+    double noter(CandidatContexte candidat);
+}
@@ -0,0 +1,110 @@
+package com.afci.trajet.service.om.code;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.repository.OrdreMissionCompteurRepository;
+
+/**
+ * Attribution des codes d'ordre de mission (OM-AAAA-NNNN), sans count(*).
+ *
+ * Numéros réservés par blocs de om.code.bloc dans ordre_mission_compteur
+ * (une ligne par année, cf. db/10), puis distribués en mémoire :
+ *  - chemin nominal : un getAndIncrement sur un AtomicLong, sans verrou
+ *    ni requête ;
+ *  - bloc épuisé : un seul thread réserve le bloc suivant (mini-transaction
+ *    séparée), les autres attendent ce bloc.
+ * Unicité garantie entre threads ET entre instances (chacune réserve ses
+ * propres blocs en base).
+ *
+ * Trous possibles : les numéros non distribués d'un bloc sont perdus à
+ * l'arrêt de l'instance, et un numéro distribué à un OM dont la création
+ * échoue n'est pas réutilisé. Avec om.code.bloc = 1, chaque numéro est
+ * réservé dans la transaction de création (rendu en cas de rollback) :
+ * numérotation sans trou, créations sérialisées par année.
+ */
+@Component
+public class CodeOrdreAllocator {
+
+    /**
+     * Réservation d'un bloc de numéros : renvoie le dernier numéro du bloc
+     * (le bloc est [dernier - taille + 1, dernier]).
+     */
+    @FunctionalInterface
+    interface ReservationBloc {
+        long reserver(int annee, int taille);
+    }
+
+    /** Numéros encore disponibles en mémoire pour une année. */
+    private record Plage(int annee, AtomicLong prochain, long fin) {
+    }
+
+    private static final String FORMAT = "OM-%d-%04d";
+
+    private final ReservationBloc reservation;
+    private final int taille;
+
+    private final AtomicReference<Plage> courante = new AtomicReference<>();
+
+    @Autowired
+    public CodeOrdreAllocator(OrdreMissionCompteurRepository compteurRepository,
+                              @Value("${om.code.bloc:20}") int taille) {
+        this((annee, n) -> (n == 1)
+                        ? compteurRepository.reserverDansTransaction(annee)
+                        : compteurRepository.reserverBloc(annee, n),
+                taille);
+    }
+
+    CodeOrdreAllocator(ReservationBloc reservation, int taille) {
+        if (taille < 1) {
+            throw new IllegalArgumentException("om.code.bloc doit être >= 1 (reçu : " + taille + ")");
+        }
+        this.reservation = reservation;
+        this.taille = taille;
+    }
+
+    /**
+     * Code pour un nouvel OM de l'année en cours.
+     */
+    public String prochainCode() {
+        return prochainCode(LocalDate.now().getYear());
+    }
+
+    String prochainCode(int annee) {
+        return String.format(FORMAT, annee, prochainNumero(annee));
+    }
+
+    long prochainNumero(int annee) {
+        if (taille == 1) {
+            // Mode sans trou : chaque numéro vient de la base, dans la transaction appelante
+            return reservation.reserver(annee, 1);
+        }
+        while (true) {
+            Plage p = courante.get();
+            if (p != null && p.annee() == annee) {
+                long n = p.prochain().getAndIncrement();
+                if (n <= p.fin()) {
+                    return n;
+                }
+            }
+            recharger(p, annee);
+        }
+    }
+
+    /**
+     * Plage épuisée (ou changement d'année) : un seul thread réserve le bloc
+     * suivant ; ceux qui arrivent ensuite trouvent la nouvelle plage.
+     */
+    private synchronized void recharger(Plage epuisee, int annee) {
+        if (courante.get() != epuisee) {
+            return;                                  // déjà rechargée par un autre thread
+        }
+        long dernier = reservation.reserver(annee, taille);
+        courante.set(new Plage(annee, new AtomicLong(dernier - taille + 1), dernier));
+    }
+}
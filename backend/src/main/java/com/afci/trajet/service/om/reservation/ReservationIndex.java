@@ -0,0 +1,219 @@
+package com.afci.trajet.service.om.reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.afci.trajet.entity.OrdreMission;
+import com.afci.trajet.repository.OrdreMissionRepository;
+import com.afci.trajet.util.ApresCommit;
+
+/**
+ * Index en mémoire des périodes ENGAGÉES de chaque formateur : OM affectés
+ * dont le statut n'est ni BROUILLON ni REJETE (PROPOSE, VALIDE, SIGNE, ...),
+ * même règle que OrdreMissionRepository.findCreneauxEngages*.
+ *
+ * Sert aux lectures de masse sans requête par candidat : exclusion des
+ * formateurs déjà pris dans les listes de candidats, créneaux engagés du
+ * plan d'affectation optimisé, refus rapide d'une affectation en conflit.
+ * Le contrôle qui fait foi lors d'une affectation reste celui fait en base
+ * sous verrou du formateur (OrdreMissionServiceImpl), l'index n'étant mis à
+ * jour qu'après commit.
+ *
+ * Cycle de vie (même principe que FormateurSpatialIndex) :
+ *  - chargement au démarrage puis chaque nuit (OM terminés depuis plus
+ *    d'un mois écartés), publié d'un bloc : pendant un rechargement, les
+ *    lecteurs continuent de voir l'index précédent, jamais un index vide ;
+ *  - mise à jour unitaire APRÈS COMMIT à chaque changement de statut ou
+ *    d'affectation d'un OM (mettreAJourApresCommit), sous le même verrou
+ *    que le rechargement.
+ */
+@Component
+public class ReservationIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationIndex.class);
+
+    /** OM terminés depuis plus longtemps : inutiles aux contrôles. */
+    private static final int RECUL_JOURS = 31;
+
+    private final OrdreMissionRepository ordreMissionRepository;
+
+    /**
+     * parFormateur      : idFormateur -> périodes engagées (immuables) ;
+     * formateurParOrdre : idOrdreMission -> idFormateur engagé (pour retirer
+     *                     l'ancienne période).
+     */
+    private record Etat(Map<Integer, Reservations> parFormateur, Map<Integer, Integer> formateurParOrdre) {
+    }
+
+    /** Remplacé en bloc par recharger() ; modifié sous verrou ensuite. */
+    private volatile Etat etat = new Etat(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    private volatile boolean pret = false;
+
+    public ReservationIndex(OrdreMissionRepository ordreMissionRepository) {
+        this.ordreMissionRepository = ordreMissionRepository;
+    }
+
+    /**
+     * Période engagée d'un formateur, bornes incluses.
+     */
+    public record Reservation(int idOrdreMission, LocalDate debut, LocalDate fin) {
+    }
+
+    // ---------------------------------------------------------------------
+    // 1️⃣ Chargement
+    // ---------------------------------------------------------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void chargerAuDemarrage() {
+        try {
+            recharger();
+        } catch (Exception ex) {
+            // L'index sera rechargé paresseusement à la première recherche.
+            log.warn("Chargement initial de l'index des réservations formateurs impossible", ex);
+        }
+    }
+
+    /**
+     * Rechargement nocturne : écarte les OM terminés et resynchronise
+     * avec les autres instances.
+     */
+    @Scheduled(cron = "${om.reservation.recompilation:0 20 3 * * *}")
+    public void rechargerChaqueNuit() {
+        recharger();
+    }
+
+    /**
+     * Recharge tout l'index (1 requête sur ordre_mission).
+     */
+    public synchronized void recharger() {
+        List<OrdreMissionRepository.CreneauEngage> lignes =
+                ordreMissionRepository.findCreneauxEngagesDepuis(LocalDate.now().minusDays(RECUL_JOURS));
+
+        Map<Integer, List<long[]>> periodes = new HashMap<>();
+        Map<Integer, Integer> formateurParOrdre = new ConcurrentHashMap<>();
+        for (OrdreMissionRepository.CreneauEngage c : lignes) {
+            periodes.computeIfAbsent(c.getIdFormateur(), k -> new ArrayList<>()).add(new long[] {
+                    c.getIdOrdreMission(), c.getDateDebut().toEpochDay(), c.getDateFin().toEpochDay()});
+            formateurParOrdre.put(c.getIdOrdreMission(), c.getIdFormateur());
+        }
+        Map<Integer, Reservations> parFormateur = new ConcurrentHashMap<>();
+        periodes.forEach((idFormateur, p) -> parFormateur.put(idFormateur, Reservations.de(p)));
+
+        etat = new Etat(parFormateur, formateurParOrdre);
+        pret = true;
+
+        log.info("Index des réservations formateurs chargé : {} OM engagés, {} formateurs",
+                formateurParOrdre.size(), parFormateur.size());
+    }
+
+    // ---------------------------------------------------------------------
+    // 2️⃣ Mises à jour unitaires
+    // ---------------------------------------------------------------------
+
+    /**
+     * Répercute l'état d'un OM (statut, formateur, dates) une fois la
+     * transaction courante validée (ou immédiatement sans transaction).
+     * À appeler après CHAQUE transition de statut ou changement d'affectation.
+     *
+     * Les valeurs sont capturées tout de suite : l'entité peut encore
+     * être modifiée avant le commit sans fausser l'index.
+     */
+    public void mettreAJourApresCommit(OrdreMission om) {
+        int idOrdreMission = om.getIdOrdreMission();
+        Integer idFormateur = om.getIdFormateur();
+        boolean engage = idFormateur != null && estStatutEngage(om.getStatut());
+        long debut = om.getDateDebut().toEpochDay();
+        long fin = om.getDateFin().toEpochDay();
+
+        ApresCommit.executer(() -> {
+            if (engage) {
+                reserver(idOrdreMission, idFormateur, debut, fin);
+            } else {
+                liberer(idOrdreMission);
+            }
+        });
+    }
+
+    synchronized void reserver(int idOrdreMission, int idFormateur, long debut, long fin) {
+        liberer(idOrdreMission);
+        Etat e = etat;
+        e.parFormateur().put(idFormateur,
+                e.parFormateur().getOrDefault(idFormateur, Reservations.VIDE).avec(idOrdreMission, debut, fin));
+        e.formateurParOrdre().put(idOrdreMission, idFormateur);
+    }
+
+    synchronized void liberer(int idOrdreMission) {
+        Etat e = etat;
+        Integer ancien = e.formateurParOrdre().remove(idOrdreMission);
+        if (ancien == null) {
+            return;
+        }
+        Reservations restantes = e.parFormateur().getOrDefault(ancien, Reservations.VIDE).sans(idOrdreMission);
+        if (restantes.estVide()) {
+            e.parFormateur().remove(ancien);
+        } else {
+            e.parFormateur().put(ancien, restantes);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // 3️⃣ Recherches
+    // ---------------------------------------------------------------------
+
+    /**
+     * Le formateur a-t-il déjà une période engagée qui chevauche [debut, fin] ?
+     * O(log n), n = nombre d'OM engagés du formateur.
+     */
+    public boolean estReserve(int idFormateur, LocalDate debut, LocalDate fin) {
+        Reservations r = reservations(idFormateur);
+        return r != null && r.chevauche(debut.toEpochDay(), fin.toEpochDay());
+    }
+
+    /**
+     * Périodes engagées du formateur qui chevauchent [debut, fin].
+     */
+    public List<Reservation> reservations(int idFormateur, LocalDate debut, LocalDate fin) {
+        Reservations r = reservations(idFormateur);
+        if (r == null) {
+            return List.of();
+        }
+        return r.chevauchantes(debut.toEpochDay(), fin.toEpochDay()).stream()
+                .map(p -> new Reservation((int) p[0], LocalDate.ofEpochDay(p[1]), LocalDate.ofEpochDay(p[2])))
+                .toList();
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private Reservations reservations(int idFormateur) {
+        if (!pret) {
+            chargerSiBesoin();
+        }
+        return etat.parFormateur().get(idFormateur);
+    }
+
+    private synchronized void chargerSiBesoin() {
+        if (!pret) {
+            recharger();
+        }
+    }
+
+    private static boolean estStatutEngage(String statut) {
+        return statut != null
+                && !"BROUILLON".equalsIgnoreCase(statut)
+                && !"REJETE".equalsIgnoreCase(statut);
+    }
+}
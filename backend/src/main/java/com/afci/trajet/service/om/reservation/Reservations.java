@@ -0,0 +1,131 @@
+package com.afci.trajet.service.om.reservation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Périodes engagées d'UN formateur, immuables (remplacées en bloc).
+ *
+ * Intervalles [debut, fin] en jours (epochDay, bornes incluses) triés par
+ * début, avec le maximum préfixe des fins : finMax[i] = max(fins[0..i]).
+ * C'est un arbre d'intervalles "aplati" pour un ensemble statique :
+ *  - le dernier intervalle qui commence au plus tard à "fin" se trouve par
+ *    recherche dichotomique ;
+ *  - un chevauchement existe si et seulement si finMax de cet indice >= debut.
+ * Test de conflit en O(log n), même si des périodes se chevauchent entre elles
+ * (données historiques).
+ */
+final class Reservations {
+
+    static final Reservations VIDE = new Reservations(new long[0], new long[0], new long[0], new int[0]);
+
+    private final long[] debuts;
+    private final long[] fins;
+    private final long[] finMax;
+    private final int[] idsOrdreMission;
+
+    private Reservations(long[] debuts, long[] fins, long[] finMax, int[] idsOrdreMission) {
+        this.debuts = debuts;
+        this.fins = fins;
+        this.finMax = finMax;
+        this.idsOrdreMission = idsOrdreMission;
+    }
+
+    /**
+     * @param periodes triplets {idOrdreMission, debut, fin}, dans un ordre quelconque
+     */
+    static Reservations de(List<long[]> periodes) {
+        if (periodes.isEmpty()) {
+            return VIDE;
+        }
+        long[][] triees = periodes.toArray(long[][]::new);
+        Arrays.sort(triees, (a, b) -> Long.compare(a[1], b[1]));
+
+        int n = triees.length;
+        long[] debuts = new long[n];
+        long[] fins = new long[n];
+        long[] finMax = new long[n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = (int) triees[i][0];
+            debuts[i] = triees[i][1];
+            fins[i] = triees[i][2];
+            finMax[i] = (i == 0) ? fins[i] : Math.max(finMax[i - 1], fins[i]);
+        }
+        return new Reservations(debuts, fins, finMax, ids);
+    }
+
+    boolean estVide() {
+        return debuts.length == 0;
+    }
+
+    /**
+     * Une période engagée chevauche-t-elle [debut, fin] ?
+     */
+    boolean chevauche(long debut, long fin) {
+        int i = dernierDebutAuPlusTard(fin);
+        return i >= 0 && finMax[i] >= debut;
+    }
+
+    /**
+     * Périodes qui chevauchent [debut, fin], triplets {idOrdreMission, debut, fin}.
+     * O(log n + nombre de périodes parcourues à rebours).
+     */
+    List<long[]> chevauchantes(long debut, long fin) {
+        List<long[]> resultat = new ArrayList<>();
+        for (int i = dernierDebutAuPlusTard(fin); i >= 0 && finMax[i] >= debut; i--) {
+            if (fins[i] >= debut) {
+                resultat.add(new long[] {idsOrdreMission[i], debuts[i], fins[i]});
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Copie avec la période de l'OM (remplace l'éventuelle période précédente de cet OM).
+     */
+    Reservations avec(int idOrdreMission, long debut, long fin) {
+        List<long[]> periodes = periodesSauf(idOrdreMission);
+        periodes.add(new long[] {idOrdreMission, debut, fin});
+        return de(periodes);
+    }
+
+    /**
+     * Copie sans la période de l'OM.
+     */
+    Reservations sans(int idOrdreMission) {
+        return de(periodesSauf(idOrdreMission));
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    /**
+     * Indice du dernier intervalle dont le début est <= fin, -1 si aucun.
+     */
+    private int dernierDebutAuPlusTard(long fin) {
+        int bas = 0;
+        int haut = debuts.length - 1;
+        while (bas <= haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (debuts[milieu] <= fin) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu - 1;
+            }
+        }
+        return haut;
+    }
+
+    private List<long[]> periodesSauf(int idOrdreMission) {
+        List<long[]> periodes = new ArrayList<>(debuts.length + 1);
+        for (int i = 0; i < debuts.length; i++) {
+            if (idsOrdreMission[i] != idOrdreMission) {
+                periodes.add(new long[] {idsOrdreMission[i], debuts[i], fins[i]});
+            }
+        }
+        return periodes;
+    }
+}
@@ -0,0 +1,228 @@
+package com.afci.trajet.service.trajet;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.afci.trajet.dto.om.ecole.FormateurCandidatProjection;
+import com.afci.trajet.entity.Ecole;
+import com.afci.trajet.entity.OrdreMission;
+import com.afci.trajet.entity.Trajet;
+import com.afci.trajet.repository.EcoleRepository;
+import com.afci.trajet.repository.FormateurRepository;
+import com.afci.trajet.repository.OrdreMissionRepository;
+import com.afci.trajet.repository.TrajetRepository;
+import com.afci.trajet.service.geo.route.RoutingEngine;
+import com.afci.trajet.util.ApresCommit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Propositions de trajets calculées par l'application (propose_par = SYSTEME).
+ *
+ * Pour chaque OM affecté : trajet VOITURE domicile du formateur -> école,
+ * calculé par le moteur de routage local (RoutingEngine) :
+ *  - distance_km / duree_min : trajet aller ;
+ *  - cout_estime : aller-retour au barème kilométrique (trajets.bareme-km) ;
+ *  - itineraire_json : résumé + trace échantillonnée [[lat, lon], ...].
+ *
+ * Les propositions SYSTEME non retenues de ces OM sont remplacées ; un trajet
+ * déjà retenu n'est jamais touché. Sans moteur de routage, rien n'est proposé.
+ *
+ * Appelé APRÈS COMMIT de l'affectation (proposerApresCommit), sur un thread
+ * virtuel : le calcul des itinéraires ne retient ni la requête HTTP ni les
+ * verrous des formateurs. Seules la suppression et l'insertion se font dans
+ * une transaction courte, qui ignore un OM réaffecté entre-temps.
+ */
+@Service
+public class TrajetRoutierService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrajetRoutierService.class);
+
+    static final String MOYEN_VOITURE = "VOITURE";
+    static final String PROPOSE_PAR_SYSTEME = "SYSTEME";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * OM affecté, capturé avant le commit (l'entité est détachée ensuite).
+     */
+    public record OmAffecte(int idOrdreMission, int idFormateur, int idEcole) {
+    }
+
+    private final RoutingEngine routingEngine;
+    private final TrajetRepository trajetRepository;
+    private final OrdreMissionRepository ordreMissionRepository;
+    private final FormateurRepository formateurRepository;
+    private final EcoleRepository ecoleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BigDecimal baremeKm;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TrajetRoutierService(RoutingEngine routingEngine,
+                                TrajetRepository trajetRepository,
+                                OrdreMissionRepository ordreMissionRepository,
+                                FormateurRepository formateurRepository,
+                                EcoleRepository ecoleRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${trajets.bareme-km:0.35}") BigDecimal baremeKm) {
+        this.routingEngine = routingEngine;
+        this.trajetRepository = trajetRepository;
+        this.ordreMissionRepository = ordreMissionRepository;
+        this.formateurRepository = formateurRepository;
+        this.ecoleRepository = ecoleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.baremeKm = baremeKm;
+    }
+
+    /**
+     * Planifie la (re)proposition des trajets VOITURE des OM affectés, une
+     * fois la transaction courante validée (rien en cas de rollback).
+     *
+     * Les identifiants sont capturés tout de suite ; le calcul se fait en
+     * arrière-plan, hors de la transaction et de ses verrous.
+     */
+    public void proposerApresCommit(List<OrdreMission> oms) {
+        List<OmAffecte> affectes = oms.stream()
+                .filter(om -> om.getIdFormateur() != null)
+                .map(om -> new OmAffecte(om.getIdOrdreMission(), om.getIdFormateur(), om.getIdEcole()))
+                .toList();
+        if (!routingEngine.estDisponible() || affectes.isEmpty()) {
+            return;
+        }
+        ApresCommit.executer(() -> executor.execute(() -> {
+            try {
+                proposerTrajetsVoiture(affectes);
+            } catch (Exception ex) {
+                log.warn("Proposition des trajets impossible pour {} OM", affectes.size(), ex);
+            }
+        }));
+    }
+
+    /**
+     * (Re)propose le trajet VOITURE de chaque OM affecté à un formateur.
+     *
+     * Lectures (2 requêtes : formateurs, écoles) et itinéraires hors
+     * transaction ; puis une transaction courte qui verrouille les OM,
+     * écarte ceux dont le formateur a changé et remplace les propositions.
+     *
+     * @return trajets enregistrés (OM sans route trouvée : pas de trajet)
+     */
+    public List<Trajet> proposerTrajetsVoiture(List<OmAffecte> affectes) {
+        if (!routingEngine.estDisponible() || affectes.isEmpty()) {
+            return List.of();
+        }
+
+        // 1) Domiciles (formateurs actifs géocodés) et écoles, en 2 requêtes
+        Map<Integer, FormateurCandidatProjection> domiciles = formateurRepository
+                .findCandidatsActifsParIds(affectes.stream().map(OmAffecte::idFormateur).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(FormateurCandidatProjection::getIdFormateur, Function.identity()));
+        Map<Integer, Ecole> ecoles = ecoleRepository
+                .findAllById(affectes.stream().map(OmAffecte::idEcole).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Ecole::getIdEcole, Function.identity()));
+
+        // 2) Un itinéraire par OM (A* sur le graphe en mémoire), sans transaction
+        OffsetDateTime maintenant = OffsetDateTime.now();
+        Map<Integer, Trajet> trajetParOm = new HashMap<>();
+        for (OmAffecte om : affectes) {
+            FormateurCandidatProjection domicile = domiciles.get(om.idFormateur());
+            Ecole ecole = ecoles.get(om.idEcole());
+            if (domicile == null || ecole == null || ecole.getLat() == null || ecole.getLon() == null) {
+                continue;
+            }
+            Optional<RoutingEngine.Itineraire> itineraire = routingEngine.itineraire(
+                    domicile.getLat(), domicile.getLon(),
+                    ecole.getLat().doubleValue(), ecole.getLon().doubleValue());
+            itineraire.ifPresent(it -> trajetParOm.put(om.idOrdreMission(), toTrajet(om, it, maintenant)));
+        }
+
+        // 3) Écriture : OM verrouillés, toujours affectés au même formateur
+        Map<Integer, Integer> formateurParOm = affectes.stream()
+                .collect(Collectors.toMap(OmAffecte::idOrdreMission, OmAffecte::idFormateur, (a, b) -> b));
+        return transactionTemplate.execute(statut -> {
+            List<Integer> aJour = ordreMissionRepository.verrouillerParIds(formateurParOm.keySet()).stream()
+                    .filter(o -> o.getIdFormateur() != null
+                            && o.getIdFormateur().equals(formateurParOm.get(o.getIdOrdreMission())))
+                    .map(OrdreMission::getIdOrdreMission)
+                    .toList();
+            if (aJour.isEmpty()) {
+                return List.<Trajet>of();
+            }
+            trajetRepository.supprimerPropositionsNonRetenues(aJour, PROPOSE_PAR_SYSTEME);
+            List<Trajet> trajets = new ArrayList<>();
+            for (Integer idOrdreMission : aJour) {
+                Trajet t = trajetParOm.get(idOrdreMission);
+                if (t != null) {
+                    trajets.add(t);
+                }
+            }
+            return trajetRepository.saveAll(trajets);
+        });
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdown();
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private Trajet toTrajet(OmAffecte om, RoutingEngine.Itineraire it, OffsetDateTime maintenant) {
+        BigDecimal distanceKm = BigDecimal.valueOf(it.distanceKm()).setScale(2, RoundingMode.HALF_UP);
+        int dureeMin = (int) Math.round(it.dureeMin());
+        BigDecimal cout = distanceKm.multiply(BigDecimal.valueOf(2)).multiply(baremeKm)
+                .setScale(2, RoundingMode.HALF_UP);
+
+        Trajet t = new Trajet();
+        t.setIdOrdreMission(om.idOrdreMission());
+        t.setMoyenPrincipal(MOYEN_VOITURE);
+        t.setDistanceKm(distanceKm);
+        t.setDureeMin(dureeMin);
+        t.setCoutEstime(cout);
+        t.setItineraireJson(itineraireJson(distanceKm, dureeMin, it));
+        t.setProposePar(PROPOSE_PAR_SYSTEME);
+        t.setRetenu(false);
+        t.setCreatedAt(maintenant);
+        t.setUpdatedAt(maintenant);
+        return t;
+    }
+
+    private static String itineraireJson(BigDecimal distanceKm, int dureeMin, RoutingEngine.Itineraire it) {
+        ObjectNode racine = JSON.createObjectNode();
+        racine.put("source", "ROUTAGE_LOCAL");
+        racine.put("distanceKm", distanceKm);
+        racine.put("dureeMin", dureeMin);
+        racine.put("allerRetour", true);
+        ArrayNode trace = racine.putArray("trace");
+        for (int i = 0; i < it.lats().length; i++) {
+            trace.addArray()
+                    .add(Math.round(it.lats()[i] * 1e5) / 1e5)
+                    .add(Math.round(it.lons()[i] * 1e5) / 1e5);
+        }
+        return racine.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.afci.trajet.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Exécution différée au commit de la transaction courante.
+ *
+ * Utilisé par les caches et index en mémoire : mis à jour avant le commit,
+ * une lecture concurrente pourrait remettre l'ancien état (ou exposer un
+ * état jamais validé si la transaction est annulée).
+ */
+public final class ApresCommit {
+
+    private ApresCommit() {
+        // classe utilitaire, pas d'instanciation
+    }
+
+    /**
+     * Exécute l'action après le commit de la transaction courante ; tout de
+     * suite s'il n'y a pas de transaction. Rien n'est fait en cas de rollback.
+     */
+    public static void executer(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
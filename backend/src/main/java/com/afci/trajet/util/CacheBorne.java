@@ -0,0 +1,108 @@
+package com.afci.trajet.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Table concurrente bornée à tailleMax entrées, pour les caches en mémoire.
+ *
+ * Lectures sans verrou (ConcurrentHashMap). Quand la table est pleine, les
+ * entrées les moins récemment écrites (ecrire / obtenir) sont évincées
+ * jusqu'à 90 % de la borne : un tri toutes les tailleMax / 10 insertions
+ * environ, au lieu de tout oublier d'un coup.
+ */
+public final class CacheBorne<K, V> {
+
+    private static final class Entree<V> {
+        final V valeur;
+        volatile long rang;
+
+        Entree(V valeur, long rang) {
+            this.valeur = valeur;
+            this.rang = rang;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entree<V>> entrees = new ConcurrentHashMap<>();
+    private final AtomicLong horloge = new AtomicLong();
+    private final int tailleMax;
+
+    public CacheBorne(int tailleMax) {
+        if (tailleMax <= 0) {
+            throw new IllegalArgumentException("Taille maximale de cache invalide : " + tailleMax);
+        }
+        this.tailleMax = tailleMax;
+    }
+
+    /**
+     * @return la valeur, ou null si la clé est absente (ne compte pas comme une écriture)
+     */
+    public V lire(K cle) {
+        Entree<V> e = entrees.get(cle);
+        return (e == null) ? null : e.valeur;
+    }
+
+    public void ecrire(K cle, V valeur) {
+        if (!entrees.containsKey(cle)) {
+            faireDeLaPlace();
+        }
+        entrees.put(cle, new Entree<>(valeur, horloge.incrementAndGet()));
+    }
+
+    /**
+     * Valeur de la clé, créée si absente ; l'entrée devient la plus récente.
+     */
+    public V obtenir(K cle, Function<? super K, ? extends V> creation) {
+        Entree<V> e = entrees.get(cle);
+        if (e == null) {
+            faireDeLaPlace();
+            e = entrees.computeIfAbsent(cle, k -> new Entree<>(creation.apply(k), horloge.incrementAndGet()));
+        } else {
+            e.rang = horloge.incrementAndGet();
+        }
+        return e.valeur;
+    }
+
+    public void retirer(K cle) {
+        entrees.remove(cle);
+    }
+
+    public void retirerSi(BiPredicate<? super K, ? super V> condition) {
+        entrees.entrySet().removeIf(e -> condition.test(e.getKey(), e.getValue().valeur));
+    }
+
+    public void vider() {
+        entrees.clear();
+    }
+
+    public int taille() {
+        return entrees.size();
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers internes
+    // ---------------------------------------------------------------------
+
+    private void faireDeLaPlace() {
+        if (entrees.size() < tailleMax) {
+            return;
+        }
+        synchronized (this) {
+            int taille = entrees.size();
+            if (taille < tailleMax) {
+                return;
+            }
+            long[] rangs = entrees.values().stream().mapToLong(e -> e.rang).toArray();
+            if (rangs.length == 0) {
+                return;
+            }
+            Arrays.sort(rangs);
+            int aRetirer = Math.min(rangs.length, taille - tailleMax * 9 / 10);
+            long seuil = rangs[aRetirer - 1];
+            entrees.values().removeIf(e -> e.rang <= seuil);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.afci.trajet.service.geo.route;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.afci.trajet.service.geo.DistanceEngine;
+
+/**
+ * Durées du moteur de routage (A* + repères, Dijkstra un-vers-plusieurs)
+ * comparées à un Dijkstra de référence, sur une grille routière aléatoire
+ * (vitesses variées, sens uniques, tronçons coupés) écrite puis relue.
+ *
+ * Temps de réponse sur 1 M nœuds : RoutingBenchmark (module benchmarks).
+ */
+class RoutingEngineTest {
+
+    private static final double PAS_DEG = 0.01;
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void dureesIdentiquesAuDijkstraDeReference() throws IOException {
+        Grille grille = new Grille(60, 60, new Random(3));
+        RoutingEngine moteur = moteur(grille, 8);
+        Random r = new Random(5);
+
+        for (int essai = 0; essai < 200; essai++) {
+            int a = r.nextInt(grille.n);
+            int b = r.nextInt(grille.n);
+            int attendu = grille.dijkstra(a, false)[b];
+
+            Optional<RoutingEngine.Itineraire> it = moteur.itineraire(grille.lat(a), grille.lon(a),
+                    grille.lat(b), grille.lon(b));
+            if (attendu == Integer.MAX_VALUE) {
+                assertFalse(it.isPresent(), a + " -> " + b);
+                continue;
+            }
+            assertTrue(it.isPresent(), a + " -> " + b);
+            assertEquals(attendu, Math.round(it.get().dureeMin() * 600), a + " -> " + b);
+            assertTrue(it.get().distanceKm() + 1e-9
+                    >= DistanceEngine.distanceKm(grille.lat(a), grille.lon(a), grille.lat(b), grille.lon(b)));
+        }
+    }
+
+    @Test
+    void unVersPlusieursEtPlusieursVersUn() throws IOException {
+        Grille grille = new Grille(40, 50, new Random(8));
+        RoutingEngine moteur = moteur(grille, 4);
+        Random r = new Random(13);
+
+        for (int essai = 0; essai < 20; essai++) {
+            int origine = r.nextInt(grille.n);
+            int[] points = r.ints(30, 0, grille.n).toArray();
+            double[] lats = Arrays.stream(points).mapToDouble(grille::lat).toArray();
+            double[] lons = Arrays.stream(points).mapToDouble(grille::lon).toArray();
+
+            RoutingEngine.Trajets depuis = moteur.unVersPlusieurs(grille.lat(origine), grille.lon(origine), lats, lons);
+            RoutingEngine.Trajets vers = moteur.plusieursVersUn(lats, lons, grille.lat(origine), grille.lon(origine));
+            int[] refDepuis = grille.dijkstra(origine, false);
+            int[] refVers = grille.dijkstra(origine, true);
+
+            for (int i = 0; i < points.length; i++) {
+                verifier(refDepuis[points[i]], depuis.dureesMin()[i]);
+                verifier(refVers[points[i]], vers.dureesMin()[i]);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------
+
+    private RoutingEngine moteur(Grille grille, int nbReperes) throws IOException {
+        Path fichier = dossier.resolve("graphe.tfrg");
+        grille.builder.construire(nbReperes).ecrire(fichier);
+        RoutingEngine moteur = new RoutingEngine("", 2, 5, Duration.ofDays(1), 4);
+        moteur.charger(fichier);
+        return moteur;
+    }
+
+    private static void verifier(int attenduDs, double dureeMin) {
+        if (attenduDs == Integer.MAX_VALUE) {
+            assertTrue(Double.isNaN(dureeMin));
+        } else {
+            assertEquals(attenduDs, Math.round(dureeMin * 600));
+        }
+    }
+
+    /**
+     * Grille de rues autour de (45°, 3°) : arcs vers les 4 voisins, 30 à
+     * 130 km/h, 10 % de sens uniques, 5 % de tronçons absents.
+     */
+    private static final class Grille {
+        final int n;
+        final int colonnes;
+        final RoadGraphBuilder builder = new RoadGraphBuilder();
+        final List<List<int[]>> sortants = new ArrayList<>();
+        final List<List<int[]>> entrants = new ArrayList<>();
+
+        Grille(int lignes, int colonnes, Random r) {
+            this.n = lignes * colonnes;
+            this.colonnes = colonnes;
+            for (int v = 0; v < n; v++) {
+                builder.ajouterNoeud(lat(v), lon(v));
+                sortants.add(new ArrayList<>());
+                entrants.add(new ArrayList<>());
+            }
+            for (int v = 0; v < n; v++) {
+                int l = v / colonnes;
+                int c = v % colonnes;
+                if (c + 1 < colonnes) {
+                    route(v, v + 1, r);
+                }
+                if (l + 1 < lignes) {
+                    route(v, v + colonnes, r);
+                }
+            }
+        }
+
+        double lat(int v) {
+            return 45.0 + (v / colonnes) * PAS_DEG;
+        }
+
+        double lon(int v) {
+            return 3.0 + (v % colonnes) * PAS_DEG;
+        }
+
+        private void route(int a, int b, Random r) {
+            if (r.nextDouble() < 0.05) {
+                return;
+            }
+            double metres = DistanceEngine.distanceKm(lat(a), lon(a), lat(b), lon(b)) * 1000;
+            double secondes = metres / ((30 + r.nextInt(100)) / 3.6);
+            arc(a, b, metres, secondes);
+            if (r.nextDouble() >= 0.1) {
+                arc(b, a, metres, secondes);
+            }
+        }
+
+        private void arc(int a, int b, double metres, double secondes) {
+            builder.ajouterArc(a, b, metres, secondes);
+            int ds = (int) Math.round(secondes * 10);
+            sortants.get(a).add(new int[] {b, ds});
+            entrants.get(b).add(new int[] {a, ds});
+        }
+
+        /**
+         * Durées (dixièmes de seconde) depuis origine, ou vers origine si inverse.
+         */
+        int[] dijkstra(int origine, boolean inverse) {
+            int[] d = new int[n];
+            Arrays.fill(d, Integer.MAX_VALUE);
+            d[origine] = 0;
+            PriorityQueue<int[]> file = new PriorityQueue<>((x, y) -> Integer.compare(x[1], y[1]));
+            file.add(new int[] {origine, 0});
+            while (!file.isEmpty()) {
+                int[] t = file.poll();
+                if (t[1] > d[t[0]]) {
+                    continue;
+                }
+                for (int[] arc : (inverse ? entrants : sortants).get(t[0])) {
+                    int dv = t[1] + arc[1];
+                    if (dv < d[arc[0]]) {
+                        d[arc[0]] = dv;
+                        file.add(new int[] {arc[0], dv});
+                    }
+                }
+            }
+            return d;
+        }
+    }
+}
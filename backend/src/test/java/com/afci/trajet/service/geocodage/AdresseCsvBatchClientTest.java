@@ -0,0 +1,142 @@
+package com.afci.trajet.service.geocodage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.afci.trajet.service.GeocodingService.Coords;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests du client CSV contre un bouchon local de l'API Adresse
+ * (com.sun.net.httpserver, aucun appel réseau externe).
+ */
+class AdresseCsvBatchClientTest {
+
+    /** Adresses connues du bouchon -> "lat,lon". */
+    private static final Map<String, String> REFERENTIEL = Map.of(
+            "20 rue Jules Barni, 80000 Amiens, FR", "49.887900,2.298500",
+            "1 place \"du\" Beffroi, 59000 Lille, FR", "50.636600,3.063500"
+    );
+
+    private HttpServer serveur;
+    private final AtomicReference<String> dernierCorps = new AtomicReference<>();
+    private final AtomicReference<String> dernierTransfert = new AtomicReference<>();
+    private volatile int statutForce = 200;
+
+    @BeforeEach
+    void demarrerBouchon() throws IOException {
+        serveur = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serveur.createContext("/search/csv/", this::repondre);
+        serveur.start();
+    }
+
+    @AfterEach
+    void arreterBouchon() {
+        serveur.stop(0);
+    }
+
+    @Test
+    void geocodeUnLotEtConserveLOrdre() throws IOException {
+        AdresseCsvBatchClient client = client();
+
+        List<Optional<Coords>> resultats = client.geocoder(List.of(
+                "1 place \"du\" Beffroi, 59000 Lille, FR",
+                "adresse inconnue",
+                "20 rue Jules Barni, 80000 Amiens, FR"));
+
+        assertEquals(3, resultats.size());
+        assertEquals(new BigDecimal("50.636600"), resultats.get(0).orElseThrow().lat());
+        assertEquals(new BigDecimal("3.063500"), resultats.get(0).orElseThrow().lon());
+        assertTrue(resultats.get(1).isEmpty());
+        assertEquals(new BigDecimal("49.887900"), resultats.get(2).orElseThrow().lat());
+
+        String corps = dernierCorps.get();
+        assertTrue(corps.contains("name=\"columns\"\r\n\r\nadresse"));
+        assertTrue(corps.contains("name=\"result_columns\"\r\n\r\nlatitude"));
+        assertTrue(corps.contains("0,\"1 place \"\"du\"\" Beffroi, 59000 Lille, FR\""));
+        // corps écrit en flux : longueur inconnue à l'avance
+        assertEquals("chunked", dernierTransfert.get());
+    }
+
+    @Test
+    void statutHttpEnErreurLeveUneIOException() {
+        statutForce = 503;
+        AdresseCsvBatchClient client = client();
+
+        assertThrows(IOException.class, () -> client.geocoder(List.of("20 rue Jules Barni, 80000 Amiens, FR")));
+    }
+
+    @Test
+    void decoupeLesChampsEntreGuillemets() {
+        assertEquals(List.of("0", "a, \"b\"", "", "x"),
+                AdresseCsvBatchClient.decouper("0,\"a, \"\"b\"\"\",,x"));
+    }
+
+    // ---------------------------------------------------------------------
+    // Bouchon
+    // ---------------------------------------------------------------------
+
+    private AdresseCsvBatchClient client() {
+        ApiAdresseGarde garde = new ApiAdresseGarde(new SimpleMeterRegistry(), 2, Duration.ofSeconds(1),
+                20, 10, 0.5, Duration.ofSeconds(30));
+        return new AdresseCsvBatchClient(new RestTemplate(new HttpComponentsClientHttpRequestFactory()), garde,
+                "http://127.0.0.1:" + serveur.getAddress().getPort());
+    }
+
+    /**
+     * Renvoie le CSV reçu enrichi de latitude / longitude / result_status,
+     * comme le fait l'API Adresse.
+     */
+    private void repondre(HttpExchange echange) throws IOException {
+        String corps = new String(echange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        dernierCorps.set(corps);
+        dernierTransfert.set(echange.getRequestHeaders().getFirst("Transfer-Encoding"));
+
+        if (statutForce != 200) {
+            echange.sendResponseHeaders(statutForce, -1);
+            echange.close();
+            return;
+        }
+
+        String csv = corps.substring(corps.indexOf("id,adresse\n") + "id,adresse\n".length());
+        csv = csv.substring(0, csv.indexOf("\r\n--"));
+
+        StringBuilder reponse = new StringBuilder("id,adresse,latitude,longitude,result_status\n");
+        for (String ligne : csv.split("\n")) {
+            List<String> champs = AdresseCsvBatchClient.decouper(ligne);
+            String coords = REFERENTIEL.get(champs.get(1));
+            reponse.append(champs.get(0)).append(',')
+                   .append(AdresseCsvBatchClient.echapper(champs.get(1))).append(',')
+                   .append(coords != null ? coords + ",ok" : ",,not-found")
+                   .append('\n');
+        }
+
+        byte[] octets = reponse.toString().getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().add("Content-Type", "text/csv; charset=utf-8");
+        echange.sendResponseHeaders(200, octets.length);
+        try (OutputStream out = echange.getResponseBody()) {
+            out.write(octets);
+        }
+    }
+}
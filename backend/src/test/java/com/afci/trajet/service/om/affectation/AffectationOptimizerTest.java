@@ -0,0 +1,172 @@
+package com.afci.trajet.service.om.affectation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.afci.trajet.service.geo.DistanceEngine;
+import com.afci.trajet.service.geo.DistanceMatrix;
+import com.afci.trajet.service.om.affectation.AffectationOptimizer.Creneau;
+import com.afci.trajet.service.om.affectation.AffectationOptimizer.Formateur;
+import com.afci.trajet.service.om.affectation.AffectationOptimizer.Ordre;
+import com.afci.trajet.service.om.affectation.AffectationOptimizer.Probleme;
+import com.afci.trajet.service.om.affectation.AffectationOptimizer.Resultat;
+
+/**
+ * Optimalité (petits lots, comparée à l'énumération) et respect des
+ * contraintes (gros lots, glouton + recherche locale).
+ *
+ * Temps de calcul (1 000 OM × 5 000 formateurs) : AffectationOptimizerBenchmark
+ * (module benchmarks).
+ */
+class AffectationOptimizerTest {
+
+    private static final double SANS_VEHICULE_MAX_KM = 30;
+
+    @Test
+    void hongroisOptimalQuandTousLesOmSeChevauchent() {
+        AffectationOptimizer optimizer = new AffectationOptimizer(150, 30, SANS_VEHICULE_MAX_KM, 20);
+        for (long graine = 1; graine <= 50; graine++) {
+            Random r = new Random(graine);
+            // Même semaine pour tous : un formateur prend au plus un OM
+            Probleme p = genererProbleme(r, 4, 6, 2, 0, 0);
+            Resultat res = optimizer.optimiser(p);
+
+            assertEquals("HONGROIS", res.methode());
+            assertEquals(optimumParEnumeration(p, optimizer), coutTotal(res), 1e-6, "graine " + graine);
+            verifierContraintes(p, res);
+        }
+    }
+
+    @Test
+    void grosLotSansDoubleReservationNiContrainteViolee() {
+        // seuil exact à 0 : glouton + recherche locale
+        AffectationOptimizer optimizer = new AffectationOptimizer(0, 30, SANS_VEHICULE_MAX_KM, 20);
+        Probleme p = genererProbleme(new Random(42), 400, 600, 20, 30, 300);
+        Resultat res = optimizer.optimiser(p);
+
+        assertEquals("GLOUTON", res.methode());
+        verifierContraintes(p, res);
+        assertTrue(res.nonAffectes() < p.ordres().size(), "aucun OM affecté");
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------
+
+    /**
+     * Écoles et formateurs tirés en France métropolitaine ; OM de 1 à 5 jours
+     * sur "jours" jours ("jours" = 0 : tous du jour 0 au jour 4).
+     */
+    private static Probleme genererProbleme(Random r, int nbOrdres, int nbFormateurs, int nbEcoles,
+                                            int jours, int nbEngagements) {
+        double[] latsEcoles = new double[nbEcoles];
+        double[] lonsEcoles = new double[nbEcoles];
+        for (int e = 0; e < nbEcoles; e++) {
+            latsEcoles[e] = 43 + r.nextDouble() * 7;
+            lonsEcoles[e] = -1 + r.nextDouble() * 8;
+        }
+        double[] lats = new double[nbFormateurs];
+        double[] lons = new double[nbFormateurs];
+        List<Formateur> formateurs = new ArrayList<>();
+        for (int f = 0; f < nbFormateurs; f++) {
+            lats[f] = 43 + r.nextDouble() * 7;
+            lons[f] = -1 + r.nextDouble() * 8;
+            formateurs.add(new Formateur(1_000 + f, (short) (50 + r.nextInt(400)),
+                    r.nextDouble() < 0.8, r.nextDouble() < 0.85));
+        }
+        double[][] distances = DistanceMatrix.calculer(latsEcoles, lonsEcoles,
+                DistanceEngine.Points.depuisDegres(lats, lons));
+
+        List<Ordre> ordres = new ArrayList<>();
+        for (int o = 0; o < nbOrdres; o++) {
+            long debut = (jours == 0) ? 0 : r.nextInt(jours);
+            long fin = (jours == 0) ? 4 : debut + r.nextInt(5);
+            ordres.add(new Ordre(o + 1, r.nextInt(nbEcoles), debut, fin));
+        }
+
+        Map<Integer, List<Creneau>> engagements = new HashMap<>();
+        for (int i = 0; i < nbEngagements; i++) {
+            long debut = r.nextInt(Math.max(jours, 1));
+            engagements.computeIfAbsent(r.nextInt(nbFormateurs), k -> new ArrayList<>())
+                    .add(new Creneau(debut, debut + r.nextInt(5)));
+        }
+        return new Probleme(ordres, formateurs, distances, engagements, AffectationOptimizer.Disponibilites.TOUJOURS);
+    }
+
+    private static void verifierContraintes(Probleme p, Resultat res) {
+        List<Ordre> ordres = p.ordres();
+        for (int o = 0; o < ordres.size(); o++) {
+            int f = res.formateurParOrdre()[o];
+            if (f < 0) {
+                continue;
+            }
+            Ordre ordre = ordres.get(o);
+            Formateur formateur = p.formateurs().get(f);
+            double d = p.distances()[ordre.indiceEcole()][f];
+            assertTrue(d <= formateur.zoneKm(), "zone dépassée");
+            assertTrue(d <= SANS_VEHICULE_MAX_KM || (formateur.permis() && formateur.vehiculePerso()),
+                    "véhicule / permis requis");
+            for (Creneau c : p.engagements().getOrDefault(f, List.of())) {
+                assertTrue(c.fin() < ordre.debut() || ordre.fin() < c.debut(), "créneau déjà engagé");
+            }
+            for (int o2 = o + 1; o2 < ordres.size(); o2++) {
+                if (res.formateurParOrdre()[o2] == f) {
+                    Ordre autre = ordres.get(o2);
+                    assertTrue(autre.fin() < ordre.debut() || ordre.fin() < autre.debut(),
+                            "formateur réservé deux fois");
+                }
+            }
+        }
+    }
+
+    private static double coutTotal(Resultat res) {
+        return res.distanceTotaleKm() + res.nonAffectes() * AffectationOptimizer.PENALITE_NON_AFFECTE;
+    }
+
+    /**
+     * Meilleur coût total par énumération (un formateur par OM au plus,
+     * réalisabilité vérifiée avec un lot d'un seul OM).
+     */
+    private static double optimumParEnumeration(Probleme p, AffectationOptimizer optimizer) {
+        int n = p.ordres().size();
+        int nbF = p.formateurs().size();
+        boolean[][] realisable = new boolean[n][nbF];
+        for (int o = 0; o < n; o++) {
+            for (int f = 0; f < nbF; f++) {
+                Ordre ordre = p.ordres().get(o);
+                Probleme seul = new Probleme(
+                        List.of(new Ordre(ordre.idOrdreMission(), 0, ordre.debut(), ordre.fin())),
+                        List.of(p.formateurs().get(f)),
+                        new double[][] {{p.distances()[ordre.indiceEcole()][f]}},
+                        p.engagements().containsKey(f) ? Map.of(0, p.engagements().get(f)) : Map.of(),
+                        AffectationOptimizer.Disponibilites.TOUJOURS);
+                realisable[o][f] = optimizer.optimiser(seul).nonAffectes() == 0;
+            }
+        }
+        return enumerer(p, realisable, 0, new boolean[nbF]);
+    }
+
+    private static double enumerer(Probleme p, boolean[][] realisable, int o, boolean[] pris) {
+        if (o == p.ordres().size()) {
+            return 0.0;
+        }
+        double meilleur = AffectationOptimizer.PENALITE_NON_AFFECTE + enumerer(p, realisable, o + 1, pris);
+        for (int f = 0; f < pris.length; f++) {
+            if (!pris[f] && realisable[o][f]) {
+                pris[f] = true;
+                double d = p.distances()[p.ordres().get(o).indiceEcole()][f];
+                meilleur = Math.min(meilleur, d + enumerer(p, realisable, o + 1, pris));
+                pris[f] = false;
+            }
+        }
+        return meilleur;
+    }
+}
@@ -0,0 +1,128 @@
+package com.afci.trajet.service.om.code;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unicité des codes OM sous charge parallèle.
+ *
+ * La ligne ordre_mission_compteur est simulée par un compteur synchronisé
+ * (même sémantique que l'upsert ... RETURNING sous verrou de ligne).
+ */
+class CodeOrdreAllocatorTest {
+
+    private static final int THREADS = 16;
+    private static final int PAR_THREAD = 2_000;
+
+    /** Compteur annuel "en base", partagé entre instances. */
+    private static final class CompteurSimule implements CodeOrdreAllocator.ReservationBloc {
+        private final Map<Integer, Long> derniers = new HashMap<>();
+        private final AtomicInteger reservations = new AtomicInteger();
+
+        @Override
+        public synchronized long reserver(int annee, int taille) {
+            reservations.incrementAndGet();
+            return derniers.merge(annee, (long) taille, Long::sum);
+        }
+    }
+
+    @Test
+    void codesUniquesEtContigusSousConcurrence() throws Exception {
+        CompteurSimule compteur = new CompteurSimule();
+        CodeOrdreAllocator allocator = new CodeOrdreAllocator(compteur, 20);
+
+        Set<String> codes = allouerEnParallele(List.of(allocator), 2026);
+
+        int total = THREADS * PAR_THREAD;
+        assertEquals(total, codes.size(), "doublons détectés");
+        // Une seule instance, sans arrêt : aucun numéro perdu
+        for (int n = 1; n <= total; n++) {
+            if (!codes.contains(String.format("OM-2026-%04d", n))) {
+                throw new AssertionError("numéro manquant : " + n);
+            }
+        }
+        // Un accès "base" par bloc, pas par création
+        assertEquals(total / 20, compteur.reservations.get());
+    }
+
+    @Test
+    void plusieursInstancesNePartagentJamaisUnNumero() throws Exception {
+        CompteurSimule compteur = new CompteurSimule();
+        List<CodeOrdreAllocator> instances = List.of(
+                new CodeOrdreAllocator(compteur, 7),
+                new CodeOrdreAllocator(compteur, 20),
+                new CodeOrdreAllocator(compteur, 1));
+
+        Set<String> codes = allouerEnParallele(instances, 2026);
+
+        assertEquals(THREADS * PAR_THREAD, codes.size(), "doublons détectés");
+    }
+
+    @Test
+    void changementDAnneeRepartDuCompteurDeLAnnee() {
+        CompteurSimule compteur = new CompteurSimule();
+        CodeOrdreAllocator allocator = new CodeOrdreAllocator(compteur, 5);
+
+        assertEquals("OM-2025-0001", allocator.prochainCode(2025));
+        assertEquals("OM-2025-0002", allocator.prochainCode(2025));
+        assertEquals("OM-2026-0001", allocator.prochainCode(2026));
+        assertEquals("OM-2026-0002", allocator.prochainCode(2026));
+    }
+
+    @Test
+    void refuseUneTailleDeBlocNulle() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CodeOrdreAllocator((annee, taille) -> 0L, 0));
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------
+
+    /**
+     * THREADS threads démarrés ensemble, répartis sur les instances,
+     * PAR_THREAD codes chacun.
+     */
+    private static Set<String> allouerEnParallele(List<CodeOrdreAllocator> instances, int annee)
+            throws Exception {
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<?>> taches = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                CodeOrdreAllocator allocator = instances.get(t % instances.size());
+                taches.add(pool.submit(() -> {
+                    depart.await();
+                    for (int i = 0; i < PAR_THREAD; i++) {
+                        if (!codes.add(allocator.prochainCode(annee))) {
+                            throw new AssertionError("code attribué deux fois");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> tache : taches) {
+                tache.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,68 @@
+package com.afci.trajet.service.om.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Recherche de chevauchements comparée à un parcours exhaustif, y compris
+ * avec des périodes qui se chevauchent entre elles et après mises à jour.
+ */
+class ReservationsTest {
+
+    @Test
+    void chevauchementsIdentiquesAuParcoursExhaustif() {
+        Random r = new Random(11);
+        for (int essai = 0; essai < 200; essai++) {
+            List<long[]> periodes = new ArrayList<>();
+            int n = r.nextInt(40);
+            for (int i = 0; i < n; i++) {
+                long debut = r.nextInt(365);
+                periodes.add(new long[] {i + 1, debut, debut + r.nextInt(r.nextBoolean() ? 5 : 60)});
+            }
+            Reservations reservations = Reservations.de(periodes);
+
+            // Mises à jour : une période déplacée, une retirée
+            if (n > 2) {
+                long debut = r.nextInt(365);
+                reservations = reservations.avec(1, debut, debut + 3).sans(2);
+                periodes.set(0, new long[] {1, debut, debut + 3});
+                periodes.remove(1);
+            }
+
+            for (int q = 0; q < 50; q++) {
+                long debut = r.nextInt(400) - 20;
+                long fin = debut + r.nextInt(10);
+                Set<Long> attendus = periodes.stream()
+                        .filter(p -> p[1] <= fin && p[2] >= debut)
+                        .map(p -> p[0])
+                        .collect(Collectors.toSet());
+                Set<Long> trouves = reservations.chevauchantes(debut, fin).stream()
+                        .map(p -> p[0])
+                        .collect(Collectors.toSet());
+
+                assertEquals(attendus, trouves, "essai " + essai + " [" + debut + ", " + fin + "]");
+                assertEquals(!attendus.isEmpty(), reservations.chevauche(debut, fin));
+            }
+        }
+    }
+
+    @Test
+    void bornesIncluses() {
+        Reservations reservations = Reservations.de(List.<long[]>of(new long[] {7, 10, 14}));
+
+        assertTrue(reservations.chevauche(14, 20));
+        assertTrue(reservations.chevauche(5, 10));
+        assertFalse(reservations.chevauche(15, 20));
+        assertFalse(reservations.chevauche(5, 9));
+        assertTrue(reservations.sans(7).estVide());
+    }
+}
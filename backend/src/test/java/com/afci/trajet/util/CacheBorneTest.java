@@ -0,0 +1,44 @@
+package com.afci.trajet.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Éviction des entrées les moins récemment écrites, sans vider la table.
+ */
+class CacheBorneTest {
+
+    @Test
+    void evinceLesPlusAnciennesSeulement() {
+        CacheBorne<Integer, String> cache = new CacheBorne<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.ecrire(i, "v" + i);
+        }
+        // la clé 0 est réécrite : elle devient la plus récente
+        cache.obtenir(0, k -> "jamais");
+
+        cache.ecrire(100, "v100");
+
+        assertTrue(cache.taille() <= 100);
+        assertTrue(cache.taille() >= 90);
+        assertNotNull(cache.lire(0));
+        assertNotNull(cache.lire(100));
+        assertNotNull(cache.lire(99));
+        assertNull(cache.lire(1));
+    }
+
+    @Test
+    void compteurActifConserveSousPression() {
+        CacheBorne<String, int[]> compteurs = new CacheBorne<>(50);
+        for (int i = 0; i < 10_000; i++) {
+            compteurs.obtenir("cible", k -> new int[1])[0]++;
+            compteurs.obtenir("bruit-" + i, k -> new int[1]);
+        }
+        assertEquals(10_000, compteurs.lire("cible")[0]);
+        assertTrue(compteurs.taille() <= 50);
+    }
+}